@@ -0,0 +1,81 @@
+package org.proxysoa.spring.benchmark;
+
+import com.fasterxml.jackson.databind.JavaType;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.proxysoa.spring.codec.BodyCodec;
+import org.proxysoa.spring.codec.CodecRegistry;
+import org.proxysoa.spring.codec.JacksonBodyCodec;
+import org.proxysoa.spring.codec.JsonCodec;
+import org.proxysoa.spring.dto.ProjectDTO;
+import org.proxysoa.spring.dto.UserDTO;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Throughput of the body codecs writing and reading a getAllProjects-like response. Payload size
+ * of each codec is printed on setup (numbers and repeated field names are where binary formats save).
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@State(Scope.Benchmark)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class BodyCodecBenchmark {
+    @Param({"json", "protobuf", "smile", "cbor"})
+    public String codecName;
+
+    private BodyCodec codec;
+    private List<ProjectDTO> projects;
+    private byte[] payload;
+    private JavaType projectsType;
+
+    @Setup
+    public void setup() throws IOException {
+        JsonCodec jsonCodec = new JsonCodec();
+        codec = "json".equals(codecName)
+                ? JacksonBodyCodec.json(jsonCodec)
+                : new CodecRegistry().getCodec(codecName);
+        projects = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            final long id = i;
+            projects.add(new ProjectDTO(p -> {
+                p.setId(id);
+                p.setName("Project " + id + " name");
+                p.setOwner(new UserDTO(u -> {
+                    u.setId(id);
+                    u.setEmail("user1@someemail.com");
+                    u.setName("User " + id + " name");
+                }));
+            }));
+        }
+        payload = codec.write(projects);
+        projectsType = jsonCodec.getObjectMapper().getTypeFactory()
+                .constructCollectionType(List.class, ProjectDTO.class);
+        System.out.println("Payload of " + codec + ": " + payload.length + " bytes");
+    }
+
+    @Benchmark
+    public byte[] writeProjects() {
+        return codec.write(projects);
+    }
+
+    @Benchmark
+    public Object readProjects() throws IOException {
+        return codec.read(new ByteArrayInputStream(payload), projectsType);
+    }
+}
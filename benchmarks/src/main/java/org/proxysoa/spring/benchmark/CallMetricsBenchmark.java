@@ -0,0 +1,60 @@
+package org.proxysoa.spring.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.proxysoa.spring.exception.SOAControllerInvocationException;
+import org.proxysoa.spring.metrics.MethodMetrics;
+import org.proxysoa.spring.metrics.MetricsSettings;
+import org.springframework.web.client.ResourceAccessException;
+
+import java.net.SocketTimeoutException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of recording a proxy call in the method's metrics (calls in flight, latency histogram, outcome counter)
+ * by many threads recording calls of the same method at once, and of taking the latency snapshot the way
+ * JMX and micrometer exporters read it.
+ */
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Benchmark)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Threads(8)
+@Fork(1)
+public class CallMetricsBenchmark {
+    private MethodMetrics metrics;
+    private Exception timeout;
+
+    @Setup
+    public void setup() {
+        metrics = new MethodMetrics("ProjectController", "getProject", new MetricsSettings());
+        timeout = new SOAControllerInvocationException("Error calling remote service URL",
+                new ResourceAccessException("I/O error", new SocketTimeoutException("Read timed out")));
+    }
+
+    @Benchmark
+    public void recordSuccess() {
+        metrics.onComplete(metrics.onStart(), null);
+    }
+
+    @Benchmark
+    public void recordTimeout() {
+        metrics.onComplete(metrics.onStart(), timeout);
+    }
+
+    @Benchmark
+    @Threads(1)
+    public Object snapshot() {
+        return metrics.getLatency();
+    }
+}
@@ -0,0 +1,116 @@
+package org.proxysoa.spring.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.proxysoa.spring.codec.JsonCodec;
+import org.proxysoa.spring.compression.CompressionSettings;
+import org.proxysoa.spring.compression.ContentCoding;
+import org.proxysoa.spring.compression.ZstdDictionary;
+import org.proxysoa.spring.compression.ZstdDictionaryTrainer;
+import org.proxysoa.spring.dto.ProjectDTO;
+import org.proxysoa.spring.dto.UserDTO;
+import org.springframework.util.StreamUtils;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Throughput of the content codings compressing and decompressing small contract payloads (a UserDTO,
+ * a single user's projects). The zstd dictionary is trained from other generated payloads on setup,
+ * compressed size of each coding is printed on setup ("identity" is the uncompressed baseline).
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@State(Scope.Benchmark)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CompressionBenchmark {
+    @Param({"identity", "gzip", "zstd", "zstd-dictionary"})
+    public String coding;
+
+    @Param({"user", "projects"})
+    public String payloadName;
+
+    private String contentCoding;
+    private int level;
+    private ZstdDictionary dictionary;
+    private byte[] payload;
+    private byte[] encoded;
+
+    @Setup
+    public void setup() {
+        JsonCodec jsonCodec = new JsonCodec();
+        CompressionSettings settings = new CompressionSettings();
+        contentCoding = coding.startsWith(ContentCoding.ZSTD) ? ContentCoding.ZSTD : coding;
+        level = settings.getLevel(contentCoding);
+        if ("zstd-dictionary".equals(coding)) {
+            List<Object> samples = new ArrayList<>();
+            for (int i = 1000; i < 3000; i++) {
+                samples.add(i % 2 == 0 ? user(i) : projects(i));
+            }
+            dictionary = ZstdDictionaryTrainer.trainJson(samples, jsonCodec,
+                    ZstdDictionaryTrainer.DEFAULT_DICTIONARY_SIZE);
+        }
+        payload = jsonCodec.writeValueAsBytes("user".equals(payloadName) ? user(1) : projects(1));
+        encoded = encode();
+        System.out.println("Payload " + payloadName + " of " + coding + ": " + payload.length + " -> "
+                + encoded.length + " bytes");
+    }
+
+    @Benchmark
+    public byte[] compress() {
+        return encode();
+    }
+
+    @Benchmark
+    public byte[] decompress() throws IOException {
+        if (contentCoding.equals("identity")) {
+            return encoded.clone();
+        }
+        return StreamUtils.copyToByteArray(ContentCoding.decoder(new ByteArrayInputStream(encoded), contentCoding,
+                dictionary));
+    }
+
+    private byte[] encode() {
+        if (contentCoding.equals("identity")) {
+            return payload.clone();
+        }
+        return ContentCoding.encode(payload, contentCoding, level, dictionary);
+    }
+
+    private static UserDTO user(long id) {
+        return new UserDTO(u -> {
+            u.setId(id);
+            u.setEmail("user" + id + "@someemail.com");
+            u.setName("User " + id + " name");
+        });
+    }
+
+    private static List<ProjectDTO> projects(long userId) {
+        UserDTO owner = user(userId);
+        List<ProjectDTO> projects = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            final long id = userId * 10 + i;
+            projects.add(new ProjectDTO(p -> {
+                p.setId(id);
+                p.setName("Project " + id + " name");
+                p.setOwner(owner);
+            }));
+        }
+        return Collections.unmodifiableList(projects);
+    }
+}
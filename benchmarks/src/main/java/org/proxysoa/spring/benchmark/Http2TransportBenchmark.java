@@ -0,0 +1,167 @@
+package org.proxysoa.spring.benchmark;
+
+import org.eclipse.jetty.http2.server.HTTP2CServerConnectionFactory;
+import org.eclipse.jetty.server.HttpConfiguration;
+import org.eclipse.jetty.server.HttpConnectionFactory;
+import org.eclipse.jetty.server.Request;
+import org.eclipse.jetty.server.Server;
+import org.eclipse.jetty.server.ServerConnector;
+import org.eclipse.jetty.server.handler.AbstractHandler;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.proxysoa.spring.codec.JsonCodec;
+import org.proxysoa.spring.dto.ProjectDTO;
+import org.proxysoa.spring.dto.UserDTO;
+import org.proxysoa.spring.service.ConnectionPoolSettings;
+import org.proxysoa.spring.service.PooledHttpTransport;
+import org.proxysoa.spring.service.RestCallHandler;
+import org.proxysoa.spring.transport.Http2Settings;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestMethod;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Proxy calls from many threads at once over pooled HTTP/1.1 connections against h2c streams multiplexed
+ * over a few connections. Jetty serves pre-serialized projects on one connector speaking both protocols,
+ * serviceMillis simulates the service's work (HTTP/1.1 calls hold a pooled connection meanwhile).
+ */
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@State(Scope.Benchmark)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Threads(128)
+@Fork(1)
+public class Http2TransportBenchmark {
+    /**
+     * Contract of the called controller
+     */
+    public interface ProjectsContract {
+        @RequestMapping(value = "/projects/one", method = RequestMethod.GET)
+        ProjectDTO getProject();
+
+        @RequestMapping(value = "/projects/all", method = RequestMethod.GET)
+        List<ProjectDTO> getAllProjects();
+    }
+
+    @Param({"0", "2"})
+    public int serviceMillis;
+
+    private Server server;
+    private PooledHttpTransport http11Transport;
+    private PooledHttpTransport http2Transport;
+    private ProjectsContract http11Proxy;
+    private ProjectsContract http2Proxy;
+
+    @Setup
+    public void setup() throws Exception {
+        JsonCodec codec = new JsonCodec();
+        List<ProjectDTO> projects = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            final long id = i;
+            projects.add(new ProjectDTO(p -> {
+                p.setId(id);
+                p.setName("Project " + id + " name");
+                p.setOwner(new UserDTO(u -> {
+                    u.setId(id);
+                    u.setEmail("user1@someemail.com");
+                    u.setName("User " + id + " name");
+                }));
+            }));
+        }
+        byte[] projectJson = codec.writeValueAsBytes(projects.get(0));
+        byte[] projectsJson = codec.writeValueAsBytes(projects);
+
+        Http2Settings http2Settings = new Http2Settings();
+        http2Settings.setEnabled(true);
+        server = new Server();
+        HttpConfiguration httpConfiguration = new HttpConfiguration();
+        HTTP2CServerConnectionFactory h2c = new HTTP2CServerConnectionFactory(httpConfiguration);
+        h2c.setMaxConcurrentStreams(http2Settings.getMaxConcurrentStreams());
+        h2c.setInitialSessionRecvWindow(http2Settings.getSessionRecvWindow());
+        h2c.setInitialStreamRecvWindow(http2Settings.getStreamRecvWindow());
+        ServerConnector connector = new ServerConnector(server, new HttpConnectionFactory(httpConfiguration), h2c);
+        connector.setHost("localhost");
+        connector.setPort(0);
+        server.addConnector(connector);
+        server.setHandler(new AbstractHandler() {
+            @Override
+            public void handle(String target, Request baseRequest, HttpServletRequest request,
+                               HttpServletResponse response) throws IOException {
+                if (serviceMillis > 0) {
+                    try {
+                        Thread.sleep(serviceMillis);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                }
+                byte[] body = target.endsWith("/one") ? projectJson : projectsJson;
+                response.setContentType("application/json");
+                response.setContentLength(body.length);
+                response.getOutputStream().write(body);
+                baseRequest.setHandled(true);
+            }
+        });
+        server.start();
+
+        String url = "http://localhost:" + connector.getLocalPort();
+        http11Transport = new PooledHttpTransport();
+        http2Transport = new PooledHttpTransport(new ConnectionPoolSettings(), http2Settings);
+        http11Proxy = createProxy(url, http11Transport, codec);
+        http2Proxy = createProxy(url, http2Transport, codec);
+    }
+
+    @TearDown
+    public void tearDown() throws Exception {
+        http11Transport.destroy();
+        http2Transport.destroy();
+        server.stop();
+    }
+
+    @Benchmark
+    public Object getProjectHttp11() {
+        return http11Proxy.getProject();
+    }
+
+    @Benchmark
+    public Object getProjectH2c() {
+        return http2Proxy.getProject();
+    }
+
+    @Benchmark
+    public Object getAllProjectsHttp11() {
+        return http11Proxy.getAllProjects();
+    }
+
+    @Benchmark
+    public Object getAllProjectsH2c() {
+        return http2Proxy.getAllProjects();
+    }
+
+    private static ProjectsContract createProxy(String url, PooledHttpTransport httpTransport, JsonCodec codec) {
+        RestCallHandler handler = RestCallHandler.builder(ProjectsContract.class, url)
+                .httpTransport(httpTransport)
+                .jsonCodec(codec)
+                .build();
+        return (ProjectsContract) Proxy.newProxyInstance(ProjectsContract.class.getClassLoader(),
+                new Class[]{ProjectsContract.class}, handler);
+    }
+}
@@ -0,0 +1,170 @@
+package org.proxysoa.spring.benchmark;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.proxysoa.spring.codec.JsonCodec;
+import org.proxysoa.spring.dto.ProjectDTO;
+import org.proxysoa.spring.dto.UserDTO;
+import org.proxysoa.spring.inprocess.InProcessRegistry;
+import org.proxysoa.spring.inprocess.InProcessSettings;
+import org.proxysoa.spring.service.PooledHttpTransport;
+import org.proxysoa.spring.service.RestCallHandler;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestMethod;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.lang.reflect.Proxy;
+import java.net.InetSocketAddress;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of a proxy call of a controller running in the same JVM: loopback HTTP with JSON serialization
+ * against in-process call with deep copy of the arguments and results.
+ * The remote controller is served by JDK's http server returning pre-serialized projects (so the HTTP
+ * numbers include the client side only plus the server's minimal work).
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Benchmark)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class InProcessCallBenchmark {
+    /**
+     * Contract of the called controller
+     */
+    public interface ProjectsContract {
+        @RequestMapping(value = "/projects/all", method = RequestMethod.GET)
+        List<ProjectDTO> getAllProjects();
+
+        @RequestMapping(value = "/projects/echo", method = RequestMethod.POST)
+        List<ProjectDTO> echoProjects(@RequestBody List<ProjectDTO> projects);
+    }
+
+    private List<ProjectDTO> projects;
+    private byte[] projectsJson;
+    private HttpServer server;
+    private PooledHttpTransport httpTransport;
+    private InProcessRegistry inProcessRegistry;
+    private ProjectsContract local;
+    private ProjectsContract httpProxy;
+    private ProjectsContract inProcessProxy;
+
+    @Setup
+    public void setup() throws IOException {
+        JsonCodec codec = new JsonCodec();
+        projects = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            final long id = i;
+            projects.add(new ProjectDTO(p -> {
+                p.setId(id);
+                p.setName("Project " + id + " name");
+                p.setOwner(new UserDTO(u -> {
+                    u.setId(id);
+                    u.setEmail("user1@someemail.com");
+                    u.setName("User " + id + " name");
+                }));
+            }));
+        }
+        projectsJson = codec.writeValueAsBytes(projects);
+
+        server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        server.createContext("/projects/all", exchange -> respond(exchange, projectsJson));
+        server.createContext("/projects/echo", exchange -> respond(exchange, readBody(exchange)));
+        server.start();
+        String url = "http://localhost:" + server.getAddress().getPort();
+
+        local = new ProjectsContract() {
+            @Override
+            public List<ProjectDTO> getAllProjects() {
+                return projects;
+            }
+
+            @Override
+            public List<ProjectDTO> echoProjects(List<ProjectDTO> projects) {
+                return projects;
+            }
+        };
+        InProcessSettings inProcessSettings = new InProcessSettings();
+        inProcessSettings.setEnabled(true);
+        inProcessRegistry = new InProcessRegistry(inProcessSettings);
+        inProcessRegistry.export(ProjectsContract.class, local);
+
+        httpTransport = new PooledHttpTransport();
+        httpProxy = createProxy(url, codec, new InProcessRegistry());
+        inProcessProxy = createProxy(url, codec, inProcessRegistry);
+    }
+
+    @TearDown
+    public void tearDown() {
+        inProcessRegistry.withdraw(ProjectsContract.class, local);
+        httpTransport.destroy();
+        server.stop(0);
+    }
+
+    @Benchmark
+    public Object getAllProjectsHttp() {
+        return httpProxy.getAllProjects();
+    }
+
+    @Benchmark
+    public Object getAllProjectsInProcess() {
+        return inProcessProxy.getAllProjects();
+    }
+
+    @Benchmark
+    public Object echoProjectsHttp() {
+        return httpProxy.echoProjects(projects);
+    }
+
+    @Benchmark
+    public Object echoProjectsInProcess() {
+        return inProcessProxy.echoProjects(projects);
+    }
+
+    private ProjectsContract createProxy(String url, JsonCodec codec, InProcessRegistry registry) {
+        RestCallHandler handler = RestCallHandler.builder(ProjectsContract.class, url)
+                .httpTransport(httpTransport)
+                .jsonCodec(codec)
+                .inProcessRegistry(registry)
+                .build();
+        return (ProjectsContract) Proxy.newProxyInstance(ProjectsContract.class.getClassLoader(),
+                new Class[]{ProjectsContract.class}, handler);
+    }
+
+    private static void respond(HttpExchange exchange, byte[] body) throws IOException {
+        exchange.getResponseHeaders().set("Content-Type", "application/json");
+        exchange.sendResponseHeaders(200, body.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(body);
+        }
+    }
+
+    private static byte[] readBody(HttpExchange exchange) throws IOException {
+        ByteArrayOutputStream res = new ByteArrayOutputStream();
+        byte[] buffer = new byte[8192];
+        try (InputStream in = exchange.getRequestBody()) {
+            for (int read = in.read(buffer); read >= 0; read = in.read(buffer)) {
+                res.write(buffer, 0, read);
+            }
+        }
+        return res.toByteArray();
+    }
+}
@@ -0,0 +1,98 @@
+package org.proxysoa.spring.benchmark;
+
+import com.fasterxml.jackson.databind.JavaType;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.proxysoa.spring.codec.JsonCodec;
+import org.proxysoa.spring.dto.PojoDTO;
+import org.proxysoa.spring.dto.ProjectDTO;
+import org.proxysoa.spring.dto.SimplePageRequest;
+import org.proxysoa.spring.dto.UserDTO;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Per call serialization cost of the proxy: a mapper created for each value (the way proxies
+ * worked before JsonCodec) against the codec's cached writers and readers.
+ * The write benchmarks serialize parameters of a paged GET call, the read ones parse
+ * a getAllProjects-like response.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Benchmark)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class JsonSerializationBenchmark {
+    private JsonCodec codec;
+    private Object[] parameters;
+    private byte[] projectsJson;
+    private JavaType projectsType;
+
+    @Setup
+    public void setup() throws IOException {
+        codec = new JsonCodec();
+        SimplePageRequest pageRequest = new SimplePageRequest(10, 20, "name");
+        PojoDTO pojo = new PojoDTO();
+        pojo.setId(1L);
+        pojo.setName("name");
+        parameters = new Object[]{pageRequest.getOffset(), pageRequest.getPageSize(), pageRequest.getSort(), pojo};
+
+        List<ProjectDTO> projects = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            final long id = i;
+            projects.add(new ProjectDTO(p -> {
+                p.setId(id);
+                p.setName("Project " + id + " name");
+                p.setOwner(new UserDTO(u -> {
+                    u.setId(id);
+                    u.setEmail("user1@someemail.com");
+                    u.setName("User " + id + " name");
+                }));
+            }));
+        }
+        projectsJson = codec.writeValueAsBytes(projects);
+        projectsType = codec.getObjectMapper().getTypeFactory().constructCollectionType(List.class, ProjectDTO.class);
+    }
+
+    @Benchmark
+    public int writeParametersNewMapper() throws IOException {
+        int length = 0;
+        for (Object value : parameters) {
+            length += new ObjectMapper().writeValueAsString(value).length();
+        }
+        return length;
+    }
+
+    @Benchmark
+    public int writeParametersCodec() {
+        int length = 0;
+        for (Object value : parameters) {
+            length += codec.writeValueAsString(value).length();
+        }
+        return length;
+    }
+
+    @Benchmark
+    public Object readProjectsNewMapper() throws IOException {
+        return new ObjectMapper().readValue(projectsJson, projectsType);
+    }
+
+    @Benchmark
+    public Object readProjectsCodec() throws IOException {
+        return codec.readValue(new ByteArrayInputStream(projectsJson), projectsType);
+    }
+}
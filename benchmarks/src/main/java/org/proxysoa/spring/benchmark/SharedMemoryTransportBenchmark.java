@@ -0,0 +1,168 @@
+package org.proxysoa.spring.benchmark;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.proxysoa.spring.codec.JsonCodec;
+import org.proxysoa.spring.dto.ProjectDTO;
+import org.proxysoa.spring.dto.UserDTO;
+import org.proxysoa.spring.service.PooledHttpTransport;
+import org.proxysoa.spring.service.RestCallHandler;
+import org.proxysoa.spring.shm.SharedMemoryRegistry;
+import org.proxysoa.spring.shm.SharedMemoryServer;
+import org.springframework.core.env.MapPropertySource;
+import org.springframework.core.env.StandardEnvironment;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestMethod;
+import org.springframework.web.bind.annotation.RequestParam;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.lang.reflect.Proxy;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Round trip of a proxy call through shared memory channel against loopback HTTP. Both the server
+ * and the proxy run in the benchmark's JVM, the channel file is mapped by each side separately.
+ * Spinning threads need free cores: the proxy's calling and receiving threads and the server's polling thread.
+ * The target is sub-10 microseconds round trip of ping.
+ */
+@BenchmarkMode({Mode.AverageTime, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Benchmark)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SharedMemoryTransportBenchmark {
+    /**
+     * Contract of the called controller
+     */
+    public interface PingContract {
+        @RequestMapping(value = "/ping", method = RequestMethod.GET)
+        int ping(@RequestParam("value") int value);
+
+        @RequestMapping(value = "/project", method = RequestMethod.GET)
+        ProjectDTO getProject(@RequestParam("id") long id);
+    }
+
+    private HttpServer httpServer;
+    private SharedMemoryServer sharedMemoryServer;
+    private SharedMemoryRegistry sharedMemoryRegistry;
+    private PooledHttpTransport httpTransport;
+    private PingContract httpProxy;
+    private PingContract sharedMemoryProxy;
+
+    @Setup
+    public void setup() throws IOException {
+        JsonCodec codec = new JsonCodec();
+        ProjectDTO project = new ProjectDTO(p -> {
+            p.setId(1L);
+            p.setName("Project 1 name");
+            p.setOwner(new UserDTO(u -> {
+                u.setId(1L);
+                u.setEmail("user1@someemail.com");
+                u.setName("User 1 name");
+            }));
+        });
+        byte[] projectJson = codec.writeValueAsBytes(project);
+        PingContract local = new PingContract() {
+            @Override
+            public int ping(int value) {
+                return value;
+            }
+
+            @Override
+            public ProjectDTO getProject(long id) {
+                return project;
+            }
+        };
+
+        httpServer = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        httpServer.createContext("/ping", exchange -> respond(exchange,
+                exchange.getRequestURI().getQuery().substring("value=".length()).getBytes(StandardCharsets.UTF_8)));
+        httpServer.createContext("/project", exchange -> respond(exchange, projectJson));
+        httpServer.start();
+        String url = "http://localhost:" + httpServer.getAddress().getPort();
+
+        Map<String, Object> properties = new HashMap<>();
+        properties.put("SOA.SharedMemory.enabled", "true");
+        properties.put("SOA.SharedMemory.dir", Files.createTempDirectory("soa-shm").toString());
+        properties.put("SOA.SharedMemory.PingContract.channel", "ping");
+        StandardEnvironment environment = new StandardEnvironment();
+        environment.getPropertySources().addFirst(new MapPropertySource("benchmark", properties));
+        sharedMemoryRegistry = new SharedMemoryRegistry();
+        sharedMemoryRegistry.setEnvironment(environment);
+
+        sharedMemoryServer = new SharedMemoryServer("ping", sharedMemoryRegistry.getSettings(), codec);
+        sharedMemoryServer.serve(PingContract.class, local);
+        sharedMemoryServer.start();
+
+        httpTransport = new PooledHttpTransport();
+        httpProxy = createProxy(url, codec, new SharedMemoryRegistry());
+        sharedMemoryProxy = createProxy(url, codec, sharedMemoryRegistry);
+        if (sharedMemoryProxy.ping(1) != 1 || sharedMemoryRegistry.getClients().isEmpty()) {
+            throw new IllegalStateException("Shared memory channel is not connected");
+        }
+    }
+
+    @TearDown
+    public void tearDown() {
+        sharedMemoryRegistry.destroy();
+        sharedMemoryServer.stop();
+        httpTransport.destroy();
+        httpServer.stop(0);
+    }
+
+    @Benchmark
+    public int pingHttp() {
+        return httpProxy.ping(1);
+    }
+
+    @Benchmark
+    public int pingSharedMemory() {
+        return sharedMemoryProxy.ping(1);
+    }
+
+    @Benchmark
+    public Object getProjectHttp() {
+        return httpProxy.getProject(1L);
+    }
+
+    @Benchmark
+    public Object getProjectSharedMemory() {
+        return sharedMemoryProxy.getProject(1L);
+    }
+
+    private PingContract createProxy(String url, JsonCodec codec, SharedMemoryRegistry registry) {
+        RestCallHandler handler = RestCallHandler.builder(PingContract.class, url)
+                .httpTransport(httpTransport)
+                .jsonCodec(codec)
+                .sharedMemoryRegistry(registry)
+                .build();
+        return (PingContract) Proxy.newProxyInstance(PingContract.class.getClassLoader(),
+                new Class[]{PingContract.class}, handler);
+    }
+
+    private static void respond(HttpExchange exchange, byte[] body) throws IOException {
+        exchange.getResponseHeaders().set("Content-Type", "application/json");
+        exchange.sendResponseHeaders(200, body.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(body);
+        }
+    }
+}
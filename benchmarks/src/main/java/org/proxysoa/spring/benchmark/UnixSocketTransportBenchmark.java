@@ -0,0 +1,150 @@
+package org.proxysoa.spring.benchmark;
+
+import org.eclipse.jetty.server.HttpConnectionFactory;
+import org.eclipse.jetty.server.Request;
+import org.eclipse.jetty.server.Server;
+import org.eclipse.jetty.server.ServerConnector;
+import org.eclipse.jetty.server.handler.AbstractHandler;
+import org.eclipse.jetty.unixsocket.UnixSocketConnector;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.proxysoa.spring.codec.JsonCodec;
+import org.proxysoa.spring.dto.ProjectDTO;
+import org.proxysoa.spring.dto.UserDTO;
+import org.proxysoa.spring.service.PooledHttpTransport;
+import org.proxysoa.spring.service.RestCallHandler;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestMethod;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.File;
+import java.io.IOException;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Proxy calls of a service on the same host over loopback TCP against unix domain socket.
+ * Jetty serves pre-serialized projects on both connectors, so the difference is the transport only.
+ */
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Benchmark)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Threads(4)
+@Fork(1)
+public class UnixSocketTransportBenchmark {
+    /**
+     * Contract of the called controller
+     */
+    public interface ProjectsContract {
+        @RequestMapping(value = "/projects/one", method = RequestMethod.GET)
+        ProjectDTO getProject();
+
+        @RequestMapping(value = "/projects/all", method = RequestMethod.GET)
+        List<ProjectDTO> getAllProjects();
+    }
+
+    private File socketFile;
+    private Server server;
+    private PooledHttpTransport httpTransport;
+    private ProjectsContract tcpProxy;
+    private ProjectsContract unixProxy;
+
+    @Setup
+    public void setup() throws Exception {
+        JsonCodec codec = new JsonCodec();
+        List<ProjectDTO> projects = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            final long id = i;
+            projects.add(new ProjectDTO(p -> {
+                p.setId(id);
+                p.setName("Project " + id + " name");
+                p.setOwner(new UserDTO(u -> {
+                    u.setId(id);
+                    u.setEmail("user1@someemail.com");
+                    u.setName("User " + id + " name");
+                }));
+            }));
+        }
+        byte[] projectJson = codec.writeValueAsBytes(projects.get(0));
+        byte[] projectsJson = codec.writeValueAsBytes(projects);
+
+        socketFile = File.createTempFile("soa-benchmark", ".sock");
+        socketFile.delete();
+
+        server = new Server();
+        ServerConnector tcpConnector = new ServerConnector(server);
+        tcpConnector.setHost("localhost");
+        tcpConnector.setPort(0);
+        server.addConnector(tcpConnector);
+        UnixSocketConnector unixConnector = new UnixSocketConnector(server, new HttpConnectionFactory());
+        unixConnector.setUnixSocket(socketFile.getAbsolutePath());
+        server.addConnector(unixConnector);
+        server.setHandler(new AbstractHandler() {
+            @Override
+            public void handle(String target, Request baseRequest, HttpServletRequest request,
+                               HttpServletResponse response) throws IOException {
+                byte[] body = target.endsWith("/one") ? projectJson : projectsJson;
+                response.setContentType("application/json");
+                response.setContentLength(body.length);
+                response.getOutputStream().write(body);
+                baseRequest.setHandled(true);
+            }
+        });
+        server.start();
+
+        httpTransport = new PooledHttpTransport();
+        tcpProxy = createProxy("http://localhost:" + tcpConnector.getLocalPort(), codec);
+        unixProxy = createProxy("unix:" + socketFile.getAbsolutePath() + ":/", codec);
+    }
+
+    @TearDown
+    public void tearDown() throws Exception {
+        httpTransport.destroy();
+        server.stop();
+        socketFile.delete();
+    }
+
+    @Benchmark
+    public Object getProjectTcp() {
+        return tcpProxy.getProject();
+    }
+
+    @Benchmark
+    public Object getProjectUnixSocket() {
+        return unixProxy.getProject();
+    }
+
+    @Benchmark
+    public Object getAllProjectsTcp() {
+        return tcpProxy.getAllProjects();
+    }
+
+    @Benchmark
+    public Object getAllProjectsUnixSocket() {
+        return unixProxy.getAllProjects();
+    }
+
+    private ProjectsContract createProxy(String url, JsonCodec codec) {
+        RestCallHandler handler = RestCallHandler.builder(ProjectsContract.class, url)
+                .httpTransport(httpTransport)
+                .jsonCodec(codec)
+                .build();
+        return (ProjectsContract) Proxy.newProxyInstance(ProjectsContract.class.getClassLoader(),
+                new Class[]{ProjectsContract.class}, handler);
+    }
+}
@@ -4,14 +4,23 @@ import io.swagger.annotations.Api;
 import io.swagger.annotations.ApiImplicitParam;
 import io.swagger.annotations.ApiImplicitParams;
 import io.swagger.annotations.ApiOperation;
+import org.proxysoa.spring.annotation.BatchKey;
+import org.proxysoa.spring.annotation.Hedged;
 import org.proxysoa.spring.annotation.Proxyable;
+import org.proxysoa.spring.annotation.ProxyCache;
+import org.proxysoa.spring.annotation.ProxyCacheEvict;
+import org.proxysoa.spring.annotation.Retry;
+import org.proxysoa.spring.annotation.SingleFlight;
 import org.proxysoa.spring.dto.ProjectDTO;
 import org.proxysoa.spring.dto.SimplePage;
 import org.proxysoa.spring.dto.SimplePageRequest;
 import org.proxysoa.spring.web.ApiConst;
+import org.reactivestreams.Publisher;
 import org.springframework.web.bind.annotation.*;
 
 import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
 
 /**
  * The controller is a contract for ProjectService (implemented in the Project Service app).
@@ -27,6 +36,7 @@ public interface ProjectController {
     /**
      * The method go get chunk of projects (page). We pass page request which offset, pageSize and sort
      * and get selected projects
+     * A proxy sends hedge of the call if the response is slower than usual.
      *
      * @param pageRequest page request data (has offset, pageSize and sort)
      * @return page representation (sublist of existing projects)
@@ -39,20 +49,50 @@ public interface ProjectController {
             @ApiImplicitParam(name = "pageSize", value = "Page size", required = false, dataType = "long", paramType = "query"),
             @ApiImplicitParam(name = "sort", value = "Sort", required = false, dataType = "String", paramType = "query")
     })
+    @Hedged
     SimplePage<ProjectDTO> getProjects(@RequestBody SimplePageRequest pageRequest);
 
     /**
-     * Gets all existing projects
+     * Gets all existing projects. The result is cached by the proxy for 10 seconds,
+     * concurrent calls made when the cached result expires share one remote call.
+     * Calls refused by the remote service are retried.
      *
      * @return list of projects
      */
     @RequestMapping(value = "/" + ApiConst.MAPPING_PROJECTS + "/all", method = RequestMethod.GET)
     @ApiOperation(value = "Get All Projects List", notes = "Returns all project items")
     @ResponseBody
+    @ProxyCache(ttl = 10000, maxEntries = 1)
+    @SingleFlight
+    @Retry
     List<ProjectDTO> getAllProjects();
 
     /**
-     * Gets all projects of specified user
+     * Streams all existing projects. Projects are sent as soon as they are read, a proxy emits them
+     * as they are parsed (the whole list is never kept in memory)
+     *
+     * @return publisher of projects
+     */
+    @RequestMapping(value = "/" + ApiConst.MAPPING_PROJECTS + "/stream", method = RequestMethod.GET)
+    @ApiOperation(value = "Stream All Projects", notes = "Streams all project items (JSON array or NDJSON)")
+    @ResponseBody
+    Publisher<ProjectDTO> streamAllProjects();
+
+    /**
+     * Iterates all existing projects. A proxy parses projects as the stream is consumed and releases
+     * the connection when the stream is read to the end or closed
+     *
+     * @return stream of projects
+     */
+    @RequestMapping(value = "/" + ApiConst.MAPPING_PROJECTS + "/iterate", method = RequestMethod.GET)
+    @ApiOperation(value = "Iterate All Projects", notes = "Streams all project items (JSON array or NDJSON)")
+    @ResponseBody
+    Stream<ProjectDTO> iterateAllProjects();
+
+    /**
+     * Gets all projects of specified user.
+     * Proxy calls of the method made at the same time are batched to one getProjectsByUsers call,
+     * the results are cached by the proxy for 10 seconds.
      *
      * @param userId user id
      * @return user's project list
@@ -63,15 +103,29 @@ public interface ProjectController {
             @ApiImplicitParam(name = "userId", value = "User ID", required = true, dataType = "long", paramType = "query")
     })
     @ResponseBody
+    @BatchKey("getProjectsByUsers")
+    @ProxyCache(ttl = 10000)
     List<ProjectDTO> getProjectsByUser(@RequestParam("userId") Long userId);
 
     /**
-     * Creates a new project
+     * Gets projects of several users at once
+     *
+     * @param userIds user ids
+     * @return map user id to the user's project list (each requested user is in the map)
+     */
+    @RequestMapping(value = "/" + ApiConst.MAPPING_PROJECTS + "/usersProjects", method = RequestMethod.POST)
+    @ApiOperation(value = "Get Projects of Users", notes = "Returns project items of each requested user")
+    @ResponseBody
+    Map<Long, List<ProjectDTO>> getProjectsByUsers(@RequestBody List<Long> userIds);
+
+    /**
+     * Creates a new project. Drops projects cached by the proxy
      *
      * @param project new project
      */
     @RequestMapping(value = "/" + ApiConst.MAPPING_PROJECTS + "/create", method = RequestMethod.POST)
     @ApiOperation(value = "CreateProject", notes = "Creates a new project")
     @ResponseBody
+    @ProxyCacheEvict({"getAllProjects", "getProjectsByUser"})
     void createProject(@RequestBody ProjectDTO project);
 }
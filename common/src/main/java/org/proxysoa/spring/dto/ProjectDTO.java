@@ -1,5 +1,7 @@
 package org.proxysoa.spring.dto;
 
+import org.proxysoa.spring.codec.proto.ProtoMessage;
+
 import java.util.function.Consumer;
 
 /**
@@ -7,6 +9,7 @@ import java.util.function.Consumer;
  *
  * @author stanislav.lapitsky created 4/13/2017.
  */
+@ProtoMessage
 public class ProjectDTO {
     //project id
     private Long id;
@@ -1,5 +1,6 @@
 package org.proxysoa.spring.dto;
 
+import org.proxysoa.spring.codec.proto.ProtoMessage;
 import org.springframework.data.domain.PageImpl;
 
 import java.util.ArrayList;
@@ -11,6 +12,7 @@ import java.util.List;
  *
  * @author stanislav.lapitsky created 4/14/2017.
  */
+@ProtoMessage
 public class SimplePage<T> extends PageImpl<T> {
     public SimplePage() {
         super(new ArrayList<>());
@@ -1,10 +1,13 @@
 package org.proxysoa.spring.dto;
 
+import org.proxysoa.spring.codec.proto.ProtoMessage;
+
 /**
  * Represents simple page request - offset, page size (rows on page) and sort.
  *
  * @author stanislav.lapitsky created 4/14/2017.
  */
+@ProtoMessage
 public class SimplePageRequest {
     public static final int DEFAULT_PAGE_SIZE = 10;
 
@@ -1,5 +1,7 @@
 package org.proxysoa.spring.dto;
 
+import org.proxysoa.spring.codec.proto.ProtoMessage;
+
 import java.util.List;
 import java.util.function.Consumer;
 
@@ -8,6 +10,7 @@ import java.util.function.Consumer;
  *
  * @author stanislav.lapitsky created 4/13/2017.
  */
+@ProtoMessage
 public class UserDTO {
     //user id
     private Long id;
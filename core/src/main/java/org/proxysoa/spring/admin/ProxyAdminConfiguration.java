@@ -0,0 +1,28 @@
+package org.proxysoa.spring.admin;
+
+import org.proxysoa.spring.balancer.LoadBalancerRegistry;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Exposes the admin view (/soa-proxy/*) in the web applications scanning the library if SOA.Admin.enabled
+ * is true. The endpoints are not authenticated, so they are off by default.
+ */
+@Configuration
+@ConditionalOnWebApplication
+@ConditionalOnProperty(name = "SOA.Admin.enabled", havingValue = "true")
+public class ProxyAdminConfiguration {
+
+    /**
+     * Admin view of the remote services' instances, compression stats and call metrics
+     *
+     * @param loadBalancerRegistry load balancers of the proxies
+     * @return admin controller
+     */
+    @Bean
+    public ProxyAdminController proxyAdminController(LoadBalancerRegistry loadBalancerRegistry) {
+        return new ProxyAdminController(loadBalancerRegistry);
+    }
+}
@@ -0,0 +1,167 @@
+package org.proxysoa.spring.admin;
+
+import org.proxysoa.spring.balancer.Endpoint;
+import org.proxysoa.spring.balancer.LoadBalancer;
+import org.proxysoa.spring.balancer.LoadBalancerRegistry;
+import org.proxysoa.spring.compression.CompressionFilter;
+import org.proxysoa.spring.compression.CompressionStats;
+import org.proxysoa.spring.metrics.CallMetrics;
+import org.proxysoa.spring.metrics.CallOutcome;
+import org.proxysoa.spring.metrics.MethodMetrics;
+import org.proxysoa.spring.service.PooledHttpTransport;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestMethod;
+import org.springframework.web.bind.annotation.ResponseBody;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Admin view of the proxies' remote service instances: status (healthy, warming up, unhealthy, ejected),
+ * load and failures of each instance. Compression ratios and CPU time of the proxies' calls and of the
+ * served requests (if the context has CompressionFilter) are shown per http method and path. Latency percentiles,
+ * outcomes and body sizes of the proxies' calls are shown per contract method.
+ * <p>
+ * The controller is not a component (the library doesn't expose endpoints on its own), it's registered
+ * by ProxyAdminConfiguration if SOA.Admin.enabled is true (or by the application as a bean).
+ * The endpoints are not authenticated.
+ */
+@RequestMapping("/soa-proxy")
+public class ProxyAdminController {
+    private final LoadBalancerRegistry loadBalancerRegistry;
+
+    private PooledHttpTransport httpTransport;
+    private CompressionFilter compressionFilter;
+    private CallMetrics callMetrics;
+
+    /**
+     * Constructs the controller
+     *
+     * @param loadBalancerRegistry load balancers of the proxies
+     */
+    public ProxyAdminController(LoadBalancerRegistry loadBalancerRegistry) {
+        this.loadBalancerRegistry = loadBalancerRegistry;
+    }
+
+    @Autowired(required = false)
+    public void setHttpTransport(PooledHttpTransport httpTransport) {
+        this.httpTransport = httpTransport;
+    }
+
+    @Autowired(required = false)
+    public void setCompressionFilter(CompressionFilter compressionFilter) {
+        this.compressionFilter = compressionFilter;
+    }
+
+    @Autowired(required = false)
+    public void setCallMetrics(CallMetrics callMetrics) {
+        this.callMetrics = callMetrics;
+    }
+
+    /**
+     * Gets instances of all the remote services
+     *
+     * @return map of remote service URLs to the service's instances
+     */
+    @RequestMapping(value = "/endpoints", method = RequestMethod.GET)
+    @ResponseBody
+    public Map<String, List<Map<String, Object>>> getEndpoints() {
+        long now = System.currentTimeMillis();
+        long slowStartTime = loadBalancerRegistry.getOutlierSettings().getSlowStartTime();
+        Map<String, List<Map<String, Object>>> res = new LinkedHashMap<>();
+        for (LoadBalancer balancer : loadBalancerRegistry.getLoadBalancers().values()) {
+            List<Map<String, Object>> endpoints = new ArrayList<>();
+            for (Endpoint endpoint : balancer.getEndpoints()) {
+                Map<String, Object> view = new LinkedHashMap<>();
+                view.put("url", endpoint.getUrl());
+                view.put("status", endpoint.getStatus(now, slowStartTime));
+                view.put("outstanding", endpoint.getOutstanding());
+                view.put("latencyMillis", endpoint.getEwmaMicros() / 1000);
+                view.put("calls", endpoint.getCallCount());
+                view.put("failed", endpoint.getFailedCount());
+                view.put("consecutiveFailures", endpoint.getConsecutiveFailures());
+                view.put("ejections", endpoint.getEjectionCount());
+                view.put("ejectedUntil", endpoint.getEjectedUntil());
+                endpoints.add(view);
+            }
+            res.put(balancer.getName(), endpoints);
+        }
+        return res;
+    }
+
+    /**
+     * Gets compression stats of the proxies' calls (request bodies compressed, responses decompressed)
+     * and of the served requests (request bodies decompressed, responses compressed)
+     *
+     * @return map of calls and served to map of http method and path to the method's stats
+     */
+    @RequestMapping(value = "/compression", method = RequestMethod.GET)
+    @ResponseBody
+    public Map<String, Map<String, Map<String, Object>>> getCompression() {
+        Map<String, Map<String, Map<String, Object>>> res = new LinkedHashMap<>();
+        if (httpTransport != null) {
+            res.put("calls", getCompressionView(httpTransport.getCompressionStats(), "request", "response"));
+        }
+        if (compressionFilter != null) {
+            res.put("served", getCompressionView(compressionFilter.getStats(), "response", "request"));
+        }
+        return res;
+    }
+
+    private static Map<String, Map<String, Object>> getCompressionView(CompressionStats stats, String encoded,
+                                                                       String decoded) {
+        Map<String, Map<String, Object>> res = new LinkedHashMap<>();
+        for (Map.Entry<String, CompressionStats.MethodStats> entry : stats.getMethods().entrySet()) {
+            CompressionStats.MethodStats method = entry.getValue();
+            Map<String, Object> view = new LinkedHashMap<>();
+            view.put(encoded + "sCompressed", method.getEncoded());
+            view.put(encoded + "Ratio", method.getEncodeRatio());
+            view.put(encoded + "CompressMicros", method.getEncodeNanos() / 1000);
+            view.put(decoded + "sDecompressed", method.getDecoded());
+            view.put(decoded + "Ratio", method.getDecodeRatio());
+            view.put(decoded + "DecompressMicros", method.getDecodeNanos() / 1000);
+            view.put("savedBytes", method.getSavedBytes());
+            res.put(entry.getKey(), view);
+        }
+        return res;
+    }
+
+    /**
+     * Gets metrics of the proxies' calls. Latencies (microseconds) are of the last one to two windows,
+     * counters are totals.
+     *
+     * @return map of contract and method signature to the method's metrics
+     */
+    @RequestMapping(value = "/calls", method = RequestMethod.GET)
+    @ResponseBody
+    public Map<String, Map<String, Object>> getCalls() {
+        Map<String, Map<String, Object>> res = new LinkedHashMap<>();
+        if (callMetrics == null) {
+            return res;
+        }
+        for (Map.Entry<String, MethodMetrics> entry : callMetrics.getMethods().entrySet()) {
+            MethodMetrics method = entry.getValue();
+            MethodMetrics.LatencySnapshot latency = method.getLatency();
+            Map<String, Object> view = new LinkedHashMap<>();
+            view.put("calls", method.getCalls());
+            view.put("inFlight", method.getInFlight());
+            for (CallOutcome outcome : CallOutcome.values()) {
+                view.put(outcome.getTag(), method.getCount(outcome));
+            }
+            view.put("p50Micros", latency.getP50());
+            view.put("p90Micros", latency.getP90());
+            view.put("p99Micros", latency.getP99());
+            view.put("p999Micros", latency.getP999());
+            view.put("maxMicros", latency.getMax());
+            view.put("requestBytes", method.getRequestBytes());
+            view.put("maxRequestBytes", method.getMaxRequestBytes());
+            view.put("responseBytes", method.getResponseBytes());
+            view.put("maxResponseBytes", method.getMaxResponseBytes());
+            res.put(entry.getKey(), view);
+        }
+        return res;
+    }
+}
@@ -0,0 +1,38 @@
+package org.proxysoa.spring.annotation;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Marks a single key contract method (e.g. getProjectsByUser(userId)) whose remote calls are batched.
+ * Keys requested through the proxy within the window are collected and sent with one call of the batch
+ * counterpart method, the results are fanned out to the callers.
+ * <p>
+ * The batch counterpart is a method of the same contract which takes list of keys and returns map
+ * key to result (e.g. Map&lt;Long, List&lt;ProjectDTO&gt;&gt; getProjectsByUsers(List&lt;Long&gt; userIds)).
+ * Keys missing in the returned map get null results.
+ * <p>
+ * A call waits for the window end even if no other key is requested in the window, so the window adds up to
+ * its length to the latency of the calls made one at a time. Keep it short for latency sensitive methods.
+ */
+@Retention(RetentionPolicy.RUNTIME)
+@Target(ElementType.METHOD)
+public @interface BatchKey {
+
+    /**
+     * @return name of the batch counterpart method
+     */
+    String value();
+
+    /**
+     * @return how long (milliseconds) keys are collected before the batch is sent (the max delay of a call)
+     */
+    long window() default 5;
+
+    /**
+     * @return max keys in one batch, a full batch is sent without waiting for the window end
+     */
+    int maxBatchSize() default 100;
+}
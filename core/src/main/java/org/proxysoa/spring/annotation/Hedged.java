@@ -0,0 +1,28 @@
+package org.proxysoa.spring.annotation;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Marks idempotent GET contract method whose slow calls are hedged by the proxy. If the call gets
+ * no response within the delay a second identical call is sent, the first response wins and the other
+ * call is cancelled. Hedges are limited by the remote service's hedging budget
+ * (SOA.Hedging.budgetPercent of the calls).
+ */
+@Retention(RetentionPolicy.RUNTIME)
+@Target(ElementType.METHOD)
+public @interface Hedged {
+
+    /**
+     * @return fixed delay (milliseconds) before the hedge is sent. 0 means adaptive delay: the percentile
+     * of the method's observed latency
+     */
+    long delay() default 0;
+
+    /**
+     * @return latency percentile used as adaptive delay
+     */
+    int percentile() default 95;
+}
@@ -0,0 +1,36 @@
+package org.proxysoa.spring.annotation;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Marks read-mostly GET contract method which results are cached by the proxy.
+ * The cache key is the call URI (remote URL with mapping and query parameters built from the arguments),
+ * so equal arguments give the same key no matter whether they are the same instances.
+ * Size bound cache uses W-TinyLFU eviction (frequently used results survive bursts of one-off calls).
+ * <p>
+ * Note: http headers (e.g. resolved by HttpHeadersResolver) are not part of the key, don't cache
+ * results which depend on the caller.
+ */
+@Retention(RetentionPolicy.RUNTIME)
+@Target(ElementType.METHOD)
+public @interface ProxyCache {
+
+    /**
+     * @return how long (milliseconds) a result is kept after it's received
+     */
+    long ttl() default 60000;
+
+    /**
+     * @return max amount of cached results of the method
+     */
+    int maxEntries() default 1000;
+
+    /**
+     * @return whether each caller gets own copy of the cached result. Switch off for results which
+     * callers never modify
+     */
+    boolean copyOnRead() default true;
+}
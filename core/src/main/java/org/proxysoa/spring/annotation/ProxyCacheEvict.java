@@ -0,0 +1,20 @@
+package org.proxysoa.spring.annotation;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Marks contract method which changes data cached by other methods of the contract (see ProxyCache).
+ * After successful proxy call of the method all the cached results of the listed methods are dropped.
+ */
+@Retention(RetentionPolicy.RUNTIME)
+@Target(ElementType.METHOD)
+public @interface ProxyCacheEvict {
+
+    /**
+     * @return names of the contract methods which caches are cleared
+     */
+    String[] value();
+}
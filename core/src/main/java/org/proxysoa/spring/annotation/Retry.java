@@ -0,0 +1,40 @@
+package org.proxysoa.spring.annotation;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Marks contract method whose failed calls are retried by the proxy. Only calls which surely didn't reach
+ * the remote service or were refused by it (connection refused, 503 Service Unavailable) are retried,
+ * timed out calls are retried only if the method is idempotent. Retries are delayed by exponential
+ * backoff with full jitter and limited by the remote service's retry budget (SOA.Retry.budgetPercent of the calls).
+ * <p>
+ * The values may be overridden by SOA.Retry.Contract.method.* properties, 0 means SOA.Retry.* default.
+ */
+@Retention(RetentionPolicy.RUNTIME)
+@Target(ElementType.METHOD)
+public @interface Retry {
+
+    /**
+     * @return max attempts of a call (the first one and retries)
+     */
+    int maxAttempts() default 0;
+
+    /**
+     * @return backoff (milliseconds) of the first retry, the backoff is doubled for each next retry
+     */
+    long initialBackoff() default 0;
+
+    /**
+     * @return max backoff (milliseconds)
+     */
+    long maxBackoff() default 0;
+
+    /**
+     * @return whether the method is idempotent even if its http method is not (e.g. POST used for a query),
+     * so timed out calls may be retried
+     */
+    boolean idempotent() default false;
+}
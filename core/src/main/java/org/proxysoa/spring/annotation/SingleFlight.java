@@ -0,0 +1,19 @@
+package org.proxysoa.spring.annotation;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Marks idempotent contract method whose concurrent identical calls are collapsed by the proxy.
+ * A call with the same URI (and body) as a call in flight doesn't go to the remote service, it waits
+ * for the call in flight and gets its result (own copy of it) or its failure.
+ * <p>
+ * Note: http headers (e.g. resolved by HttpHeadersResolver) are not part of the key, don't mark
+ * methods which results depend on the caller.
+ */
+@Retention(RetentionPolicy.RUNTIME)
+@Target(ElementType.METHOD)
+public @interface SingleFlight {
+}
@@ -0,0 +1,291 @@
+package org.proxysoa.spring.balancer;
+
+import org.proxysoa.spring.transport.UnixSocketURLs;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.net.URI;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * One instance of a remote service. Keeps the instance's load: calls in progress (outstanding)
+ * and exponentially weighted moving average (EWMA) of the calls' latency. Both are updated lock free.
+ * <p>
+ * Keeps the instance's availability as well: instance failing active health checks is UNHEALTHY,
+ * instance with too many failures in a row is EJECTED for a time growing with each ejection.
+ * Instance coming back is WARMING_UP: its share of the calls grows during slow start time.
+ */
+public class Endpoint {
+    private static final Logger LOG = LoggerFactory.getLogger(Endpoint.class);
+
+    public enum Status {
+        HEALTHY, WARMING_UP, UNHEALTHY, EJECTED
+    }
+
+    private final String url;
+    //http URL of the instance's requests (differs from the URL for unix domain socket instances)
+    private final String requestUrl;
+    private final LoadBalancerSettings settings;
+
+    private final AtomicInteger outstanding = new AtomicInteger();
+    //EWMA of latency in microseconds (double bits)
+    private final AtomicLong ewma = new AtomicLong(Double.doubleToRawLongBits(0));
+
+    private final LongAdder calls = new LongAdder();
+    private final LongAdder failed = new LongAdder();
+
+    //result of active health checks
+    private volatile boolean healthy = true;
+    //time (milliseconds) the ejection ends
+    private volatile long ejectedUntil;
+    //time (milliseconds) the instance came back to rotation (0 if it has never left)
+    private volatile long admittedAt;
+    //5xx responses or connect failures in a row
+    private final AtomicInteger consecutiveFailures = new AtomicInteger();
+    //ejections in a row (the ejection time grows with it), guarded by this
+    private int ejectionLevel;
+    private final LongAdder ejections = new LongAdder();
+
+    //probes in a row with the same result, used by health checker thread only
+    private int probeStreak;
+    private boolean lastProbe = true;
+
+    /**
+     * Constructs the endpoint
+     *
+     * @param url      instance URL
+     * @param settings balancing settings
+     */
+    public Endpoint(String url, LoadBalancerSettings settings) {
+        this.url = url;
+        this.requestUrl = UnixSocketURLs.toHttpUrl(url);
+        this.settings = settings;
+    }
+
+    /**
+     * Records start of a call to the instance. Must be followed by exactly one onComplete()
+     *
+     * @return start time of the call
+     */
+    public long onStart() {
+        outstanding.incrementAndGet();
+        return System.nanoTime();
+    }
+
+    /**
+     * Records end of a call to the instance. Latency of a failed call is counted as failurePenalty
+     * at least, so an instance failing fast doesn't attract the calls.
+     *
+     * @param start   start time returned by onStart()
+     * @param failure whether the call failed (connection errors, timeouts, 5xx)
+     */
+    public void onComplete(long start, boolean failure) {
+        outstanding.decrementAndGet();
+        calls.increment();
+        double latency = TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - start);
+        if (failure) {
+            failed.increment();
+            latency = Math.max(latency, TimeUnit.MILLISECONDS.toMicros(settings.getFailurePenalty()));
+        }
+        double alpha = settings.getEwmaAlpha();
+        long current;
+        double updated;
+        do {
+            current = ewma.get();
+            double value = Double.longBitsToDouble(current);
+            updated = value == 0 ? latency : value + alpha * (latency - value);
+        } while (!ewma.compareAndSet(current, Double.doubleToRawLongBits(updated)));
+    }
+
+    /**
+     * Checks whether the instance is in rotation: healthy and not ejected
+     *
+     * @param now current time in milliseconds
+     * @return true if the instance may be called
+     */
+    public boolean isAvailable(long now) {
+        return healthy && now >= ejectedUntil;
+    }
+
+    /**
+     * Gets the instance's share of calls during slow start after it came back to rotation
+     *
+     * @param now           current time in milliseconds
+     * @param slowStartTime time (milliseconds) to get the full share
+     * @return share of calls from 0.1 to 1
+     */
+    public double getWeight(long now, long slowStartTime) {
+        long since = now - admittedAt;
+        if (admittedAt == 0 || slowStartTime <= 0 || since >= slowStartTime) {
+            return 1;
+        }
+        return Math.max(0.1, (double) Math.max(0, since) / slowStartTime);
+    }
+
+    /**
+     * Records 5xx response or connect failure of a call
+     *
+     * @return failures in a row
+     */
+    int onOutlierFailure() {
+        return consecutiveFailures.incrementAndGet();
+    }
+
+    /**
+     * Records call showing the instance works (the failures in a row are reset)
+     */
+    void onOutlierSuccess() {
+        if (consecutiveFailures.get() != 0) {
+            consecutiveFailures.set(0);
+        }
+    }
+
+    /**
+     * Takes the instance out of rotation. Ejection time is baseEjectionTime doubled for each ejection
+     * in a row (ejection after maxEjectionTime of work starts from baseEjectionTime again).
+     *
+     * @param now      current time in milliseconds
+     * @param settings outlier detection settings
+     * @return true if the instance is ejected (false if it is ejected already)
+     */
+    synchronized boolean eject(long now, OutlierDetectionSettings settings) {
+        if (now < ejectedUntil) {
+            return false;
+        }
+        if (ejectedUntil > 0 && now - ejectedUntil > settings.getMaxEjectionTime()) {
+            ejectionLevel = 0;
+        }
+        long ejectionTime = Math.min(settings.getMaxEjectionTime(),
+                settings.getBaseEjectionTime() << Math.min(ejectionLevel, 20));
+        ejectionLevel++;
+        ejectedUntil = now + ejectionTime;
+        admittedAt = ejectedUntil;
+        consecutiveFailures.set(0);
+        ejections.increment();
+        LOG.warn("Endpoint {} is ejected for {} ms", url, ejectionTime);
+        return true;
+    }
+
+    /**
+     * Records result of active health check. Called by health checker thread only.
+     *
+     * @param success  whether the probe succeeded
+     * @param now      current time in milliseconds
+     * @param settings health check settings
+     */
+    void onHealthCheck(boolean success, long now, HealthCheckSettings settings) {
+        probeStreak = success == lastProbe ? probeStreak + 1 : 1;
+        lastProbe = success;
+        if (healthy && !success && probeStreak >= settings.getUnhealthyThreshold()) {
+            LOG.warn("Endpoint {} failed {} health checks", url, probeStreak);
+            healthy = false;
+        } else if (!healthy && success && probeStreak >= settings.getHealthyThreshold()) {
+            LOG.info("Endpoint {} passed {} health checks", url, probeStreak);
+            admittedAt = now;
+            healthy = true;
+        }
+    }
+
+    /**
+     * Gets the instance's availability
+     *
+     * @param now           current time in milliseconds
+     * @param slowStartTime time (milliseconds) a returned instance takes to get its full share of the calls
+     * @return status
+     */
+    public Status getStatus(long now, long slowStartTime) {
+        if (!healthy) {
+            return Status.UNHEALTHY;
+        }
+        if (now < ejectedUntil) {
+            return Status.EJECTED;
+        }
+        return getWeight(now, slowStartTime) < 1 ? Status.WARMING_UP : Status.HEALTHY;
+    }
+
+    /**
+     * Moves the call URI built for the base URL to the instance
+     *
+     * @param uri     call URI
+     * @param baseUrl http URL the URI was built for
+     * @return the call URI of the instance
+     */
+    public URI rebase(URI uri, String baseUrl) {
+        String value = uri.toString();
+        if (requestUrl.equals(baseUrl) || !value.startsWith(baseUrl)) {
+            return uri;
+        }
+        return URI.create(requestUrl + value.substring(baseUrl.length()));
+    }
+
+    /**
+     * Gets load of the instance: latency weighted by the calls in progress (an instance without
+     * observed latency has cost of its calls in progress)
+     *
+     * @return the instance cost
+     */
+    public double getCost() {
+        return (getEwmaMicros() + 1) * (outstanding.get() + 1);
+    }
+
+    public String getUrl() {
+        return url;
+    }
+
+    /**
+     * @return amount of calls in progress
+     */
+    public int getOutstanding() {
+        return outstanding.get();
+    }
+
+    /**
+     * @return EWMA of the calls' latency in microseconds
+     */
+    public double getEwmaMicros() {
+        return Double.longBitsToDouble(ewma.get());
+    }
+
+    public long getCallCount() {
+        return calls.sum();
+    }
+
+    public long getFailedCount() {
+        return failed.sum();
+    }
+
+    public boolean isHealthy() {
+        return healthy;
+    }
+
+    /**
+     * @return time (milliseconds) the current or the last ejection ends (0 if the instance has never been ejected)
+     */
+    public long getEjectedUntil() {
+        return ejectedUntil;
+    }
+
+    /**
+     * @return 5xx responses or connect failures in a row
+     */
+    public int getConsecutiveFailures() {
+        return consecutiveFailures.get();
+    }
+
+    /**
+     * @return how many times the instance was ejected
+     */
+    public long getEjectionCount() {
+        return ejections.sum();
+    }
+
+    @Override
+    public String toString() {
+        return "Endpoint{" + url + ", outstanding=" + getOutstanding() + ", ewmaMicros=" + (long) getEwmaMicros()
+                + ", calls=" + getCallCount() + ", failed=" + getFailedCount() + ", healthy=" + healthy
+                + ", ejections=" + getEjectionCount() + '}';
+    }
+}
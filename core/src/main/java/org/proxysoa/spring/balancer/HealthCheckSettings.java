@@ -0,0 +1,105 @@
+package org.proxysoa.spring.balancer;
+
+import org.springframework.core.env.Environment;
+
+/**
+ * Keeps settings of active health checks of remote services' instances. Values are read from
+ * SOA.HealthCheck.* properties, defaults are used for the missing ones.
+ */
+public class HealthCheckSettings {
+    public static final String PREFIX = "SOA.HealthCheck.";
+
+    private boolean enabled = true;
+    //path of the probe relative to the instance URL
+    private String path = "health";
+    //delay (milliseconds) between probes of an instance
+    private long interval = 10000;
+    //connect and read timeout (milliseconds) of a probe
+    private int timeout = 2000;
+    //failed probes in a row taking the instance out of rotation
+    private int unhealthyThreshold = 2;
+    //successful probes in a row bringing the instance back
+    private int healthyThreshold = 2;
+
+    /**
+     * Default constructor (default settings)
+     */
+    public HealthCheckSettings() {
+    }
+
+    /**
+     * Reads the settings from environment
+     *
+     * @param environment environment to get SOA.HealthCheck.* properties
+     */
+    public HealthCheckSettings(Environment environment) {
+        this.enabled = environment.getProperty(PREFIX + "enabled", Boolean.class, enabled);
+        this.path = environment.getProperty(PREFIX + "path", path);
+        this.interval = environment.getProperty(PREFIX + "interval", Long.class, interval);
+        this.timeout = environment.getProperty(PREFIX + "timeout", Integer.class, timeout);
+        this.unhealthyThreshold = environment.getProperty(PREFIX + "unhealthyThreshold", Integer.class,
+                unhealthyThreshold);
+        this.healthyThreshold = environment.getProperty(PREFIX + "healthyThreshold", Integer.class, healthyThreshold);
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    public String getPath() {
+        return path;
+    }
+
+    public void setPath(String path) {
+        this.path = path;
+    }
+
+    public long getInterval() {
+        return interval;
+    }
+
+    public void setInterval(long interval) {
+        this.interval = interval;
+    }
+
+    public int getTimeout() {
+        return timeout;
+    }
+
+    public void setTimeout(int timeout) {
+        this.timeout = timeout;
+    }
+
+    public int getUnhealthyThreshold() {
+        return unhealthyThreshold;
+    }
+
+    public void setUnhealthyThreshold(int unhealthyThreshold) {
+        this.unhealthyThreshold = unhealthyThreshold;
+    }
+
+    public int getHealthyThreshold() {
+        return healthyThreshold;
+    }
+
+    public void setHealthyThreshold(int healthyThreshold) {
+        this.healthyThreshold = healthyThreshold;
+    }
+
+    @Override
+    public String toString() {
+        final StringBuilder sb = new StringBuilder("HealthCheckSettings{");
+        sb.append("enabled=").append(enabled);
+        sb.append(", path='").append(path).append('\'');
+        sb.append(", interval=").append(interval);
+        sb.append(", timeout=").append(timeout);
+        sb.append(", unhealthyThreshold=").append(unhealthyThreshold);
+        sb.append(", healthyThreshold=").append(healthyThreshold);
+        sb.append('}');
+        return sb.toString();
+    }
+}
@@ -0,0 +1,159 @@
+package org.proxysoa.spring.balancer;
+
+import org.newsclub.net.unix.AFUNIXSocket;
+import org.newsclub.net.unix.AFUNIXSocketAddress;
+import org.proxysoa.spring.transport.UnixSocketURLs;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.Socket;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.Collection;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Probes the instances of remote services in background. A probe is GET of the instance URL + path,
+ * any response but 5xx means the instance is alive (so a service without health endpoint is checked
+ * for being reachable). Results are passed to the instances (see Endpoint.onHealthCheck()).
+ * Instances listening on unix domain sockets are probed with a plain HTTP/1.1 request over the socket.
+ * <p>
+ * Probes are sent from own thread one by one, they never delay the proxies' calls.
+ */
+public class HealthChecker {
+    private static final Logger LOG = LoggerFactory.getLogger(HealthChecker.class);
+
+    private final HealthCheckSettings settings;
+    //instances to be probed
+    private final Supplier<Collection<Endpoint>> endpoints;
+
+    private ScheduledExecutorService scheduler;
+
+    /**
+     * Constructs the checker
+     *
+     * @param settings  health check settings
+     * @param endpoints gets instances to be probed
+     */
+    public HealthChecker(HealthCheckSettings settings, Supplier<Collection<Endpoint>> endpoints) {
+        this.settings = settings;
+        this.endpoints = endpoints;
+    }
+
+    /**
+     * Starts probing every interval
+     */
+    public synchronized void start() {
+        if (scheduler != null) {
+            return;
+        }
+        scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "soa-proxy-health-check");
+            thread.setDaemon(true);
+            return thread;
+        });
+        scheduler.scheduleWithFixedDelay(this::checkAll, settings.getInterval(), settings.getInterval(),
+                TimeUnit.MILLISECONDS);
+        LOG.debug("Health checker started with {}", settings);
+    }
+
+    public synchronized void stop() {
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+            scheduler = null;
+        }
+    }
+
+    /**
+     * Probes all the instances once
+     */
+    void checkAll() {
+        for (Endpoint endpoint : endpoints.get()) {
+            try {
+                endpoint.onHealthCheck(probe(endpoint.getUrl()), System.currentTimeMillis(), settings);
+            } catch (RuntimeException e) {
+                LOG.error("Health check of " + endpoint.getUrl() + " failed", e);
+            }
+        }
+    }
+
+    /**
+     * Probes the instance
+     *
+     * @param endpointUrl instance URL
+     * @return true if the instance is alive
+     */
+    boolean probe(String endpointUrl) {
+        String url = endpointUrl.endsWith("/") || settings.getPath().startsWith("/")
+                ? endpointUrl + settings.getPath()
+                : endpointUrl + "/" + settings.getPath();
+        if (UnixSocketURLs.isUnix(url)) {
+            return probeUnixSocket(url);
+        }
+        HttpURLConnection connection = null;
+        try {
+            connection = (HttpURLConnection) new URL(url).openConnection();
+            connection.setConnectTimeout(settings.getTimeout());
+            connection.setReadTimeout(settings.getTimeout());
+            connection.setUseCaches(false);
+            int status = connection.getResponseCode();
+            drain(status < 400 ? connection.getInputStream() : connection.getErrorStream());
+            return status < 500;
+        } catch (IOException e) {
+            LOG.debug("Health check of {} failed: {}", url, e.toString());
+            return false;
+        } finally {
+            if (connection != null) {
+                connection.disconnect();
+            }
+        }
+    }
+
+    /**
+     * Probes the instance listening on unix domain socket
+     *
+     * @param url probe URL (unix:socketFile:path)
+     * @return true if the instance is alive
+     */
+    private boolean probeUnixSocket(String url) {
+        try (Socket socket = AFUNIXSocket.newInstance()) {
+            socket.setSoTimeout(settings.getTimeout());
+            socket.connect(new AFUNIXSocketAddress(new File(UnixSocketURLs.getSocketFile(url))), settings.getTimeout());
+            OutputStream out = socket.getOutputStream();
+            out.write(("GET " + UnixSocketURLs.getPath(url) + " HTTP/1.1\r\n"
+                    + "Host: localhost\r\n"
+                    + "Connection: close\r\n\r\n").getBytes(StandardCharsets.US_ASCII));
+            out.flush();
+            BufferedReader reader = new BufferedReader(new InputStreamReader(socket.getInputStream(),
+                    StandardCharsets.US_ASCII));
+            //status line: HTTP/1.1 200 OK
+            String[] statusLine = String.valueOf(reader.readLine()).split(" ");
+            return statusLine.length > 1 && Integer.parseInt(statusLine[1]) < 500;
+        } catch (IOException | NumberFormatException e) {
+            LOG.debug("Health check of {} failed: {}", url, e.toString());
+            return false;
+        }
+    }
+
+    private static void drain(InputStream in) throws IOException {
+        if (in == null) {
+            return;
+        }
+        try (InputStream stream = in) {
+            byte[] buffer = new byte[1024];
+            while (stream.read(buffer) >= 0) {
+                //the body is not used
+            }
+        }
+    }
+}
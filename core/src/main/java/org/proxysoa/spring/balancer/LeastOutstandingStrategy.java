@@ -0,0 +1,26 @@
+package org.proxysoa.spring.balancer;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Chooses the instance with the least calls in progress. The scan starts from a random instance,
+ * so ties are broken randomly and idle instances are not herded.
+ */
+public class LeastOutstandingStrategy implements LoadBalancingStrategy {
+
+    @Override
+    public Endpoint choose(Endpoint[] endpoints) {
+        int start = ThreadLocalRandom.current().nextInt(endpoints.length);
+        Endpoint best = endpoints[start];
+        int bestOutstanding = best.getOutstanding();
+        for (int i = 1; i < endpoints.length && bestOutstanding > 0; i++) {
+            Endpoint endpoint = endpoints[(start + i) % endpoints.length];
+            int outstanding = endpoint.getOutstanding();
+            if (outstanding < bestOutstanding) {
+                best = endpoint;
+                bestOutstanding = outstanding;
+            }
+        }
+        return best;
+    }
+}
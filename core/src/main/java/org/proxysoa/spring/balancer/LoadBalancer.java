@@ -0,0 +1,219 @@
+package org.proxysoa.spring.balancer;
+
+import org.apache.http.conn.ConnectTimeoutException;
+import org.apache.http.conn.ConnectionPoolTimeoutException;
+import org.springframework.web.client.HttpClientErrorException;
+import org.springframework.web.client.HttpServerErrorException;
+
+import java.net.ConnectException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.LongSupplier;
+
+/**
+ * Balances calls of a remote service over the service's instances. The instances array is never
+ * modified, so a call chooses its instance without locks.
+ * <p>
+ * Instances out of rotation (unhealthy or ejected) are skipped, warming up ones get a part of their calls.
+ * If no instance is available the calls go to all of them. An instance is ejected after consecutiveFailures
+ * 5xx responses or connect failures in a row unless maxEjectionPercent of the instances are ejected already.
+ */
+public class LoadBalancer {
+    private final String name;
+    private final Endpoint[] endpoints;
+    private final LoadBalancingStrategy strategy;
+    private final OutlierDetectionSettings outlierSettings;
+    //current time in milliseconds
+    private final LongSupplier clock;
+
+    /**
+     * Constructs the balancer with default outlier detection settings
+     *
+     * @param name      balancer name (remote service URLs)
+     * @param endpoints instances of the service
+     * @param strategy  balancing strategy
+     */
+    public LoadBalancer(String name, List<Endpoint> endpoints, LoadBalancingStrategy strategy) {
+        this(name, endpoints, strategy, new OutlierDetectionSettings());
+    }
+
+    /**
+     * Constructs the balancer
+     *
+     * @param name            balancer name (remote service URLs)
+     * @param endpoints       instances of the service
+     * @param strategy        balancing strategy
+     * @param outlierSettings outlier detection settings
+     */
+    public LoadBalancer(String name, List<Endpoint> endpoints, LoadBalancingStrategy strategy,
+                        OutlierDetectionSettings outlierSettings) {
+        this(name, endpoints, strategy, outlierSettings, System::currentTimeMillis);
+    }
+
+    LoadBalancer(String name, List<Endpoint> endpoints, LoadBalancingStrategy strategy,
+                 OutlierDetectionSettings outlierSettings, LongSupplier clock) {
+        this.name = name;
+        this.endpoints = endpoints.toArray(new Endpoint[endpoints.size()]);
+        this.strategy = strategy;
+        this.outlierSettings = outlierSettings;
+        this.clock = clock;
+    }
+
+    /**
+     * Chooses instance for a call
+     *
+     * @return the instance
+     */
+    public Endpoint choose() {
+        if (endpoints.length == 1) {
+            return endpoints[0];
+        }
+        long now = clock.getAsLong();
+        Endpoint chosen = strategy.choose(endpoints);
+        if (chosen.isAvailable(now) && admits(chosen, now)) {
+            return chosen;
+        }
+        //the instances are out of rotation rarely, so the available ones are collected on demand
+        Endpoint[] available = getAvailable(now);
+        if (available.length == 0) {
+            return chosen;
+        }
+        return available.length == 1 ? available[0] : strategy.choose(available);
+    }
+
+    /**
+     * Chooses instance for a call avoiding the excluded instances (e.g. the ones the call's other attempts
+     * are sent to). An excluded instance is chosen only if there is no other one.
+     *
+     * @param excluded instances to avoid
+     * @return the instance
+     */
+    public Endpoint choose(Collection<Endpoint> excluded) {
+        Endpoint chosen = choose();
+        if (excluded.isEmpty() || !excluded.contains(chosen)) {
+            return chosen;
+        }
+        long now = clock.getAsLong();
+        List<Endpoint> others = new ArrayList<>(endpoints.length);
+        List<Endpoint> available = new ArrayList<>(endpoints.length);
+        for (Endpoint endpoint : endpoints) {
+            if (!excluded.contains(endpoint)) {
+                others.add(endpoint);
+                if (endpoint.isAvailable(now)) {
+                    available.add(endpoint);
+                }
+            }
+        }
+        List<Endpoint> candidates = available.isEmpty() ? others : available;
+        if (candidates.isEmpty()) {
+            return chosen;
+        }
+        return candidates.size() == 1 ? candidates.get(0)
+                : strategy.choose(candidates.toArray(new Endpoint[candidates.size()]));
+    }
+
+    private boolean admits(Endpoint endpoint, long now) {
+        double weight = endpoint.getWeight(now, outlierSettings.getSlowStartTime());
+        return weight >= 1 || ThreadLocalRandom.current().nextDouble() < weight;
+    }
+
+    private Endpoint[] getAvailable(long now) {
+        List<Endpoint> res = new ArrayList<>(endpoints.length);
+        for (Endpoint endpoint : endpoints) {
+            if (endpoint.isAvailable(now)) {
+                res.add(endpoint);
+            }
+        }
+        return res.toArray(new Endpoint[res.size()]);
+    }
+
+    /**
+     * Records end of a call to the instance chosen by the balancer
+     *
+     * @param endpoint the instance
+     * @param start    start time returned by Endpoint.onStart()
+     * @param error    call error (null if the call succeeded)
+     */
+    public void onComplete(Endpoint endpoint, long start, Throwable error) {
+        endpoint.onComplete(start, error != null && isFailure(error));
+        if (!outlierSettings.isEnabled() || endpoints.length == 1) {
+            return;
+        }
+        if (error == null) {
+            endpoint.onOutlierSuccess();
+        } else if (isOutlierFailure(error)) {
+            if (endpoint.onOutlierFailure() >= outlierSettings.getConsecutiveFailures()) {
+                long now = clock.getAsLong();
+                if (canEject(now)) {
+                    endpoint.eject(now, outlierSettings);
+                }
+            }
+        } else if (!(error instanceof CancellationException)) {
+            endpoint.onOutlierSuccess();
+        }
+    }
+
+    private boolean canEject(long now) {
+        int ejected = 1;
+        for (Endpoint endpoint : endpoints) {
+            if (!endpoint.isAvailable(now)) {
+                ejected++;
+            }
+        }
+        return ejected * 100 <= outlierSettings.getMaxEjectionPercent() * endpoints.length;
+    }
+
+    /**
+     * Checks whether the error means the instance failed (client errors mean the instance is healthy,
+     * cancelled calls are not the instance's fault)
+     *
+     * @param error call error
+     * @return true if the instance failed
+     */
+    static boolean isFailure(Throwable error) {
+        return !(error instanceof HttpClientErrorException || error instanceof CancellationException);
+    }
+
+    /**
+     * Checks whether the error counts for outlier detection: 5xx response or connect failure
+     * (timeout of waiting for a pooled connection is caller's overload, not the instance's failure)
+     *
+     * @param error call error
+     * @return true if the error counts
+     */
+    static boolean isOutlierFailure(Throwable error) {
+        for (Throwable e = error; e != null; e = e.getCause()) {
+            if (e instanceof ConnectionPoolTimeoutException) {
+                return false;
+            }
+            if (e instanceof HttpServerErrorException || e instanceof ConnectException
+                    || e instanceof ConnectTimeoutException) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public List<Endpoint> getEndpoints() {
+        return Collections.unmodifiableList(Arrays.asList(endpoints));
+    }
+
+    public LoadBalancingStrategy getStrategy() {
+        return strategy;
+    }
+
+    @Override
+    public String toString() {
+        return "LoadBalancer{" + name + ", strategy=" + strategy.getClass().getSimpleName()
+                + ", endpoints=" + Arrays.toString(endpoints) + '}';
+    }
+}
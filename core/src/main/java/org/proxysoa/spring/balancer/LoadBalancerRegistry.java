@@ -0,0 +1,193 @@
+package org.proxysoa.spring.balancer;
+
+import org.proxysoa.spring.exception.SOAControllerCreationException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.context.EnvironmentAware;
+import org.springframework.core.env.Environment;
+import org.springframework.stereotype.Component;
+import org.springframework.util.ClassUtils;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Keeps load balancers (one per remote service) and instances (one per URL) of the proxies created
+ * by ControllerFactory. Proxies of different controllers of the same service share the service's balancer,
+ * so each instance's load is seen by all of them.
+ * <p>
+ * Instances of the services having more than one instance are probed by the health checker and ejected
+ * by the balancers' outlier detection (a single instance is never taken out of rotation).
+ * <p>
+ * Configured by SOA.LoadBalancer.*, SOA.HealthCheck.* and SOA.OutlierDetection.* properties
+ * (see LoadBalancerSettings, HealthCheckSettings and OutlierDetectionSettings).
+ */
+@Component
+public class LoadBalancerRegistry implements EnvironmentAware, DisposableBean {
+    private static final Logger LOG = LoggerFactory.getLogger(LoadBalancerRegistry.class);
+
+    private LoadBalancerSettings settings = new LoadBalancerSettings();
+    private HealthCheckSettings healthCheckSettings = new HealthCheckSettings();
+    private OutlierDetectionSettings outlierSettings = new OutlierDetectionSettings();
+
+    //probes instances of the services having more than one instance (null till such service is registered)
+    private HealthChecker healthChecker;
+
+    //key is remote service URLs (comma separated), value is the service's balancer
+    private final ConcurrentMap<String, LoadBalancer> balancers = new ConcurrentHashMap<>();
+    //key is instance URL, value is the instance
+    private final ConcurrentMap<String, Endpoint> endpoints = new ConcurrentHashMap<>();
+
+    @Override
+    public void setEnvironment(Environment environment) {
+        this.settings = new LoadBalancerSettings(environment);
+        this.healthCheckSettings = new HealthCheckSettings(environment);
+        this.outlierSettings = new OutlierDetectionSettings(environment);
+        LOG.debug("Load balancer settings {} {} {}", settings, healthCheckSettings, outlierSettings);
+    }
+
+    /**
+     * Gets (creates on first request) balancer of the remote service
+     *
+     * @param serviceUrl remote service URLs (comma separated)
+     * @param urls       URLs of the service's instances
+     * @return the service's balancer
+     */
+    public LoadBalancer getLoadBalancer(String serviceUrl, List<String> urls) {
+        LoadBalancer balancer = balancers.computeIfAbsent(serviceUrl, name -> {
+            List<Endpoint> serviceEndpoints = new ArrayList<>(urls.size());
+            for (String url : urls) {
+                serviceEndpoints.add(endpoints.computeIfAbsent(url, u -> new Endpoint(u, settings)));
+            }
+            return new LoadBalancer(name, serviceEndpoints, createStrategy(settings.getStrategy()), outlierSettings);
+        });
+        if (urls.size() > 1 && healthCheckSettings.isEnabled()) {
+            startHealthChecker();
+        }
+        return balancer;
+    }
+
+    private synchronized void startHealthChecker() {
+        if (healthChecker == null) {
+            healthChecker = new HealthChecker(healthCheckSettings, this::getCheckedEndpoints);
+            healthChecker.start();
+        }
+    }
+
+    /**
+     * Gets instances of the services having more than one instance
+     *
+     * @return instances to be probed
+     */
+    private Collection<Endpoint> getCheckedEndpoints() {
+        Set<Endpoint> res = new LinkedHashSet<>();
+        for (LoadBalancer balancer : balancers.values()) {
+            if (balancer.getEndpoints().size() > 1) {
+                res.addAll(balancer.getEndpoints());
+            }
+        }
+        return res;
+    }
+
+    /**
+     * Creates strategy by name
+     *
+     * @param strategy ROUND_ROBIN, LEAST_OUTSTANDING, P2C_EWMA or class name of custom LoadBalancingStrategy
+     * @return new strategy instance
+     */
+    LoadBalancingStrategy createStrategy(String strategy) {
+        switch (strategy) {
+            case LoadBalancerSettings.ROUND_ROBIN:
+                return new RoundRobinStrategy();
+            case LoadBalancerSettings.LEAST_OUTSTANDING:
+                return new LeastOutstandingStrategy();
+            case LoadBalancerSettings.P2C_EWMA:
+                return new PowerOfTwoChoicesStrategy();
+            default:
+                try {
+                    Class<?> strategyClass = ClassUtils.forName(strategy, getClass().getClassLoader());
+                    return (LoadBalancingStrategy) strategyClass.newInstance();
+                } catch (ClassNotFoundException | LinkageError | InstantiationException | IllegalAccessException
+                        | ClassCastException e) {
+                    throw new SOAControllerCreationException("Cannot create load balancing strategy " + strategy
+                            + ": " + e);
+                }
+        }
+    }
+
+    /**
+     * Gets balancers (strategy and instances) of all the remote services
+     *
+     * @return map of remote service URLs to the balancer
+     */
+    public Map<String, LoadBalancer> getLoadBalancers() {
+        return new TreeMap<>(balancers);
+    }
+
+    /**
+     * Gets instances (calls in progress, latency, calls, failed calls) of all the remote services
+     *
+     * @return map of instance URL to the instance
+     */
+    public Map<String, Endpoint> getEndpoints() {
+        return new TreeMap<>(endpoints);
+    }
+
+    /**
+     * Gets status (healthy, warming up, unhealthy, ejected) of all the instances
+     *
+     * @return map of instance URL to the status
+     */
+    public Map<String, Endpoint.Status> getEndpointStatuses() {
+        long now = System.currentTimeMillis();
+        Map<String, Endpoint.Status> res = new TreeMap<>();
+        for (Endpoint endpoint : endpoints.values()) {
+            res.put(endpoint.getUrl(), endpoint.getStatus(now, outlierSettings.getSlowStartTime()));
+        }
+        return res;
+    }
+
+    /**
+     * Gets instances out of rotation: failing health checks or ejected by outlier detection
+     *
+     * @return map of instance URL to the instance
+     */
+    public Map<String, Endpoint> getUnavailableEndpoints() {
+        long now = System.currentTimeMillis();
+        Map<String, Endpoint> res = new TreeMap<>();
+        for (Endpoint endpoint : endpoints.values()) {
+            if (!endpoint.isAvailable(now)) {
+                res.put(endpoint.getUrl(), endpoint);
+            }
+        }
+        return res;
+    }
+
+    public LoadBalancerSettings getSettings() {
+        return settings;
+    }
+
+    public HealthCheckSettings getHealthCheckSettings() {
+        return healthCheckSettings;
+    }
+
+    public OutlierDetectionSettings getOutlierSettings() {
+        return outlierSettings;
+    }
+
+    @Override
+    public synchronized void destroy() {
+        if (healthChecker != null) {
+            healthChecker.stop();
+            healthChecker = null;
+        }
+    }
+}
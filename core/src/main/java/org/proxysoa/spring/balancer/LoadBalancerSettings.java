@@ -0,0 +1,73 @@
+package org.proxysoa.spring.balancer;
+
+import org.springframework.core.env.Environment;
+
+/**
+ * Keeps settings of the balancing of remote services' instances. Values are read from SOA.LoadBalancer.*
+ * properties, defaults are used for the missing ones.
+ */
+public class LoadBalancerSettings {
+    public static final String PREFIX = "SOA.LoadBalancer.";
+
+    public static final String ROUND_ROBIN = "ROUND_ROBIN";
+    public static final String LEAST_OUTSTANDING = "LEAST_OUTSTANDING";
+    public static final String P2C_EWMA = "P2C_EWMA";
+
+    //ROUND_ROBIN, LEAST_OUTSTANDING, P2C_EWMA or class name of custom LoadBalancingStrategy
+    private String strategy = P2C_EWMA;
+    //weight of the last call's latency in the latency EWMA (0..1)
+    private double ewmaAlpha = 0.3;
+    //min latency (milliseconds) counted for a failed call
+    private long failurePenalty = 1000;
+
+    /**
+     * Default constructor (default settings)
+     */
+    public LoadBalancerSettings() {
+    }
+
+    /**
+     * Reads the settings from environment
+     *
+     * @param environment environment to get SOA.LoadBalancer.* properties
+     */
+    public LoadBalancerSettings(Environment environment) {
+        this.strategy = environment.getProperty(PREFIX + "strategy", strategy);
+        this.ewmaAlpha = environment.getProperty(PREFIX + "ewmaAlpha", Double.class, ewmaAlpha);
+        this.failurePenalty = environment.getProperty(PREFIX + "failurePenalty", Long.class, failurePenalty);
+    }
+
+    public String getStrategy() {
+        return strategy;
+    }
+
+    public void setStrategy(String strategy) {
+        this.strategy = strategy;
+    }
+
+    public double getEwmaAlpha() {
+        return ewmaAlpha;
+    }
+
+    public void setEwmaAlpha(double ewmaAlpha) {
+        this.ewmaAlpha = ewmaAlpha;
+    }
+
+    public long getFailurePenalty() {
+        return failurePenalty;
+    }
+
+    public void setFailurePenalty(long failurePenalty) {
+        this.failurePenalty = failurePenalty;
+    }
+
+    @Override
+    public String toString() {
+        final StringBuilder sb = new StringBuilder("LoadBalancerSettings{");
+        sb.append("strategy='").append(strategy).append('\'');
+        sb.append(", ewmaAlpha=").append(ewmaAlpha);
+        sb.append(", failurePenalty=").append(failurePenalty);
+        sb.append('}');
+        return sb.toString();
+    }
+}
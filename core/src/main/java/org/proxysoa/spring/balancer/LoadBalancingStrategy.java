@@ -0,0 +1,19 @@
+package org.proxysoa.spring.balancer;
+
+/**
+ * Chooses instance of a remote service for a call. A strategy instance is created per remote service
+ * (so it may keep the service's state), choose() is called concurrently and must not block.
+ * <p>
+ * Custom strategy is configured by its class name (SOA.LoadBalancer.strategy), the class must have
+ * public no-args constructor.
+ */
+public interface LoadBalancingStrategy {
+
+    /**
+     * Chooses instance for a call
+     *
+     * @param endpoints instances of the service (at least two)
+     * @return chosen instance
+     */
+    Endpoint choose(Endpoint[] endpoints);
+}
@@ -0,0 +1,106 @@
+package org.proxysoa.spring.balancer;
+
+import org.springframework.core.env.Environment;
+
+/**
+ * Keeps settings of passive outlier detection of remote services' instances. Values are read from
+ * SOA.OutlierDetection.* properties, defaults are used for the missing ones.
+ */
+public class OutlierDetectionSettings {
+    public static final String PREFIX = "SOA.OutlierDetection.";
+
+    private boolean enabled = true;
+    //5xx responses or connect failures in a row ejecting the instance
+    private int consecutiveFailures = 5;
+    //ejection time (milliseconds) of the first ejection, doubled for each next one
+    private long baseEjectionTime = 10000;
+    //max ejection time (milliseconds)
+    private long maxEjectionTime = 300000;
+    //max percent of the service's instances ejected at once
+    private int maxEjectionPercent = 50;
+    //time (milliseconds) a returned instance takes to get its full share of the calls
+    private long slowStartTime = 30000;
+
+    /**
+     * Default constructor (default settings)
+     */
+    public OutlierDetectionSettings() {
+    }
+
+    /**
+     * Reads the settings from environment
+     *
+     * @param environment environment to get SOA.OutlierDetection.* properties
+     */
+    public OutlierDetectionSettings(Environment environment) {
+        this.enabled = environment.getProperty(PREFIX + "enabled", Boolean.class, enabled);
+        this.consecutiveFailures = environment.getProperty(PREFIX + "consecutiveFailures", Integer.class,
+                consecutiveFailures);
+        this.baseEjectionTime = environment.getProperty(PREFIX + "baseEjectionTime", Long.class, baseEjectionTime);
+        this.maxEjectionTime = environment.getProperty(PREFIX + "maxEjectionTime", Long.class, maxEjectionTime);
+        this.maxEjectionPercent = environment.getProperty(PREFIX + "maxEjectionPercent", Integer.class,
+                maxEjectionPercent);
+        this.slowStartTime = environment.getProperty(PREFIX + "slowStartTime", Long.class, slowStartTime);
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    public int getConsecutiveFailures() {
+        return consecutiveFailures;
+    }
+
+    public void setConsecutiveFailures(int consecutiveFailures) {
+        this.consecutiveFailures = consecutiveFailures;
+    }
+
+    public long getBaseEjectionTime() {
+        return baseEjectionTime;
+    }
+
+    public void setBaseEjectionTime(long baseEjectionTime) {
+        this.baseEjectionTime = baseEjectionTime;
+    }
+
+    public long getMaxEjectionTime() {
+        return maxEjectionTime;
+    }
+
+    public void setMaxEjectionTime(long maxEjectionTime) {
+        this.maxEjectionTime = maxEjectionTime;
+    }
+
+    public int getMaxEjectionPercent() {
+        return maxEjectionPercent;
+    }
+
+    public void setMaxEjectionPercent(int maxEjectionPercent) {
+        this.maxEjectionPercent = maxEjectionPercent;
+    }
+
+    public long getSlowStartTime() {
+        return slowStartTime;
+    }
+
+    public void setSlowStartTime(long slowStartTime) {
+        this.slowStartTime = slowStartTime;
+    }
+
+    @Override
+    public String toString() {
+        final StringBuilder sb = new StringBuilder("OutlierDetectionSettings{");
+        sb.append("enabled=").append(enabled);
+        sb.append(", consecutiveFailures=").append(consecutiveFailures);
+        sb.append(", baseEjectionTime=").append(baseEjectionTime);
+        sb.append(", maxEjectionTime=").append(maxEjectionTime);
+        sb.append(", maxEjectionPercent=").append(maxEjectionPercent);
+        sb.append(", slowStartTime=").append(slowStartTime);
+        sb.append('}');
+        return sb.toString();
+    }
+}
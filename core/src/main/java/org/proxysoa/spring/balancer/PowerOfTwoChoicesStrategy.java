@@ -0,0 +1,24 @@
+package org.proxysoa.spring.balancer;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Power of two choices: picks two random instances and chooses the one with lower cost
+ * (EWMA latency weighted by calls in progress). Gives nearly the best choice in O(1) without
+ * sending all the callers to the same least loaded instance.
+ */
+public class PowerOfTwoChoicesStrategy implements LoadBalancingStrategy {
+
+    @Override
+    public Endpoint choose(Endpoint[] endpoints) {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        int first = random.nextInt(endpoints.length);
+        int second = random.nextInt(endpoints.length - 1);
+        if (second >= first) {
+            second++;
+        }
+        Endpoint a = endpoints[first];
+        Endpoint b = endpoints[second];
+        return a.getCost() <= b.getCost() ? a : b;
+    }
+}
@@ -0,0 +1,15 @@
+package org.proxysoa.spring.balancer;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Chooses the instances in turn
+ */
+public class RoundRobinStrategy implements LoadBalancingStrategy {
+    private final AtomicInteger next = new AtomicInteger();
+
+    @Override
+    public Endpoint choose(Endpoint[] endpoints) {
+        return endpoints[(next.getAndIncrement() & Integer.MAX_VALUE) % endpoints.length];
+    }
+}
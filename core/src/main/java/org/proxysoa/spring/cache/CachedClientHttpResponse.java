@@ -0,0 +1,72 @@
+package org.proxysoa.spring.cache;
+
+import com.fasterxml.jackson.databind.JavaType;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.client.ClientHttpResponse;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+
+/**
+ * Response served from HttpResponseCache (fresh or revalidated by 304 Not Modified).
+ * Gives access to the result deserialized from the cached body by a previous call, so readers
+ * may skip parsing of unchanged payloads.
+ */
+public class CachedClientHttpResponse implements ClientHttpResponse {
+    private final HttpResponseCache.Entry entry;
+
+    CachedClientHttpResponse(HttpResponseCache.Entry entry) {
+        this.entry = entry;
+    }
+
+    /**
+     * Gets result deserialized from the body by a previous reader
+     *
+     * @param type result type
+     * @return deserialized result or null if the body was not deserialized to the type yet
+     */
+    public Object getDecoded(JavaType type) {
+        return entry.getDecoded(type);
+    }
+
+    /**
+     * Keeps result deserialized from the body for next readers. The result must not be modified
+     * after the call (readers get copies of it).
+     *
+     * @param type  result type
+     * @param value deserialized result
+     */
+    public void setDecoded(JavaType type, Object value) {
+        entry.setDecoded(type, value);
+    }
+
+    @Override
+    public HttpStatus getStatusCode() {
+        return HttpStatus.OK;
+    }
+
+    @Override
+    public int getRawStatusCode() {
+        return HttpStatus.OK.value();
+    }
+
+    @Override
+    public String getStatusText() {
+        return HttpStatus.OK.getReasonPhrase();
+    }
+
+    @Override
+    public void close() {
+    }
+
+    @Override
+    public InputStream getBody() {
+        return new ByteArrayInputStream(entry.body);
+    }
+
+    @Override
+    public HttpHeaders getHeaders() {
+        return entry.headers;
+    }
+}
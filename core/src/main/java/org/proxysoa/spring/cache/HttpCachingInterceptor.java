@@ -0,0 +1,329 @@
+package org.proxysoa.spring.cache;
+
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpRequest;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.client.AsyncClientHttpRequestExecution;
+import org.springframework.http.client.AsyncClientHttpRequestInterceptor;
+import org.springframework.http.client.ClientHttpRequestExecution;
+import org.springframework.http.client.ClientHttpRequestInterceptor;
+import org.springframework.http.client.ClientHttpResponse;
+import org.springframework.http.client.support.HttpRequestWrapper;
+import org.springframework.util.StreamUtils;
+import org.springframework.util.concurrent.ListenableFuture;
+import org.springframework.util.concurrent.ListenableFutureAdapter;
+import org.springframework.util.concurrent.SettableListenableFuture;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Locale;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ExecutionException;
+import java.util.function.LongSupplier;
+
+/**
+ * Applies http caching to GET calls of RestTemplate and AsyncRestTemplate. Responses are cached
+ * by request URI in HttpResponseCache following the remote service's headers:
+ * <ul>
+ * <li>Cache-Control max-age - the response is served without remote call while fresh</li>
+ * <li>ETag / Last-Modified - stale response is revalidated with If-None-Match / If-Modified-Since,
+ * on 304 Not Modified the cached body is reused</li>
+ * <li>no-cache - the response is revalidated on each call</li>
+ * <li>no-store, private - the response is not cached (the cache is shared by all the callers of the JVM)</li>
+ * <li>Vary - the response is reused only for requests with the same values of the named headers,
+ * Vary: * responses are not cached</li>
+ * </ul>
+ * Requests with headers besides SHARED_REQUEST_HEADERS (Authorization, Cookie, tenant headers forwarded
+ * from the parent request etc.) may get a response personal to the caller, so their responses are cached
+ * only if marked public. Successful non-GET calls remove the cached response of the URI.
+ */
+public class HttpCachingInterceptor implements ClientHttpRequestInterceptor, AsyncClientHttpRequestInterceptor {
+    /**
+     * Request headers which don't identify the caller (case insensitive)
+     */
+    public static final Set<String> SHARED_REQUEST_HEADERS;
+
+    static {
+        Set<String> headers = new TreeSet<>(String.CASE_INSENSITIVE_ORDER);
+        headers.addAll(Arrays.asList(HttpHeaders.ACCEPT, HttpHeaders.ACCEPT_CHARSET, HttpHeaders.ACCEPT_ENCODING,
+                HttpHeaders.ACCEPT_LANGUAGE, HttpHeaders.CACHE_CONTROL, HttpHeaders.PRAGMA, HttpHeaders.CONNECTION,
+                HttpHeaders.HOST, HttpHeaders.USER_AGENT, HttpHeaders.CONTENT_LENGTH, HttpHeaders.CONTENT_TYPE,
+                HttpHeaders.IF_NONE_MATCH, HttpHeaders.IF_MODIFIED_SINCE));
+        SHARED_REQUEST_HEADERS = Collections.unmodifiableSet(headers);
+    }
+
+    private final HttpResponseCache cache;
+    private final LongSupplier clock;
+
+    /**
+     * Constructs the interceptor
+     *
+     * @param cache responses cache
+     */
+    public HttpCachingInterceptor(HttpResponseCache cache) {
+        this(cache, System::currentTimeMillis);
+    }
+
+    HttpCachingInterceptor(HttpResponseCache cache, LongSupplier clock) {
+        this.cache = cache;
+        this.clock = clock;
+    }
+
+    @Override
+    public ClientHttpResponse intercept(HttpRequest request, byte[] body, ClientHttpRequestExecution execution)
+            throws IOException {
+        if (!isCacheable(request)) {
+            return afterUncached(request, execution.execute(request, body));
+        }
+        String key = request.getURI().toString();
+        long requestTime = clock.getAsLong();
+        HttpResponseCache.Entry cached = lookup(request, key);
+        if (cached != null && cached.isFresh(requestTime)) {
+            cache.recordHit();
+            return new CachedClientHttpResponse(cached);
+        }
+        ClientHttpResponse response = execution.execute(conditional(request, cached), body);
+        return afterCall(request, key, cached, requestTime, response);
+    }
+
+    @Override
+    public ListenableFuture<ClientHttpResponse> intercept(HttpRequest request, byte[] body,
+                                                          AsyncClientHttpRequestExecution execution)
+            throws IOException {
+        if (!isCacheable(request)) {
+            return new ListenableFutureAdapter<ClientHttpResponse, ClientHttpResponse>(
+                    execution.executeAsync(request, body)) {
+                @Override
+                protected ClientHttpResponse adapt(ClientHttpResponse response) throws ExecutionException {
+                    try {
+                        return afterUncached(request, response);
+                    } catch (IOException e) {
+                        throw new ExecutionException(e);
+                    }
+                }
+            };
+        }
+        String key = request.getURI().toString();
+        long requestTime = clock.getAsLong();
+        HttpResponseCache.Entry cached = lookup(request, key);
+        if (cached != null && cached.isFresh(requestTime)) {
+            cache.recordHit();
+            SettableListenableFuture<ClientHttpResponse> result = new SettableListenableFuture<>();
+            result.set(new CachedClientHttpResponse(cached));
+            return result;
+        }
+        return new ListenableFutureAdapter<ClientHttpResponse, ClientHttpResponse>(
+                execution.executeAsync(conditional(request, cached), body)) {
+            @Override
+            protected ClientHttpResponse adapt(ClientHttpResponse response) throws ExecutionException {
+                try {
+                    return afterCall(request, key, cached, requestTime, response);
+                } catch (IOException e) {
+                    throw new ExecutionException(e);
+                }
+            }
+        };
+    }
+
+    /**
+     * Gets cached response of the request
+     *
+     * @param request request
+     * @param key     cache key
+     * @return cached response selected by the same Vary header values as the request has (null if none)
+     */
+    private HttpResponseCache.Entry lookup(HttpRequest request, String key) {
+        HttpResponseCache.Entry cached = cache.get(key);
+        return cached != null && cached.matches(request.getHeaders()) ? cached : null;
+    }
+
+    private static boolean isCacheable(HttpRequest request) {
+        return request.getMethod() == HttpMethod.GET
+                && !hasDirective(request.getHeaders().getCacheControl(), "no-store");
+    }
+
+    /**
+     * Adds validators of the stale cached response to the request
+     *
+     * @param request request to be sent
+     * @param stale   cached response (null if there is no cached response)
+     * @return the request or conditional request
+     */
+    private static HttpRequest conditional(HttpRequest request, HttpResponseCache.Entry stale) {
+        if (stale == null || !stale.hasValidators()) {
+            return request;
+        }
+        HttpHeaders headers = new HttpHeaders();
+        headers.putAll(request.getHeaders());
+        String eTag = stale.headers.getETag();
+        if (eTag != null) {
+            headers.setIfNoneMatch(eTag);
+        } else {
+            headers.setIfModifiedSince(stale.headers.getLastModified());
+        }
+        return new HttpRequestWrapper(request) {
+            @Override
+            public HttpHeaders getHeaders() {
+                return headers;
+            }
+        };
+    }
+
+    /**
+     * Caches or revalidates the cached response by the remote call response
+     *
+     * @param request     request
+     * @param key         cache key
+     * @param cached      cached response sent for revalidation (null if there was no cached response)
+     * @param requestTime time the request was sent
+     * @param response    remote call response
+     * @return response to be read by the caller
+     * @throws IOException on the response reading errors
+     */
+    private ClientHttpResponse afterCall(HttpRequest request, String key, HttpResponseCache.Entry cached,
+                                         long requestTime, ClientHttpResponse response) throws IOException {
+        int status = response.getRawStatusCode();
+        if (status == HttpStatus.NOT_MODIFIED.value() && cached != null) {
+            response.close();
+            HttpHeaders notModified = response.getHeaders();
+            String cacheControl = notModified.getCacheControl() != null
+                    ? notModified.getCacheControl() : cached.headers.getCacheControl();
+            HttpResponseCache.Entry revalidated = cached.revalidated(notModified,
+                    expiresAt(cacheControl, notModified, requestTime));
+            cache.put(key, revalidated);
+            cache.recordRevalidated();
+            return new CachedClientHttpResponse(revalidated);
+        }
+        cache.recordMiss();
+        HttpHeaders headers = response.getHeaders();
+        if (status != HttpStatus.OK.value() || !isStorable(request, headers)) {
+            if (status == HttpStatus.OK.value()) {
+                cache.remove(key);
+            }
+            return response;
+        }
+        byte[] body;
+        try {
+            InputStream in = response.getBody();
+            body = in != null ? StreamUtils.copyToByteArray(in) : new byte[0];
+        } finally {
+            response.close();
+        }
+        HttpHeaders storedHeaders = new HttpHeaders();
+        storedHeaders.putAll(headers);
+        HttpResponseCache.Entry entry = new HttpResponseCache.Entry(storedHeaders, request.getHeaders(), body,
+                expiresAt(headers.getCacheControl(), headers, requestTime));
+        cache.put(key, entry);
+        return new CachedClientHttpResponse(entry);
+    }
+
+    /**
+     * Removes cached response of the URI changed by a successful unsafe call
+     *
+     * @param request  request
+     * @param response remote call response
+     * @return the response
+     * @throws IOException on the response reading errors
+     */
+    private ClientHttpResponse afterUncached(HttpRequest request, ClientHttpResponse response) throws IOException {
+        if (request.getMethod() != HttpMethod.GET && request.getMethod() != HttpMethod.HEAD
+                && request.getMethod() != HttpMethod.OPTIONS && response.getRawStatusCode() < 400) {
+            cache.remove(request.getURI().toString());
+        }
+        return response;
+    }
+
+    private static boolean isStorable(HttpRequest request, HttpHeaders headers) {
+        String cacheControl = headers.getCacheControl();
+        if (hasDirective(cacheControl, "no-store") || hasDirective(cacheControl, "private")) {
+            return false;
+        }
+        if (isPersonal(request) && !hasDirective(cacheControl, "public")) {
+            return false;
+        }
+        if (headers.getVary().contains("*")) {
+            return false;
+        }
+        return maxAge(cacheControl) > 0 || headers.getETag() != null || headers.getLastModified() >= 0;
+    }
+
+    /**
+     * @param request request
+     * @return true if the request has headers which may identify the caller
+     */
+    static boolean isPersonal(HttpRequest request) {
+        for (String name : request.getHeaders().keySet()) {
+            if (!SHARED_REQUEST_HEADERS.contains(name)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Gets time the response stops being fresh
+     *
+     * @param cacheControl Cache-Control header of the response
+     * @param headers      response headers
+     * @param requestTime  time the request was sent
+     * @return expiration time (the request time if the response must be revalidated)
+     */
+    private static long expiresAt(String cacheControl, HttpHeaders headers, long requestTime) {
+        long maxAge = maxAge(cacheControl);
+        if (maxAge <= 0 || hasDirective(cacheControl, "no-cache")) {
+            return requestTime;
+        }
+        long age = 0;
+        String ageHeader = headers.getFirst("Age");
+        if (ageHeader != null) {
+            try {
+                age = Long.parseLong(ageHeader.trim());
+            } catch (NumberFormatException e) {
+                //invalid Age is ignored
+            }
+        }
+        return requestTime + Math.max(0, maxAge - age) * 1000;
+    }
+
+    /**
+     * Gets max-age directive value
+     *
+     * @param cacheControl Cache-Control header value
+     * @return max-age in seconds or -1 if the directive is missing or invalid
+     */
+    static long maxAge(String cacheControl) {
+        if (cacheControl == null) {
+            return -1;
+        }
+        for (String directive : cacheControl.split(",")) {
+            String trimmed = directive.trim().toLowerCase(Locale.ROOT);
+            if (trimmed.startsWith("max-age=")) {
+                try {
+                    return Long.parseLong(trimmed.substring("max-age=".length()).replace("\"", ""));
+                } catch (NumberFormatException e) {
+                    return -1;
+                }
+            }
+        }
+        return -1;
+    }
+
+    static boolean hasDirective(String cacheControl, String name) {
+        if (cacheControl == null) {
+            return false;
+        }
+        for (String directive : cacheControl.split(",")) {
+            String trimmed = directive.trim();
+            int valueStart = trimmed.indexOf('=');
+            String directiveName = valueStart >= 0 ? trimmed.substring(0, valueStart).trim() : trimmed;
+            if (directiveName.equalsIgnoreCase(name)) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,185 @@
+package org.proxysoa.spring.cache;
+
+import com.fasterxml.jackson.databind.JavaType;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.springframework.http.HttpHeaders;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Cache of GET responses following http caching headers of the remote services (Cache-Control max-age,
+ * no-store, no-cache, ETag, Last-Modified). Fresh responses are served without a remote call, stale ones
+ * with validators are revalidated by conditional requests (see HttpCachingInterceptor).
+ * <p>
+ * The cache is bound by size of the kept bodies. Each PooledHttpTransport owns one instance shared by
+ * the transport's proxies.
+ */
+public class HttpResponseCache {
+    public static final long DEFAULT_MAX_BYTES = 64L * 1024 * 1024;
+
+    //approximate size of an entry besides the body
+    private static final int ENTRY_OVERHEAD = 512;
+
+    //key is request URI, a response varying by request headers is kept for the values it was last stored with
+    private final Cache<String, Entry> cache;
+
+    //responses served without remote call
+    private final LongAdder hits = new LongAdder();
+    //stale responses reused after 304 Not Modified
+    private final LongAdder revalidated = new LongAdder();
+    //requests which found no reusable response
+    private final LongAdder misses = new LongAdder();
+
+    /**
+     * Constructs the cache
+     *
+     * @param maxBytes max total size of the cached bodies
+     */
+    public HttpResponseCache(long maxBytes) {
+        this.cache = Caffeine.newBuilder()
+                .maximumWeight(maxBytes)
+                .<String, Entry>weigher((key, entry) -> entry.body.length + ENTRY_OVERHEAD)
+                .build();
+    }
+
+    Entry get(String key) {
+        return cache.getIfPresent(key);
+    }
+
+    void put(String key, Entry entry) {
+        cache.put(key, entry);
+    }
+
+    void remove(String key) {
+        cache.invalidate(key);
+    }
+
+    void recordHit() {
+        hits.increment();
+    }
+
+    void recordRevalidated() {
+        revalidated.increment();
+    }
+
+    void recordMiss() {
+        misses.increment();
+    }
+
+    public void invalidateAll() {
+        cache.invalidateAll();
+    }
+
+    public long getHitCount() {
+        return hits.sum();
+    }
+
+    public long getRevalidatedCount() {
+        return revalidated.sum();
+    }
+
+    public long getMissCount() {
+        return misses.sum();
+    }
+
+    /**
+     * @return approximate amount of cached responses
+     */
+    public long size() {
+        return cache.estimatedSize();
+    }
+
+    /**
+     * Cached response: headers, body, freshness and validators.
+     * Keeps result deserialized from the body as well, so a reused response is not parsed again.
+     */
+    static final class Entry {
+        final HttpHeaders headers;
+        final byte[] body;
+        //the response may be used without revalidation till the time
+        final long expiresAt;
+        //values of the request headers named by the response's Vary (null values for missing headers)
+        private final Map<String, List<String>> varyValues;
+
+        //result deserialized from the body and its type (null if not deserialized yet)
+        private volatile Object[] decoded;
+
+        Entry(HttpHeaders headers, HttpHeaders requestHeaders, byte[] body, long expiresAt) {
+            this(headers, varyValues(headers, requestHeaders), body, expiresAt);
+        }
+
+        private Entry(HttpHeaders headers, Map<String, List<String>> varyValues, byte[] body, long expiresAt) {
+            this.headers = HttpHeaders.readOnlyHttpHeaders(headers);
+            this.varyValues = varyValues;
+            this.body = body;
+            this.expiresAt = expiresAt;
+        }
+
+        private static Map<String, List<String>> varyValues(HttpHeaders headers, HttpHeaders requestHeaders) {
+            Map<String, List<String>> values = new LinkedHashMap<>();
+            for (String name : headers.getVary()) {
+                values.put(name, requestHeaders.get(name));
+            }
+            return Collections.unmodifiableMap(values);
+        }
+
+        /**
+         * Checks the response was selected by the same values of the Vary headers as the request has
+         *
+         * @param requestHeaders headers of a request
+         * @return true if the response may be used for the request
+         */
+        boolean matches(HttpHeaders requestHeaders) {
+            for (Map.Entry<String, List<String>> vary : varyValues.entrySet()) {
+                if (!Objects.equals(vary.getValue(), requestHeaders.get(vary.getKey()))) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        boolean isFresh(long now) {
+            return now < expiresAt;
+        }
+
+        boolean hasValidators() {
+            return headers.getETag() != null || headers.getLastModified() >= 0;
+        }
+
+        /**
+         * Creates entry with the same body but freshness and headers updated by 304 response
+         *
+         * @param notModifiedHeaders headers of 304 response
+         * @param expiresAt          new expiration time
+         * @return updated entry
+         */
+        Entry revalidated(HttpHeaders notModifiedHeaders, long expiresAt) {
+            HttpHeaders updated = new HttpHeaders();
+            updated.putAll(headers);
+            for (String name : new String[]{HttpHeaders.CACHE_CONTROL, HttpHeaders.EXPIRES, HttpHeaders.ETAG,
+                    HttpHeaders.LAST_MODIFIED, HttpHeaders.DATE}) {
+                if (notModifiedHeaders.containsKey(name)) {
+                    updated.put(name, notModifiedHeaders.get(name));
+                }
+            }
+            Entry entry = new Entry(updated, varyValues, body, expiresAt);
+            entry.decoded = decoded;
+            return entry;
+        }
+
+        Object getDecoded(JavaType type) {
+            Object[] typeAndValue = decoded;
+            return typeAndValue != null && type.equals(typeAndValue[0]) ? typeAndValue[1] : null;
+        }
+
+        void setDecoded(JavaType type, Object value) {
+            decoded = new Object[]{type, value};
+        }
+    }
+}
@@ -0,0 +1,82 @@
+package org.proxysoa.spring.cache;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import org.proxysoa.spring.annotation.ProxyCache;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cached results of one contract method. Keys are call URIs, values are deserialized results
+ * (null results are not cached).
+ */
+public class MethodCache {
+    private final String name;
+    private final ProxyCache settings;
+    private final Cache<String, Object> cache;
+
+    /**
+     * Constructs the cache
+     *
+     * @param name     method name (used in metrics)
+     * @param settings cache settings of the method
+     */
+    public MethodCache(String name, ProxyCache settings) {
+        this.name = name;
+        this.settings = settings;
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(settings.maxEntries())
+                .expireAfterWrite(settings.ttl(), TimeUnit.MILLISECONDS)
+                .recordStats()
+                .build();
+    }
+
+    /**
+     * @param key call URI
+     * @return cached result or null if there is no fresh result
+     */
+    public Object get(String key) {
+        return cache.getIfPresent(key);
+    }
+
+    /**
+     * @param key   call URI
+     * @param value result (ignored if null)
+     */
+    public void put(String key, Object value) {
+        if (value != null) {
+            cache.put(key, value);
+        }
+    }
+
+    public void invalidate(String key) {
+        cache.invalidate(key);
+    }
+
+    public void invalidateAll() {
+        cache.invalidateAll();
+    }
+
+    /**
+     * @return hit/miss/eviction counters of the cache
+     */
+    public CacheStats stats() {
+        return cache.stats();
+    }
+
+    /**
+     * @return approximate amount of cached results
+     */
+    public long size() {
+        return cache.estimatedSize();
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public ProxyCache getSettings() {
+        return settings;
+    }
+}
@@ -0,0 +1,82 @@
+package org.proxysoa.spring.cache;
+
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import org.proxysoa.spring.annotation.ProxyCache;
+import org.proxysoa.spring.service.MethodNames;
+import org.springframework.stereotype.Component;
+
+import java.lang.reflect.Method;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Keeps result caches of all ProxyCache methods of the proxies created by ControllerFactory.
+ * Gives per method metrics and invalidation hooks, e.g. to drop cached results when an application
+ * learns the remote data is changed.
+ */
+@Component
+public class ProxyCacheManager {
+    //key is contract method, value is the method's results cache
+    private final ConcurrentMap<Method, MethodCache> caches = new ConcurrentHashMap<>();
+
+    /**
+     * Gets (creates on first request) cache of the method
+     *
+     * @param method   contract method
+     * @param settings cache settings of the method
+     * @return method's cache
+     */
+    public MethodCache getCache(Method method, ProxyCache settings) {
+        return caches.computeIfAbsent(method, m -> new MethodCache(MethodNames.of(m), settings));
+    }
+
+    /**
+     * Drops cached results of the contract's method (all the overloads)
+     *
+     * @param controllerClass contract
+     * @param methodName      method name
+     */
+    public void invalidate(Class<?> controllerClass, String methodName) {
+        for (Map.Entry<Method, MethodCache> entry : caches.entrySet()) {
+            if (entry.getKey().getDeclaringClass().isAssignableFrom(controllerClass)
+                    && entry.getKey().getName().equals(methodName)) {
+                entry.getValue().invalidateAll();
+            }
+        }
+    }
+
+    /**
+     * Drops cached results of all the contract's methods
+     *
+     * @param controllerClass contract
+     */
+    public void invalidate(Class<?> controllerClass) {
+        for (Map.Entry<Method, MethodCache> entry : caches.entrySet()) {
+            if (entry.getKey().getDeclaringClass().isAssignableFrom(controllerClass)) {
+                entry.getValue().invalidateAll();
+            }
+        }
+    }
+
+    /**
+     * Drops all cached results
+     */
+    public void invalidateAll() {
+        caches.values().forEach(MethodCache::invalidateAll);
+    }
+
+    /**
+     * Gets current metrics (hits, misses, evictions) of all the caches
+     *
+     * @return map of method name (Contract.method(ParameterTypes)) to the cache stats
+     */
+    public Map<String, CacheStats> getStats() {
+        Map<String, CacheStats> res = new TreeMap<>();
+        for (MethodCache cache : caches.values()) {
+            res.put(cache.getName(), cache.stats());
+        }
+        return res;
+    }
+}
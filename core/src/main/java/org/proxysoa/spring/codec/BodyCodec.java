@@ -0,0 +1,60 @@
+package org.proxysoa.spring.codec;
+
+import com.fasterxml.jackson.databind.JavaType;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.HttpMessageConverter;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Format of remote call bodies. Proxies advertise media types of their codecs in Accept header and read
+ * responses with the codec of the response's Content-Type. Services read and write the format with
+ * the codec's message converter. Codecs are registered in CodecRegistry by name.
+ */
+public interface BodyCodec {
+    /**
+     * @return name of the codec used in SOA.Codec.* properties
+     */
+    String getName();
+
+    /**
+     * @return media type of the format
+     */
+    MediaType getMediaType();
+
+    /**
+     * Serializes a value
+     *
+     * @param value value
+     * @return serialized value
+     */
+    byte[] write(Object value);
+
+    /**
+     * Checks whether the codec writes a value (e.g. a codec of generated classes doesn't write other ones)
+     *
+     * @param value value
+     * @return true if the value can be written
+     */
+    default boolean canWrite(Object value) {
+        return true;
+    }
+
+    /**
+     * Reads a value of the specified type
+     *
+     * @param in   serialized value
+     * @param type result type
+     * @return deserialized value
+     * @throws IOException on read or parse errors
+     */
+    Object read(InputStream in, JavaType type) throws IOException;
+
+    /**
+     * Creates converter reading and writing the format in service's MVC
+     *
+     * @return message converter
+     */
+    HttpMessageConverter<Object> createMessageConverter();
+}
@@ -0,0 +1,44 @@
+package org.proxysoa.spring.codec;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.HttpMessageConverter;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurerAdapter;
+
+import java.util.List;
+
+/**
+ * Registers message converters of the served codecs (SOA.Codec.serve) in the application's MVC.
+ * The converters go after the application's ones, so JSON stays the format of requests accepting
+ * any type (e.g. swagger, curl) and the binary formats are written to the proxies asking for them.
+ */
+@Component
+public class BodyCodecWebConfigurer extends WebMvcConfigurerAdapter {
+    private CodecRegistry codecRegistry;
+
+    @Autowired
+    public void setCodecRegistry(CodecRegistry codecRegistry) {
+        this.codecRegistry = codecRegistry;
+    }
+
+    @Override
+    public void extendMessageConverters(List<HttpMessageConverter<?>> converters) {
+        for (BodyCodec codec : codecRegistry.getServedCodecs()) {
+            if (!isSupported(converters, codec.getMediaType())) {
+                converters.add(codec.createMessageConverter());
+            }
+        }
+    }
+
+    private static boolean isSupported(List<HttpMessageConverter<?>> converters, MediaType mediaType) {
+        for (HttpMessageConverter<?> converter : converters) {
+            for (MediaType supported : converter.getSupportedMediaTypes()) {
+                if (supported.includes(mediaType) && !supported.isWildcardType()) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+}
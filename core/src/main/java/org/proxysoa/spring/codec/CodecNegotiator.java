@@ -0,0 +1,114 @@
+package org.proxysoa.spring.codec;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.MediaType;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Negotiates body format of a proxy with the remote service. Accept header lists the binary codecs
+ * (preferred first) and JSON with lower quality, so services without the binary converters answer JSON.
+ * Request bodies are sent as JSON until the service answers with a binary codec: the service reads
+ * the formats it writes, so next bodies are sent in the answered format.
+ */
+public class CodecNegotiator {
+    private static final Logger LOG = LoggerFactory.getLogger(CodecNegotiator.class);
+
+    private final BodyCodec json;
+
+    //binary codecs (preferred first)
+    private final List<BodyCodec> codecs;
+
+    private final List<MediaType> accept;
+
+    //codec of request bodies (JSON until the service answers with a binary codec)
+    private volatile BodyCodec requestCodec;
+
+    /**
+     * Constructs the negotiator
+     *
+     * @param json   JSON codec (fallback)
+     * @param codecs binary codecs (preferred first)
+     */
+    public CodecNegotiator(BodyCodec json, List<BodyCodec> codecs) {
+        this.json = json;
+        this.codecs = new ArrayList<>(codecs);
+        this.requestCodec = json;
+        List<MediaType> types = new ArrayList<>();
+        for (BodyCodec codec : codecs) {
+            types.add(withQuality(codec.getMediaType(), types.size()));
+        }
+        types.add(withQuality(json.getMediaType(), types.size()));
+        this.accept = Collections.unmodifiableList(types);
+    }
+
+    /**
+     * @return media types of Accept header
+     */
+    public List<MediaType> getAccept() {
+        return accept;
+    }
+
+    /**
+     * @return codec of request bodies
+     */
+    public BodyCodec getRequestCodec() {
+        return requestCodec;
+    }
+
+    /**
+     * @param body request body
+     * @return codec of the request body (JSON if the negotiated codec doesn't write the body)
+     */
+    public BodyCodec getRequestCodec(Object body) {
+        BodyCodec codec = requestCodec;
+        return codec.canWrite(body) ? codec : json;
+    }
+
+    /**
+     * Gets codec to read response. Response of a binary codec switches request bodies to the codec.
+     *
+     * @param contentType content type of the response (null if unknown)
+     * @return codec or null if the content type is not supported
+     */
+    public BodyCodec getResponseCodec(MediaType contentType) {
+        if (contentType == null
+                || json.getMediaType().includes(contentType)
+                || contentType.getSubtype().endsWith("+json")) {
+            return json;
+        }
+        for (BodyCodec codec : codecs) {
+            if (codec.getMediaType().includes(contentType)) {
+                if (requestCodec != codec) {
+                    LOG.debug("Request bodies are sent as {}", codec);
+                    requestCodec = codec;
+                }
+                return codec;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Switches request bodies back to JSON if the service doesn't accept the codec's ones
+     * (e.g. answered by an instance without the codec's converter)
+     *
+     * @param codec rejected codec
+     */
+    public void onRejected(BodyCodec codec) {
+        if (codec != json && requestCodec == codec) {
+            LOG.warn("Request bodies of {} are rejected, JSON is sent", codec);
+            requestCodec = json;
+        }
+    }
+
+    private static MediaType withQuality(MediaType type, int rank) {
+        if (rank == 0) {
+            return type;
+        }
+        return new MediaType(type, Collections.singletonMap("q", "0." + Math.max(1, 10 - rank)));
+    }
+}
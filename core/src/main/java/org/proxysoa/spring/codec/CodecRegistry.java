@@ -0,0 +1,131 @@
+package org.proxysoa.spring.codec;
+
+import org.proxysoa.spring.codec.proto.ProtoBodyCodec;
+import org.proxysoa.spring.exception.SOAControllerCreationException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.EnvironmentAware;
+import org.springframework.core.env.Environment;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Keeps body codecs by name. Protobuf (of the generated ProtoMessage codecs), Smile and CBOR codecs are
+ * built in, application's BodyCodec beans are registered as well (a bean replaces built in codec of the same
+ * name). Creates codec negotiators of the proxies and lists codecs served by the context's controllers
+ * (see CodecSettings).
+ */
+@Component
+public class CodecRegistry implements EnvironmentAware {
+    private static final Logger LOG = LoggerFactory.getLogger(CodecRegistry.class);
+
+    private CodecSettings settings;
+
+    private Environment environment;
+
+    //key is codec name, value is the codec
+    private final ConcurrentMap<String, BodyCodec> codecs = new ConcurrentHashMap<>();
+
+    /**
+     * Default constructor (settings are read from environment)
+     */
+    public CodecRegistry() {
+        this(new CodecSettings());
+    }
+
+    /**
+     * Constructor with settings
+     *
+     * @param settings codec settings
+     */
+    public CodecRegistry(CodecSettings settings) {
+        this.settings = settings;
+    }
+
+    @Override
+    public void setEnvironment(Environment environment) {
+        this.environment = environment;
+        this.settings = new CodecSettings(environment);
+        LOG.debug("Codec settings {}", settings);
+    }
+
+    @Autowired(required = false)
+    public void setCodecs(List<BodyCodec> codecs) {
+        for (BodyCodec codec : codecs) {
+            register(codec);
+        }
+    }
+
+    /**
+     * @param codec codec to be used by the name
+     */
+    public void register(BodyCodec codec) {
+        codecs.put(codec.getName(), codec);
+    }
+
+    /**
+     * @param name codec name
+     * @return codec or null if there is no codec with the name
+     */
+    public BodyCodec getCodec(String name) {
+        return codecs.computeIfAbsent(name, CodecRegistry::createBuiltIn);
+    }
+
+    /**
+     * Creates negotiator of a proxy
+     *
+     * @param contract  controller contract
+     * @param jsonCodec JSON codec of the proxy
+     * @return negotiator advertising the codecs of the contract
+     */
+    public CodecNegotiator getNegotiator(Class<?> contract, JsonCodec jsonCodec) {
+        return new CodecNegotiator(JacksonBodyCodec.json(jsonCodec),
+                getCodecs(settings.getAcceptFor(environment, contract.getSimpleName())));
+    }
+
+    /**
+     * @return codecs served by the context's controllers besides JSON
+     */
+    public List<BodyCodec> getServedCodecs() {
+        return getCodecs(settings.getServed());
+    }
+
+    public CodecSettings getSettings() {
+        return settings;
+    }
+
+    private List<BodyCodec> getCodecs(List<String> names) {
+        List<BodyCodec> res = new ArrayList<>();
+        for (String name : names) {
+            if ("json".equals(name)) {
+                //JSON is always the fallback
+                continue;
+            }
+            BodyCodec codec = getCodec(name);
+            if (codec == null) {
+                throw new SOAControllerCreationException("Unknown codec " + name + ", check "
+                        + CodecSettings.PREFIX + "* properties");
+            }
+            res.add(codec);
+        }
+        return res;
+    }
+
+    private static BodyCodec createBuiltIn(String name) {
+        switch (name) {
+            case "protobuf":
+                return new ProtoBodyCodec();
+            case "smile":
+                return JacksonBodyCodec.smile();
+            case "cbor":
+                return JacksonBodyCodec.cbor();
+            default:
+                return null;
+        }
+    }
+}
@@ -0,0 +1,86 @@
+package org.proxysoa.spring.codec;
+
+import org.springframework.core.env.Environment;
+import org.springframework.util.StringUtils;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Keeps settings of the body codecs. Values are read from SOA.Codec.* properties, defaults are used
+ * for the missing ones. Proxies advertise the SOA.Codec.accept codecs (SOA.Codec.Contract.accept for proxy
+ * of a controller) before JSON, services read and write the SOA.Codec.serve codecs besides JSON.
+ * Empty lists switch the binary codecs off.
+ */
+public class CodecSettings {
+    public static final String PREFIX = "SOA.Codec.";
+
+    //comma separated names of the codecs advertised by proxies (preferred first)
+    private String accept = "protobuf,smile,cbor";
+    //comma separated names of the codecs served by the context's controllers
+    private String serve = "protobuf,smile,cbor";
+
+    /**
+     * Default constructor (default settings)
+     */
+    public CodecSettings() {
+    }
+
+    /**
+     * Reads the settings from environment
+     *
+     * @param environment environment to get SOA.Codec.* properties
+     */
+    public CodecSettings(Environment environment) {
+        this.accept = environment.getProperty(PREFIX + "accept", accept);
+        this.serve = environment.getProperty(PREFIX + "serve", serve);
+    }
+
+    /**
+     * Gets codecs advertised by proxy of a controller
+     *
+     * @param environment environment to get SOA.Codec.Contract.accept property (may be null)
+     * @param contract    simple name of the controller contract
+     * @return codec names (preferred first)
+     */
+    public List<String> getAcceptFor(Environment environment, String contract) {
+        String names = environment == null ? accept : environment.getProperty(PREFIX + contract + ".accept", accept);
+        return split(names);
+    }
+
+    /**
+     * @return names of the codecs served by the context's controllers
+     */
+    public List<String> getServed() {
+        return split(serve);
+    }
+
+    private static List<String> split(String names) {
+        return Arrays.asList(StringUtils.tokenizeToStringArray(names, ","));
+    }
+
+    public String getAccept() {
+        return accept;
+    }
+
+    public void setAccept(String accept) {
+        this.accept = accept;
+    }
+
+    public String getServe() {
+        return serve;
+    }
+
+    public void setServe(String serve) {
+        this.serve = serve;
+    }
+
+    @Override
+    public String toString() {
+        final StringBuilder sb = new StringBuilder("CodecSettings{");
+        sb.append("accept='").append(accept).append('\'');
+        sb.append(", serve='").append(serve).append('\'');
+        sb.append('}');
+        return sb.toString();
+    }
+}
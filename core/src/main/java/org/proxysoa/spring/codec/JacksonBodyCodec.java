@@ -0,0 +1,108 @@
+package org.proxysoa.spring.codec;
+
+import com.fasterxml.jackson.databind.JavaType;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.HttpMessageConverter;
+import org.springframework.http.converter.json.AbstractJackson2HttpMessageConverter;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Codec of a format supported by Jackson (JSON and binary Smile and CBOR ones). The values are written
+ * and read with the cached writers and readers of a JsonCodec owning the format's mapper.
+ * Binary mappers are configured the same way as RestTemplate's JSON one.
+ */
+public class JacksonBodyCodec implements BodyCodec {
+    public static final MediaType APPLICATION_SMILE = new MediaType("application", "x-jackson-smile");
+
+    public static final MediaType APPLICATION_CBOR = new MediaType("application", "cbor");
+
+    private final String name;
+    private final MediaType mediaType;
+    private final JsonCodec codec;
+
+    /**
+     * Constructs the codec
+     *
+     * @param name      name of the codec
+     * @param mediaType media type of the format
+     * @param codec     codec owning mapper of the format
+     */
+    public JacksonBodyCodec(String name, MediaType mediaType, JsonCodec codec) {
+        this.name = name;
+        this.mediaType = mediaType;
+        this.codec = codec;
+    }
+
+    /**
+     * @param codec JSON codec
+     * @return JSON body codec
+     */
+    public static JacksonBodyCodec json(JsonCodec codec) {
+        return new JacksonBodyCodec("json", MediaType.APPLICATION_JSON, codec);
+    }
+
+    /**
+     * @return Smile (binary JSON) body codec
+     */
+    public static JacksonBodyCodec smile() {
+        return new JacksonBodyCodec("smile", APPLICATION_SMILE,
+                new JsonCodec(Jackson2ObjectMapperBuilder.json().factory(new SmileFactory()).build()));
+    }
+
+    /**
+     * @return CBOR body codec
+     */
+    public static JacksonBodyCodec cbor() {
+        return new JacksonBodyCodec("cbor", APPLICATION_CBOR,
+                new JsonCodec(Jackson2ObjectMapperBuilder.json().factory(new CBORFactory()).build()));
+    }
+
+    @Override
+    public String getName() {
+        return name;
+    }
+
+    @Override
+    public MediaType getMediaType() {
+        return mediaType;
+    }
+
+    @Override
+    public byte[] write(Object value) {
+        return codec.writeValueAsBytes(value);
+    }
+
+    @Override
+    public Object read(InputStream in, JavaType type) throws IOException {
+        return codec.readValue(in, type);
+    }
+
+    @Override
+    public HttpMessageConverter<Object> createMessageConverter() {
+        return new JacksonMessageConverter(codec.getObjectMapper(), mediaType);
+    }
+
+    @Override
+    public String toString() {
+        return name + " (" + mediaType + ")";
+    }
+
+    /**
+     * Jackson converter of any format (Spring has no CBOR converter before 5.0). Binary content types
+     * are written without charset.
+     */
+    private static class JacksonMessageConverter extends AbstractJackson2HttpMessageConverter {
+        JacksonMessageConverter(ObjectMapper objectMapper, MediaType mediaType) {
+            super(objectMapper, mediaType);
+            if (!MediaType.APPLICATION_JSON.includes(mediaType)) {
+                setDefaultCharset(null);
+            }
+        }
+    }
+}
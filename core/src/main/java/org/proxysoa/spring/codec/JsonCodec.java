@@ -0,0 +1,207 @@
+package org.proxysoa.spring.codec;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JavaType;
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.util.TokenBuffer;
+import org.proxysoa.spring.exception.SOAControllerInvocationException;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.util.ClassUtils;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.reflect.Type;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.Supplier;
+
+/**
+ * JSON serialization used by proxies. Owns one configured ObjectMapper and keeps pre-built
+ * ObjectWriter per serialized class and ObjectReader per deserialized type, so a remote call
+ * does not create mappers or resolve serializers again.
+ * <p>
+ * The ObjectMapper can be provided by application (e.g. spring boot's mapper bean). If it is not
+ * provided the mapper is configured the same way as RestTemplate's one.
+ */
+public class JsonCodec {
+    private final Supplier<ObjectMapper> objectMapperSupplier;
+
+    private volatile ObjectMapper objectMapper;
+
+    private final ConcurrentMap<Class<?>, ObjectWriter> writers = new ConcurrentHashMap<>();
+    private final ConcurrentMap<JavaType, ObjectReader> readers = new ConcurrentHashMap<>();
+
+    /**
+     * Default constructor (default mapper)
+     */
+    public JsonCodec() {
+        this((ObjectMapper) null);
+    }
+
+    /**
+     * Constructor with mapper
+     *
+     * @param objectMapper mapper to be used (default one is created if null)
+     */
+    public JsonCodec(ObjectMapper objectMapper) {
+        this.objectMapperSupplier = null;
+        this.objectMapper = objectMapper != null ? objectMapper : createDefaultMapper();
+    }
+
+    /**
+     * Constructor with lazy mapper resolution. The supplier is called once on the first
+     * serialization, default mapper is used if the supplier returns null.
+     *
+     * @param objectMapperSupplier mapper supplier
+     */
+    public JsonCodec(Supplier<ObjectMapper> objectMapperSupplier) {
+        this.objectMapperSupplier = objectMapperSupplier;
+    }
+
+    /**
+     * @return mapper used by the codec
+     */
+    public ObjectMapper getObjectMapper() {
+        ObjectMapper mapper = objectMapper;
+        if (mapper == null) {
+            synchronized (this) {
+                if (objectMapper == null) {
+                    ObjectMapper supplied = objectMapperSupplier.get();
+                    objectMapper = supplied != null ? supplied : createDefaultMapper();
+                }
+                mapper = objectMapper;
+            }
+        }
+        return mapper;
+    }
+
+    /**
+     * Resolves java type for jackson
+     *
+     * @param type java type (e.g. ParameterizedType of a method's return type)
+     * @return jackson type
+     */
+    public JavaType constructType(Type type) {
+        return getObjectMapper().getTypeFactory().constructType(type);
+    }
+
+    /**
+     * @param type serialized class
+     * @return cached writer for the class
+     */
+    public ObjectWriter writerFor(Class<?> type) {
+        ObjectWriter writer = writers.get(type);
+        if (writer == null) {
+            writer = writers.computeIfAbsent(type, t -> getObjectMapper().writerFor(t));
+        }
+        return writer;
+    }
+
+    /**
+     * @param type deserialized type
+     * @return cached reader for the type
+     */
+    public ObjectReader readerFor(JavaType type) {
+        ObjectReader reader = readers.get(type);
+        if (reader == null) {
+            reader = readers.computeIfAbsent(type, t -> getObjectMapper().readerFor(t));
+        }
+        return reader;
+    }
+
+    /**
+     * Converts a value to JSON string
+     *
+     * @param value value
+     * @return JSON string
+     */
+    public String writeValueAsString(Object value) {
+        if (value == null) {
+            return null;
+        }
+        try {
+            return writerFor(value.getClass()).writeValueAsString(value);
+        } catch (JsonProcessingException e) {
+            throw new SOAControllerInvocationException("Cannot serialize to JSON " + value, e);
+        }
+    }
+
+    /**
+     * Converts a value to JSON bytes (UTF-8)
+     *
+     * @param value value
+     * @return JSON bytes
+     */
+    public byte[] writeValueAsBytes(Object value) {
+        try {
+            return writerFor(value != null ? value.getClass() : Object.class).writeValueAsBytes(value);
+        } catch (JsonProcessingException e) {
+            throw new SOAControllerInvocationException("Cannot serialize to JSON " + value, e);
+        }
+    }
+
+    /**
+     * Reads JSON to the specified type
+     *
+     * @param in   JSON stream
+     * @param type result type
+     * @return deserialized value
+     * @throws IOException on read or parse errors
+     */
+    public Object readValue(InputStream in, JavaType type) throws IOException {
+        return readerFor(type).readValue(in);
+    }
+
+    /**
+     * Lazily reads sequence of values of the specified type. The sequence is either a JSON array
+     * or root level values (e.g. new line delimited JSON). Values are parsed one by one on demand.
+     *
+     * @param in   JSON stream
+     * @param type type of the sequence elements
+     * @param <T>  element type
+     * @return iterator of the values (closing the iterator closes the stream)
+     * @throws IOException on read or parse errors
+     */
+    public <T> MappingIterator<T> readValues(InputStream in, JavaType type) throws IOException {
+        return readerFor(type).readValues(in);
+    }
+
+    /**
+     * Creates deep copy of a value (e.g. to give a cached value to several callers). The value is
+     * serialized to token buffer and read back, so no JSON text is produced or parsed.
+     * Immutable values (strings, primitive wrappers, enums) are returned as is.
+     *
+     * @param value value to copy
+     * @param type  type to read the copy
+     * @return copy of the value
+     */
+    public Object copy(Object value, JavaType type) {
+        if (value == null || isImmutable(value.getClass())) {
+            return value;
+        }
+        try {
+            TokenBuffer buffer = new TokenBuffer(getObjectMapper(), false);
+            writerFor(value.getClass()).writeValue(buffer, value);
+            return readerFor(type).readValue(buffer.asParser());
+        } catch (IOException e) {
+            throw new SOAControllerInvocationException("Cannot copy value of " + type, e);
+        }
+    }
+
+    private static boolean isImmutable(Class<?> type) {
+        return type == String.class
+                || ClassUtils.isPrimitiveWrapper(type)
+                || type.isEnum()
+                || type == BigDecimal.class
+                || type == BigInteger.class;
+    }
+
+    private static ObjectMapper createDefaultMapper() {
+        return Jackson2ObjectMapperBuilder.json().build();
+    }
+}
@@ -0,0 +1,233 @@
+package org.proxysoa.spring.codec.proto;
+
+import com.fasterxml.jackson.databind.JavaType;
+import com.fasterxml.jackson.databind.type.TypeFactory;
+import org.proxysoa.spring.codec.BodyCodec;
+import org.proxysoa.spring.exception.SOAControllerInvocationException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.HttpInputMessage;
+import org.springframework.http.HttpOutputMessage;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.AbstractGenericHttpMessageConverter;
+import org.springframework.http.converter.HttpMessageConverter;
+import org.springframework.http.converter.HttpMessageNotReadableException;
+import org.springframework.util.ClassUtils;
+import org.springframework.util.StreamUtils;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.reflect.Type;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.ServiceLoader;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Protobuf body codec of ProtoMessage classes. Uses codecs generated by ProtoMessageProcessor (found with
+ * ServiceLoader), so values are written and read without reflection. Lists and generic containers
+ * (e.g. pages) of messages are sent as message with repeated items = 1. Other types are not supported:
+ * the proxies send them in another format and the services answer them with the next accepted format.
+ */
+public class ProtoBodyCodec implements BodyCodec {
+    private static final Logger LOG = LoggerFactory.getLogger(ProtoBodyCodec.class);
+
+    public static final MediaType APPLICATION_PROTOBUF = new MediaType("application", "x-protobuf");
+
+    //field number of elements of a list or a container
+    private static final int ITEMS_FIELD = 1;
+
+    private static final int ITEMS_TAG = ITEMS_FIELD << 3 | ProtoWriter.LENGTH_DELIMITED;
+
+    //key is message class, value is its codec
+    private final Map<Class<?>, ProtoMessageCodec<?>> messages = new ConcurrentHashMap<>();
+
+    //key is container class, value is its factory
+    private final Map<Class<?>, ProtoContainerCodec> containers = new ConcurrentHashMap<>();
+
+    /**
+     * Constructs the codec with generated codecs of the class path
+     */
+    public ProtoBodyCodec() {
+        for (ProtoCodec codec : ServiceLoader.load(ProtoCodec.class, ClassUtils.getDefaultClassLoader())) {
+            register(codec);
+        }
+        LOG.debug("Protobuf messages {}, containers {}", messages.keySet(), containers.keySet());
+    }
+
+    /**
+     * @param codec generated codec to be used for its type
+     */
+    public void register(ProtoCodec codec) {
+        if (codec instanceof ProtoMessageCodec) {
+            messages.put(codec.getType(), (ProtoMessageCodec<?>) codec);
+        } else if (codec instanceof ProtoContainerCodec) {
+            containers.put(codec.getType(), (ProtoContainerCodec) codec);
+        }
+    }
+
+    @Override
+    public String getName() {
+        return "protobuf";
+    }
+
+    @Override
+    public MediaType getMediaType() {
+        return APPLICATION_PROTOBUF;
+    }
+
+    /**
+     * @param type value type
+     * @return true if the type is a message, a list or a container of messages
+     */
+    public boolean supports(JavaType type) {
+        if (messages.containsKey(type.getRawClass())) {
+            return true;
+        }
+        JavaType itemType = getItemType(type);
+        return itemType != null && messages.containsKey(itemType.getRawClass());
+    }
+
+    @Override
+    public boolean canWrite(Object value) {
+        if (value == null) {
+            return false;
+        }
+        if (messages.containsKey(value.getClass())) {
+            return true;
+        }
+        if (!(value instanceof List) && !containers.containsKey(value.getClass())) {
+            return false;
+        }
+        for (Object item : (Iterable<?>) value) {
+            if (item == null || !messages.containsKey(item.getClass())) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public byte[] write(Object value) {
+        ProtoWriter writer = new ProtoWriter();
+        if (value instanceof Iterable && !messages.containsKey(value.getClass())) {
+            for (Object item : (Iterable<?>) value) {
+                writer.writeMessage(ITEMS_FIELD, item, getMessageCodec(item));
+            }
+        } else {
+            getMessageCodec(value).write(writer, value);
+        }
+        return writer.toByteArray();
+    }
+
+    @Override
+    public Object read(InputStream in, JavaType type) throws IOException {
+        ProtoReader reader = new ProtoReader(StreamUtils.copyToByteArray(in));
+        ProtoMessageCodec<?> codec = messages.get(type.getRawClass());
+        if (codec != null) {
+            return codec.read(reader);
+        }
+        JavaType itemType = getItemType(type);
+        codec = itemType == null ? null : messages.get(itemType.getRawClass());
+        if (codec == null) {
+            throw new SOAControllerInvocationException("Type " + type + " is not a protobuf message");
+        }
+        List<Object> items = new ArrayList<>();
+        for (int tag = reader.readTag(); tag != 0; tag = reader.readTag()) {
+            if (tag == ITEMS_TAG) {
+                items.add(reader.readMessage(codec));
+            } else {
+                reader.skipField(tag);
+            }
+        }
+        ProtoContainerCodec container = containers.get(type.getRawClass());
+        return container != null ? container.create(items) : items;
+    }
+
+    @Override
+    public HttpMessageConverter<Object> createMessageConverter() {
+        return new ProtoHttpMessageConverter();
+    }
+
+    @Override
+    public String toString() {
+        return getName() + " (" + APPLICATION_PROTOBUF + ")";
+    }
+
+    /**
+     * @param type value type
+     * @return element type of a list or a container or null if the type is neither
+     */
+    private JavaType getItemType(JavaType type) {
+        Class<?> raw = type.getRawClass();
+        if (containers.containsKey(raw)) {
+            return type.containedType(0);
+        }
+        if (raw.isAssignableFrom(ArrayList.class)) {
+            //List, Collection, Iterable or ArrayList which the items are read to
+            return type.getContentType() != null ? type.getContentType() : type.containedType(0);
+        }
+        return null;
+    }
+
+    @SuppressWarnings("unchecked")
+    private ProtoMessageCodec<Object> getMessageCodec(Object value) {
+        ProtoMessageCodec<?> codec = value == null ? null : messages.get(value.getClass());
+        if (codec == null) {
+            throw new SOAControllerInvocationException("Value " + value + " is not a protobuf message");
+        }
+        return (ProtoMessageCodec<Object>) codec;
+    }
+
+    /**
+     * Converter of the codec's types in service's MVC. Declared types of the controller methods are checked,
+     * so Object or interface types returning messages are answered in other formats.
+     */
+    private class ProtoHttpMessageConverter extends AbstractGenericHttpMessageConverter<Object> {
+        ProtoHttpMessageConverter() {
+            super(APPLICATION_PROTOBUF);
+        }
+
+        @Override
+        protected boolean supports(Class<?> clazz) {
+            return ProtoBodyCodec.this.supports(TypeFactory.defaultInstance().constructType(clazz));
+        }
+
+        @Override
+        public boolean canRead(Type type, Class<?> contextClass, MediaType mediaType) {
+            return ProtoBodyCodec.this.supports(TypeFactory.defaultInstance().constructType(type))
+                    && canRead(mediaType);
+        }
+
+        @Override
+        public boolean canWrite(Type type, Class<?> clazz, MediaType mediaType) {
+            Type valueType = type != null ? type : clazz;
+            return ProtoBodyCodec.this.supports(TypeFactory.defaultInstance().constructType(valueType))
+                    && canWrite(mediaType);
+        }
+
+        @Override
+        public Object read(Type type, Class<?> contextClass, HttpInputMessage inputMessage) throws IOException {
+            return readType(TypeFactory.defaultInstance().constructType(type), inputMessage);
+        }
+
+        @Override
+        protected Object readInternal(Class<?> clazz, HttpInputMessage inputMessage) throws IOException {
+            return readType(TypeFactory.defaultInstance().constructType(clazz), inputMessage);
+        }
+
+        @Override
+        protected void writeInternal(Object value, Type type, HttpOutputMessage outputMessage) throws IOException {
+            outputMessage.getBody().write(ProtoBodyCodec.this.write(value));
+        }
+
+        private Object readType(JavaType type, HttpInputMessage inputMessage) throws IOException {
+            try {
+                return ProtoBodyCodec.this.read(inputMessage.getBody(), type);
+            } catch (IOException e) {
+                throw new HttpMessageNotReadableException("Could not read protobuf message: " + e.getMessage(), e);
+            }
+        }
+    }
+}
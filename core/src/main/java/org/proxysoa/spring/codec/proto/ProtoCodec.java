@@ -0,0 +1,12 @@
+package org.proxysoa.spring.codec.proto;
+
+/**
+ * Codec generated for a ProtoMessage class. Generated codecs are listed in
+ * META-INF/services/org.proxysoa.spring.codec.proto.ProtoCodec and loaded by ProtoBodyCodec.
+ */
+public interface ProtoCodec {
+    /**
+     * @return class of the codec's values
+     */
+    Class<?> getType();
+}
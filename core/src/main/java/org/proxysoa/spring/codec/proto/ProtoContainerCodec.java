@@ -0,0 +1,14 @@
+package org.proxysoa.spring.codec.proto;
+
+import java.util.List;
+
+/**
+ * Creates instances of a generic container class (e.g. a page) sent as message with repeated elements
+ */
+public interface ProtoContainerCodec extends ProtoCodec {
+    /**
+     * @param items elements read from the message
+     * @return container of the elements
+     */
+    Object create(List<Object> items);
+}
@@ -0,0 +1,19 @@
+package org.proxysoa.spring.codec.proto;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Sets protobuf field number of a ProtoMessage class's field (the declaration order number is used otherwise)
+ */
+@Retention(RetentionPolicy.RUNTIME)
+@Target(ElementType.FIELD)
+public @interface ProtoField {
+
+    /**
+     * @return field number
+     */
+    int value();
+}
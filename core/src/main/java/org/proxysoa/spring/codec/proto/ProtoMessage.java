@@ -0,0 +1,21 @@
+package org.proxysoa.spring.codec.proto;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Marks a DTO sent in protobuf format. On compile ProtoMessageProcessor generates the class's protobuf
+ * message definition and the codec (DTOProtoCodec) reading and writing fields with getters and setters.
+ * Fields are numbered in declaration order unless numbered by ProtoField, so new fields are added at the end.
+ * Supported field types are long, int, boolean, double, float (primitive or boxed), String, other ProtoMessage
+ * classes and lists of them.
+ * <p>
+ * A generic class implementing Iterable with public constructor taking List of the elements (e.g. a page)
+ * is sent as message with repeated elements, only its factory is generated.
+ */
+@Retention(RetentionPolicy.RUNTIME)
+@Target(ElementType.TYPE)
+public @interface ProtoMessage {
+}
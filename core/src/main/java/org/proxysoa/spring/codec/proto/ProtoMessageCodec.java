@@ -0,0 +1,27 @@
+package org.proxysoa.spring.codec.proto;
+
+import java.io.IOException;
+
+/**
+ * Reads and writes fields of a message class without reflection
+ *
+ * @param <T> message class
+ */
+public interface ProtoMessageCodec<T> extends ProtoCodec {
+    /**
+     * Writes fields of the value (null fields are skipped)
+     *
+     * @param writer writer
+     * @param value  value
+     */
+    void write(ProtoWriter writer, T value);
+
+    /**
+     * Reads fields of the value till end of the message (unknown fields are skipped)
+     *
+     * @param reader reader
+     * @return value
+     * @throws IOException on malformed message
+     */
+    T read(ProtoReader reader) throws IOException;
+}
@@ -0,0 +1,400 @@
+package org.proxysoa.spring.codec.proto;
+
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.RoundEnvironment;
+import javax.annotation.processing.SupportedAnnotationTypes;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.Modifier;
+import javax.lang.model.element.PackageElement;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.element.VariableElement;
+import javax.lang.model.type.DeclaredType;
+import javax.lang.model.type.TypeKind;
+import javax.lang.model.type.TypeMirror;
+import javax.lang.model.util.ElementFilter;
+import javax.tools.Diagnostic;
+import javax.tools.StandardLocation;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+/**
+ * Generates protobuf codecs of ProtoMessage classes on compile. For each message class the processor generates
+ * DTOProtoCodec calling the class's getters and setters, for each container class a factory creating it from
+ * the elements list. Message definitions (proto2 syntax) are written to META-INF/proto/package.proto, the codecs
+ * are listed in META-INF/services/org.proxysoa.spring.codec.proto.ProtoCodec.
+ * <p>
+ * The processor is enabled in the compiler plugin of the module with the DTOs (see common/pom.xml).
+ */
+@SupportedAnnotationTypes("org.proxysoa.spring.codec.proto.ProtoMessage")
+public class ProtoMessageProcessor extends AbstractProcessor {
+    private static final String SERVICES_FILE = "META-INF/services/" + ProtoCodec.class.getName();
+
+    //names of the generated codecs
+    private final Set<String> codecs = new HashSet<>();
+
+    //key is package name, value is the package's message definitions
+    private final Map<String, StringBuilder> schemas = new TreeMap<>();
+
+    @Override
+    public SourceVersion getSupportedSourceVersion() {
+        return SourceVersion.latestSupported();
+    }
+
+    @Override
+    public boolean process(Set<? extends TypeElement> annotations, RoundEnvironment roundEnv) {
+        for (Element element : roundEnv.getElementsAnnotatedWith(ProtoMessage.class)) {
+            if (element.getKind() != ElementKind.CLASS) {
+                error(element, "ProtoMessage must be a class");
+                continue;
+            }
+            TypeElement type = (TypeElement) element;
+            try {
+                if (type.getTypeParameters().isEmpty()) {
+                    generateMessageCodec(type);
+                } else {
+                    generateContainerCodec(type);
+                }
+            } catch (IOException e) {
+                error(type, "Cannot generate protobuf codec: " + e);
+            }
+        }
+        if (roundEnv.processingOver() && !codecs.isEmpty()) {
+            try {
+                writeResources();
+            } catch (IOException e) {
+                processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR,
+                        "Cannot write protobuf schemas: " + e);
+            }
+        }
+        return true;
+    }
+
+    private void generateMessageCodec(TypeElement type) throws IOException {
+        List<Field> fields = new ArrayList<>();
+        Set<Integer> numbers = new HashSet<>();
+        for (VariableElement variable : ElementFilter.fieldsIn(type.getEnclosedElements())) {
+            Set<Modifier> modifiers = variable.getModifiers();
+            if (modifiers.contains(Modifier.STATIC) || modifiers.contains(Modifier.TRANSIENT)) {
+                continue;
+            }
+            ProtoField protoField = variable.getAnnotation(ProtoField.class);
+            Field field = createField(type, variable, protoField != null ? protoField.value() : fields.size() + 1);
+            if (field == null) {
+                return;
+            }
+            if (field.number < 1 || !numbers.add(field.number)) {
+                error(variable, "Protobuf field number " + field.number + " is invalid or used twice");
+                return;
+            }
+            fields.add(field);
+        }
+
+        String packageName = getPackageName(type);
+        String typeName = type.getQualifiedName().toString();
+        String codecName = type.getSimpleName() + "ProtoCodec";
+
+        StringBuilder src = new StringBuilder();
+        if (!packageName.isEmpty()) {
+            src.append("package ").append(packageName).append(";\n\n");
+        }
+        src.append("import org.proxysoa.spring.codec.proto.ProtoMessageCodec;\n");
+        src.append("import org.proxysoa.spring.codec.proto.ProtoReader;\n");
+        src.append("import org.proxysoa.spring.codec.proto.ProtoWriter;\n\n");
+        src.append("/**\n * Protobuf codec of ").append(type.getSimpleName())
+                .append(" generated by ProtoMessageProcessor, do not edit\n */\n");
+        src.append("public final class ").append(codecName)
+                .append(" implements ProtoMessageCodec<").append(typeName).append("> {\n");
+        src.append("    public static final ").append(codecName).append(" INSTANCE = new ")
+                .append(codecName).append("();\n\n");
+        src.append("    @Override\n    public Class<?> getType() {\n        return ")
+                .append(typeName).append(".class;\n    }\n\n");
+
+        src.append("    @Override\n    public void write(ProtoWriter writer, ").append(typeName).append(" value) {\n");
+        for (Field field : fields) {
+            src.append("        writer.write").append(field.repeated ? "Repeated" : "").append(field.kind.method)
+                    .append('(').append(field.number).append(", value.").append(field.getter).append("()");
+            if (field.kind == Kind.MESSAGE) {
+                src.append(", ").append(field.codec).append(".INSTANCE");
+            }
+            src.append(");\n");
+        }
+        src.append("    }\n\n");
+
+        src.append("    @Override\n    public ").append(typeName)
+                .append(" read(ProtoReader reader) throws java.io.IOException {\n");
+        src.append("        ").append(typeName).append(" value = new ").append(typeName).append("();\n");
+        for (Field field : fields) {
+            if (field.repeated) {
+                src.append("        java.util.List<").append(field.elementType).append("> ").append(field.name)
+                        .append("Items = null;\n");
+            }
+        }
+        src.append("        for (int tag = reader.readTag(); tag != 0; tag = reader.readTag()) {\n");
+        src.append("            switch (tag) {\n");
+        for (Field field : fields) {
+            String read = "reader.read" + field.kind.method + "("
+                    + (field.kind == Kind.MESSAGE ? field.codec + ".INSTANCE" : "") + ")";
+            src.append("                case ").append(field.number << 3 | field.kind.wireType).append(":\n");
+            if (field.repeated) {
+                String items = field.name + "Items";
+                src.append("                    if (").append(items).append(" == null) {\n");
+                src.append("                        ").append(items).append(" = new java.util.ArrayList<>();\n");
+                src.append("                    }\n");
+                src.append("                    ").append(items).append(".add(").append(read).append(");\n");
+            } else {
+                src.append("                    value.").append(field.setter).append('(').append(read).append(");\n");
+            }
+            src.append("                    break;\n");
+        }
+        src.append("                default:\n                    reader.skipField(tag);\n");
+        src.append("            }\n        }\n");
+        for (Field field : fields) {
+            if (field.repeated) {
+                src.append("        if (").append(field.name).append("Items != null) {\n");
+                src.append("            value.").append(field.setter).append('(').append(field.name)
+                        .append("Items);\n        }\n");
+            }
+        }
+        src.append("        return value;\n    }\n}\n");
+        writeSource(type, packageName, codecName, src);
+
+        StringBuilder schema = getSchema(packageName);
+        schema.append("message ").append(type.getSimpleName()).append(" {\n");
+        for (Field field : fields) {
+            schema.append("  ").append(field.repeated ? "repeated " : "optional ").append(field.protoType)
+                    .append(' ').append(field.name).append(" = ").append(field.number).append(";\n");
+        }
+        schema.append("}\n\n");
+    }
+
+    private void generateContainerCodec(TypeElement type) throws IOException {
+        TypeMirror iterable = processingEnv.getTypeUtils().erasure(
+                processingEnv.getElementUtils().getTypeElement(Iterable.class.getName()).asType());
+        if (type.getTypeParameters().size() != 1
+                || !processingEnv.getTypeUtils().isAssignable(processingEnv.getTypeUtils().erasure(type.asType()),
+                iterable)
+                || !hasListConstructor(type)) {
+            error(type, "Generic ProtoMessage must implement Iterable of its type parameter "
+                    + "and have public constructor taking List of the elements");
+            return;
+        }
+        String packageName = getPackageName(type);
+        String typeName = type.getQualifiedName().toString();
+        String codecName = type.getSimpleName() + "ProtoCodec";
+
+        StringBuilder src = new StringBuilder();
+        if (!packageName.isEmpty()) {
+            src.append("package ").append(packageName).append(";\n\n");
+        }
+        src.append("import org.proxysoa.spring.codec.proto.ProtoContainerCodec;\n\n");
+        src.append("/**\n * Protobuf factory of ").append(type.getSimpleName())
+                .append(" generated by ProtoMessageProcessor, do not edit\n */\n");
+        src.append("public final class ").append(codecName).append(" implements ProtoContainerCodec {\n");
+        src.append("    @Override\n    public Class<?> getType() {\n        return ")
+                .append(typeName).append(".class;\n    }\n\n");
+        src.append("    @Override\n    public Object create(java.util.List<Object> items) {\n        return new ")
+                .append(typeName).append("<>(items);\n    }\n}\n");
+        writeSource(type, packageName, codecName, src);
+
+        getSchema(packageName).append("// ").append(type.getSimpleName()).append('<')
+                .append(type.getTypeParameters().get(0)).append("> is sent as message with repeated ")
+                .append(type.getTypeParameters().get(0)).append(" items = 1\n\n");
+    }
+
+    private boolean hasListConstructor(TypeElement type) {
+        for (ExecutableElement constructor : ElementFilter.constructorsIn(type.getEnclosedElements())) {
+            if (constructor.getModifiers().contains(Modifier.PUBLIC) && constructor.getParameters().size() == 1
+                    && isClass(constructor.getParameters().get(0).asType(), List.class.getName())) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Resolves kind and accessors of a field
+     *
+     * @return field or null if the field is not supported (error is reported)
+     */
+    private Field createField(TypeElement type, VariableElement variable, int number) {
+        Field field = new Field();
+        field.name = variable.getSimpleName().toString();
+        field.number = number;
+        TypeMirror fieldType = variable.asType();
+        if (isClass(fieldType, List.class.getName())) {
+            List<? extends TypeMirror> args = ((DeclaredType) fieldType).getTypeArguments();
+            if (args.size() != 1) {
+                error(variable, "Raw list field " + field.name + " is not supported");
+                return null;
+            }
+            field.repeated = true;
+            fieldType = args.get(0);
+            field.elementType = fieldType.toString();
+        }
+        if (!resolveKind(field, fieldType)) {
+            error(variable, "Type " + fieldType + " of field " + field.name + " is not supported in protobuf");
+            return null;
+        }
+        String suffix = Character.toUpperCase(field.name.charAt(0)) + field.name.substring(1);
+        field.getter = findMethod(type, field.kind == Kind.BOOL && !field.repeated
+                ? new String[]{"get" + suffix, "is" + suffix} : new String[]{"get" + suffix}, 0);
+        field.setter = findMethod(type, new String[]{"set" + suffix}, 1);
+        if (field.getter == null || field.setter == null) {
+            error(variable, "Field " + field.name + " must have public getter and setter");
+            return null;
+        }
+        return field;
+    }
+
+    private boolean resolveKind(Field field, TypeMirror type) {
+        if (type.getKind().isPrimitive() && !field.repeated) {
+            field.kind = Kind.of(type.getKind());
+        } else if (type.getKind() == TypeKind.DECLARED) {
+            TypeElement element = (TypeElement) ((DeclaredType) type).asElement();
+            if (element.getAnnotation(ProtoMessage.class) != null && element.getTypeParameters().isEmpty()) {
+                field.kind = Kind.MESSAGE;
+                String packageName = getPackageName(element);
+                field.codec = (packageName.isEmpty() ? "" : packageName + ".") + element.getSimpleName() + "ProtoCodec";
+                field.protoType = packageName.isEmpty() ? element.getSimpleName().toString()
+                        : "." + packageName + "." + element.getSimpleName();
+                return true;
+            }
+            try {
+                field.kind = Kind.of(processingEnv.getTypeUtils().unboxedType(type).getKind());
+            } catch (IllegalArgumentException e) {
+                field.kind = isClass(type, String.class.getName()) ? Kind.STRING : null;
+            }
+        }
+        if (field.kind != null) {
+            field.protoType = field.kind.protoType;
+        }
+        return field.kind != null;
+    }
+
+    private String findMethod(TypeElement type, String[] names, int parameters) {
+        for (ExecutableElement method : ElementFilter.methodsIn(processingEnv.getElementUtils().getAllMembers(type))) {
+            for (String name : names) {
+                if (method.getSimpleName().contentEquals(name) && method.getParameters().size() == parameters
+                        && method.getModifiers().contains(Modifier.PUBLIC)) {
+                    return name;
+                }
+            }
+        }
+        return null;
+    }
+
+    private boolean isClass(TypeMirror type, String className) {
+        return type.getKind() == TypeKind.DECLARED
+                && ((TypeElement) ((DeclaredType) type).asElement()).getQualifiedName().contentEquals(className);
+    }
+
+    private String getPackageName(TypeElement type) {
+        PackageElement pkg = processingEnv.getElementUtils().getPackageOf(type);
+        return pkg.isUnnamed() ? "" : pkg.getQualifiedName().toString();
+    }
+
+    private StringBuilder getSchema(String packageName) {
+        return schemas.computeIfAbsent(packageName, p -> new StringBuilder());
+    }
+
+    private void writeSource(TypeElement type, String packageName, String codecName, StringBuilder src)
+            throws IOException {
+        String name = packageName.isEmpty() ? codecName : packageName + "." + codecName;
+        try (Writer writer = processingEnv.getFiler().createSourceFile(name, type).openWriter()) {
+            writer.write(src.toString());
+        }
+        codecs.add(name);
+    }
+
+    private void writeResources() throws IOException {
+        for (Map.Entry<String, StringBuilder> schema : schemas.entrySet()) {
+            String file = "META-INF/proto/" + (schema.getKey().isEmpty() ? "messages" : schema.getKey()) + ".proto";
+            try (Writer writer = processingEnv.getFiler()
+                    .createResource(StandardLocation.CLASS_OUTPUT, "", file).openWriter()) {
+                writer.write("// Generated by ProtoMessageProcessor from ProtoMessage classes, do not edit\n");
+                writer.write("syntax = \"proto2\";\n\n");
+                if (!schema.getKey().isEmpty()) {
+                    writer.write("package " + schema.getKey() + ";\n\n");
+                }
+                writer.write(schema.getValue().toString());
+            }
+        }
+        try (Writer writer = processingEnv.getFiler()
+                .createResource(StandardLocation.CLASS_OUTPUT, "", SERVICES_FILE).openWriter()) {
+            for (String codec : new TreeSet<>(codecs)) {
+                writer.write(codec + "\n");
+            }
+        }
+    }
+
+    private void error(Element element, String message) {
+        processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR, message, element);
+    }
+
+    /**
+     * Protobuf type of a field and names of the writer's and reader's methods
+     */
+    private enum Kind {
+        INT64("int64", "Int64", ProtoWriter.VARINT),
+        INT32("int32", "Int32", ProtoWriter.VARINT),
+        BOOL("bool", "Bool", ProtoWriter.VARINT),
+        DOUBLE("double", "Double", ProtoWriter.FIXED64),
+        FLOAT("float", "Float", ProtoWriter.FIXED32),
+        STRING("string", "String", ProtoWriter.LENGTH_DELIMITED),
+        MESSAGE(null, "Message", ProtoWriter.LENGTH_DELIMITED);
+
+        private final String protoType;
+        private final String method;
+        private final int wireType;
+
+        Kind(String protoType, String method, int wireType) {
+            this.protoType = protoType;
+            this.method = method;
+            this.wireType = wireType;
+        }
+
+        static Kind of(TypeKind primitive) {
+            switch (primitive) {
+                case LONG:
+                    return INT64;
+                case INT:
+                    return INT32;
+                case BOOLEAN:
+                    return BOOL;
+                case DOUBLE:
+                    return DOUBLE;
+                case FLOAT:
+                    return FLOAT;
+                default:
+                    return null;
+            }
+        }
+    }
+
+    /**
+     * Field of a message class
+     */
+    private static class Field {
+        String name;
+        int number;
+        Kind kind;
+        boolean repeated;
+        //java type of the list elements (repeated fields only)
+        String elementType;
+        //qualified name of the codec (message fields only)
+        String codec;
+        String protoType;
+        String getter;
+        String setter;
+    }
+}
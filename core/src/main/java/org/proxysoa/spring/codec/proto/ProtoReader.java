@@ -0,0 +1,143 @@
+package org.proxysoa.spring.codec.proto;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Reads protobuf fields of a message kept in memory. Nested message is read within its length limit,
+ * readTag returns 0 at the end of the current message.
+ */
+public final class ProtoReader {
+    private final byte[] buffer;
+    private int position;
+    //end of the message being read
+    private int limit;
+
+    /**
+     * @param buffer serialized message
+     */
+    public ProtoReader(byte[] buffer) {
+        this.buffer = buffer;
+        this.limit = buffer.length;
+    }
+
+    /**
+     * @return tag of the next field (field number and wire type) or 0 at the end of the message
+     * @throws IOException on malformed message
+     */
+    public int readTag() throws IOException {
+        if (position >= limit) {
+            return 0;
+        }
+        int tag = (int) readVarint();
+        if (tag >>> 3 == 0) {
+            throw new IOException("Invalid protobuf field number 0");
+        }
+        return tag;
+    }
+
+    public long readInt64() throws IOException {
+        return readVarint();
+    }
+
+    public int readInt32() throws IOException {
+        return (int) readVarint();
+    }
+
+    public boolean readBool() throws IOException {
+        return readVarint() != 0;
+    }
+
+    public double readDouble() throws IOException {
+        return Double.longBitsToDouble(readFixed(8));
+    }
+
+    public float readFloat() throws IOException {
+        return Float.intBitsToFloat((int) readFixed(4));
+    }
+
+    public String readString() throws IOException {
+        int length = readLength();
+        String value = new String(buffer, position, length, StandardCharsets.UTF_8);
+        position += length;
+        return value;
+    }
+
+    /**
+     * Reads nested message
+     *
+     * @param codec codec of the message
+     * @param <T>   message class
+     * @return message
+     * @throws IOException on malformed message
+     */
+    public <T> T readMessage(ProtoMessageCodec<T> codec) throws IOException {
+        int length = readLength();
+        int outerLimit = limit;
+        limit = position + length;
+        T value = codec.read(this);
+        position = limit;
+        limit = outerLimit;
+        return value;
+    }
+
+    /**
+     * Skips field unknown to the reader's codec (e.g. added by a newer version of the message)
+     *
+     * @param tag tag of the field
+     * @throws IOException on malformed message
+     */
+    public void skipField(int tag) throws IOException {
+        switch (tag & 7) {
+            case ProtoWriter.VARINT:
+                readVarint();
+                break;
+            case ProtoWriter.FIXED64:
+                readFixed(8);
+                break;
+            case ProtoWriter.LENGTH_DELIMITED:
+                position += readLength();
+                break;
+            case ProtoWriter.FIXED32:
+                readFixed(4);
+                break;
+            default:
+                throw new IOException("Unsupported protobuf wire type of tag " + tag);
+        }
+    }
+
+    private int readLength() throws IOException {
+        long length = readVarint();
+        if (length < 0 || length > limit - position) {
+            throw new EOFException("Truncated protobuf message");
+        }
+        return (int) length;
+    }
+
+    private long readVarint() throws IOException {
+        long value = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            if (position >= limit) {
+                throw new EOFException("Truncated protobuf message");
+            }
+            byte b = buffer[position++];
+            value |= (long) (b & 0x7F) << shift;
+            if (b >= 0) {
+                return value;
+            }
+        }
+        throw new IOException("Malformed protobuf varint");
+    }
+
+    private long readFixed(int bytes) throws IOException {
+        if (limit - position < bytes) {
+            throw new EOFException("Truncated protobuf message");
+        }
+        long value = 0;
+        for (int i = 0; i < bytes; i++) {
+            value |= (buffer[position++] & 0xFFL) << (i * 8);
+        }
+        return value;
+    }
+}
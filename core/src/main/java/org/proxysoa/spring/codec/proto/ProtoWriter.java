@@ -0,0 +1,242 @@
+package org.proxysoa.spring.codec.proto;
+
+import org.proxysoa.spring.exception.SOAControllerInvocationException;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Writes protobuf fields to a growing buffer. Boxed values are skipped if null, primitive ones are always
+ * written. Length of a nested message is not known before the message is written, so one byte is reserved
+ * for it and the message is moved if the length needs more.
+ */
+public final class ProtoWriter {
+    static final int VARINT = 0;
+    static final int FIXED64 = 1;
+    static final int LENGTH_DELIMITED = 2;
+    static final int FIXED32 = 5;
+
+    private byte[] buffer;
+    private int position;
+
+    /**
+     * Default constructor
+     */
+    public ProtoWriter() {
+        this(256);
+    }
+
+    /**
+     * @param capacity initial buffer size
+     */
+    public ProtoWriter(int capacity) {
+        this.buffer = new byte[capacity];
+    }
+
+    public void writeInt64(int field, long value) {
+        writeTag(field, VARINT);
+        writeVarint(value);
+    }
+
+    public void writeInt64(int field, Long value) {
+        if (value != null) {
+            writeInt64(field, value.longValue());
+        }
+    }
+
+    public void writeInt32(int field, int value) {
+        writeTag(field, VARINT);
+        //negative values are sign extended to 64 bits
+        writeVarint(value);
+    }
+
+    public void writeInt32(int field, Integer value) {
+        if (value != null) {
+            writeInt32(field, value.intValue());
+        }
+    }
+
+    public void writeBool(int field, boolean value) {
+        writeTag(field, VARINT);
+        writeByte(value ? 1 : 0);
+    }
+
+    public void writeBool(int field, Boolean value) {
+        if (value != null) {
+            writeBool(field, value.booleanValue());
+        }
+    }
+
+    public void writeDouble(int field, double value) {
+        writeTag(field, FIXED64);
+        writeFixed(Double.doubleToRawLongBits(value), 8);
+    }
+
+    public void writeDouble(int field, Double value) {
+        if (value != null) {
+            writeDouble(field, value.doubleValue());
+        }
+    }
+
+    public void writeFloat(int field, float value) {
+        writeTag(field, FIXED32);
+        writeFixed(Float.floatToRawIntBits(value), 4);
+    }
+
+    public void writeFloat(int field, Float value) {
+        if (value != null) {
+            writeFloat(field, value.floatValue());
+        }
+    }
+
+    public void writeString(int field, String value) {
+        if (value != null) {
+            byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+            writeTag(field, LENGTH_DELIMITED);
+            writeVarint(bytes.length);
+            ensureCapacity(bytes.length);
+            System.arraycopy(bytes, 0, buffer, position, bytes.length);
+            position += bytes.length;
+        }
+    }
+
+    /**
+     * Writes nested message
+     *
+     * @param field field number
+     * @param value message (skipped if null)
+     * @param codec codec of the message
+     * @param <T>   message class
+     */
+    public <T> void writeMessage(int field, T value, ProtoMessageCodec<T> codec) {
+        if (value == null) {
+            return;
+        }
+        writeTag(field, LENGTH_DELIMITED);
+        int start = position;
+        writeByte(0);
+        codec.write(this, value);
+        int length = position - start - 1;
+        int size = varintSize(length);
+        if (size > 1) {
+            ensureCapacity(size - 1);
+            System.arraycopy(buffer, start + 1, buffer, start + size, length);
+            position += size - 1;
+        }
+        int end = position;
+        position = start;
+        writeVarint(length);
+        position = end;
+    }
+
+    public <T> void writeRepeatedMessage(int field, List<T> values, ProtoMessageCodec<T> codec) {
+        if (values != null) {
+            for (T value : values) {
+                writeMessage(field, requireElement(field, value), codec);
+            }
+        }
+    }
+
+    public void writeRepeatedInt64(int field, List<Long> values) {
+        if (values != null) {
+            for (Long value : values) {
+                writeInt64(field, requireElement(field, value).longValue());
+            }
+        }
+    }
+
+    public void writeRepeatedInt32(int field, List<Integer> values) {
+        if (values != null) {
+            for (Integer value : values) {
+                writeInt32(field, requireElement(field, value).intValue());
+            }
+        }
+    }
+
+    public void writeRepeatedBool(int field, List<Boolean> values) {
+        if (values != null) {
+            for (Boolean value : values) {
+                writeBool(field, requireElement(field, value).booleanValue());
+            }
+        }
+    }
+
+    public void writeRepeatedDouble(int field, List<Double> values) {
+        if (values != null) {
+            for (Double value : values) {
+                writeDouble(field, requireElement(field, value).doubleValue());
+            }
+        }
+    }
+
+    public void writeRepeatedFloat(int field, List<Float> values) {
+        if (values != null) {
+            for (Float value : values) {
+                writeFloat(field, requireElement(field, value).floatValue());
+            }
+        }
+    }
+
+    public void writeRepeatedString(int field, List<String> values) {
+        if (values != null) {
+            for (String value : values) {
+                writeString(field, requireElement(field, value));
+            }
+        }
+    }
+
+    /**
+     * @return written bytes
+     */
+    public byte[] toByteArray() {
+        return Arrays.copyOf(buffer, position);
+    }
+
+    private static <T> T requireElement(int field, T value) {
+        if (value == null) {
+            throw new SOAControllerInvocationException("Repeated field " + field + " cannot have null elements");
+        }
+        return value;
+    }
+
+    private void writeTag(int field, int wireType) {
+        writeVarint((field << 3) | wireType);
+    }
+
+    private void writeVarint(long value) {
+        ensureCapacity(10);
+        while ((value & ~0x7FL) != 0) {
+            buffer[position++] = (byte) ((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        buffer[position++] = (byte) value;
+    }
+
+    private void writeFixed(long value, int bytes) {
+        ensureCapacity(bytes);
+        for (int i = 0; i < bytes; i++) {
+            buffer[position++] = (byte) (value >>> (i * 8));
+        }
+    }
+
+    private void writeByte(int value) {
+        ensureCapacity(1);
+        buffer[position++] = (byte) value;
+    }
+
+    private void ensureCapacity(int length) {
+        if (position + length > buffer.length) {
+            buffer = Arrays.copyOf(buffer, Math.max(buffer.length * 2, position + length));
+        }
+    }
+
+    private static int varintSize(int value) {
+        int size = 1;
+        while ((value & ~0x7F) != 0) {
+            size++;
+            value >>>= 7;
+        }
+        return size;
+    }
+}
@@ -0,0 +1,329 @@
+package org.proxysoa.spring.compression;
+
+import org.springframework.http.HttpHeaders;
+import org.springframework.web.context.request.async.WebAsyncUtils;
+
+import javax.servlet.ServletOutputStream;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import javax.servlet.http.HttpServletResponseWrapper;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+
+/**
+ * Response compressing its body once the body reaches the threshold. The body is buffered up to the threshold
+ * (flushes are ignored meanwhile), smaller bodies are sent as is with Content-Length. Bodies with known
+ * Content-Length under the threshold and bodies encoded by the application are not buffered.
+ * Flush of an async (streamed) response starts the compression at once, so the stream's elements
+ * are not held in the buffer. A zstd body encoded with a dictionary names the dictionary in X-Zstd-Dictionary.
+ */
+class CompressingHttpServletResponse extends HttpServletResponseWrapper {
+    private final HttpServletRequest request;
+    private final String coding;
+    private final ZstdDictionary dictionary;
+    private final int threshold;
+    private final int level;
+    private final CompressionStats.MethodStats stats;
+
+    private CompressingOutputStream out;
+    private PrintWriter writer;
+    //body is sent as is (short or already encoded)
+    private boolean bypass;
+
+    /**
+     * Constructs the response
+     *
+     * @param request   the request
+     * @param response  response to be compressed
+     * @param coding     coding accepted by the caller
+     * @param dictionary zstd dictionary known by the caller (null to encode without dictionary)
+     * @param threshold  min body size to compress
+     * @param level      compression level of the coding
+     * @param stats      stats of the request's method
+     */
+    CompressingHttpServletResponse(HttpServletRequest request, HttpServletResponse response, String coding,
+                                   ZstdDictionary dictionary, int threshold, int level,
+                                   CompressionStats.MethodStats stats) {
+        super(response);
+        this.request = request;
+        this.coding = coding;
+        this.dictionary = dictionary;
+        this.threshold = threshold;
+        this.level = level;
+        this.stats = stats;
+        addVary();
+    }
+
+    @Override
+    public ServletOutputStream getOutputStream() throws IOException {
+        if (writer != null) {
+            throw new IllegalStateException("getWriter() has already been called");
+        }
+        return getStream();
+    }
+
+    @Override
+    public PrintWriter getWriter() throws IOException {
+        if (writer == null) {
+            if (out != null) {
+                throw new IllegalStateException("getOutputStream() has already been called");
+            }
+            writer = new PrintWriter(new OutputStreamWriter(getStream(), getCharacterEncoding()));
+        }
+        return writer;
+    }
+
+    @Override
+    public void setContentLength(int len) {
+        if (len < threshold && (out == null || out.target == null)) {
+            bypass = true;
+            super.setContentLength(len);
+        }
+    }
+
+    @Override
+    public void setHeader(String name, String value) {
+        if (!isBodyHeader(name, value)) {
+            super.setHeader(name, value);
+        }
+    }
+
+    @Override
+    public void addHeader(String name, String value) {
+        if (!isBodyHeader(name, value)) {
+            super.addHeader(name, value);
+        }
+    }
+
+    @Override
+    public void flushBuffer() throws IOException {
+        if (writer != null) {
+            writer.flush();
+        } else if (out != null) {
+            out.flush();
+        }
+        //headers are not committed before the compression decision
+        if (out != null && out.target != null) {
+            super.flushBuffer();
+        }
+    }
+
+    @Override
+    public void resetBuffer() {
+        super.resetBuffer();
+        if (out != null && out.buffer != null) {
+            out.buffer.reset();
+        }
+    }
+
+    @Override
+    public void reset() {
+        super.reset();
+        if (out != null && out.buffer != null) {
+            out.buffer.reset();
+        }
+        addVary();
+    }
+
+    /**
+     * Writes the buffered body or the trailer of the compressed one
+     *
+     * @throws IOException on writing errors
+     */
+    void finish() throws IOException {
+        if (writer != null) {
+            writer.flush();
+        }
+        if (out != null) {
+            out.finish();
+        }
+    }
+
+    /**
+     * Handles Content-Length and Content-Encoding set by the application
+     *
+     * @param name  header name
+     * @param value header value
+     * @return true if the header is handled
+     */
+    private boolean isBodyHeader(String name, String value) {
+        if (HttpHeaders.CONTENT_LENGTH.equalsIgnoreCase(name)) {
+            try {
+                setContentLength(Integer.parseInt(value.trim()));
+            } catch (NumberFormatException e) {
+                //body length is not known
+            }
+            return true;
+        }
+        if (HttpHeaders.CONTENT_ENCODING.equalsIgnoreCase(name) && (out == null || out.target == null)) {
+            bypass = true;
+        }
+        return false;
+    }
+
+    private void addVary() {
+        super.addHeader(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+        if (dictionary != null) {
+            super.addHeader(HttpHeaders.VARY, ZstdDictionaryRegistry.DICTIONARIES_HEADER);
+        }
+    }
+
+    private CompressingOutputStream getStream() throws IOException {
+        if (out == null) {
+            out = new CompressingOutputStream();
+        }
+        return out;
+    }
+
+    private boolean isAsyncStarted() {
+        return WebAsyncUtils.getAsyncManager(request).isConcurrentHandlingStarted();
+    }
+
+    /**
+     * Body stream buffering the body until it's known whether the body should be compressed
+     */
+    private class CompressingOutputStream extends ServletOutputStream {
+        //body bytes written before the compression decision (null after the decision)
+        private ByteArrayOutputStream buffer = new ByteArrayOutputStream(Math.min(threshold, 8192));
+        //response stream or compressing stream over it (null before the decision)
+        private OutputStream target;
+        private OutputStream encoder;
+        private CountingOutputStream wire;
+        //uncompressed bytes and time spent in the compressing stream (including sending)
+        private long raw;
+        private long nanos;
+
+        @Override
+        public void write(int b) throws IOException {
+            write(new byte[]{(byte) b}, 0, 1);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            if (target == null) {
+                if (!bypass) {
+                    buffer.write(b, off, len);
+                    if (buffer.size() >= threshold) {
+                        startEncoding();
+                    }
+                    return;
+                }
+                sendBuffer();
+            }
+            if (encoder != null) {
+                long start = System.nanoTime();
+                encoder.write(b, off, len);
+                nanos += System.nanoTime() - start;
+                raw += len;
+            } else {
+                target.write(b, off, len);
+            }
+        }
+
+        @Override
+        public void flush() throws IOException {
+            if (target == null) {
+                if (bypass) {
+                    sendBuffer();
+                } else if (isAsyncStarted()) {
+                    startEncoding();
+                } else {
+                    return;
+                }
+            }
+            if (encoder != null) {
+                long start = System.nanoTime();
+                encoder.flush();
+                nanos += System.nanoTime() - start;
+            } else {
+                target.flush();
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            //the body is finished by the filter
+            flush();
+        }
+
+        void finish() throws IOException {
+            if (target == null) {
+                if (!bypass && !isCommitted()) {
+                    CompressingHttpServletResponse.super.setContentLength(buffer.size());
+                }
+                sendBuffer();
+            }
+            if (encoder != null) {
+                long start = System.nanoTime();
+                //closes the coding only, the response stream is kept open
+                encoder.close();
+                nanos += System.nanoTime() - start;
+                stats.recordEncoded(raw, wire.count, Math.max(0, nanos - wire.nanos));
+                encoder = null;
+                //the closed coding (zstd) refuses flush, later flushes go to the response stream
+                target = wire;
+            }
+            target.flush();
+        }
+
+        private void sendBuffer() throws IOException {
+            target = CompressingHttpServletResponse.super.getOutputStream();
+            byte[] body = buffer.toByteArray();
+            buffer = null;
+            target.write(body);
+        }
+
+        private void startEncoding() throws IOException {
+            CompressingHttpServletResponse.super.setHeader(HttpHeaders.CONTENT_ENCODING, coding);
+            if (dictionary != null) {
+                CompressingHttpServletResponse.super.setHeader(ZstdDictionaryRegistry.DICTIONARY_HEADER,
+                        String.valueOf(dictionary.getId()));
+            }
+            wire = new CountingOutputStream(CompressingHttpServletResponse.super.getOutputStream());
+            long start = System.nanoTime();
+            encoder = ContentCoding.encoder(wire, coding, level, true, dictionary);
+            target = encoder;
+            byte[] body = buffer.toByteArray();
+            buffer = null;
+            encoder.write(body);
+            nanos += System.nanoTime() - start;
+            raw += body.length;
+        }
+    }
+
+    /**
+     * Counts compressed bytes sent to the response stream and time of sending them
+     */
+    private static class CountingOutputStream extends OutputStream {
+        private final OutputStream out;
+        private long count;
+        private long nanos;
+
+        CountingOutputStream(OutputStream out) {
+            this.out = out;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            write(new byte[]{(byte) b}, 0, 1);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            long start = System.nanoTime();
+            out.write(b, off, len);
+            nanos += System.nanoTime() - start;
+            count += len;
+        }
+
+        @Override
+        public void flush() throws IOException {
+            long start = System.nanoTime();
+            out.flush();
+            nanos += System.nanoTime() - start;
+        }
+    }
+}
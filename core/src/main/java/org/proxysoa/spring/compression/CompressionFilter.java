@@ -0,0 +1,267 @@
+package org.proxysoa.spring.compression;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.core.env.Environment;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.util.WebUtils;
+
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.ServletInputStream;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletRequestWrapper;
+import javax.servlet.http.HttpServletResponse;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.List;
+
+/**
+ * Service side of the http body compression:
+ * <ul>
+ * <li>gzip and deflate (and zstd if switched on) request bodies (sent by proxies) are decompressed before
+ * the controllers read them, other codings and unknown zstd dictionaries are refused with 415</li>
+ * <li>responses over SOA.Compression.responseThreshold bytes are compressed with a coding accepted
+ * by the caller, smaller ones are sent as is</li>
+ * <li>Accept-Encoding of the responses tells the callers that compressed request bodies are accepted,
+ * X-Zstd-Dictionaries tells which zstd dictionaries the service has</li>
+ * </ul>
+ * Streamed responses are compressed as well: a flush sends all the bytes compressed so far.
+ * The filter finishes async responses in the async dispatch, so it must be mapped to ASYNC dispatcher type
+ * besides REQUEST (e.g. FilterRegistrationBean.setDispatcherTypes). The filter should go before filters
+ * buffering the response (ShallowEtagHeaderFilter), so they see the uncompressed body.
+ */
+public class CompressionFilter extends OncePerRequestFilter {
+    private static final Logger LOG = LoggerFactory.getLogger(CompressionFilter.class);
+
+    private final CompressionStats stats = new CompressionStats();
+
+    private CompressionSettings settings;
+    private ZstdDictionaryRegistry dictionaries = new ZstdDictionaryRegistry();
+
+    /**
+     * Default constructor (settings are read from the environment the filter gets)
+     */
+    public CompressionFilter() {
+        this(new CompressionSettings());
+    }
+
+    /**
+     * Constructor with desired settings
+     *
+     * @param settings compression settings
+     */
+    public CompressionFilter(CompressionSettings settings) {
+        this.settings = settings;
+    }
+
+    @Override
+    public void setEnvironment(Environment environment) {
+        super.setEnvironment(environment);
+        this.settings = new CompressionSettings(environment);
+        if (settings.isZstd()) {
+            this.dictionaries = ZstdDictionaryRegistry.load(settings.getZstdDictionaries());
+        }
+        LOG.debug("Compression settings {}", settings);
+    }
+
+    /**
+     * @return compression stats of the served methods
+     */
+    public CompressionStats getStats() {
+        return stats;
+    }
+
+    public CompressionSettings getSettings() {
+        return settings;
+    }
+
+    /**
+     * @return zstd dictionaries of the service
+     */
+    public ZstdDictionaryRegistry getDictionaries() {
+        return dictionaries;
+    }
+
+    @Override
+    protected boolean shouldNotFilterAsyncDispatch() {
+        return false;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        String method = request.getMethod() + " " + request.getRequestURI();
+        String contentEncoding = request.getHeader(HttpHeaders.CONTENT_ENCODING);
+        HttpServletRequest decodedRequest = request;
+        if (contentEncoding != null && !"identity".equalsIgnoreCase(contentEncoding.trim())) {
+            ZstdDictionary dictionary;
+            try {
+                dictionary = getRequestDictionary(request, contentEncoding);
+            } catch (IOException e) {
+                refuse(response, e.getMessage());
+                return;
+            }
+            decodedRequest = new DecodedRequest(request, contentEncoding.trim(), dictionary, stats.get(method));
+        }
+
+        HttpServletResponse filteredResponse = response;
+        CompressingHttpServletResponse compressing = WebUtils.getNativeResponse(response,
+                CompressingHttpServletResponse.class);
+        if (compressing == null && settings.isEnabled()) {
+            setAcceptHeaders(response);
+            String coding = ContentCoding.select(Collections.list(request.getHeaders(HttpHeaders.ACCEPT_ENCODING)),
+                    settings.isZstd());
+            if (coding != null) {
+                ZstdDictionary dictionary = ContentCoding.ZSTD.equals(coding) ? dictionaries.select(
+                        Collections.list(request.getHeaders(ZstdDictionaryRegistry.DICTIONARIES_HEADER))) : null;
+                compressing = new CompressingHttpServletResponse(request, response, coding, dictionary,
+                        settings.getThreshold(dictionary, true), settings.getLevel(coding), stats.get(method));
+                filteredResponse = compressing;
+            }
+        }
+        try {
+            chain.doFilter(decodedRequest, filteredResponse);
+        } finally {
+            if (compressing != null && !isAsyncStarted(request)) {
+                compressing.finish();
+            }
+        }
+    }
+
+    /**
+     * @param request         request with compressed body
+     * @param contentEncoding Content-Encoding of the body
+     * @return zstd dictionary of the body or null if the body is encoded without dictionary
+     * @throws IOException if the coding or the dictionary is not supported
+     */
+    private ZstdDictionary getRequestDictionary(HttpServletRequest request, String contentEncoding)
+            throws IOException {
+        if (!ContentCoding.isSupported(contentEncoding, settings.isZstd())) {
+            throw new IOException("Unsupported Content-Encoding " + contentEncoding);
+        }
+        String id = request.getHeader(ZstdDictionaryRegistry.DICTIONARY_HEADER);
+        return ContentCoding.ZSTD.equalsIgnoreCase(contentEncoding.trim()) ? dictionaries.getForBody(id) : null;
+    }
+
+    private void refuse(HttpServletResponse response, String message) throws IOException {
+        setAcceptHeaders(response);
+        response.sendError(HttpStatus.UNSUPPORTED_MEDIA_TYPE.value(), message);
+    }
+
+    /**
+     * Tells the caller which codings and zstd dictionaries are accepted in request bodies
+     *
+     * @param response response to the caller
+     */
+    private void setAcceptHeaders(HttpServletResponse response) {
+        response.setHeader(HttpHeaders.ACCEPT_ENCODING, settings.getAcceptEncoding());
+        if (settings.isZstd() && dictionaries.getIds() != null) {
+            response.setHeader(ZstdDictionaryRegistry.DICTIONARIES_HEADER, dictionaries.getIds());
+        }
+    }
+
+    /**
+     * Request with compressed body which is decompressed while read. Content-Encoding and Content-Length
+     * headers are hidden.
+     */
+    private static class DecodedRequest extends HttpServletRequestWrapper {
+        private final String coding;
+        private final ZstdDictionary dictionary;
+        private final CompressionStats.MethodStats stats;
+
+        private ServletInputStream body;
+        private BufferedReader reader;
+
+        DecodedRequest(HttpServletRequest request, String coding, ZstdDictionary dictionary,
+                       CompressionStats.MethodStats stats) {
+            super(request);
+            this.coding = coding;
+            this.dictionary = dictionary;
+            this.stats = stats;
+        }
+
+        @Override
+        public ServletInputStream getInputStream() throws IOException {
+            if (body == null) {
+                DecodingInputStream decoder = new DecodingInputStream(super.getInputStream(), coding, dictionary,
+                        stats);
+                body = new ServletInputStream() {
+                    @Override
+                    public int read() throws IOException {
+                        return decoder.read();
+                    }
+
+                    @Override
+                    public int read(byte[] b, int off, int len) throws IOException {
+                        return decoder.read(b, off, len);
+                    }
+
+                    @Override
+                    public int available() throws IOException {
+                        return decoder.available();
+                    }
+
+                    @Override
+                    public void close() throws IOException {
+                        decoder.close();
+                    }
+                };
+            }
+            return body;
+        }
+
+        @Override
+        public BufferedReader getReader() throws IOException {
+            if (reader == null) {
+                String encoding = getCharacterEncoding();
+                reader = new BufferedReader(new InputStreamReader(getInputStream(),
+                        encoding != null ? encoding : WebUtils.DEFAULT_CHARACTER_ENCODING));
+            }
+            return reader;
+        }
+
+        @Override
+        public int getContentLength() {
+            return -1;
+        }
+
+        @Override
+        public String getHeader(String name) {
+            return isHidden(name) ? null : super.getHeader(name);
+        }
+
+        @Override
+        public Enumeration<String> getHeaders(String name) {
+            return isHidden(name) ? Collections.emptyEnumeration() : super.getHeaders(name);
+        }
+
+        @Override
+        public int getIntHeader(String name) {
+            return isHidden(name) ? -1 : super.getIntHeader(name);
+        }
+
+        @Override
+        public Enumeration<String> getHeaderNames() {
+            List<String> names = new ArrayList<>();
+            for (Object name : Collections.list(super.getHeaderNames())) {
+                if (!isHidden((String) name)) {
+                    names.add((String) name);
+                }
+            }
+            return Collections.enumeration(names);
+        }
+
+        private static boolean isHidden(String name) {
+            return HttpHeaders.CONTENT_ENCODING.equalsIgnoreCase(name)
+                    || HttpHeaders.CONTENT_LENGTH.equalsIgnoreCase(name)
+                    || ZstdDictionaryRegistry.DICTIONARY_HEADER.equalsIgnoreCase(name);
+        }
+    }
+}
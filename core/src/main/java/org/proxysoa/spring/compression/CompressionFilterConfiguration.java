@@ -0,0 +1,45 @@
+package org.proxysoa.spring.compression;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.Ordered;
+
+import javax.servlet.DispatcherType;
+
+/**
+ * Adds CompressionFilter to the web applications scanning the library (unless SOA.Compression.filter is false).
+ * The filter is mapped before the other filters and to async dispatches (streamed responses are finished there).
+ */
+@Configuration
+@ConditionalOnWebApplication
+@ConditionalOnProperty(name = CompressionSettings.PREFIX + "filter", matchIfMissing = true)
+public class CompressionFilterConfiguration {
+
+    /**
+     * Compresses responses over SOA.Compression.responseThreshold bytes and decompresses request bodies
+     * compressed by proxies
+     *
+     * @return compression filter
+     */
+    @Bean
+    public CompressionFilter compressionFilter() {
+        return new CompressionFilter();
+    }
+
+    /**
+     * Maps the compression filter before the other filters, async dispatches included
+     *
+     * @param compressionFilter compression filter
+     * @return compression filter registration
+     */
+    @Bean
+    public FilterRegistrationBean compressionFilterRegistration(CompressionFilter compressionFilter) {
+        FilterRegistrationBean registration = new FilterRegistrationBean(compressionFilter);
+        registration.setDispatcherTypes(DispatcherType.REQUEST, DispatcherType.ASYNC);
+        registration.setOrder(Ordered.HIGHEST_PRECEDENCE + 10);
+        return registration;
+    }
+}
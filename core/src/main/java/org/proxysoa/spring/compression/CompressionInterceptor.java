@@ -0,0 +1,237 @@
+package org.proxysoa.spring.compression;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpRequest;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.client.AsyncClientHttpRequestExecution;
+import org.springframework.http.client.AsyncClientHttpRequestInterceptor;
+import org.springframework.http.client.ClientHttpRequestExecution;
+import org.springframework.http.client.ClientHttpRequestInterceptor;
+import org.springframework.http.client.ClientHttpResponse;
+import org.springframework.http.client.support.HttpRequestWrapper;
+import org.springframework.util.concurrent.ListenableFuture;
+import org.springframework.util.concurrent.ListenableFutureAdapter;
+
+import java.io.IOException;
+import java.util.concurrent.ExecutionException;
+
+/**
+ * Applies compression to calls of one remote service (RestTemplate and AsyncRestTemplate):
+ * <ul>
+ * <li>gzip and deflate (and zstd if switched on) are advertised in Accept-Encoding, compressed responses
+ * are decompressed while read</li>
+ * <li>request bodies over the threshold are compressed once the service advertised a coding in
+ * Accept-Encoding of a response (RFC 7694), the coding is dropped if the service answers 415</li>
+ * <li>ids of the zstd dictionaries are advertised in X-Zstd-Dictionaries, zstd bodies are encoded with
+ * a dictionary both sides have (from the lower zstd threshold)</li>
+ * </ul>
+ * Sizes and CPU time of the coding are recorded per http method and path.
+ */
+public class CompressionInterceptor implements ClientHttpRequestInterceptor, AsyncClientHttpRequestInterceptor {
+    private static final Logger LOG = LoggerFactory.getLogger(CompressionInterceptor.class);
+
+    private final CompressionSettings settings;
+    private final CompressionStats stats;
+    private final ZstdDictionaryRegistry dictionaries;
+
+    //coding of request bodies accepted by the remote service (null until the service advertises one)
+    private volatile RequestCoding requestCoding;
+
+    /**
+     * Constructs the interceptor without zstd dictionaries
+     *
+     * @param settings compression settings
+     * @param stats    stats to record the calls' compression
+     */
+    public CompressionInterceptor(CompressionSettings settings, CompressionStats stats) {
+        this(settings, stats, new ZstdDictionaryRegistry());
+    }
+
+    /**
+     * Constructs the interceptor
+     *
+     * @param settings     compression settings
+     * @param stats        stats to record the calls' compression
+     * @param dictionaries zstd dictionaries of the proxy
+     */
+    public CompressionInterceptor(CompressionSettings settings, CompressionStats stats,
+                                  ZstdDictionaryRegistry dictionaries) {
+        this.settings = settings;
+        this.stats = stats;
+        this.dictionaries = dictionaries;
+    }
+
+    @Override
+    public ClientHttpResponse intercept(HttpRequest request, byte[] body, ClientHttpRequestExecution execution)
+            throws IOException {
+        String method = getMethod(request);
+        RequestCoding coding = getCoding(request, body);
+        byte[] sent = coding != null ? encode(method, body, coding) : body;
+        RequestCoding sentCoding = sent == body ? null : coding;
+        return afterCall(method, sentCoding, execution.execute(withHeaders(request, sentCoding), sent));
+    }
+
+    @Override
+    public ListenableFuture<ClientHttpResponse> intercept(HttpRequest request, byte[] body,
+                                                          AsyncClientHttpRequestExecution execution)
+            throws IOException {
+        String method = getMethod(request);
+        RequestCoding coding = getCoding(request, body);
+        byte[] sent = coding != null ? encode(method, body, coding) : body;
+        RequestCoding sentCoding = sent == body ? null : coding;
+        return new ListenableFutureAdapter<ClientHttpResponse, ClientHttpResponse>(
+                execution.executeAsync(withHeaders(request, sentCoding), sent)) {
+            @Override
+            protected ClientHttpResponse adapt(ClientHttpResponse response) throws ExecutionException {
+                try {
+                    return afterCall(method, sentCoding, response);
+                } catch (IOException e) {
+                    throw new ExecutionException(e);
+                }
+            }
+        };
+    }
+
+    /**
+     * @return coding of request bodies accepted by the remote service or null if it's unknown
+     */
+    public String getRequestCoding() {
+        RequestCoding coding = requestCoding;
+        return coding != null ? coding.coding : null;
+    }
+
+    /**
+     * @return zstd dictionary of request bodies or null if the service has none of the proxy's dictionaries
+     */
+    public ZstdDictionary getRequestDictionary() {
+        RequestCoding coding = requestCoding;
+        return coding != null ? coding.dictionary : null;
+    }
+
+    private static String getMethod(HttpRequest request) {
+        return request.getMethod() + " " + request.getURI().getPath();
+    }
+
+    /**
+     * @param request request to be sent
+     * @param body    request body
+     * @return coding the body should be compressed with or null if the body is sent as is
+     */
+    private RequestCoding getCoding(HttpRequest request, byte[] body) {
+        RequestCoding coding = requestCoding;
+        if (coding == null || body.length < settings.getThreshold(coding.dictionary, false)
+                || request.getHeaders().containsKey(HttpHeaders.CONTENT_ENCODING)) {
+            return null;
+        }
+        return coding;
+    }
+
+    /**
+     * @param method http method and path of the call
+     * @param body   request body
+     * @param coding coding accepted by the service
+     * @return compressed body or the body if compression doesn't make it smaller
+     */
+    private byte[] encode(String method, byte[] body, RequestCoding coding) {
+        long start = System.nanoTime();
+        byte[] encoded = ContentCoding.encode(body, coding.coding, settings.getLevel(coding.coding),
+                coding.dictionary);
+        stats.get(method).recordEncoded(body.length, encoded.length, System.nanoTime() - start);
+        return encoded.length < body.length ? encoded : body;
+    }
+
+    /**
+     * Adds Accept-Encoding, zstd dictionaries and Content-Encoding of the compressed body to the request
+     *
+     * @param request request to be sent
+     * @param coding  coding of the body (null if the body is not compressed)
+     * @return request with compression headers
+     */
+    private HttpRequest withHeaders(HttpRequest request, RequestCoding coding) {
+        HttpHeaders headers = new HttpHeaders();
+        headers.putAll(request.getHeaders());
+        if (!headers.containsKey(HttpHeaders.ACCEPT_ENCODING)) {
+            headers.set(HttpHeaders.ACCEPT_ENCODING, settings.getAcceptEncoding());
+        }
+        if (settings.isZstd() && dictionaries.getIds() != null) {
+            headers.set(ZstdDictionaryRegistry.DICTIONARIES_HEADER, dictionaries.getIds());
+        }
+        if (coding != null) {
+            headers.set(HttpHeaders.CONTENT_ENCODING, coding.coding);
+            if (coding.dictionary != null) {
+                headers.set(ZstdDictionaryRegistry.DICTIONARY_HEADER, String.valueOf(coding.dictionary.getId()));
+            }
+        }
+        return new HttpRequestWrapper(request) {
+            @Override
+            public HttpHeaders getHeaders() {
+                return headers;
+            }
+        };
+    }
+
+    /**
+     * Learns request codings accepted by the service, wraps compressed response to decompress it
+     *
+     * @param method   http method and path of the call
+     * @param coding   coding of the request body (null if the body was not compressed)
+     * @param response remote call response
+     * @return response to be read by the caller
+     * @throws IOException on the response reading errors
+     */
+    private ClientHttpResponse afterCall(String method, RequestCoding coding, ClientHttpResponse response)
+            throws IOException {
+        HttpHeaders headers = response.getHeaders();
+        if (coding != null && response.getRawStatusCode() == HttpStatus.UNSUPPORTED_MEDIA_TYPE.value()) {
+            LOG.warn("{} refused {} request body, request bodies are not compressed any more", method,
+                    coding.coding);
+            requestCoding = null;
+        } else if (headers.containsKey(HttpHeaders.ACCEPT_ENCODING)) {
+            requestCoding = getAccepted(method, headers);
+        }
+        String contentEncoding = headers.getFirst(HttpHeaders.CONTENT_ENCODING);
+        if (!ContentCoding.isSupported(contentEncoding, settings.isZstd())) {
+            return response;
+        }
+        ZstdDictionary dictionary = dictionaries.getForBody(
+                headers.getFirst(ZstdDictionaryRegistry.DICTIONARY_HEADER));
+        return new DecodedClientHttpResponse(response, contentEncoding.trim(), dictionary, stats.get(method));
+    }
+
+    /**
+     * @param method  http method and path of the call
+     * @param headers response headers with Accept-Encoding
+     * @return coding of request bodies accepted by the service
+     */
+    private RequestCoding getAccepted(String method, HttpHeaders headers) {
+        String accepted = ContentCoding.select(headers.get(HttpHeaders.ACCEPT_ENCODING), settings.isZstd());
+        if (accepted == null) {
+            return null;
+        }
+        RequestCoding current = requestCoding;
+        ZstdDictionary dictionary = ContentCoding.ZSTD.equals(accepted)
+                ? dictionaries.select(headers.get(ZstdDictionaryRegistry.DICTIONARIES_HEADER)) : null;
+        if (current != null && current.coding.equals(accepted) && current.dictionary == dictionary) {
+            return current;
+        }
+        LOG.debug("{} accepts {} request bodies{}", method, accepted,
+                dictionary != null ? " with " + dictionary : "");
+        return new RequestCoding(accepted, dictionary);
+    }
+
+    /**
+     * Coding of request bodies accepted by the remote service
+     */
+    private static class RequestCoding {
+        final String coding;
+        //zstd dictionary both sides have (null if there is none)
+        final ZstdDictionary dictionary;
+
+        RequestCoding(String coding, ZstdDictionary dictionary) {
+            this.coding = coding;
+            this.dictionary = dictionary;
+        }
+    }
+}
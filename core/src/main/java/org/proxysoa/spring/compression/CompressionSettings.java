@@ -0,0 +1,162 @@
+package org.proxysoa.spring.compression;
+
+import org.springframework.core.env.Environment;
+
+/**
+ * Keeps settings of the http body compression. Values are read from SOA.Compression.* properties,
+ * defaults are used for the missing ones. The same settings are used by proxies (request bodies)
+ * and by CompressionFilter of the services (response bodies).
+ * <p>
+ * Zstd is switched off by default. Bodies encoded with a zstd dictionary known by both sides are compressed
+ * from the (lower) zstdThreshold.
+ */
+public class CompressionSettings {
+    public static final String PREFIX = "SOA.Compression.";
+
+    //proxies advertise gzip and deflate, decode responses and compress request bodies
+    private boolean enabled = true;
+    //request bodies shorter than the value (bytes) are sent as is
+    private int requestThreshold = 2048;
+    //responses shorter than the value (bytes) are sent as is
+    private int responseThreshold = 2048;
+    //deflate level from 1 (fastest) to 9 (smallest)
+    private int level = 1;
+    //zstd is advertised and preferred to gzip
+    private boolean zstd;
+    //zstd level from 1 (fastest) to 19 (smallest)
+    private int zstdLevel = 3;
+    //bodies shorter than the value (bytes) are sent as is when both sides have a zstd dictionary
+    private int zstdThreshold = 64;
+    //comma separated locations (classpath: or file:) of zstd dictionaries (preferred first)
+    private String zstdDictionaries = "";
+
+    /**
+     * Default constructor (default settings)
+     */
+    public CompressionSettings() {
+    }
+
+    /**
+     * Reads the settings from environment
+     *
+     * @param environment environment to get SOA.Compression.* properties
+     */
+    public CompressionSettings(Environment environment) {
+        this.enabled = environment.getProperty(PREFIX + "enabled", Boolean.class, enabled);
+        this.requestThreshold = environment.getProperty(PREFIX + "requestThreshold", Integer.class,
+                requestThreshold);
+        this.responseThreshold = environment.getProperty(PREFIX + "responseThreshold", Integer.class,
+                responseThreshold);
+        this.level = environment.getProperty(PREFIX + "level", Integer.class, level);
+        this.zstd = environment.getProperty(PREFIX + "zstd", Boolean.class, zstd);
+        this.zstdLevel = environment.getProperty(PREFIX + "zstdLevel", Integer.class, zstdLevel);
+        this.zstdThreshold = environment.getProperty(PREFIX + "zstdThreshold", Integer.class, zstdThreshold);
+        this.zstdDictionaries = environment.getProperty(PREFIX + "zstdDictionaries", zstdDictionaries);
+    }
+
+    /**
+     * @param coding content coding
+     * @return compression level of the coding
+     */
+    public int getLevel(String coding) {
+        return ContentCoding.ZSTD.equals(coding) ? zstdLevel : level;
+    }
+
+    /**
+     * @param dictionary zstd dictionary the body is encoded with (null if there is none)
+     * @param response   true for response bodies
+     * @return min size of the body to compress
+     */
+    public int getThreshold(ZstdDictionary dictionary, boolean response) {
+        if (dictionary != null) {
+            return zstdThreshold;
+        }
+        return response ? responseThreshold : requestThreshold;
+    }
+
+    /**
+     * @return Accept-Encoding value for the settings
+     */
+    public String getAcceptEncoding() {
+        return zstd ? ContentCoding.ACCEPTED_ZSTD : ContentCoding.ACCEPTED;
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    public int getRequestThreshold() {
+        return requestThreshold;
+    }
+
+    public void setRequestThreshold(int requestThreshold) {
+        this.requestThreshold = requestThreshold;
+    }
+
+    public int getResponseThreshold() {
+        return responseThreshold;
+    }
+
+    public void setResponseThreshold(int responseThreshold) {
+        this.responseThreshold = responseThreshold;
+    }
+
+    public int getLevel() {
+        return level;
+    }
+
+    public void setLevel(int level) {
+        this.level = level;
+    }
+
+    public boolean isZstd() {
+        return zstd;
+    }
+
+    public void setZstd(boolean zstd) {
+        this.zstd = zstd;
+    }
+
+    public int getZstdLevel() {
+        return zstdLevel;
+    }
+
+    public void setZstdLevel(int zstdLevel) {
+        this.zstdLevel = zstdLevel;
+    }
+
+    public int getZstdThreshold() {
+        return zstdThreshold;
+    }
+
+    public void setZstdThreshold(int zstdThreshold) {
+        this.zstdThreshold = zstdThreshold;
+    }
+
+    public String getZstdDictionaries() {
+        return zstdDictionaries;
+    }
+
+    public void setZstdDictionaries(String zstdDictionaries) {
+        this.zstdDictionaries = zstdDictionaries;
+    }
+
+    @Override
+    public String toString() {
+        final StringBuilder sb = new StringBuilder("CompressionSettings{");
+        sb.append("enabled=").append(enabled);
+        sb.append(", requestThreshold=").append(requestThreshold);
+        sb.append(", responseThreshold=").append(responseThreshold);
+        sb.append(", level=").append(level);
+        sb.append(", zstd=").append(zstd);
+        sb.append(", zstdLevel=").append(zstdLevel);
+        sb.append(", zstdThreshold=").append(zstdThreshold);
+        sb.append(", zstdDictionaries='").append(zstdDictionaries).append('\'');
+        sb.append('}');
+        return sb.toString();
+    }
+}
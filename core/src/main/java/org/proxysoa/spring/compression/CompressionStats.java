@@ -0,0 +1,135 @@
+package org.proxysoa.spring.compression;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Per method compression statistics: how many bodies were compressed and decompressed, their sizes
+ * and CPU time spent on the coding (time of reading the wire is not counted). Lets to see whether
+ * the compression pays off for a method.
+ */
+public class CompressionStats {
+    //key is http method and path of the call, value is the method's stats
+    private final ConcurrentMap<String, MethodStats> methods = new ConcurrentHashMap<>();
+
+    /**
+     * @param method http method and path of the call
+     * @return stats of the method
+     */
+    public MethodStats get(String method) {
+        MethodStats stats = methods.get(method);
+        if (stats == null) {
+            stats = methods.computeIfAbsent(method, key -> new MethodStats());
+        }
+        return stats;
+    }
+
+    /**
+     * @return stats of all the methods sorted by method
+     */
+    public Map<String, MethodStats> getMethods() {
+        return Collections.unmodifiableMap(new TreeMap<>(methods));
+    }
+
+    /**
+     * Compression statistics of one method
+     */
+    public static class MethodStats {
+        private final LongAdder encoded = new LongAdder();
+        private final LongAdder encodedRawBytes = new LongAdder();
+        private final LongAdder encodedBytes = new LongAdder();
+        private final LongAdder encodeNanos = new LongAdder();
+        private final LongAdder decoded = new LongAdder();
+        private final LongAdder decodedRawBytes = new LongAdder();
+        private final LongAdder decodedBytes = new LongAdder();
+        private final LongAdder decodeNanos = new LongAdder();
+
+        /**
+         * @param rawBytes     size of the body
+         * @param encodedBytes size of the compressed body
+         * @param nanos        compression time
+         */
+        public void recordEncoded(long rawBytes, long encodedBytes, long nanos) {
+            encoded.increment();
+            encodedRawBytes.add(rawBytes);
+            this.encodedBytes.add(encodedBytes);
+            encodeNanos.add(nanos);
+        }
+
+        /**
+         * @param encodedBytes size of the compressed body
+         * @param rawBytes     size of the decompressed body
+         * @param nanos        decompression time
+         */
+        public void recordDecoded(long encodedBytes, long rawBytes, long nanos) {
+            decoded.increment();
+            decodedBytes.add(encodedBytes);
+            decodedRawBytes.add(rawBytes);
+            decodeNanos.add(nanos);
+        }
+
+        /**
+         * @return count of compressed bodies
+         */
+        public long getEncoded() {
+            return encoded.sum();
+        }
+
+        /**
+         * @return compressed to original size ratio of the compressed bodies (1 if there were none)
+         */
+        public double getEncodeRatio() {
+            return ratio(encodedBytes.sum(), encodedRawBytes.sum());
+        }
+
+        public long getEncodeNanos() {
+            return encodeNanos.sum();
+        }
+
+        /**
+         * @return count of decompressed bodies
+         */
+        public long getDecoded() {
+            return decoded.sum();
+        }
+
+        /**
+         * @return compressed to original size ratio of the decompressed bodies (1 if there were none)
+         */
+        public double getDecodeRatio() {
+            return ratio(decodedBytes.sum(), decodedRawBytes.sum());
+        }
+
+        public long getDecodeNanos() {
+            return decodeNanos.sum();
+        }
+
+        /**
+         * @return bytes saved on the wire by compression of the method's bodies
+         */
+        public long getSavedBytes() {
+            return encodedRawBytes.sum() - encodedBytes.sum() + decodedRawBytes.sum() - decodedBytes.sum();
+        }
+
+        private static double ratio(long compressed, long raw) {
+            return raw == 0 ? 1 : (double) compressed / raw;
+        }
+
+        @Override
+        public String toString() {
+            final StringBuilder sb = new StringBuilder("MethodStats{");
+            sb.append("encoded=").append(getEncoded());
+            sb.append(", encodeRatio=").append(getEncodeRatio());
+            sb.append(", encodeNanos=").append(getEncodeNanos());
+            sb.append(", decoded=").append(getDecoded());
+            sb.append(", decodeRatio=").append(getDecodeRatio());
+            sb.append(", decodeNanos=").append(getDecodeNanos());
+            sb.append('}');
+            return sb.toString();
+        }
+    }
+}
@@ -0,0 +1,231 @@
+package org.proxysoa.spring.compression;
+
+import com.github.luben.zstd.ZstdInputStream;
+import com.github.luben.zstd.ZstdOutputStream;
+import org.springframework.util.StreamUtils;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.util.List;
+import java.util.Locale;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+import java.util.zip.InflaterInputStream;
+
+/**
+ * Http content codings supported by proxies and services: zstd (if switched on, preferred), gzip and deflate.
+ * Zstd bodies may be encoded with a dictionary known by both sides (see ZstdDictionaryRegistry).
+ */
+public final class ContentCoding {
+    public static final String GZIP = "gzip";
+    public static final String DEFLATE = "deflate";
+    public static final String ZSTD = "zstd";
+
+    //Accept-Encoding value of proxies' requests and services' responses
+    public static final String ACCEPTED = GZIP + ", " + DEFLATE;
+    //Accept-Encoding value if zstd is switched on
+    public static final String ACCEPTED_ZSTD = ZSTD + ", " + ACCEPTED;
+
+    private static final int BUFFER_SIZE = 8192;
+
+    private ContentCoding() {
+    }
+
+    /**
+     * @param coding Content-Encoding value
+     * @return true if the coding can be decoded
+     */
+    public static boolean isSupported(String coding) {
+        return isSupported(coding, false);
+    }
+
+    /**
+     * @param coding Content-Encoding value
+     * @param zstd   true if zstd is switched on
+     * @return true if the coding can be decoded
+     */
+    public static boolean isSupported(String coding, boolean zstd) {
+        if (coding == null) {
+            return false;
+        }
+        String trimmed = coding.trim();
+        return GZIP.equalsIgnoreCase(trimmed) || DEFLATE.equalsIgnoreCase(trimmed)
+                || zstd && ZSTD.equalsIgnoreCase(trimmed);
+    }
+
+    /**
+     * Selects coding acceptable for the other side
+     *
+     * @param acceptEncoding Accept-Encoding header values (may be null)
+     * @return gzip or deflate or null if neither is acceptable
+     */
+    public static String select(List<String> acceptEncoding) {
+        return select(acceptEncoding, false);
+    }
+
+    /**
+     * Selects coding acceptable for the other side
+     *
+     * @param acceptEncoding Accept-Encoding header values (may be null)
+     * @param zstd           true if zstd is switched on
+     * @return zstd, gzip or deflate or null if none is acceptable
+     */
+    public static String select(List<String> acceptEncoding, boolean zstd) {
+        if (acceptEncoding == null) {
+            return null;
+        }
+        boolean gzip = false;
+        boolean deflate = false;
+        for (String value : acceptEncoding) {
+            for (String token : value.split(",")) {
+                String[] parts = token.split(";");
+                String coding = parts[0].trim().toLowerCase(Locale.ROOT);
+                if (isRefused(parts)) {
+                    continue;
+                }
+                if (zstd && ZSTD.equals(coding)) {
+                    return ZSTD;
+                }
+                gzip |= GZIP.equals(coding) || "*".equals(coding);
+                deflate |= DEFLATE.equals(coding);
+            }
+        }
+        return gzip ? GZIP : deflate ? DEFLATE : null;
+    }
+
+    /**
+     * @param parts coding and its parameters
+     * @return true if the coding has q=0
+     */
+    private static boolean isRefused(String[] parts) {
+        for (int i = 1; i < parts.length; i++) {
+            String parameter = parts[i].trim();
+            if (parameter.startsWith("q=")) {
+                try {
+                    return Double.parseDouble(parameter.substring(2)) <= 0;
+                } catch (NumberFormatException e) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Creates stream compressing written bytes to the target stream. Closing the stream writes the coding's
+     * trailer, the target stream is not closed.
+     *
+     * @param out        target stream
+     * @param coding     zstd, gzip or deflate
+     * @param level      compression level of the coding
+     * @param syncFlush  true if flush must send all the bytes written so far (streamed bodies)
+     * @param dictionary zstd dictionary (null to encode without dictionary)
+     * @return compressing stream
+     * @throws IOException on writing errors
+     */
+    public static OutputStream encoder(OutputStream out, String coding, int level, boolean syncFlush,
+                                       ZstdDictionary dictionary) throws IOException {
+        OutputStream target = StreamUtils.nonClosing(out);
+        if (ZSTD.equalsIgnoreCase(coding)) {
+            //zstd stream flushes all the written bytes anyway
+            ZstdOutputStream encoder = new ZstdOutputStream(target, level);
+            if (dictionary != null) {
+                encoder.setDict(dictionary.getCompress(level));
+            }
+            return encoder;
+        }
+        return deflater(target, coding, level, syncFlush);
+    }
+
+    private static DeflaterOutputStream deflater(OutputStream out, String coding, int level, boolean syncFlush)
+            throws IOException {
+        if (GZIP.equalsIgnoreCase(coding)) {
+            return new GZIPOutputStream(out, BUFFER_SIZE, syncFlush) {
+                {
+                    def.setLevel(level);
+                }
+            };
+        }
+        return new DeflaterOutputStream(out, new Deflater(level), BUFFER_SIZE, syncFlush) {
+            @Override
+            public void close() throws IOException {
+                try {
+                    super.close();
+                } finally {
+                    //own deflater is not released by the stream
+                    def.end();
+                }
+            }
+        };
+    }
+
+    /**
+     * Compresses the bytes
+     *
+     * @param data   bytes to compress
+     * @param coding gzip or deflate
+     * @param level  deflate level
+     * @return compressed bytes
+     */
+    public static byte[] encode(byte[] data, String coding, int level) {
+        return encode(data, coding, level, null);
+    }
+
+    /**
+     * Compresses the bytes
+     *
+     * @param data       bytes to compress
+     * @param coding     zstd, gzip or deflate
+     * @param level      compression level of the coding
+     * @param dictionary zstd dictionary (null to encode without dictionary)
+     * @return compressed bytes
+     */
+    public static byte[] encode(byte[] data, String coding, int level, ZstdDictionary dictionary) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(data.length / 4 + 64);
+        try (OutputStream encoder = encoder(out, coding, level, false, dictionary)) {
+            encoder.write(data);
+        } catch (IOException e) {
+            //never thrown by ByteArrayOutputStream
+            throw new UncheckedIOException(e);
+        }
+        return out.toByteArray();
+    }
+
+    /**
+     * Creates stream decompressing the source stream
+     *
+     * @param in     compressed stream
+     * @param coding gzip or deflate
+     * @return decompressing stream
+     * @throws IOException if gzip header cannot be read
+     */
+    public static InputStream decoder(InputStream in, String coding) throws IOException {
+        return decoder(in, coding, null);
+    }
+
+    /**
+     * Creates stream decompressing the source stream
+     *
+     * @param in         compressed stream
+     * @param coding     zstd, gzip or deflate
+     * @param dictionary zstd dictionary the body is encoded with (null if there is none)
+     * @return decompressing stream
+     * @throws IOException if gzip header cannot be read
+     */
+    public static InputStream decoder(InputStream in, String coding, ZstdDictionary dictionary) throws IOException {
+        String trimmed = coding.trim();
+        if (ZSTD.equalsIgnoreCase(trimmed)) {
+            ZstdInputStream decoder = new ZstdInputStream(in);
+            if (dictionary != null) {
+                decoder.setDict(dictionary.getDecompress());
+            }
+            return decoder;
+        }
+        return GZIP.equalsIgnoreCase(trimmed) ? new GZIPInputStream(in, BUFFER_SIZE) : new InflaterInputStream(in);
+    }
+}
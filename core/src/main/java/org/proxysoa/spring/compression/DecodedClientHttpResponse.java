@@ -0,0 +1,83 @@
+package org.proxysoa.spring.compression;
+
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.client.ClientHttpResponse;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Response with compressed body which is decompressed while read. Content-Encoding and Content-Length
+ * headers are removed, so the response looks like an uncompressed one to the readers (and the http cache).
+ */
+class DecodedClientHttpResponse implements ClientHttpResponse {
+    private final ClientHttpResponse response;
+    private final String coding;
+    private final ZstdDictionary dictionary;
+    private final CompressionStats.MethodStats stats;
+    private final HttpHeaders headers = new HttpHeaders();
+
+    private DecodingInputStream body;
+
+    /**
+     * Constructs the response
+     *
+     * @param response   compressed response
+     * @param coding     Content-Encoding of the response
+     * @param dictionary zstd dictionary of the response (null if there is none)
+     * @param stats      stats of the call's method
+     */
+    DecodedClientHttpResponse(ClientHttpResponse response, String coding, ZstdDictionary dictionary,
+                              CompressionStats.MethodStats stats) {
+        this.response = response;
+        this.coding = coding;
+        this.dictionary = dictionary;
+        this.stats = stats;
+        headers.putAll(response.getHeaders());
+        headers.remove(HttpHeaders.CONTENT_ENCODING);
+        headers.remove(HttpHeaders.CONTENT_LENGTH);
+        headers.remove(ZstdDictionaryRegistry.DICTIONARY_HEADER);
+    }
+
+    @Override
+    public InputStream getBody() throws IOException {
+        if (body == null) {
+            body = new DecodingInputStream(response.getBody(), coding, dictionary, stats);
+        }
+        return body;
+    }
+
+    @Override
+    public HttpHeaders getHeaders() {
+        return headers;
+    }
+
+    @Override
+    public HttpStatus getStatusCode() throws IOException {
+        return response.getStatusCode();
+    }
+
+    @Override
+    public int getRawStatusCode() throws IOException {
+        return response.getRawStatusCode();
+    }
+
+    @Override
+    public String getStatusText() throws IOException {
+        return response.getStatusText();
+    }
+
+    @Override
+    public void close() {
+        try {
+            if (body != null) {
+                body.close();
+            }
+        } catch (IOException e) {
+            //the response is closed anyway
+        } finally {
+            response.close();
+        }
+    }
+}
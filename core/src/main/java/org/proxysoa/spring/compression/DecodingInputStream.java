@@ -0,0 +1,144 @@
+package org.proxysoa.spring.compression;
+
+import org.apache.http.conn.ConnectionReleaseTrigger;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.PushbackInputStream;
+
+/**
+ * Decompresses a body while it's read and records the body in the method's stats when it's read
+ * to the end or closed. Time spent waiting for the wire is excluded from the decompression time.
+ * An empty body (e.g. of HEAD or 304 response) is not decoded. Aborting the stream aborts the connection
+ * of the compressed one, so a partially read stream can be dropped.
+ */
+class DecodingInputStream extends InputStream implements ConnectionReleaseTrigger {
+    private final InputStream source;
+    private final WireInputStream wire;
+    private final InputStream decoder;
+    private final CompressionStats.MethodStats stats;
+
+    private long decoded;
+    private long nanos;
+    private boolean recorded;
+
+    /**
+     * Constructs the stream, reads header of the coding
+     *
+     * @param source     compressed stream
+     * @param coding     zstd, gzip or deflate
+     * @param dictionary zstd dictionary of the body (null if there is none)
+     * @param stats      stats of the method
+     * @throws IOException on reading errors
+     */
+    DecodingInputStream(InputStream source, String coding, ZstdDictionary dictionary,
+                        CompressionStats.MethodStats stats) throws IOException {
+        this.source = source;
+        PushbackInputStream pushback = new PushbackInputStream(source, 1);
+        int first = pushback.read();
+        boolean empty = first < 0;
+        if (!empty) {
+            pushback.unread(first);
+        }
+        this.wire = new WireInputStream(pushback);
+        long start = System.nanoTime();
+        this.decoder = empty ? wire : ContentCoding.decoder(wire, coding, dictionary);
+        this.nanos = System.nanoTime() - start;
+        this.stats = empty ? null : stats;
+    }
+
+    @Override
+    public int read() throws IOException {
+        long start = System.nanoTime();
+        int b = decoder.read();
+        nanos += System.nanoTime() - start;
+        if (b < 0) {
+            record();
+        } else {
+            decoded++;
+        }
+        return b;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+        long start = System.nanoTime();
+        int n = decoder.read(b, off, len);
+        nanos += System.nanoTime() - start;
+        if (n < 0) {
+            record();
+        } else {
+            decoded += n;
+        }
+        return n;
+    }
+
+    @Override
+    public int available() throws IOException {
+        return decoder.available();
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            decoder.close();
+        } finally {
+            record();
+        }
+    }
+
+    @Override
+    public void releaseConnection() throws IOException {
+        close();
+    }
+
+    @Override
+    public void abortConnection() throws IOException {
+        if (source instanceof ConnectionReleaseTrigger) {
+            ((ConnectionReleaseTrigger) source).abortConnection();
+        }
+        record();
+    }
+
+    private void record() {
+        if (!recorded && stats != null) {
+            recorded = true;
+            stats.recordDecoded(wire.bytes, decoded, Math.max(0, nanos - wire.nanos));
+        }
+    }
+
+    /**
+     * Counts compressed bytes and time of reading them
+     */
+    private static class WireInputStream extends FilterInputStream {
+        private long bytes;
+        private long nanos;
+
+        WireInputStream(InputStream in) {
+            super(in);
+        }
+
+        @Override
+        public int read() throws IOException {
+            long start = System.nanoTime();
+            int b = super.read();
+            nanos += System.nanoTime() - start;
+            if (b >= 0) {
+                bytes++;
+            }
+            return b;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            long start = System.nanoTime();
+            int n = super.read(b, off, len);
+            nanos += System.nanoTime() - start;
+            if (n > 0) {
+                bytes += n;
+            }
+            return n;
+        }
+    }
+}
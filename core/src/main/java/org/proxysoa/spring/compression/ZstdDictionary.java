@@ -0,0 +1,95 @@
+package org.proxysoa.spring.compression;
+
+import com.github.luben.zstd.ZstdDictCompress;
+import com.github.luben.zstd.ZstdDictDecompress;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Zstd dictionary trained from sample payloads (see ZstdDictionaryTrainer). The dictionary's id (written
+ * in the dictionary header by the trainer) identifies it in X-Zstd-Dictionary headers, so a body is decoded
+ * with the dictionary it was encoded with. Prepared native dictionaries are created once and shared
+ * by all the calls.
+ */
+public class ZstdDictionary {
+    //magic number of trained (not raw content) dictionaries
+    private static final int MAGIC = 0xEC30A437;
+
+    private final long id;
+    private final byte[] bytes;
+
+    //key is compression level, value is the prepared dictionary
+    private final Map<Integer, ZstdDictCompress> compress = new ConcurrentHashMap<>();
+    private volatile ZstdDictDecompress decompress;
+
+    /**
+     * Constructs the dictionary
+     *
+     * @param bytes trained dictionary
+     * @throws IllegalArgumentException if the bytes are not a trained zstd dictionary
+     */
+    public ZstdDictionary(byte[] bytes) {
+        if (bytes.length < 8 || readInt(bytes, 0) != MAGIC) {
+            throw new IllegalArgumentException("Not a trained zstd dictionary");
+        }
+        this.bytes = bytes.clone();
+        this.id = readInt(bytes, 4) & 0xFFFFFFFFL;
+    }
+
+    /**
+     * @return id of the dictionary
+     */
+    public long getId() {
+        return id;
+    }
+
+    /**
+     * @return size of the dictionary in bytes
+     */
+    public int getSize() {
+        return bytes.length;
+    }
+
+    /**
+     * @return copy of the dictionary bytes
+     */
+    public byte[] getBytes() {
+        return bytes.clone();
+    }
+
+    /**
+     * @param level compression level
+     * @return prepared dictionary to compress with the level
+     */
+    ZstdDictCompress getCompress(int level) {
+        return compress.computeIfAbsent(level, key -> new ZstdDictCompress(bytes, key));
+    }
+
+    /**
+     * @return prepared dictionary to decompress
+     */
+    ZstdDictDecompress getDecompress() {
+        ZstdDictDecompress result = decompress;
+        if (result == null) {
+            synchronized (this) {
+                if (decompress == null) {
+                    decompress = new ZstdDictDecompress(bytes);
+                }
+                result = decompress;
+            }
+        }
+        return result;
+    }
+
+    private static int readInt(byte[] bytes, int offset) {
+        //little endian
+        return (bytes[offset] & 0xFF) | (bytes[offset + 1] & 0xFF) << 8 | (bytes[offset + 2] & 0xFF) << 16
+                | (bytes[offset + 3] & 0xFF) << 24;
+    }
+
+    @Override
+    public String toString() {
+        return "zstd dictionary " + id + " (" + bytes.length + " bytes)";
+    }
+}
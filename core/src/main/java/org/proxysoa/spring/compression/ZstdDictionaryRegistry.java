@@ -0,0 +1,148 @@
+package org.proxysoa.spring.compression;
+
+import org.proxysoa.spring.exception.SOAControllerCreationException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.core.io.DefaultResourceLoader;
+import org.springframework.core.io.Resource;
+import org.springframework.core.io.ResourceLoader;
+import org.springframework.util.StreamUtils;
+import org.springframework.util.StringUtils;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Zstd dictionaries known by a proxy or a service (preferred first). The sides exchange ids of their
+ * dictionaries in X-Zstd-Dictionaries headers and encode bodies with the first dictionary both of them have.
+ * A new dictionary is rolled out by adding it to the services first, then to the proxies.
+ */
+public class ZstdDictionaryRegistry {
+    private static final Logger LOG = LoggerFactory.getLogger(ZstdDictionaryRegistry.class);
+
+    //header with ids of the sender's dictionaries
+    public static final String DICTIONARIES_HEADER = "X-Zstd-Dictionaries";
+    //header with id of the dictionary the body is encoded with
+    public static final String DICTIONARY_HEADER = "X-Zstd-Dictionary";
+
+    //key is dictionary id, value is the dictionary (preferred first)
+    private volatile Map<Long, ZstdDictionary> dictionaries = Collections.emptyMap();
+    //value of X-Zstd-Dictionaries header (null if there are no dictionaries)
+    private volatile String ids;
+
+    /**
+     * Loads the dictionaries
+     *
+     * @param locations comma separated resource locations (classpath: or file:) of the dictionaries
+     * @return registry of the dictionaries
+     */
+    public static ZstdDictionaryRegistry load(String locations) {
+        ZstdDictionaryRegistry registry = new ZstdDictionaryRegistry();
+        ResourceLoader loader = new DefaultResourceLoader();
+        for (String location : StringUtils.tokenizeToStringArray(locations, ",")) {
+            Resource resource = loader.getResource(location);
+            try (InputStream in = resource.getInputStream()) {
+                registry.register(new ZstdDictionary(StreamUtils.copyToByteArray(in)));
+            } catch (IOException | IllegalArgumentException e) {
+                throw new SOAControllerCreationException("Cannot load zstd dictionary " + location + ": "
+                        + e.getMessage());
+            }
+        }
+        LOG.debug("Zstd dictionaries {}", registry.getDictionaries());
+        return registry;
+    }
+
+    /**
+     * Adds dictionary with the lowest preference
+     *
+     * @param dictionary dictionary
+     */
+    public synchronized void register(ZstdDictionary dictionary) {
+        Map<Long, ZstdDictionary> updated = new LinkedHashMap<>(dictionaries);
+        updated.put(dictionary.getId(), dictionary);
+        dictionaries = Collections.unmodifiableMap(updated);
+        ids = StringUtils.collectionToDelimitedString(updated.keySet(), ", ");
+    }
+
+    /**
+     * @param id dictionary id
+     * @return the dictionary or null if it's unknown
+     */
+    public ZstdDictionary get(long id) {
+        return dictionaries.get(id);
+    }
+
+    /**
+     * @return dictionaries (preferred first)
+     */
+    public Collection<ZstdDictionary> getDictionaries() {
+        return dictionaries.values();
+    }
+
+    /**
+     * @return X-Zstd-Dictionaries value or null if there are no dictionaries
+     */
+    public String getIds() {
+        return ids;
+    }
+
+    /**
+     * Selects dictionary known by both sides
+     *
+     * @param peerIds X-Zstd-Dictionaries values of the other side (may be null)
+     * @return the most preferred common dictionary or null if there is none
+     */
+    public ZstdDictionary select(List<String> peerIds) {
+        if (peerIds == null || dictionaries.isEmpty()) {
+            return null;
+        }
+        List<Long> peer = new ArrayList<>();
+        for (String value : peerIds) {
+            for (String id : StringUtils.tokenizeToStringArray(value, ",")) {
+                Long parsed = parseId(id);
+                if (parsed != null) {
+                    peer.add(parsed);
+                }
+            }
+        }
+        for (ZstdDictionary dictionary : dictionaries.values()) {
+            if (peer.contains(dictionary.getId())) {
+                return dictionary;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Gets dictionary of a body
+     *
+     * @param id X-Zstd-Dictionary value (null if the body is encoded without dictionary)
+     * @return the dictionary or null if the body is encoded without dictionary
+     * @throws IOException if the dictionary is unknown
+     */
+    public ZstdDictionary getForBody(String id) throws IOException {
+        if (id == null) {
+            return null;
+        }
+        Long parsed = parseId(id);
+        ZstdDictionary dictionary = parsed == null ? null : dictionaries.get(parsed);
+        if (dictionary == null) {
+            throw new IOException("Unknown zstd dictionary " + id);
+        }
+        return dictionary;
+    }
+
+    private static Long parseId(String id) {
+        try {
+            return Long.valueOf(id.trim());
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,95 @@
+package org.proxysoa.spring.compression;
+
+import com.github.luben.zstd.Zstd;
+import org.proxysoa.spring.codec.JsonCodec;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Trains zstd dictionaries from sample payloads offline. Small bodies share little within themselves but
+ * a lot with each other (field names, enum values, common strings), a dictionary trained from typical
+ * bodies of the contracts lets zstd compress them well.
+ * <p>
+ * Command line: {@code java -cp core.jar org.proxysoa.spring.compression.ZstdDictionaryTrainer
+ * <dictionary file> <dictionary size> <samples...>}, a sample is a file (one body) or a .ndjson file
+ * (one body per line) or a directory of them. Put the dictionary on the class path of the proxies
+ * and the services and list it in SOA.Compression.zstdDictionaries.
+ */
+public final class ZstdDictionaryTrainer {
+    public static final int DEFAULT_DICTIONARY_SIZE = 16 * 1024;
+
+    private ZstdDictionaryTrainer() {
+    }
+
+    /**
+     * Trains dictionary from sample bodies (hundreds of samples, at least several times the dictionary size
+     * in total)
+     *
+     * @param samples        sample bodies
+     * @param dictionarySize max size of the dictionary
+     * @return dictionary
+     * @throws IllegalArgumentException if the dictionary cannot be trained from the samples
+     */
+    public static ZstdDictionary train(List<byte[]> samples, int dictionarySize) {
+        byte[] buffer = new byte[dictionarySize];
+        long size = Zstd.trainFromBuffer(samples.toArray(new byte[samples.size()][]), buffer);
+        if (Zstd.isError(size)) {
+            throw new IllegalArgumentException("Cannot train zstd dictionary from " + samples.size() + " samples: "
+                    + Zstd.getErrorName(size));
+        }
+        return new ZstdDictionary(Arrays.copyOf(buffer, (int) size));
+    }
+
+    /**
+     * Trains dictionary from sample values sent as JSON (e.g. DTOs returned by contract methods)
+     *
+     * @param values         sample values
+     * @param codec          JSON codec of the proxies
+     * @param dictionarySize max size of the dictionary
+     * @return dictionary
+     */
+    public static ZstdDictionary trainJson(Iterable<?> values, JsonCodec codec, int dictionarySize) {
+        List<byte[]> samples = new ArrayList<>();
+        for (Object value : values) {
+            samples.add(codec.writeValueAsBytes(value));
+        }
+        return train(samples, dictionarySize);
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 3) {
+            System.err.println("Usage: ZstdDictionaryTrainer <dictionary file> <dictionary size> <samples...>");
+            System.exit(1);
+        }
+        List<byte[]> samples = new ArrayList<>();
+        for (int i = 2; i < args.length; i++) {
+            readSamples(new File(args[i]), samples);
+        }
+        ZstdDictionary dictionary = train(samples, Integer.parseInt(args[1]));
+        Files.write(new File(args[0]).toPath(), dictionary.getBytes());
+        System.out.println("Trained " + dictionary + " from " + samples.size() + " samples to " + args[0]);
+    }
+
+    private static void readSamples(File file, List<byte[]> samples) throws IOException {
+        File[] children = file.listFiles();
+        if (children != null) {
+            for (File child : children) {
+                readSamples(child, samples);
+            }
+        } else if (file.getName().endsWith(".ndjson")) {
+            for (String line : Files.readAllLines(file.toPath(), StandardCharsets.UTF_8)) {
+                if (!line.trim().isEmpty()) {
+                    samples.add(line.getBytes(StandardCharsets.UTF_8));
+                }
+            }
+        } else {
+            samples.add(Files.readAllBytes(file.toPath()));
+        }
+    }
+}
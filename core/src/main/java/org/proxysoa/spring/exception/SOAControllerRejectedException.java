@@ -0,0 +1,16 @@
+package org.proxysoa.spring.exception;
+
+/**
+ * The exception thrown when a Proxy controller call is rejected without calling the remote service
+ * (e.g. circuit breaker of the controller is open or the remote service has too many calls in progress)
+ */
+public class SOAControllerRejectedException extends SOAControllerInvocationException {
+    /**
+     * Constructor with a message
+     *
+     * @param message error message
+     */
+    public SOAControllerRejectedException(String message) {
+        super(message);
+    }
+}
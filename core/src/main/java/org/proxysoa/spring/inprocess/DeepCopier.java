@@ -0,0 +1,320 @@
+package org.proxysoa.spring.inprocess;
+
+import org.proxysoa.spring.codec.JsonCodec;
+import org.proxysoa.spring.exception.SOAControllerInvocationException;
+import org.springframework.util.ClassUtils;
+
+import java.lang.reflect.Array;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.Calendar;
+import java.util.Collection;
+import java.util.Currency;
+import java.util.Date;
+import java.util.EnumMap;
+import java.util.EnumSet;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.SortedMap;
+import java.util.SortedSet;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Deep copy of in-process calls' parameters and results, so the caller and the called controller
+ * never share mutable objects (the same pass-by-value semantics as the remote calls have).
+ * <p>
+ * Immutable values (strings, primitive wrappers, enums, java.time values etc.) are shared. Arrays, collections
+ * and maps are copied element by element. Beans are created by their no-arg constructor and all the fields
+ * are copied (field lists are resolved once per class). References shared inside the copied graph stay shared
+ * in the copy, cycles are supported.
+ * <p>
+ * Values which cannot be copied by fields (no no-arg constructor, JDK classes other than collections) are copied
+ * by the codec's token buffer (no JSON text is produced).
+ */
+public class DeepCopier {
+    //copies the values which cannot be copied by fields
+    private final JsonCodec jsonCodec;
+
+    //key is copied class, value is the way to copy instances of the class
+    private final ConcurrentMap<Class<?>, Plan> plans = new ConcurrentHashMap<>();
+
+    /**
+     * Constructs the copier
+     *
+     * @param jsonCodec codec to copy values which cannot be copied by fields
+     */
+    public DeepCopier(JsonCodec jsonCodec) {
+        this.jsonCodec = jsonCodec;
+    }
+
+    /**
+     * Creates deep copy of a value
+     *
+     * @param value value to copy
+     * @return copy of the value (the value itself if it is immutable)
+     */
+    public Object copy(Object value) {
+        if (value == null || isImmutable(value.getClass())) {
+            return value;
+        }
+        return copy(value, new IdentityHashMap<>());
+    }
+
+    /**
+     * Creates deep copy of call arguments
+     *
+     * @param args arguments (may be null for no-arg methods)
+     * @return copies of the arguments
+     */
+    public Object[] copyArgs(Object[] args) {
+        if (args == null || args.length == 0) {
+            return args;
+        }
+        //arguments may reference the same objects, so they are copied as one graph
+        Map<Object, Object> copies = new IdentityHashMap<>();
+        Object[] res = new Object[args.length];
+        for (int i = 0; i < args.length; i++) {
+            res[i] = copy(args[i], copies);
+        }
+        return res;
+    }
+
+    /**
+     * Copies a value of the graph
+     *
+     * @param value  value to copy
+     * @param copies key is copied value, value is its copy (the graph's values copied so far)
+     * @return copy of the value
+     */
+    private Object copy(Object value, Map<Object, Object> copies) {
+        if (value == null) {
+            return null;
+        }
+        Class<?> type = value.getClass();
+        if (isImmutable(type)) {
+            return value;
+        }
+        Object copy = copies.get(value);
+        if (copy != null) {
+            return copy;
+        }
+        if (type.isArray()) {
+            return copyArray(value, copies);
+        }
+        if (value instanceof Collection) {
+            return copyCollection((Collection<?>) value, copies);
+        }
+        if (value instanceof Map) {
+            return copyMap((Map<?, ?>) value, copies);
+        }
+        if (value instanceof Date) {
+            copy = ((Date) value).clone();
+        } else if (value instanceof Calendar) {
+            copy = ((Calendar) value).clone();
+        } else {
+            copy = getPlan(type).copy(value, copies);
+        }
+        copies.put(value, copy);
+        return copy;
+    }
+
+    private Object copyArray(Object array, Map<Object, Object> copies) {
+        int length = Array.getLength(array);
+        Class<?> componentType = array.getClass().getComponentType();
+        if (componentType.isPrimitive()) {
+            Object res = Array.newInstance(componentType, length);
+            System.arraycopy(array, 0, res, 0, length);
+            copies.put(array, res);
+            return res;
+        }
+        Object[] source = (Object[]) array;
+        Object[] res = (Object[]) Array.newInstance(componentType, length);
+        copies.put(array, res);
+        for (int i = 0; i < length; i++) {
+            res[i] = copy(source[i], copies);
+        }
+        return res;
+    }
+
+    @SuppressWarnings("unchecked")
+    private Object copyCollection(Collection<?> collection, Map<Object, Object> copies) {
+        if (collection instanceof EnumSet) {
+            Object res = ((EnumSet) collection).clone();
+            copies.put(collection, res);
+            return res;
+        }
+        Collection<Object> res;
+        if (collection instanceof SortedSet) {
+            res = new TreeSet<>(((SortedSet<Object>) collection).comparator());
+        } else {
+            res = (Collection<Object>) newInstance(collection.getClass());
+            if (res == null) {
+                //unmodifiable, singleton and other views are copied to the standard implementations
+                res = collection instanceof Set ? new LinkedHashSet<>()
+                        : collection instanceof Queue && !(collection instanceof List) ? new LinkedList<>()
+                        : new ArrayList<>(collection.size());
+            }
+        }
+        copies.put(collection, res);
+        for (Object element : collection) {
+            res.add(copy(element, copies));
+        }
+        return res;
+    }
+
+    @SuppressWarnings("unchecked")
+    private Object copyMap(Map<?, ?> map, Map<Object, Object> copies) {
+        Map<Object, Object> res;
+        if (map instanceof EnumMap) {
+            res = new EnumMap<>((EnumMap) map);
+        } else if (map instanceof SortedMap) {
+            res = new TreeMap<>(((SortedMap<Object, Object>) map).comparator());
+        } else {
+            res = (Map<Object, Object>) newInstance(map.getClass());
+            if (res == null) {
+                res = new LinkedHashMap<>();
+            }
+        }
+        copies.put(map, res);
+        for (Map.Entry<?, ?> entry : map.entrySet()) {
+            res.put(copy(entry.getKey(), copies), copy(entry.getValue(), copies));
+        }
+        return res;
+    }
+
+    /**
+     * Creates an empty instance of public collection class by its public no-arg constructor
+     *
+     * @param type collection class
+     * @return new instance or null if there is no such constructor
+     */
+    private Object newInstance(Class<?> type) {
+        Plan plan = getPlan(type);
+        if (plan.constructor == null || !Modifier.isPublic(type.getModifiers())
+                || !Modifier.isPublic(plan.constructor.getModifiers())) {
+            return null;
+        }
+        return plan.newInstance();
+    }
+
+    private Plan getPlan(Class<?> type) {
+        Plan plan = plans.get(type);
+        if (plan == null) {
+            plan = plans.computeIfAbsent(type, Plan::new);
+        }
+        return plan;
+    }
+
+    /**
+     * Checks whether values of the class are immutable (and can be shared by the caller and the controller)
+     *
+     * @param type class
+     * @return true if the class is immutable
+     */
+    static boolean isImmutable(Class<?> type) {
+        return type == String.class
+                || ClassUtils.isPrimitiveWrapper(type)
+                || type.isEnum()
+                || type.getSuperclass() != null && type.getSuperclass().isEnum()
+                || type == BigDecimal.class
+                || type == BigInteger.class
+                || type == UUID.class
+                || type == URI.class
+                || type == Locale.class
+                || type == Currency.class
+                || type == Class.class
+                || type.getName().startsWith("java.time.")
+                || type.isSynthetic();
+    }
+
+    /**
+     * The way to copy instances of a class: constructor and fields
+     */
+    private class Plan {
+        private final Class<?> type;
+        //no-arg constructor (null if there is no such constructor)
+        private final Constructor<?> constructor;
+        //instance fields of the class and its superclasses (null if the class is not copied by fields)
+        private final Field[] fields;
+
+        Plan(Class<?> type) {
+            this.type = type;
+            this.constructor = getNoArgConstructor(type);
+            this.fields = constructor != null && !isJdkClass(type) ? getInstanceFields(type) : null;
+        }
+
+        Object newInstance() {
+            try {
+                return constructor.newInstance();
+            } catch (ReflectiveOperationException e) {
+                throw new SOAControllerInvocationException("Cannot create instance of " + type.getName(), e);
+            }
+        }
+
+        Object copy(Object value, Map<Object, Object> copies) {
+            if (fields == null) {
+                Object res = jsonCodec.copy(value, jsonCodec.constructType(type));
+                copies.put(value, res);
+                return res;
+            }
+            Object res = newInstance();
+            copies.put(value, res);
+            try {
+                for (Field field : fields) {
+                    Object fieldValue = field.get(value);
+                    field.set(res, field.getType().isPrimitive() ? fieldValue : DeepCopier.this.copy(fieldValue, copies));
+                }
+            } catch (IllegalAccessException e) {
+                throw new SOAControllerInvocationException("Cannot copy instance of " + type.getName(), e);
+            }
+            return res;
+        }
+
+        private Constructor<?> getNoArgConstructor(Class<?> type) {
+            if (type.isInterface() || Modifier.isAbstract(type.getModifiers())
+                    || type.isMemberClass() && !Modifier.isStatic(type.getModifiers())) {
+                return null;
+            }
+            try {
+                Constructor<?> res = type.getDeclaredConstructor();
+                res.setAccessible(true);
+                return res;
+            } catch (NoSuchMethodException | SecurityException e) {
+                return null;
+            }
+        }
+
+        private Field[] getInstanceFields(Class<?> type) {
+            List<Field> res = new ArrayList<>();
+            for (Class<?> c = type; c != null && c != Object.class; c = c.getSuperclass()) {
+                for (Field field : c.getDeclaredFields()) {
+                    if (!Modifier.isStatic(field.getModifiers())) {
+                        field.setAccessible(true);
+                        res.add(field);
+                    }
+                }
+            }
+            return res.toArray(new Field[res.size()]);
+        }
+
+        private boolean isJdkClass(Class<?> type) {
+            return type.getName().startsWith("java.") || type.getName().startsWith("javax.");
+        }
+    }
+}
@@ -0,0 +1,96 @@
+package org.proxysoa.spring.inprocess;
+
+import org.proxysoa.spring.exception.SOAControllerInvocationException;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Calls controller implementation exported in the same JVM instead of the remote service. Arguments
+ * and results are deep copied (see DeepCopier), so the call has the same pass-by-value semantics
+ * as the remote one. Results of methods returning CompletableFuture are copied when the future completes.
+ * <p>
+ * Exceptions thrown by the implementation are wrapped to SOAControllerInvocationException the same way
+ * remote errors are.
+ */
+public class InProcessInvoker {
+    private final Class<?> contract;
+    //exported implementations of the JVM
+    private final InProcessRegistry registry;
+    private final DeepCopier copier;
+
+    private final LongAdder calls = new LongAdder();
+
+    /**
+     * Constructs the invoker
+     *
+     * @param contract controller contract
+     * @param registry exported implementations
+     * @param copier   copies arguments and results
+     */
+    public InProcessInvoker(Class<?> contract, InProcessRegistry registry, DeepCopier copier) {
+        this.contract = contract;
+        this.registry = registry;
+        this.copier = copier;
+    }
+
+    /**
+     * Gets implementation to be called. The implementation is resolved on each call, so the proxy
+     * starts calling in-process once the sibling context is started and calls remote service after the
+     * context is closed.
+     *
+     * @return implementation or null if no implementation is exported
+     */
+    public Object getTarget() {
+        return registry.getTarget(contract);
+    }
+
+    /**
+     * Calls the implementation
+     *
+     * @param target implementation returned by getTarget()
+     * @param method contract method
+     * @param args   method parameters' values
+     * @return copy of the result (future of the copy for async methods)
+     */
+    public Object invoke(Object target, Method method, Object[] args) {
+        calls.increment();
+        Object result;
+        try {
+            result = method.invoke(target, copier.copyArgs(args));
+        } catch (InvocationTargetException e) {
+            throw toCallError(method, e.getCause());
+        } catch (IllegalAccessException e) {
+            throw new SOAControllerInvocationException("Cannot call in-process controller "
+                    + contract.getCanonicalName(), e);
+        }
+        if (result instanceof CompletionStage) {
+            return ((CompletionStage<?>) result).toCompletableFuture().thenApply(copier::copy);
+        }
+        return copier.copy(result);
+    }
+
+    private RuntimeException toCallError(Method method, Throwable cause) {
+        if (cause instanceof Error) {
+            throw (Error) cause;
+        }
+        if (cause instanceof SOAControllerInvocationException) {
+            return (SOAControllerInvocationException) cause;
+        }
+        return new SOAControllerInvocationException("Error calling in-process controller "
+                + contract.getSimpleName() + "." + method.getName(), (Exception) cause);
+    }
+
+    public Class<?> getContract() {
+        return contract;
+    }
+
+    /**
+     * @return amount of the calls served in-process
+     */
+    public long getCallCount() {
+        return calls.sum();
+    }
+}
@@ -0,0 +1,179 @@
+package org.proxysoa.spring.inprocess;
+
+import org.proxysoa.spring.annotation.Proxyable;
+import org.proxysoa.spring.service.RestCallHandler;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.BeansException;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.context.ApplicationContext;
+import org.springframework.context.ApplicationContextAware;
+import org.springframework.context.EnvironmentAware;
+import org.springframework.core.env.Environment;
+import org.springframework.stereotype.Component;
+import org.springframework.util.ClassUtils;
+
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Keeps controller implementations available for in-process calls. The implementations are kept
+ * per JVM, so proxies of an application context can call controllers of a sibling context started
+ * in the same JVM (e.g. several services run by one main class) without sockets and JSON.
+ * <p>
+ * When the context is started the registry exports the context's beans implementing Proxyable
+ * contracts (unless SOA.InProcess.export is false), the beans are withdrawn when the context is closed.
+ * Proxies of the controllers enabled by SOA.InProcess.* properties (see InProcessSettings) call the
+ * exported implementation if there is one and the remote service otherwise.
+ */
+@Component
+public class InProcessRegistry implements EnvironmentAware, ApplicationContextAware, SmartInitializingSingleton,
+        DisposableBean {
+    private static final Logger LOG = LoggerFactory.getLogger(InProcessRegistry.class);
+
+    //key is controller contract, value is the implementation exported by one of the JVM's contexts
+    private static final ConcurrentMap<Class<?>, Object> TARGETS = new ConcurrentHashMap<>();
+
+    private InProcessSettings settings;
+
+    private Environment environment;
+
+    private ApplicationContext applicationContext;
+
+    //contracts exported by the registry (withdrawn on destroy), guarded by this
+    private final List<Class<?>> exported = new ArrayList<>();
+
+    /**
+     * Default constructor (settings are read from environment)
+     */
+    public InProcessRegistry() {
+        this(new InProcessSettings());
+    }
+
+    /**
+     * Constructor with settings
+     *
+     * @param settings in-process calls settings
+     */
+    public InProcessRegistry(InProcessSettings settings) {
+        this.settings = settings;
+    }
+
+    @Override
+    public void setEnvironment(Environment environment) {
+        this.environment = environment;
+        this.settings = new InProcessSettings(environment);
+        LOG.debug("In-process settings {}", settings);
+    }
+
+    @Override
+    public void setApplicationContext(ApplicationContext applicationContext) throws BeansException {
+        this.applicationContext = applicationContext;
+    }
+
+    /**
+     * Exports the context's controller implementations
+     */
+    @Override
+    public void afterSingletonsInstantiated() {
+        if (applicationContext == null || !settings.isExport()) {
+            return;
+        }
+        for (String name : applicationContext.getBeanDefinitionNames()) {
+            Class<?> type = applicationContext.getType(name);
+            if (type == null || Proxy.isProxyClass(type) && isRemoteProxy(applicationContext.getBean(name))) {
+                continue;
+            }
+            for (Class<?> contract : ClassUtils.getAllInterfacesForClassAsSet(type)) {
+                if (contract.isAnnotationPresent(Proxyable.class)) {
+                    export(contract, applicationContext.getBean(name));
+                }
+            }
+        }
+    }
+
+    /**
+     * Withdraws the exported implementations
+     */
+    @Override
+    public synchronized void destroy() {
+        for (Class<?> contract : exported) {
+            TARGETS.remove(contract);
+        }
+        LOG.debug("Withdrawn in-process controllers {}", exported);
+        exported.clear();
+    }
+
+    /**
+     * Makes the implementation available for in-process calls (replaces implementation exported before)
+     *
+     * @param contract controller contract
+     * @param target   implementation of the contract
+     */
+    public synchronized void export(Class<?> contract, Object target) {
+        Object replaced = TARGETS.put(contract, target);
+        if (replaced != null && replaced != target) {
+            LOG.warn("In-process controller {} is replaced by {}", contract.getCanonicalName(), target);
+        }
+        exported.add(contract);
+        LOG.debug("Exported in-process controller {}", contract.getCanonicalName());
+    }
+
+    /**
+     * Withdraws the implementation (if it is still exported)
+     *
+     * @param contract controller contract
+     * @param target   implementation of the contract
+     */
+    public synchronized void withdraw(Class<?> contract, Object target) {
+        TARGETS.remove(contract, target);
+        exported.remove(contract);
+    }
+
+    /**
+     * Gets implementation of the contract exported in the JVM
+     *
+     * @param contract controller contract
+     * @return implementation or null if it is not exported
+     */
+    public Object getTarget(Class<?> contract) {
+        return TARGETS.get(contract);
+    }
+
+    /**
+     * Checks whether proxy of the controller calls exported implementation
+     *
+     * @param contract controller contract
+     * @return true if the in-process calls are enabled for the controller
+     */
+    public boolean isInProcess(Class<?> contract) {
+        return settings.isEnabledFor(environment, contract.getSimpleName());
+    }
+
+    /**
+     * Gets the controllers exported in the JVM
+     *
+     * @return map of contract name to implementation class name
+     */
+    public Map<String, String> getTargets() {
+        Map<String, String> res = new TreeMap<>();
+        for (Map.Entry<Class<?>, Object> entry : TARGETS.entrySet()) {
+            res.put(entry.getKey().getName(), entry.getValue().getClass().getName());
+        }
+        return res;
+    }
+
+    public InProcessSettings getSettings() {
+        return settings;
+    }
+
+    private static boolean isRemoteProxy(Object bean) {
+        return Proxy.getInvocationHandler(bean) instanceof RestCallHandler;
+    }
+}
@@ -0,0 +1,72 @@
+package org.proxysoa.spring.inprocess;
+
+import org.springframework.core.env.Environment;
+
+/**
+ * Keeps settings of the in-process calls. Values are read from SOA.InProcess.* properties,
+ * defaults are used for the missing ones. Proxy of a controller calls the implementation exported
+ * in the same JVM if SOA.InProcess.Contract.enabled (or SOA.InProcess.enabled for all controllers) is true.
+ */
+public class InProcessSettings {
+    public static final String PREFIX = "SOA.InProcess.";
+
+    //whether proxies of all the controllers call implementations exported in the same JVM
+    private boolean enabled = false;
+    //whether controller implementations of the context are exported to the proxies of other contexts
+    private boolean export = true;
+
+    /**
+     * Default constructor (default settings)
+     */
+    public InProcessSettings() {
+    }
+
+    /**
+     * Reads the settings from environment
+     *
+     * @param environment environment to get SOA.InProcess.* properties
+     */
+    public InProcessSettings(Environment environment) {
+        this.enabled = environment.getProperty(PREFIX + "enabled", Boolean.class, enabled);
+        this.export = environment.getProperty(PREFIX + "export", Boolean.class, export);
+    }
+
+    /**
+     * Checks whether proxy of a controller calls the implementation in-process
+     *
+     * @param environment environment to get SOA.InProcess.Contract.enabled property (may be null)
+     * @param contract    simple name of the controller contract
+     * @return true if in-process calls are enabled for the controller
+     */
+    public boolean isEnabledFor(Environment environment, String contract) {
+        if (environment == null) {
+            return enabled;
+        }
+        return environment.getProperty(PREFIX + contract + ".enabled", Boolean.class, enabled);
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    public boolean isExport() {
+        return export;
+    }
+
+    public void setExport(boolean export) {
+        this.export = export;
+    }
+
+    @Override
+    public String toString() {
+        final StringBuilder sb = new StringBuilder("InProcessSettings{");
+        sb.append("enabled=").append(enabled);
+        sb.append(", export=").append(export);
+        sb.append('}');
+        return sb.toString();
+    }
+}
@@ -0,0 +1,176 @@
+package org.proxysoa.spring.metrics;
+
+import org.proxysoa.spring.service.MethodNames;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.context.EnvironmentAware;
+import org.springframework.core.env.Environment;
+import org.springframework.stereotype.Component;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.Consumer;
+
+/**
+ * Keeps call metrics (latency histogram, counters by outcome, calls in flight, body sizes) of each contract
+ * method of the proxies created by ControllerFactory. Methods are told apart by signature
+ * (method(ParameterTypes), see MethodNames.signature()), so overloads have their own metrics.
+ * <p>
+ * Metrics of each method are registered in the platform MBean server as
+ * org.proxysoa.spring:type=ProxyCalls,contract="package.Contract",method="method(ParameterTypes)"
+ * (unless SOA.Metrics.jmx is false) and exported to micrometer registries by CallMetricsBinder.
+ * <p>
+ * Configured by SOA.Metrics.* properties (see MetricsSettings).
+ */
+@Component
+public class CallMetrics implements EnvironmentAware, DisposableBean {
+    private static final Logger LOG = LoggerFactory.getLogger(CallMetrics.class);
+
+    public static final String JMX_DOMAIN = "org.proxysoa.spring";
+
+    private MetricsSettings settings;
+
+    //key is contract and method signature, value is the method's metrics
+    private final ConcurrentMap<String, MethodMetrics> methods = new ConcurrentHashMap<>();
+
+    //called for each registered method's metrics (e.g. to export them), guarded by this
+    private final List<Consumer<MethodMetrics>> listeners = new ArrayList<>();
+
+    //MBeans registered by the instance, guarded by this
+    private final List<ObjectName> mbeans = new ArrayList<>();
+
+    /**
+     * Default constructor (default settings)
+     */
+    public CallMetrics() {
+        this(new MetricsSettings());
+    }
+
+    /**
+     * Constructs the metrics with the settings
+     *
+     * @param settings metrics settings
+     */
+    public CallMetrics(MetricsSettings settings) {
+        this.settings = settings;
+    }
+
+    @Override
+    public void setEnvironment(Environment environment) {
+        this.settings = new MetricsSettings(environment);
+        LOG.debug("Call metrics settings {}", settings);
+    }
+
+    public MetricsSettings getSettings() {
+        return settings;
+    }
+
+    /**
+     * Gets (registers on first request) metrics of the contract method
+     *
+     * @param contract contract (controller interface)
+     * @param method   contract method
+     * @return the method's metrics or null if the calls are not measured
+     */
+    public MethodMetrics getMetrics(Class<?> contract, Method method) {
+        if (!settings.isEnabled()) {
+            return null;
+        }
+        String signature = MethodNames.signature(method);
+        MethodMetrics metrics = methods.get(contract.getName() + "." + signature);
+        return metrics != null ? metrics : register(contract.getName(), signature);
+    }
+
+    private synchronized MethodMetrics register(String contract, String method) {
+        String name = contract + "." + method;
+        MethodMetrics metrics = methods.get(name);
+        if (metrics != null) {
+            return metrics;
+        }
+        metrics = new MethodMetrics(contract, method, settings);
+        methods.put(name, metrics);
+        if (settings.isJmx()) {
+            registerMBean(metrics);
+        }
+        for (Consumer<MethodMetrics> listener : listeners) {
+            listener.accept(metrics);
+        }
+        return metrics;
+    }
+
+    /**
+     * Adds listener of the registered metrics. The listener gets metrics of the methods registered already
+     * and of each method registered later.
+     *
+     * @param listener listener of the metrics
+     */
+    public synchronized void addListener(Consumer<MethodMetrics> listener) {
+        listeners.add(listener);
+        methods.values().forEach(listener);
+    }
+
+    /**
+     * @return metrics of all the methods sorted by contract and method
+     */
+    public Map<String, MethodMetrics> getMethods() {
+        return Collections.unmodifiableMap(new TreeMap<>(methods));
+    }
+
+    /**
+     * Gets name of the method's MBean
+     *
+     * @param contract contract name
+     * @param method   method signature
+     * @return MBean name
+     * @throws JMException if the name is not valid
+     */
+    public static ObjectName getObjectName(String contract, String method) throws JMException {
+        return new ObjectName(JMX_DOMAIN + ":type=ProxyCalls,contract=" + ObjectName.quote(contract)
+                + ",method=" + ObjectName.quote(method));
+    }
+
+    /**
+     * Registers the method's MBean. Another context of the JVM may have registered the method's metrics
+     * already, so the method is not exported by JMX from this one.
+     *
+     * @param metrics method metrics
+     */
+    private void registerMBean(MethodMetrics metrics) {
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        try {
+            ObjectName name = getObjectName(metrics.getContract(), metrics.getMethod());
+            if (server.isRegistered(name)) {
+                LOG.warn("MBean {} is registered already, metrics of the context are not exported by JMX", name);
+                return;
+            }
+            server.registerMBean(metrics, name);
+            mbeans.add(name);
+        } catch (JMException e) {
+            LOG.warn("Cannot register MBean of {}.{}", metrics.getContract(), metrics.getMethod(), e);
+        }
+    }
+
+    @Override
+    public synchronized void destroy() {
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        for (ObjectName name : mbeans) {
+            try {
+                server.unregisterMBean(name);
+            } catch (JMException e) {
+                LOG.debug("Cannot unregister MBean {}", name, e);
+            }
+        }
+        mbeans.clear();
+    }
+}
@@ -0,0 +1,83 @@
+package org.proxysoa.spring.metrics;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.FunctionTimer;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.TimeGauge;
+import io.micrometer.core.instrument.binder.MeterBinder;
+
+import java.util.concurrent.TimeUnit;
+import java.util.function.ToLongFunction;
+
+/**
+ * Exports the proxies' call metrics to micrometer registry. Meters of a contract method are tagged with
+ * contract name and method signature:
+ * <ul>
+ * <li>soa.proxy.calls - count of the completed calls tagged by outcome (2xx, 4xx, 5xx, timeout, ...)</li>
+ * <li>soa.proxy.calls.latency - count and total time of the completed calls</li>
+ * <li>soa.proxy.calls.latency.percentile - latency percentiles (phi tag) of the last one to two windows</li>
+ * <li>soa.proxy.calls.active - calls in flight</li>
+ * <li>soa.proxy.request.bytes, soa.proxy.response.bytes - sizes of the bodies</li>
+ * </ul>
+ * Meters of the methods registered later are added on registration. Micrometer is an optional dependency,
+ * the class is used only by applications which bring it.
+ */
+public class CallMetricsBinder implements MeterBinder {
+    private final CallMetrics callMetrics;
+
+    /**
+     * Constructs the binder
+     *
+     * @param callMetrics call metrics of the proxies
+     */
+    public CallMetricsBinder(CallMetrics callMetrics) {
+        this.callMetrics = callMetrics;
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        callMetrics.addListener(metrics -> bind(metrics, registry));
+    }
+
+    private static void bind(MethodMetrics metrics, MeterRegistry registry) {
+        Tags tags = Tags.of("contract", metrics.getContract(), "method", metrics.getMethod());
+        for (CallOutcome outcome : CallOutcome.VALUES) {
+            FunctionCounter.builder("soa.proxy.calls", metrics, m -> m.getCount(outcome))
+                    .tags(tags)
+                    .tag("outcome", outcome.getTag())
+                    .description("Completed calls of the contract method")
+                    .register(registry);
+        }
+        FunctionTimer.builder("soa.proxy.calls.latency", metrics, MethodMetrics::getCalls,
+                MethodMetrics::getTotalMicros, TimeUnit.MICROSECONDS)
+                .tags(tags)
+                .register(registry);
+        bindPercentile(metrics, tags, "0.5", MethodMetrics.LatencySnapshot::getP50, registry);
+        bindPercentile(metrics, tags, "0.9", MethodMetrics.LatencySnapshot::getP90, registry);
+        bindPercentile(metrics, tags, "0.99", MethodMetrics.LatencySnapshot::getP99, registry);
+        bindPercentile(metrics, tags, "0.999", MethodMetrics.LatencySnapshot::getP999, registry);
+        Gauge.builder("soa.proxy.calls.active", metrics, MethodMetrics::getInFlight)
+                .tags(tags)
+                .register(registry);
+        FunctionCounter.builder("soa.proxy.request.bytes", metrics, MethodMetrics::getRequestBytes)
+                .tags(tags)
+                .baseUnit("bytes")
+                .register(registry);
+        FunctionCounter.builder("soa.proxy.response.bytes", metrics, MethodMetrics::getResponseBytes)
+                .tags(tags)
+                .baseUnit("bytes")
+                .register(registry);
+    }
+
+    private static void bindPercentile(MethodMetrics metrics, Tags tags, String phi,
+                                       ToLongFunction<MethodMetrics.LatencySnapshot> percentile,
+                                       MeterRegistry registry) {
+        TimeGauge.builder("soa.proxy.calls.latency.percentile", metrics, TimeUnit.MICROSECONDS,
+                m -> percentile.applyAsLong(m.getLatency()))
+                .tags(tags)
+                .tag("phi", phi)
+                .register(registry);
+    }
+}
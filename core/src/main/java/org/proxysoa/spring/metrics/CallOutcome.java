@@ -0,0 +1,76 @@
+package org.proxysoa.spring.metrics;
+
+import org.apache.http.conn.ConnectTimeoutException;
+import org.proxysoa.spring.exception.SOAControllerRejectedException;
+import org.springframework.web.client.RestClientResponseException;
+
+import java.net.ConnectException;
+import java.net.NoRouteToHostException;
+import java.net.SocketTimeoutException;
+import java.net.UnknownHostException;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Outcome of a proxy call. Failed calls are classified by the cause chain of the error: the remote service's
+ * error status, timeout waiting for the response, failure to connect (connect timeout included, the request was
+ * not sent), rejection by the proxy's circuit breaker or bulkhead. Other errors (e.g. unreadable response) are
+ * counted as ERROR.
+ */
+public enum CallOutcome {
+    SUCCESS("2xx"),
+    CLIENT_ERROR("4xx"),
+    SERVER_ERROR("5xx"),
+    TIMEOUT("timeout"),
+    CONNECT_FAILURE("connect_failure"),
+    REJECTED("rejected"),
+    ERROR("error");
+
+    //values() copies the array on each call
+    static final CallOutcome[] VALUES = values();
+
+    //max depth of the cause chain to be checked
+    private static final int MAX_CAUSES = 16;
+
+    private final String tag;
+
+    CallOutcome(String tag) {
+        this.tag = tag;
+    }
+
+    /**
+     * @return name of the outcome in the exported metrics
+     */
+    public String getTag() {
+        return tag;
+    }
+
+    /**
+     * Classifies the call by its error
+     *
+     * @param error call error (null if the call succeeded)
+     * @return outcome of the call
+     */
+    public static CallOutcome of(Throwable error) {
+        if (error == null) {
+            return SUCCESS;
+        }
+        Throwable e = error;
+        for (int i = 0; i < MAX_CAUSES && e != null; i++) {
+            if (e instanceof RestClientResponseException) {
+                return ((RestClientResponseException) e).getRawStatusCode() >= 500 ? SERVER_ERROR : CLIENT_ERROR;
+            }
+            if (e instanceof SOAControllerRejectedException) {
+                return REJECTED;
+            }
+            if (e instanceof ConnectTimeoutException || e instanceof ConnectException
+                    || e instanceof UnknownHostException || e instanceof NoRouteToHostException) {
+                return CONNECT_FAILURE;
+            }
+            if (e instanceof SocketTimeoutException || e instanceof TimeoutException) {
+                return TIMEOUT;
+            }
+            e = e.getCause() != e ? e.getCause() : null;
+        }
+        return ERROR;
+    }
+}
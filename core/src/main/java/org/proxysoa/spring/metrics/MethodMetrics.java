@@ -0,0 +1,355 @@
+package org.proxysoa.spring.metrics;
+
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.Recorder;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Call metrics of one contract method: latency histogram, counts of the calls by outcome, calls in flight
+ * and sizes of the request and response bodies.
+ * <p>
+ * Recording is lock-free: latencies go to HdrHistogram's wait-free Recorder, counters are LongAdders, so
+ * concurrent calls don't contend. Readers drain the recorder under the instance's lock into the current
+ * window's histogram, the percentiles are taken from the current and the previous windows. The snapshot
+ * is reused for a second, so exporters polling each value separately don't copy the histograms every time.
+ */
+public class MethodMetrics implements MethodMetricsMBean {
+    //max age (milliseconds) of the latency snapshot returned to readers
+    private static final long SNAPSHOT_TTL = 1000;
+
+    private final String contract;
+    private final String method;
+    //latencies over the max (microseconds) are recorded as the max
+    private final long maxLatency;
+    //window (milliseconds) of the latency percentiles
+    private final long window;
+
+    private final Recorder recorder;
+    private final LongAdder[] outcomes = new LongAdder[CallOutcome.VALUES.length];
+    private final LongAdder inFlight = new LongAdder();
+    private final LongAdder totalMicros = new LongAdder();
+    private final LongAdder requestBodies = new LongAdder();
+    private final LongAdder requestBytes = new LongAdder();
+    private final LongAccumulator maxRequestBytes = new LongAccumulator(Math::max, 0);
+    private final LongAdder responseBodies = new LongAdder();
+    private final LongAdder responseBytes = new LongAdder();
+    private final LongAccumulator maxResponseBytes = new LongAccumulator(Math::max, 0);
+
+    //reader side, guarded by this
+    private Histogram interval;
+    private Histogram current;
+    private Histogram previous;
+    private final Histogram merged;
+    private long windowStart = System.currentTimeMillis();
+    private LatencySnapshot snapshot;
+    private long snapshotTime;
+
+    /**
+     * Constructs metrics of the method
+     *
+     * @param contract contract (controller interface) name
+     * @param method   method signature
+     * @param settings metrics settings
+     */
+    public MethodMetrics(String contract, String method, MetricsSettings settings) {
+        this.contract = contract;
+        this.method = method;
+        this.maxLatency = TimeUnit.MILLISECONDS.toMicros(settings.getMaxLatency());
+        this.window = settings.getWindow();
+        this.recorder = new Recorder(maxLatency, settings.getSignificantDigits());
+        this.current = new Histogram(maxLatency, settings.getSignificantDigits());
+        this.previous = current.copy();
+        this.merged = current.copy();
+        for (int i = 0; i < outcomes.length; i++) {
+            outcomes[i] = new LongAdder();
+        }
+    }
+
+    /**
+     * Records start of a call
+     *
+     * @return start time of the call (nanoseconds) to be passed to onComplete
+     */
+    public long onStart() {
+        inFlight.increment();
+        return System.nanoTime();
+    }
+
+    /**
+     * Records completion of a call
+     *
+     * @param start start time returned by onStart
+     * @param error call error (null if the call succeeded)
+     */
+    public void onComplete(long start, Throwable error) {
+        long micros = (System.nanoTime() - start) / 1000;
+        recorder.recordValue(Math.max(0, Math.min(micros, maxLatency)));
+        totalMicros.add(micros);
+        outcomes[CallOutcome.of(error).ordinal()].increment();
+        inFlight.decrement();
+    }
+
+    /**
+     * @param bytes size of the serialized request body
+     */
+    public void recordRequest(long bytes) {
+        requestBodies.increment();
+        requestBytes.add(bytes);
+        maxRequestBytes.accumulate(bytes);
+    }
+
+    /**
+     * @param bytes size of the read response body
+     */
+    public void recordResponse(long bytes) {
+        responseBodies.increment();
+        responseBytes.add(bytes);
+        maxResponseBytes.accumulate(bytes);
+    }
+
+    /**
+     * Gets latencies of the calls completed in the last one to two windows
+     *
+     * @return latency snapshot (not older than a second)
+     */
+    public synchronized LatencySnapshot getLatency() {
+        long now = System.currentTimeMillis();
+        if (snapshot != null && now - snapshotTime < SNAPSHOT_TTL) {
+            return snapshot;
+        }
+        interval = recorder.getIntervalHistogram(interval);
+        current.add(interval);
+        if (now - windowStart >= window) {
+            Histogram rotated = previous;
+            previous = current;
+            current = rotated;
+            current.reset();
+            windowStart = now;
+        }
+        merged.reset();
+        merged.add(previous);
+        merged.add(current);
+        snapshot = new LatencySnapshot(merged);
+        snapshotTime = now;
+        return snapshot;
+    }
+
+    /**
+     * @param outcome call outcome
+     * @return count of the completed calls with the outcome
+     */
+    public long getCount(CallOutcome outcome) {
+        return outcomes[outcome.ordinal()].sum();
+    }
+
+    /**
+     * @return total time (microseconds) of the completed calls
+     */
+    public long getTotalMicros() {
+        return totalMicros.sum();
+    }
+
+    @Override
+    public String getContract() {
+        return contract;
+    }
+
+    @Override
+    public String getMethod() {
+        return method;
+    }
+
+    /**
+     * @return count of the completed calls
+     */
+    @Override
+    public long getCalls() {
+        long calls = 0;
+        for (LongAdder outcome : outcomes) {
+            calls += outcome.sum();
+        }
+        return calls;
+    }
+
+    @Override
+    public long getInFlight() {
+        return inFlight.sum();
+    }
+
+    @Override
+    public long getSuccess() {
+        return getCount(CallOutcome.SUCCESS);
+    }
+
+    @Override
+    public long getClientErrors() {
+        return getCount(CallOutcome.CLIENT_ERROR);
+    }
+
+    @Override
+    public long getServerErrors() {
+        return getCount(CallOutcome.SERVER_ERROR);
+    }
+
+    @Override
+    public long getTimeouts() {
+        return getCount(CallOutcome.TIMEOUT);
+    }
+
+    @Override
+    public long getConnectFailures() {
+        return getCount(CallOutcome.CONNECT_FAILURE);
+    }
+
+    @Override
+    public long getRejected() {
+        return getCount(CallOutcome.REJECTED);
+    }
+
+    @Override
+    public long getErrors() {
+        return getCount(CallOutcome.ERROR);
+    }
+
+    @Override
+    public long getLatencyP50Micros() {
+        return getLatency().getP50();
+    }
+
+    @Override
+    public long getLatencyP90Micros() {
+        return getLatency().getP90();
+    }
+
+    @Override
+    public long getLatencyP99Micros() {
+        return getLatency().getP99();
+    }
+
+    @Override
+    public long getLatencyP999Micros() {
+        return getLatency().getP999();
+    }
+
+    @Override
+    public long getLatencyMaxMicros() {
+        return getLatency().getMax();
+    }
+
+    @Override
+    public double getLatencyMeanMicros() {
+        return getLatency().getMean();
+    }
+
+    @Override
+    public long getRequestBodies() {
+        return requestBodies.sum();
+    }
+
+    @Override
+    public long getRequestBytes() {
+        return requestBytes.sum();
+    }
+
+    @Override
+    public long getMaxRequestBytes() {
+        return maxRequestBytes.get();
+    }
+
+    @Override
+    public long getResponseBodies() {
+        return responseBodies.sum();
+    }
+
+    @Override
+    public long getResponseBytes() {
+        return responseBytes.sum();
+    }
+
+    @Override
+    public long getMaxResponseBytes() {
+        return maxResponseBytes.get();
+    }
+
+    @Override
+    public String toString() {
+        final StringBuilder sb = new StringBuilder("MethodMetrics{");
+        sb.append("contract='").append(contract).append('\'');
+        sb.append(", method='").append(method).append('\'');
+        sb.append(", calls=").append(getCalls());
+        sb.append(", inFlight=").append(getInFlight());
+        sb.append('}');
+        return sb.toString();
+    }
+
+    /**
+     * Latency percentiles (microseconds) of the calls completed in a window
+     */
+    public static class LatencySnapshot {
+        private final long count;
+        private final double mean;
+        private final long p50;
+        private final long p90;
+        private final long p99;
+        private final long p999;
+        private final long max;
+
+        LatencySnapshot(Histogram histogram) {
+            this.count = histogram.getTotalCount();
+            this.mean = count == 0 ? 0 : histogram.getMean();
+            this.p50 = histogram.getValueAtPercentile(50);
+            this.p90 = histogram.getValueAtPercentile(90);
+            this.p99 = histogram.getValueAtPercentile(99);
+            this.p999 = histogram.getValueAtPercentile(99.9);
+            this.max = histogram.getMaxValue();
+        }
+
+        /**
+         * @return count of the calls in the window
+         */
+        public long getCount() {
+            return count;
+        }
+
+        public double getMean() {
+            return mean;
+        }
+
+        public long getP50() {
+            return p50;
+        }
+
+        public long getP90() {
+            return p90;
+        }
+
+        public long getP99() {
+            return p99;
+        }
+
+        public long getP999() {
+            return p999;
+        }
+
+        public long getMax() {
+            return max;
+        }
+
+        @Override
+        public String toString() {
+            final StringBuilder sb = new StringBuilder("LatencySnapshot{");
+            sb.append("count=").append(count);
+            sb.append(", mean=").append(mean);
+            sb.append(", p50=").append(p50);
+            sb.append(", p90=").append(p90);
+            sb.append(", p99=").append(p99);
+            sb.append(", p999=").append(p999);
+            sb.append(", max=").append(max);
+            sb.append('}');
+            return sb.toString();
+        }
+    }
+}
@@ -0,0 +1,53 @@
+package org.proxysoa.spring.metrics;
+
+/**
+ * JMX view of a contract method's call metrics. Latencies are in microseconds and describe calls
+ * of the last one to two windows (SOA.Metrics.window), counters are totals since start.
+ */
+public interface MethodMetricsMBean {
+    String getContract();
+
+    String getMethod();
+
+    long getCalls();
+
+    long getInFlight();
+
+    long getSuccess();
+
+    long getClientErrors();
+
+    long getServerErrors();
+
+    long getTimeouts();
+
+    long getConnectFailures();
+
+    long getRejected();
+
+    long getErrors();
+
+    long getLatencyP50Micros();
+
+    long getLatencyP90Micros();
+
+    long getLatencyP99Micros();
+
+    long getLatencyP999Micros();
+
+    long getLatencyMaxMicros();
+
+    double getLatencyMeanMicros();
+
+    long getRequestBodies();
+
+    long getRequestBytes();
+
+    long getMaxRequestBytes();
+
+    long getResponseBodies();
+
+    long getResponseBytes();
+
+    long getMaxResponseBytes();
+}
@@ -0,0 +1,97 @@
+package org.proxysoa.spring.metrics;
+
+import org.springframework.core.env.Environment;
+
+/**
+ * Keeps settings of the proxies' call metrics. Values are read from SOA.Metrics.* properties, defaults are used
+ * for the missing ones.
+ * <p>
+ * Latencies are recorded in microseconds with 2 significant digits (1% error) by default, the percentiles
+ * describe calls of the last one to two windows.
+ */
+public class MetricsSettings {
+    public static final String PREFIX = "SOA.Metrics.";
+
+    //calls of the proxies are measured
+    private boolean enabled = true;
+    //metrics of each contract method are registered as MBean in the platform MBean server
+    private boolean jmx = true;
+    //window (milliseconds) of the latency percentiles
+    private long window = 60000;
+    //latencies over the max (milliseconds) are recorded as the max
+    private long maxLatency = 60000;
+    //precision of the recorded latencies (1 to 5 significant digits)
+    private int significantDigits = 2;
+
+    /**
+     * Default constructor (default settings)
+     */
+    public MetricsSettings() {
+    }
+
+    /**
+     * Reads the settings from environment
+     *
+     * @param environment environment to get SOA.Metrics.* properties
+     */
+    public MetricsSettings(Environment environment) {
+        this.enabled = environment.getProperty(PREFIX + "enabled", Boolean.class, enabled);
+        this.jmx = environment.getProperty(PREFIX + "jmx", Boolean.class, jmx);
+        this.window = environment.getProperty(PREFIX + "window", Long.class, window);
+        this.maxLatency = environment.getProperty(PREFIX + "maxLatency", Long.class, maxLatency);
+        this.significantDigits = environment.getProperty(PREFIX + "significantDigits", Integer.class,
+                significantDigits);
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    public boolean isJmx() {
+        return jmx;
+    }
+
+    public void setJmx(boolean jmx) {
+        this.jmx = jmx;
+    }
+
+    public long getWindow() {
+        return window;
+    }
+
+    public void setWindow(long window) {
+        this.window = window;
+    }
+
+    public long getMaxLatency() {
+        return maxLatency;
+    }
+
+    public void setMaxLatency(long maxLatency) {
+        this.maxLatency = maxLatency;
+    }
+
+    public int getSignificantDigits() {
+        return significantDigits;
+    }
+
+    public void setSignificantDigits(int significantDigits) {
+        this.significantDigits = significantDigits;
+    }
+
+    @Override
+    public String toString() {
+        final StringBuilder sb = new StringBuilder("MetricsSettings{");
+        sb.append("enabled=").append(enabled);
+        sb.append(", jmx=").append(jmx);
+        sb.append(", window=").append(window);
+        sb.append(", maxLatency=").append(maxLatency);
+        sb.append(", significantDigits=").append(significantDigits);
+        sb.append('}');
+        return sb.toString();
+    }
+}
@@ -0,0 +1,84 @@
+package org.proxysoa.spring.resilience;
+
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Limits calls of one remote service in progress at once, so a slow service can hold
+ * at most maxConcurrentCalls of the caller's threads (connections). Calls over the limit are rejected.
+ */
+public class Bulkhead {
+    private final String name;
+    private final BulkheadSettings settings;
+    private final Semaphore permits;
+
+    private final LongAdder rejected = new LongAdder();
+
+    /**
+     * Constructs the bulkhead
+     *
+     * @param name     bulkhead name (remote service URL)
+     * @param settings bulkhead settings
+     */
+    public Bulkhead(String name, BulkheadSettings settings) {
+        this.name = name;
+        this.settings = settings;
+        this.permits = new Semaphore(settings.getMaxConcurrentCalls());
+    }
+
+    /**
+     * Takes a slot for a call. A taken slot must be released by release().
+     *
+     * @param wait whether the call may wait maxWait for a free slot
+     * @return true if the slot is taken
+     */
+    public boolean tryAcquire(boolean wait) {
+        boolean acquired;
+        if (wait && settings.getMaxWait() > 0) {
+            try {
+                acquired = permits.tryAcquire(settings.getMaxWait(), TimeUnit.MILLISECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                acquired = false;
+            }
+        } else {
+            acquired = permits.tryAcquire();
+        }
+        if (!acquired) {
+            rejected.increment();
+        }
+        return acquired;
+    }
+
+    public void release() {
+        permits.release();
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public int getMaxConcurrentCalls() {
+        return settings.getMaxConcurrentCalls();
+    }
+
+    /**
+     * @return amount of calls in progress
+     */
+    public int getInProgressCount() {
+        return settings.getMaxConcurrentCalls() - permits.availablePermits();
+    }
+
+    /**
+     * @return amount of calls rejected because of the limit
+     */
+    public long getRejectedCount() {
+        return rejected.sum();
+    }
+
+    @Override
+    public String toString() {
+        return "Bulkhead{" + name + ", inProgress=" + getInProgressCount() + ", rejected=" + getRejectedCount() + '}';
+    }
+}
@@ -0,0 +1,69 @@
+package org.proxysoa.spring.resilience;
+
+import org.springframework.core.env.Environment;
+
+/**
+ * Keeps settings of the proxies' bulkheads (one bulkhead per remote service URL).
+ * Values are read from SOA.Bulkhead.* properties, defaults are used for the missing ones.
+ */
+public class BulkheadSettings {
+    public static final String PREFIX = "SOA.Bulkhead.";
+
+    private boolean enabled = true;
+    //max calls of one remote service in progress at once
+    private int maxConcurrentCalls = 50;
+    //how long (milliseconds) a sync call waits for a free slot, async calls never wait
+    private long maxWait = 0;
+
+    /**
+     * Default constructor (default settings)
+     */
+    public BulkheadSettings() {
+    }
+
+    /**
+     * Reads the settings from environment
+     *
+     * @param environment environment to get SOA.Bulkhead.* properties
+     */
+    public BulkheadSettings(Environment environment) {
+        this.enabled = environment.getProperty(PREFIX + "enabled", Boolean.class, enabled);
+        this.maxConcurrentCalls = environment.getProperty(PREFIX + "maxConcurrentCalls", Integer.class,
+                maxConcurrentCalls);
+        this.maxWait = environment.getProperty(PREFIX + "maxWait", Long.class, maxWait);
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    public int getMaxConcurrentCalls() {
+        return maxConcurrentCalls;
+    }
+
+    public void setMaxConcurrentCalls(int maxConcurrentCalls) {
+        this.maxConcurrentCalls = maxConcurrentCalls;
+    }
+
+    public long getMaxWait() {
+        return maxWait;
+    }
+
+    public void setMaxWait(long maxWait) {
+        this.maxWait = maxWait;
+    }
+
+    @Override
+    public String toString() {
+        final StringBuilder sb = new StringBuilder("BulkheadSettings{");
+        sb.append("enabled=").append(enabled);
+        sb.append(", maxConcurrentCalls=").append(maxConcurrentCalls);
+        sb.append(", maxWait=").append(maxWait);
+        sb.append('}');
+        return sb.toString();
+    }
+}
@@ -0,0 +1,138 @@
+package org.proxysoa.spring.resilience;
+
+import org.proxysoa.spring.exception.SOAControllerInvocationException;
+import org.proxysoa.spring.exception.SOAControllerRejectedException;
+import org.springframework.web.client.HttpClientErrorException;
+
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Guards remote calls of a proxy with the controller's circuit breaker and the remote service's bulkhead.
+ * Each call is acquire() followed by exactly one onSuccess() or onError() with the returned permit.
+ * <p>
+ * Client errors (4xx) don't count as failures (the remote service is healthy), cancelled calls
+ * are not counted at all.
+ */
+public class CallGuard {
+    //breaker of the controller (null if disabled)
+    private final CircuitBreaker circuitBreaker;
+    //bulkhead of the remote service (null if disabled)
+    private final Bulkhead bulkhead;
+
+    /**
+     * Constructs the guard
+     *
+     * @param circuitBreaker breaker of the controller (null if disabled)
+     * @param bulkhead       bulkhead of the remote service (null if disabled)
+     */
+    public CallGuard(CircuitBreaker circuitBreaker, Bulkhead bulkhead) {
+        this.circuitBreaker = circuitBreaker;
+        this.bulkhead = bulkhead;
+    }
+
+    /**
+     * Gets permission for a call
+     *
+     * @param wait whether the call may wait for a free bulkhead slot (sync calls only)
+     * @return permit of the call (to be passed to onSuccess/onError)
+     * @throws SOAControllerRejectedException if the breaker is open or the bulkhead is full
+     */
+    public Permit acquire(boolean wait) {
+        long breakerPermit = CircuitBreaker.NOT_PERMITTED;
+        if (circuitBreaker != null) {
+            breakerPermit = circuitBreaker.tryAcquire();
+            if (breakerPermit == CircuitBreaker.NOT_PERMITTED) {
+                throw new SOAControllerRejectedException("Circuit breaker " + circuitBreaker.getName() + " is "
+                        + circuitBreaker.getState());
+            }
+        }
+        if (bulkhead != null && !bulkhead.tryAcquire(wait)) {
+            if (circuitBreaker != null) {
+                circuitBreaker.release(breakerPermit);
+            }
+            throw new SOAControllerRejectedException("Too many calls in progress to " + bulkhead.getName());
+        }
+        return new Permit(breakerPermit, System.nanoTime());
+    }
+
+    /**
+     * Records successful call
+     *
+     * @param permit permit returned by acquire()
+     */
+    public void onSuccess(Permit permit) {
+        if (bulkhead != null) {
+            bulkhead.release();
+        }
+        if (circuitBreaker != null) {
+            circuitBreaker.onResult(permit.breakerPermit, elapsedMillis(permit.start), false);
+        }
+    }
+
+    /**
+     * Records failed call
+     *
+     * @param permit permit returned by acquire()
+     * @param error  call error
+     */
+    public void onError(Permit permit, Throwable error) {
+        if (bulkhead != null) {
+            bulkhead.release();
+        }
+        if (circuitBreaker != null) {
+            Throwable cause = unwrap(error);
+            if (cause instanceof CancellationException) {
+                circuitBreaker.release(permit.breakerPermit);
+            } else {
+                circuitBreaker.onResult(permit.breakerPermit, elapsedMillis(permit.start),
+                        !(cause instanceof HttpClientErrorException));
+            }
+        }
+    }
+
+    public CircuitBreaker getCircuitBreaker() {
+        return circuitBreaker;
+    }
+
+    public Bulkhead getBulkhead() {
+        return bulkhead;
+    }
+
+    private static long elapsedMillis(long start) {
+        return TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+    }
+
+    /**
+     * Gets the original error of the remote call wrapped by the proxy or the futures
+     *
+     * @param error error
+     * @return original error
+     */
+    static Throwable unwrap(Throwable error) {
+        Throwable cause = error;
+        while ((cause instanceof CompletionException || cause instanceof ExecutionException
+                || cause instanceof SOAControllerInvocationException)
+                && cause.getCause() != null) {
+            cause = cause.getCause();
+        }
+        return cause;
+    }
+
+    /**
+     * Permitted call: the breaker's permit and the start time
+     */
+    public static final class Permit {
+        //permit of the breaker (NOT_PERMITTED if the breaker is disabled)
+        private final long breakerPermit;
+        //start time in nanoseconds
+        private final long start;
+
+        private Permit(long breakerPermit, long start) {
+            this.breakerPermit = breakerPermit;
+            this.start = start;
+        }
+    }
+}
@@ -0,0 +1,270 @@
+package org.proxysoa.spring.resilience;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+
+/**
+ * Circuit breaker of one controller contract.
+ * <ul>
+ * <li>CLOSED - calls are permitted, outcomes of the last windowSize calls are kept. When failed or slow
+ * calls rate of the window reaches the threshold the breaker opens</li>
+ * <li>OPEN - calls are rejected without calling the remote service. After openDuration the breaker
+ * becomes half open</li>
+ * <li>HALF_OPEN - halfOpenCalls probe calls are permitted, others are rejected. The breaker closes
+ * if the probes' rates are below the thresholds and opens again otherwise</li>
+ * </ul>
+ * Check of closed and open breaker is lock free, so rejected calls cost a couple of volatile reads.
+ * <p>
+ * A permit is the generation of the state the call was permitted in, so results of the calls permitted
+ * before the last transition (e.g. late results of calls permitted while closed) don't count as probes
+ * or in the next window.
+ */
+public class CircuitBreaker {
+    private static final Logger LOG = LoggerFactory.getLogger(CircuitBreaker.class);
+
+    private static final byte FAILED = 1;
+    private static final byte SLOW = 2;
+
+    /**
+     * Result of tryAcquire() for a rejected call
+     */
+    public static final long NOT_PERMITTED = -1;
+
+    public enum State {
+        CLOSED, OPEN, HALF_OPEN
+    }
+
+    private final String name;
+    private final CircuitBreakerSettings settings;
+    //current time in milliseconds
+    private final LongSupplier clock;
+
+    private volatile State state = State.CLOSED;
+    //time the breaker was opened
+    private volatile long openedAt;
+    //incremented with each transition, written under the lock before the state
+    private volatile long generation;
+
+    //outcomes (FAILED and SLOW bits) of the last calls in closed state, ring buffer guarded by this
+    private final byte[] window;
+    private int windowPosition;
+    private int windowCalls;
+    private int windowFailed;
+    private int windowSlow;
+
+    //probe calls of half open state, guarded by this
+    private int probesPermitted;
+    private int probeCalls;
+    private int probeFailed;
+    private int probeSlow;
+
+    private final LongAdder successful = new LongAdder();
+    private final LongAdder failed = new LongAdder();
+    private final LongAdder slow = new LongAdder();
+    private final LongAdder notPermitted = new LongAdder();
+    //key is target state, value is amount of transitions to the state
+    private final Map<State, LongAdder> transitions = new EnumMap<>(State.class);
+
+    /**
+     * Constructs the breaker
+     *
+     * @param name     breaker name (controller contract)
+     * @param settings breaker settings
+     */
+    public CircuitBreaker(String name, CircuitBreakerSettings settings) {
+        this(name, settings, System::currentTimeMillis);
+    }
+
+    CircuitBreaker(String name, CircuitBreakerSettings settings, LongSupplier clock) {
+        this.name = name;
+        this.settings = settings;
+        this.clock = clock;
+        this.window = new byte[settings.getWindowSize()];
+        for (State target : State.values()) {
+            transitions.put(target, new LongAdder());
+        }
+    }
+
+    /**
+     * Checks whether a call is permitted. A permitted call must be followed by onResult() or release()
+     * with the returned permit.
+     *
+     * @return permit of the call, NOT_PERMITTED if the call is rejected
+     */
+    public long tryAcquire() {
+        //read before the state, so a call permitted by closed breaker never gets the next half open generation
+        long permit = generation;
+        State current = state;
+        if (current == State.CLOSED) {
+            return permit;
+        }
+        if (current == State.OPEN && clock.getAsLong() - openedAt < settings.getOpenDuration()) {
+            notPermitted.increment();
+            return NOT_PERMITTED;
+        }
+        synchronized (this) {
+            if (state == State.OPEN) {
+                if (clock.getAsLong() - openedAt < settings.getOpenDuration()) {
+                    notPermitted.increment();
+                    return NOT_PERMITTED;
+                }
+                transitionTo(State.HALF_OPEN);
+            }
+            if (state == State.CLOSED) {
+                return generation;
+            }
+            if (probesPermitted < settings.getHalfOpenCalls()) {
+                probesPermitted++;
+                return generation;
+            }
+            notPermitted.increment();
+            return NOT_PERMITTED;
+        }
+    }
+
+    /**
+     * Releases permitted call which was not sent
+     *
+     * @param permit permit of the call returned by tryAcquire()
+     */
+    public synchronized void release(long permit) {
+        if (state == State.HALF_OPEN && permit == generation && probesPermitted > probeCalls) {
+            probesPermitted--;
+        }
+    }
+
+    /**
+     * Records outcome of permitted call. Only calls permitted in the current state count in the window
+     * or as probes, the others are just counted.
+     *
+     * @param permit         permit of the call returned by tryAcquire()
+     * @param durationMillis call duration
+     * @param failure        whether the call failed
+     */
+    public void onResult(long permit, long durationMillis, boolean failure) {
+        boolean slowCall = durationMillis >= settings.getSlowCallDuration();
+        (failure ? failed : successful).increment();
+        if (slowCall) {
+            slow.increment();
+        }
+        byte outcome = (byte) ((failure ? FAILED : 0) | (slowCall ? SLOW : 0));
+        synchronized (this) {
+            if (permit != generation) {
+                return;
+            }
+            if (state == State.CLOSED) {
+                recordInWindow(outcome);
+                if (windowCalls >= settings.getMinimumCalls() && exceedsThresholds(windowCalls, windowFailed, windowSlow)) {
+                    transitionTo(State.OPEN);
+                }
+            } else if (state == State.HALF_OPEN) {
+                probeCalls++;
+                probeFailed += outcome & FAILED;
+                probeSlow += (outcome & SLOW) >> 1;
+                if (probeCalls >= settings.getHalfOpenCalls()) {
+                    transitionTo(exceedsThresholds(probeCalls, probeFailed, probeSlow) ? State.OPEN : State.CLOSED);
+                }
+            }
+        }
+    }
+
+    private void recordInWindow(byte outcome) {
+        if (windowCalls == window.length) {
+            byte oldest = window[windowPosition];
+            windowFailed -= oldest & FAILED;
+            windowSlow -= (oldest & SLOW) >> 1;
+        } else {
+            windowCalls++;
+        }
+        window[windowPosition] = outcome;
+        windowFailed += outcome & FAILED;
+        windowSlow += (outcome & SLOW) >> 1;
+        windowPosition = (windowPosition + 1) % window.length;
+    }
+
+    private boolean exceedsThresholds(int calls, int failedCalls, int slowCalls) {
+        return failedCalls * 100L >= (long) settings.getFailureRateThreshold() * calls
+                || slowCalls * 100L >= (long) settings.getSlowCallRateThreshold() * calls;
+    }
+
+    //called under the lock
+    private void transitionTo(State target) {
+        LOG.info("Circuit breaker {} {} -> {}", name, state, target);
+        if (target == State.OPEN) {
+            openedAt = clock.getAsLong();
+        }
+        if (target == State.CLOSED) {
+            windowPosition = 0;
+            windowCalls = 0;
+            windowFailed = 0;
+            windowSlow = 0;
+        }
+        probesPermitted = 0;
+        probeCalls = 0;
+        probeFailed = 0;
+        probeSlow = 0;
+        generation++;
+        state = target;
+        transitions.get(target).increment();
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public State getState() {
+        return state;
+    }
+
+    /**
+     * @return failed calls percent of the current window (-1 if the window has less than minimumCalls calls)
+     */
+    public synchronized float getFailureRate() {
+        return windowCalls < settings.getMinimumCalls() ? -1 : windowFailed * 100f / windowCalls;
+    }
+
+    /**
+     * @return slow calls percent of the current window (-1 if the window has less than minimumCalls calls)
+     */
+    public synchronized float getSlowCallRate() {
+        return windowCalls < settings.getMinimumCalls() ? -1 : windowSlow * 100f / windowCalls;
+    }
+
+    public long getSuccessfulCount() {
+        return successful.sum();
+    }
+
+    public long getFailedCount() {
+        return failed.sum();
+    }
+
+    public long getSlowCount() {
+        return slow.sum();
+    }
+
+    /**
+     * @return amount of calls rejected by open or half open breaker
+     */
+    public long getNotPermittedCount() {
+        return notPermitted.sum();
+    }
+
+    /**
+     * @param target state
+     * @return how many times the breaker came to the state
+     */
+    public long getTransitionCount(State target) {
+        return transitions.get(target).sum();
+    }
+
+    @Override
+    public String toString() {
+        return "CircuitBreaker{" + name + ", state=" + state + ", failed=" + getFailedCount()
+                + ", notPermitted=" + getNotPermittedCount() + '}';
+    }
+}
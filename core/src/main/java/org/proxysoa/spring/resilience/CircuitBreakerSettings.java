@@ -0,0 +1,131 @@
+package org.proxysoa.spring.resilience;
+
+import org.springframework.core.env.Environment;
+
+/**
+ * Keeps settings of the proxies' circuit breakers (one breaker per controller contract).
+ * Values are read from SOA.CircuitBreaker.* properties, defaults are used for the missing ones.
+ * All the durations are in milliseconds, rates are in percents.
+ */
+public class CircuitBreakerSettings {
+    public static final String PREFIX = "SOA.CircuitBreaker.";
+
+    private boolean enabled = true;
+    //amount of the last calls the failure and slow call rates are calculated on
+    private int windowSize = 50;
+    //rates are not checked till the window has the amount of calls
+    private int minimumCalls = 20;
+    //breaker opens when failed calls rate reaches the value
+    private int failureRateThreshold = 50;
+    //breaker opens when slow calls rate reaches the value
+    private int slowCallRateThreshold = 80;
+    //calls longer than the value are slow
+    private long slowCallDuration = 5000;
+    //how long open breaker rejects calls before probing the remote service
+    private long openDuration = 10000;
+    //amount of probe calls of half open breaker
+    private int halfOpenCalls = 3;
+
+    /**
+     * Default constructor (default settings)
+     */
+    public CircuitBreakerSettings() {
+    }
+
+    /**
+     * Reads the settings from environment
+     *
+     * @param environment environment to get SOA.CircuitBreaker.* properties
+     */
+    public CircuitBreakerSettings(Environment environment) {
+        this.enabled = environment.getProperty(PREFIX + "enabled", Boolean.class, enabled);
+        this.windowSize = environment.getProperty(PREFIX + "windowSize", Integer.class, windowSize);
+        this.minimumCalls = environment.getProperty(PREFIX + "minimumCalls", Integer.class, minimumCalls);
+        this.failureRateThreshold = environment.getProperty(PREFIX + "failureRateThreshold", Integer.class,
+                failureRateThreshold);
+        this.slowCallRateThreshold = environment.getProperty(PREFIX + "slowCallRateThreshold", Integer.class,
+                slowCallRateThreshold);
+        this.slowCallDuration = environment.getProperty(PREFIX + "slowCallDuration", Long.class, slowCallDuration);
+        this.openDuration = environment.getProperty(PREFIX + "openDuration", Long.class, openDuration);
+        this.halfOpenCalls = environment.getProperty(PREFIX + "halfOpenCalls", Integer.class, halfOpenCalls);
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    public int getWindowSize() {
+        return windowSize;
+    }
+
+    public void setWindowSize(int windowSize) {
+        this.windowSize = windowSize;
+    }
+
+    public int getMinimumCalls() {
+        return minimumCalls;
+    }
+
+    public void setMinimumCalls(int minimumCalls) {
+        this.minimumCalls = minimumCalls;
+    }
+
+    public int getFailureRateThreshold() {
+        return failureRateThreshold;
+    }
+
+    public void setFailureRateThreshold(int failureRateThreshold) {
+        this.failureRateThreshold = failureRateThreshold;
+    }
+
+    public int getSlowCallRateThreshold() {
+        return slowCallRateThreshold;
+    }
+
+    public void setSlowCallRateThreshold(int slowCallRateThreshold) {
+        this.slowCallRateThreshold = slowCallRateThreshold;
+    }
+
+    public long getSlowCallDuration() {
+        return slowCallDuration;
+    }
+
+    public void setSlowCallDuration(long slowCallDuration) {
+        this.slowCallDuration = slowCallDuration;
+    }
+
+    public long getOpenDuration() {
+        return openDuration;
+    }
+
+    public void setOpenDuration(long openDuration) {
+        this.openDuration = openDuration;
+    }
+
+    public int getHalfOpenCalls() {
+        return halfOpenCalls;
+    }
+
+    public void setHalfOpenCalls(int halfOpenCalls) {
+        this.halfOpenCalls = halfOpenCalls;
+    }
+
+    @Override
+    public String toString() {
+        final StringBuilder sb = new StringBuilder("CircuitBreakerSettings{");
+        sb.append("enabled=").append(enabled);
+        sb.append(", windowSize=").append(windowSize);
+        sb.append(", minimumCalls=").append(minimumCalls);
+        sb.append(", failureRateThreshold=").append(failureRateThreshold);
+        sb.append(", slowCallRateThreshold=").append(slowCallRateThreshold);
+        sb.append(", slowCallDuration=").append(slowCallDuration);
+        sb.append(", openDuration=").append(openDuration);
+        sb.append(", halfOpenCalls=").append(halfOpenCalls);
+        sb.append('}');
+        return sb.toString();
+    }
+}
@@ -0,0 +1,172 @@
+package org.proxysoa.spring.resilience;
+
+import org.proxysoa.spring.annotation.Hedged;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * Sends hedge of a Hedged method's call which gets no response within the delay. The first successful
+ * response completes the call and the other attempt is cancelled. The call fails when all the sent
+ * attempts fail.
+ * <p>
+ * The delay is fixed (Hedged.delay) or adaptive: the percentile of the method's observed latency.
+ * Hedges are permitted by the remote service's budget.
+ */
+public class Hedger {
+    private final String name;
+    private final Hedged hedged;
+    private final HedgingSettings settings;
+    //hedges budget of the remote service
+    private final TokenBudget budget;
+    private final ScheduledExecutorService scheduler;
+
+    //latency of the calls observed by the callers (from sending the first attempt till the first success)
+    private final LatencyTracker latency;
+
+    private final LongAdder calls = new LongAdder();
+    private final LongAdder hedges = new LongAdder();
+    //calls completed by the hedge
+    private final LongAdder hedgeWins = new LongAdder();
+
+    /**
+     * Constructs the hedger
+     *
+     * @param name      method name
+     * @param hedged    hedging settings of the method
+     * @param settings  common hedging settings
+     * @param budget    hedges budget of the remote service
+     * @param scheduler scheduler to send hedges
+     */
+    public Hedger(String name, Hedged hedged, HedgingSettings settings, TokenBudget budget,
+                  ScheduledExecutorService scheduler) {
+        this.name = name;
+        this.hedged = hedged;
+        this.settings = settings;
+        this.budget = budget;
+        this.scheduler = scheduler;
+        this.latency = new LatencyTracker(hedged.percentile());
+    }
+
+    /**
+     * Calls with hedging
+     *
+     * @param attempt sends one attempt of the call
+     * @return future of the call result. Cancelling it cancels the attempts
+     */
+    public CompletableFuture<Object> call(Supplier<CompletableFuture<Object>> attempt) {
+        calls.increment();
+        budget.onCall();
+        CompletableFuture<Object> result = new CompletableFuture<>();
+        //attempts sent and not failed yet
+        AtomicInteger pending = new AtomicInteger(1);
+        List<CompletableFuture<Object>> attempts = new ArrayList<>(2);
+        long start = System.nanoTime();
+
+        sendAttempt(attempt, start, result, pending, attempts, false);
+        ScheduledFuture<?> hedgeTimer = scheduler.schedule(() -> {
+            if (!result.isDone() && budget.tryWithdraw()) {
+                hedges.increment();
+                pending.incrementAndGet();
+                sendAttempt(attempt, start, result, pending, attempts, true);
+            }
+        }, getDelayMicros(), TimeUnit.MICROSECONDS);
+
+        result.whenComplete((value, e) -> {
+            hedgeTimer.cancel(false);
+            synchronized (attempts) {
+                attempts.forEach(a -> a.cancel(true));
+            }
+        });
+        return result;
+    }
+
+    /**
+     * Sends attempt of the call. The call's latency is measured from the start of the call, not of the winning
+     * attempt: a hedge won after the delay must not make the call look fast and shorten the adaptive delay
+     *
+     * @param attempt  sends one attempt of the call
+     * @param start    start of the call (System.nanoTime())
+     * @param result   future of the call result
+     * @param pending  attempts sent and not failed yet
+     * @param attempts sent attempts
+     * @param hedge    true if the attempt is hedge
+     */
+    private void sendAttempt(Supplier<CompletableFuture<Object>> attempt, long start, CompletableFuture<Object> result,
+                             AtomicInteger pending, List<CompletableFuture<Object>> attempts, boolean hedge) {
+        CompletableFuture<Object> sent;
+        try {
+            sent = attempt.get();
+        } catch (RuntimeException e) {
+            sent = new CompletableFuture<>();
+            sent.completeExceptionally(e);
+        }
+        synchronized (attempts) {
+            attempts.add(sent);
+        }
+        if (result.isDone()) {
+            //completed while the attempt was sent
+            sent.cancel(true);
+        }
+        sent.whenComplete((value, e) -> {
+            if (e == null) {
+                if (result.complete(value)) {
+                    latency.record(TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - start));
+                    if (hedge) {
+                        hedgeWins.increment();
+                    }
+                }
+            } else if (pending.decrementAndGet() == 0) {
+                result.completeExceptionally(e);
+            }
+        });
+    }
+
+    /**
+     * Gets delay of the hedge: fixed one or the observed latency percentile
+     *
+     * @return delay in microseconds
+     */
+    public long getDelayMicros() {
+        if (hedged.delay() > 0) {
+            return TimeUnit.MILLISECONDS.toMicros(hedged.delay());
+        }
+        long observed = latency.getCount() >= settings.getMinimumCalls() ? latency.getPercentile() : -1;
+        return observed > 0 ? observed : TimeUnit.MILLISECONDS.toMicros(settings.getInitialDelay());
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public long getCallCount() {
+        return calls.sum();
+    }
+
+    /**
+     * @return amount of sent hedges
+     */
+    public long getHedgeCount() {
+        return hedges.sum();
+    }
+
+    /**
+     * @return amount of calls completed by the hedge
+     */
+    public long getHedgeWinCount() {
+        return hedgeWins.sum();
+    }
+
+    @Override
+    public String toString() {
+        return "Hedger{" + name + ", calls=" + getCallCount() + ", hedges=" + getHedgeCount()
+                + ", hedgeWins=" + getHedgeWinCount() + ", delayMicros=" + getDelayMicros() + '}';
+    }
+}
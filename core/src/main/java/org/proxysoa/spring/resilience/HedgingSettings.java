@@ -0,0 +1,81 @@
+package org.proxysoa.spring.resilience;
+
+import org.springframework.core.env.Environment;
+
+/**
+ * Keeps settings of the proxies' hedged calls. Values are read from SOA.Hedging.* properties,
+ * defaults are used for the missing ones.
+ */
+public class HedgingSettings {
+    public static final String PREFIX = "SOA.Hedging.";
+
+    //max hedges in percents of the hedged methods' calls of a remote service
+    private int budgetPercent = 10;
+    //max hedges sent in a burst (unused budget is accumulated up to the value)
+    private int budgetBurst = 10;
+    //delay (milliseconds) of adaptive hedging till the method's latency is observed
+    private long initialDelay = 100;
+    //calls observed before adaptive delay is used
+    private int minimumCalls = 20;
+
+    /**
+     * Default constructor (default settings)
+     */
+    public HedgingSettings() {
+    }
+
+    /**
+     * Reads the settings from environment
+     *
+     * @param environment environment to get SOA.Hedging.* properties
+     */
+    public HedgingSettings(Environment environment) {
+        this.budgetPercent = environment.getProperty(PREFIX + "budgetPercent", Integer.class, budgetPercent);
+        this.budgetBurst = environment.getProperty(PREFIX + "budgetBurst", Integer.class, budgetBurst);
+        this.initialDelay = environment.getProperty(PREFIX + "initialDelay", Long.class, initialDelay);
+        this.minimumCalls = environment.getProperty(PREFIX + "minimumCalls", Integer.class, minimumCalls);
+    }
+
+    public int getBudgetPercent() {
+        return budgetPercent;
+    }
+
+    public void setBudgetPercent(int budgetPercent) {
+        this.budgetPercent = budgetPercent;
+    }
+
+    public int getBudgetBurst() {
+        return budgetBurst;
+    }
+
+    public void setBudgetBurst(int budgetBurst) {
+        this.budgetBurst = budgetBurst;
+    }
+
+    public long getInitialDelay() {
+        return initialDelay;
+    }
+
+    public void setInitialDelay(long initialDelay) {
+        this.initialDelay = initialDelay;
+    }
+
+    public int getMinimumCalls() {
+        return minimumCalls;
+    }
+
+    public void setMinimumCalls(int minimumCalls) {
+        this.minimumCalls = minimumCalls;
+    }
+
+    @Override
+    public String toString() {
+        final StringBuilder sb = new StringBuilder("HedgingSettings{");
+        sb.append("budgetPercent=").append(budgetPercent);
+        sb.append(", budgetBurst=").append(budgetBurst);
+        sb.append(", initialDelay=").append(initialDelay);
+        sb.append(", minimumCalls=").append(minimumCalls);
+        sb.append('}');
+        return sb.toString();
+    }
+}
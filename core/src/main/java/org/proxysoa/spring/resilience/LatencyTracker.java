@@ -0,0 +1,68 @@
+package org.proxysoa.spring.resilience;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Keeps latencies of the last calls of a method and gives their percentiles. Recording is lock free,
+ * the percentile is recalculated once per RECALCULATE_EVERY records.
+ */
+class LatencyTracker {
+    private static final int SIZE = 256;
+    private static final int RECALCULATE_EVERY = 32;
+
+    private final int percentile;
+
+    //latencies (microseconds) of the last calls, ring buffer
+    private final AtomicLongArray latencies = new AtomicLongArray(SIZE);
+    private final AtomicLong recorded = new AtomicLong();
+
+    //percentile calculated on the last recalculation (-1 if not calculated yet)
+    private volatile long cachedPercentile = -1;
+
+    /**
+     * Constructs the tracker
+     *
+     * @param percentile tracked percentile
+     */
+    LatencyTracker(int percentile) {
+        this.percentile = percentile;
+    }
+
+    void record(long micros) {
+        long index = recorded.getAndIncrement();
+        latencies.set((int) (index % SIZE), micros);
+        if (index % RECALCULATE_EVERY == RECALCULATE_EVERY - 1) {
+            cachedPercentile = calculate(Math.min(index + 1, SIZE));
+        }
+    }
+
+    /**
+     * @return amount of recorded calls
+     */
+    long getCount() {
+        return recorded.get();
+    }
+
+    /**
+     * @return the percentile of the last calls (microseconds) or -1 if there are not enough calls
+     */
+    long getPercentile() {
+        long result = cachedPercentile;
+        if (result < 0 && recorded.get() > 0) {
+            result = calculate(Math.min(recorded.get(), SIZE));
+        }
+        return result;
+    }
+
+    private long calculate(long count) {
+        long[] sorted = new long[(int) count];
+        for (int i = 0; i < sorted.length; i++) {
+            sorted[i] = latencies.get(i);
+        }
+        Arrays.sort(sorted);
+        int index = (int) Math.ceil(percentile / 100.0 * sorted.length) - 1;
+        return sorted[Math.max(0, Math.min(sorted.length - 1, index))];
+    }
+}
@@ -0,0 +1,215 @@
+package org.proxysoa.spring.resilience;
+
+import org.proxysoa.spring.annotation.Hedged;
+import org.proxysoa.spring.annotation.Retry;
+import org.proxysoa.spring.service.MethodNames;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.context.EnvironmentAware;
+import org.springframework.core.env.Environment;
+import org.springframework.stereotype.Component;
+
+import java.lang.reflect.Method;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ScheduledExecutorService;
+
+/**
+ * Keeps circuit breakers (one per controller contract), bulkheads, hedging and retry budgets (one per remote
+ * service URL), hedgers and retryers (one per Hedged or Retry method) of the proxies created by ControllerFactory.
+ * Gives their state and metrics.
+ * <p>
+ * Configured by SOA.CircuitBreaker.*, SOA.Bulkhead.*, SOA.Hedging.* and SOA.Retry.* properties
+ * (see CircuitBreakerSettings, BulkheadSettings, HedgingSettings and RetrySettings).
+ */
+@Component
+public class ResilienceRegistry implements EnvironmentAware {
+    private static final Logger LOG = LoggerFactory.getLogger(ResilienceRegistry.class);
+
+    private CircuitBreakerSettings circuitBreakerSettings = new CircuitBreakerSettings();
+    private BulkheadSettings bulkheadSettings = new BulkheadSettings();
+    private HedgingSettings hedgingSettings = new HedgingSettings();
+    private RetrySettings retrySettings = new RetrySettings();
+    //environment to read methods' settings (null if not set)
+    private Environment environment;
+
+    //key is controller contract, value is the contract's breaker
+    private final ConcurrentMap<Class<?>, CircuitBreaker> circuitBreakers = new ConcurrentHashMap<>();
+    //key is remote service URL, value is the service's bulkhead
+    private final ConcurrentMap<String, Bulkhead> bulkheads = new ConcurrentHashMap<>();
+    //key is remote service URL, value is the service's hedges budget
+    private final ConcurrentMap<String, TokenBudget> hedgingBudgets = new ConcurrentHashMap<>();
+    //key is Hedged contract method, value is the method's hedger
+    private final ConcurrentMap<Method, Hedger> hedgers = new ConcurrentHashMap<>();
+    //key is remote service URL, value is the service's retries budget
+    private final ConcurrentMap<String, TokenBudget> retryBudgets = new ConcurrentHashMap<>();
+    //key is retried contract method, value is the method's retryer
+    private final ConcurrentMap<Method, Retryer> retryers = new ConcurrentHashMap<>();
+
+    @Override
+    public void setEnvironment(Environment environment) {
+        this.circuitBreakerSettings = new CircuitBreakerSettings(environment);
+        this.bulkheadSettings = new BulkheadSettings(environment);
+        this.hedgingSettings = new HedgingSettings(environment);
+        this.retrySettings = new RetrySettings(environment);
+        this.environment = environment;
+        LOG.debug("Resilience settings {} {} {} {}", circuitBreakerSettings, bulkheadSettings, hedgingSettings,
+                retrySettings);
+    }
+
+    /**
+     * Gets guard of the controller's remote calls
+     *
+     * @param controllerClass controller contract
+     * @param serviceUrl      remote service URL
+     * @return call guard
+     */
+    public CallGuard getGuard(Class<?> controllerClass, String serviceUrl) {
+        CircuitBreaker circuitBreaker = circuitBreakerSettings.isEnabled()
+                ? circuitBreakers.computeIfAbsent(controllerClass,
+                c -> new CircuitBreaker(c.getSimpleName(), circuitBreakerSettings))
+                : null;
+        Bulkhead bulkhead = bulkheadSettings.isEnabled()
+                ? bulkheads.computeIfAbsent(serviceUrl, url -> new Bulkhead(url, bulkheadSettings))
+                : null;
+        return new CallGuard(circuitBreaker, bulkhead);
+    }
+
+    /**
+     * Gets (creates on first request) hedger of the method
+     *
+     * @param method     Hedged contract method
+     * @param hedged     hedging settings of the method
+     * @param serviceUrl remote service URL
+     * @param scheduler  scheduler to send hedges
+     * @return method's hedger
+     */
+    public Hedger getHedger(Method method, Hedged hedged, String serviceUrl, ScheduledExecutorService scheduler) {
+        return hedgers.computeIfAbsent(method, m -> new Hedger(MethodNames.of(m), hedged, hedgingSettings,
+                hedgingBudgets.computeIfAbsent(serviceUrl, url -> new TokenBudget(url,
+                        hedgingSettings.getBudgetPercent(), hedgingSettings.getBudgetBurst())),
+                scheduler));
+    }
+
+    /**
+     * Checks whether calls of the method are retried: the method is marked with Retry or
+     * SOA.Retry.Contract.method.maxAttempts property is set
+     *
+     * @param method contract method
+     * @return true if the calls are retried
+     */
+    public boolean isRetried(Method method) {
+        return method.isAnnotationPresent(Retry.class)
+                || environment != null && environment.containsProperty(
+                RetrySettings.PREFIX + methodKey(method) + ".maxAttempts");
+    }
+
+    /**
+     * Gets (creates on first request) retryer of the method
+     *
+     * @param method               retried contract method
+     * @param idempotentHttpMethod whether http method of the calls is idempotent
+     * @param serviceUrl           remote service URL
+     * @param scheduler            scheduler to send delayed retries
+     * @return method's retryer
+     */
+    public Retryer getRetryer(Method method, boolean idempotentHttpMethod, String serviceUrl,
+                              ScheduledExecutorService scheduler) {
+        return retryers.computeIfAbsent(method, m -> {
+            Retry retry = m.getAnnotation(Retry.class);
+            return new Retryer(MethodNames.of(m), retrySettings.forMethod(environment, methodKey(m), retry),
+                    idempotentHttpMethod || retry != null && retry.idempotent(),
+                    retryBudgets.computeIfAbsent(serviceUrl, url -> new TokenBudget(url,
+                            retrySettings.getBudgetPercent(), retrySettings.getBudgetBurst())),
+                    scheduler);
+        });
+    }
+
+    private static String methodKey(Method method) {
+        return method.getDeclaringClass().getSimpleName() + "." + method.getName();
+    }
+
+    /**
+     * Gets circuit breakers (state, calls, rejected calls, transitions) of all the controllers
+     *
+     * @return map of controller name to the breaker
+     */
+    public Map<String, CircuitBreaker> getCircuitBreakers() {
+        Map<String, CircuitBreaker> res = new TreeMap<>();
+        for (CircuitBreaker circuitBreaker : circuitBreakers.values()) {
+            res.put(circuitBreaker.getName(), circuitBreaker);
+        }
+        return res;
+    }
+
+    /**
+     * Gets bulkheads (calls in progress, rejected calls) of all the remote services
+     *
+     * @return map of remote service URL to the bulkhead
+     */
+    public Map<String, Bulkhead> getBulkheads() {
+        return new TreeMap<>(bulkheads);
+    }
+
+    /**
+     * Gets hedgers (calls, hedges, hedges won, current delay) of all the Hedged methods
+     *
+     * @return map of method name (Contract.method(ParameterTypes)) to the hedger
+     */
+    public Map<String, Hedger> getHedgers() {
+        Map<String, Hedger> res = new TreeMap<>();
+        for (Hedger hedger : hedgers.values()) {
+            res.put(hedger.getName(), hedger);
+        }
+        return res;
+    }
+
+    /**
+     * Gets hedging budgets (available, withdrawn and denied hedges) of all the remote services
+     *
+     * @return map of remote service URL to the budget
+     */
+    public Map<String, TokenBudget> getHedgingBudgets() {
+        return new TreeMap<>(hedgingBudgets);
+    }
+
+    /**
+     * Gets retryers (calls, retries, calls given up) of all the retried methods
+     *
+     * @return map of method name (Contract.method(ParameterTypes)) to the retryer
+     */
+    public Map<String, Retryer> getRetryers() {
+        Map<String, Retryer> res = new TreeMap<>();
+        for (Retryer retryer : retryers.values()) {
+            res.put(retryer.getName(), retryer);
+        }
+        return res;
+    }
+
+    /**
+     * Gets retry budgets (available, withdrawn and denied retries) of all the remote services
+     *
+     * @return map of remote service URL to the budget
+     */
+    public Map<String, TokenBudget> getRetryBudgets() {
+        return new TreeMap<>(retryBudgets);
+    }
+
+    public CircuitBreakerSettings getCircuitBreakerSettings() {
+        return circuitBreakerSettings;
+    }
+
+    public BulkheadSettings getBulkheadSettings() {
+        return bulkheadSettings;
+    }
+
+    public HedgingSettings getHedgingSettings() {
+        return hedgingSettings;
+    }
+
+    public RetrySettings getRetrySettings() {
+        return retrySettings;
+    }
+}
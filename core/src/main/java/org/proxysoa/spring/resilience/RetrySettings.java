@@ -0,0 +1,119 @@
+package org.proxysoa.spring.resilience;
+
+import org.proxysoa.spring.annotation.Retry;
+import org.springframework.core.env.Environment;
+
+/**
+ * Keeps settings of the proxies' retries. Values are read from SOA.Retry.* properties,
+ * defaults are used for the missing ones. Settings of a method are read from
+ * SOA.Retry.Contract.method.* properties, Retry annotation values and the defaults (in the order).
+ */
+public class RetrySettings {
+    public static final String PREFIX = "SOA.Retry.";
+
+    //max attempts of a call (the first one and retries)
+    private int maxAttempts = 3;
+    //backoff (milliseconds) of the first retry
+    private long initialBackoff = 50;
+    //max backoff (milliseconds)
+    private long maxBackoff = 1000;
+    //max retries in percents of the retried methods' calls of a remote service
+    private int budgetPercent = 20;
+    //max retries sent in a burst (unused budget is accumulated up to the value)
+    private int budgetBurst = 10;
+
+    /**
+     * Default constructor (default settings)
+     */
+    public RetrySettings() {
+    }
+
+    /**
+     * Reads the settings from environment
+     *
+     * @param environment environment to get SOA.Retry.* properties
+     */
+    public RetrySettings(Environment environment) {
+        this.maxAttempts = environment.getProperty(PREFIX + "maxAttempts", Integer.class, maxAttempts);
+        this.initialBackoff = environment.getProperty(PREFIX + "initialBackoff", Long.class, initialBackoff);
+        this.maxBackoff = environment.getProperty(PREFIX + "maxBackoff", Long.class, maxBackoff);
+        this.budgetPercent = environment.getProperty(PREFIX + "budgetPercent", Integer.class, budgetPercent);
+        this.budgetBurst = environment.getProperty(PREFIX + "budgetBurst", Integer.class, budgetBurst);
+    }
+
+    /**
+     * Gets settings of a method
+     *
+     * @param environment environment to get SOA.Retry.Contract.method.* properties (may be null)
+     * @param methodKey   Contract.method
+     * @param retry       Retry annotation of the method (may be null)
+     * @return the method's settings
+     */
+    public RetrySettings forMethod(Environment environment, String methodKey, Retry retry) {
+        RetrySettings res = new RetrySettings();
+        res.maxAttempts = retry != null && retry.maxAttempts() > 0 ? retry.maxAttempts() : maxAttempts;
+        res.initialBackoff = retry != null && retry.initialBackoff() > 0 ? retry.initialBackoff() : initialBackoff;
+        res.maxBackoff = retry != null && retry.maxBackoff() > 0 ? retry.maxBackoff() : maxBackoff;
+        res.budgetPercent = budgetPercent;
+        res.budgetBurst = budgetBurst;
+        if (environment != null) {
+            String prefix = PREFIX + methodKey + ".";
+            res.maxAttempts = environment.getProperty(prefix + "maxAttempts", Integer.class, res.maxAttempts);
+            res.initialBackoff = environment.getProperty(prefix + "initialBackoff", Long.class, res.initialBackoff);
+            res.maxBackoff = environment.getProperty(prefix + "maxBackoff", Long.class, res.maxBackoff);
+        }
+        return res;
+    }
+
+    public int getMaxAttempts() {
+        return maxAttempts;
+    }
+
+    public void setMaxAttempts(int maxAttempts) {
+        this.maxAttempts = maxAttempts;
+    }
+
+    public long getInitialBackoff() {
+        return initialBackoff;
+    }
+
+    public void setInitialBackoff(long initialBackoff) {
+        this.initialBackoff = initialBackoff;
+    }
+
+    public long getMaxBackoff() {
+        return maxBackoff;
+    }
+
+    public void setMaxBackoff(long maxBackoff) {
+        this.maxBackoff = maxBackoff;
+    }
+
+    public int getBudgetPercent() {
+        return budgetPercent;
+    }
+
+    public void setBudgetPercent(int budgetPercent) {
+        this.budgetPercent = budgetPercent;
+    }
+
+    public int getBudgetBurst() {
+        return budgetBurst;
+    }
+
+    public void setBudgetBurst(int budgetBurst) {
+        this.budgetBurst = budgetBurst;
+    }
+
+    @Override
+    public String toString() {
+        final StringBuilder sb = new StringBuilder("RetrySettings{");
+        sb.append("maxAttempts=").append(maxAttempts);
+        sb.append(", initialBackoff=").append(initialBackoff);
+        sb.append(", maxBackoff=").append(maxBackoff);
+        sb.append(", budgetPercent=").append(budgetPercent);
+        sb.append(", budgetBurst=").append(budgetBurst);
+        sb.append('}');
+        return sb.toString();
+    }
+}
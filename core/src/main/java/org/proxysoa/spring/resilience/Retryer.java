@@ -0,0 +1,213 @@
+package org.proxysoa.spring.resilience;
+
+import org.apache.http.conn.ConnectTimeoutException;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.client.HttpServerErrorException;
+
+import java.net.ConnectException;
+import java.net.SocketTimeoutException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * Retries failed calls of a Retry method. Retried errors are:
+ * <ul>
+ * <li>connection refused or connect timeout - the call didn't reach the remote service</li>
+ * <li>503 Service Unavailable - the remote service refused the call</li>
+ * <li>read timeout - only if the method is idempotent (the call may have been processed)</li>
+ * </ul>
+ * Retry n is delayed by random backoff from 0 to min(maxBackoff, initialBackoff * 2^(n-1)) (full jitter),
+ * so retries of many callers don't come in waves. Retries are permitted by the remote service's budget,
+ * so during an outage the load is multiplied by (1 + budgetPercent / 100) at most.
+ */
+public class Retryer {
+    private final String name;
+    private final RetrySettings settings;
+    //whether timed out calls may be retried
+    private final boolean idempotent;
+    //retries budget of the remote service
+    private final TokenBudget budget;
+    private final ScheduledExecutorService scheduler;
+
+    private final LongAdder calls = new LongAdder();
+    private final LongAdder retries = new LongAdder();
+    //calls failed after all the attempts or because of the budget
+    private final LongAdder givenUp = new LongAdder();
+
+    /**
+     * Constructs the retryer
+     *
+     * @param name       method name
+     * @param settings   retry settings of the method
+     * @param idempotent whether timed out calls may be retried
+     * @param budget     retries budget of the remote service
+     * @param scheduler  scheduler to send delayed retries of async calls
+     */
+    public Retryer(String name, RetrySettings settings, boolean idempotent, TokenBudget budget,
+                   ScheduledExecutorService scheduler) {
+        this.name = name;
+        this.settings = settings;
+        this.idempotent = idempotent;
+        this.budget = budget;
+        this.scheduler = scheduler;
+    }
+
+    /**
+     * Calls with retries blocking the caller for the backoff
+     *
+     * @param attempt sends one attempt of the call
+     * @return call result
+     */
+    public Object call(Supplier<Object> attempt) {
+        calls.increment();
+        budget.onCall();
+        for (int n = 1; ; n++) {
+            try {
+                return attempt.get();
+            } catch (RuntimeException e) {
+                if (!shouldRetry(n, e)) {
+                    throw e;
+                }
+                try {
+                    Thread.sleep(backoffMillis(n));
+                } catch (InterruptedException ie) {
+                    Thread.currentThread().interrupt();
+                    throw e;
+                }
+            }
+        }
+    }
+
+    /**
+     * Calls with retries without blocking the caller
+     *
+     * @param attempt sends one attempt of the call
+     * @return future of the call result. Cancelling it cancels the attempt in progress and the pending retry
+     */
+    public CompletableFuture<Object> callAsync(Supplier<CompletableFuture<Object>> attempt) {
+        calls.increment();
+        budget.onCall();
+        CompletableFuture<Object> result = new CompletableFuture<>();
+        sendAttempt(attempt, result, 1);
+        return result;
+    }
+
+    private void sendAttempt(Supplier<CompletableFuture<Object>> attempt, CompletableFuture<Object> result, int n) {
+        if (result.isDone()) {
+            return;
+        }
+        CompletableFuture<Object> sent;
+        try {
+            sent = attempt.get();
+        } catch (RuntimeException e) {
+            sent = new CompletableFuture<>();
+            sent.completeExceptionally(e);
+        }
+        CompletableFuture<Object> current = sent;
+        result.whenComplete((value, e) -> {
+            if (result.isCancelled()) {
+                current.cancel(true);
+            }
+        });
+        sent.whenComplete((value, e) -> {
+            if (e == null) {
+                result.complete(value);
+            } else if (!result.isDone() && shouldRetry(n, e)) {
+                ScheduledFuture<?> retry = scheduler.schedule(() -> sendAttempt(attempt, result, n + 1),
+                        backoffMillis(n), TimeUnit.MILLISECONDS);
+                result.whenComplete((v, re) -> retry.cancel(false));
+            } else {
+                result.completeExceptionally(e);
+            }
+        });
+    }
+
+    /**
+     * Checks whether the failed attempt is to be retried and takes the retry from the budget
+     *
+     * @param n     attempt number (from 1)
+     * @param error attempt error
+     * @return true if the call is to be retried
+     */
+    private boolean shouldRetry(int n, Throwable error) {
+        if (!isRetryable(error)) {
+            return false;
+        }
+        if (n >= settings.getMaxAttempts() || !budget.tryWithdraw()) {
+            givenUp.increment();
+            return false;
+        }
+        retries.increment();
+        return true;
+    }
+
+    /**
+     * Classifies error of an attempt
+     *
+     * @param error attempt error
+     * @return true if the error may be retried
+     */
+    boolean isRetryable(Throwable error) {
+        Throwable cause = CallGuard.unwrap(error);
+        if (cause instanceof HttpServerErrorException) {
+            return ((HttpServerErrorException) cause).getStatusCode() == HttpStatus.SERVICE_UNAVAILABLE;
+        }
+        for (Throwable e = cause; e != null; e = e.getCause()) {
+            if (e instanceof ConnectException || e instanceof ConnectTimeoutException) {
+                return true;
+            }
+            if (e instanceof SocketTimeoutException) {
+                return idempotent;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Gets random backoff of the retry (full jitter)
+     *
+     * @param n number of the failed attempt (from 1)
+     * @return backoff in milliseconds
+     */
+    long backoffMillis(int n) {
+        long ceiling = Math.min(settings.getMaxBackoff(), settings.getInitialBackoff() << Math.min(n - 1, 20));
+        return ThreadLocalRandom.current().nextLong(ceiling + 1);
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public boolean isIdempotent() {
+        return idempotent;
+    }
+
+    public long getCallCount() {
+        return calls.sum();
+    }
+
+    /**
+     * @return amount of sent retries
+     */
+    public long getRetryCount() {
+        return retries.sum();
+    }
+
+    /**
+     * @return amount of calls failed with retryable error after all the attempts or because of the budget
+     */
+    public long getGivenUpCount() {
+        return givenUp.sum();
+    }
+
+    @Override
+    public String toString() {
+        return "Retryer{" + name + ", calls=" + getCallCount() + ", retries=" + getRetryCount()
+                + ", givenUp=" + getGivenUpCount() + '}';
+    }
+}
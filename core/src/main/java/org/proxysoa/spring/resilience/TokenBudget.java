@@ -0,0 +1,100 @@
+package org.proxysoa.spring.resilience;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Lock free token bucket refilled by calls: each call deposits a fraction of a token, an extra call
+ * (e.g. hedge) withdraws a whole token. So extra calls never exceed the fraction of the calls
+ * (plus the burst of accumulated tokens).
+ */
+public class TokenBudget {
+    private static final long TOKEN = 1000;
+
+    private final String name;
+    //milli tokens deposited by a call
+    private final long deposit;
+    //max milli tokens
+    private final long capacity;
+
+    private final AtomicLong tokens;
+
+    private final LongAdder withdrawn = new LongAdder();
+    private final LongAdder exhausted = new LongAdder();
+
+    /**
+     * Constructs the budget (full)
+     *
+     * @param name    budget name (remote service URL)
+     * @param percent extra calls in percents of the calls
+     * @param burst   max tokens accumulated
+     */
+    public TokenBudget(String name, int percent, int burst) {
+        this.name = name;
+        this.deposit = percent * TOKEN / 100;
+        this.capacity = burst * TOKEN;
+        this.tokens = new AtomicLong(capacity);
+    }
+
+    /**
+     * Deposits a call's share of token
+     */
+    public void onCall() {
+        long current;
+        do {
+            current = tokens.get();
+            if (current >= capacity) {
+                return;
+            }
+        } while (!tokens.compareAndSet(current, Math.min(capacity, current + deposit)));
+    }
+
+    /**
+     * Withdraws a token for an extra call
+     *
+     * @return true if the extra call is permitted
+     */
+    public boolean tryWithdraw() {
+        long current;
+        do {
+            current = tokens.get();
+            if (current < TOKEN) {
+                exhausted.increment();
+                return false;
+            }
+        } while (!tokens.compareAndSet(current, current - TOKEN));
+        withdrawn.increment();
+        return true;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * @return tokens available now
+     */
+    public double getAvailable() {
+        return tokens.get() / (double) TOKEN;
+    }
+
+    /**
+     * @return amount of permitted extra calls
+     */
+    public long getWithdrawnCount() {
+        return withdrawn.sum();
+    }
+
+    /**
+     * @return amount of extra calls denied because the budget was exhausted
+     */
+    public long getExhaustedCount() {
+        return exhausted.sum();
+    }
+
+    @Override
+    public String toString() {
+        return "TokenBudget{" + name + ", available=" + getAvailable() + ", withdrawn=" + getWithdrawnCount()
+                + ", exhausted=" + getExhaustedCount() + '}';
+    }
+}
@@ -0,0 +1,116 @@
+package org.proxysoa.spring.service;
+
+import org.proxysoa.spring.exception.SOAControllerInvocationException;
+
+import java.lang.reflect.Array;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.function.Function;
+
+/**
+ * Async view of a synchronous controller contract. Obtained from ControllerFactory.getAsyncController().
+ * <pre>
+ * CompletableFuture&lt;List&lt;ProjectDTO&gt;&gt; projects =
+ *         controllerFactory.getAsyncController(ProjectController.class).call(c -&gt; c.getProjectsByUser(userId));
+ * </pre>
+ * For remote controllers the call is executed on non-blocking transport (the function is applied to
+ * a recording stub just to capture the called method and arguments, so it must call exactly one
+ * controller method and return its result). Local controller beans are called on the transport's
+ * bounded executor.
+ *
+ * @param <T> controller contract
+ */
+public class AsyncController<T> {
+    //captures the method called on the recording stub by the current thread
+    private static final ThreadLocal<RecordedCall> RECORDED_CALL = new ThreadLocal<>();
+
+    private final T controller;
+
+    //handler of the remote proxy (null if the controller is a local bean)
+    private final RestCallHandler restCallHandler;
+
+    private final T recorder;
+
+    private final Executor executor;
+
+    /**
+     * Constructs async view
+     *
+     * @param controllerInterface controller contract
+     * @param controller          local controller bean or remote proxy
+     * @param executor            executor for local calls
+     */
+    @SuppressWarnings("unchecked")
+    AsyncController(Class<T> controllerInterface, T controller, Executor executor) {
+        this.controller = controller;
+        this.executor = executor;
+        this.restCallHandler = getRestCallHandler(controller);
+        this.recorder = restCallHandler == null ? null : (T) Proxy.newProxyInstance(
+                controllerInterface.getClassLoader(),
+                new Class[]{controllerInterface},
+                AsyncController::record);
+    }
+
+    /**
+     * Calls the controller asynchronously
+     *
+     * @param call controller method call, e.g. c -&gt; c.getProjects(pageRequest)
+     * @param <R>  result type
+     * @return future of the call result
+     */
+    @SuppressWarnings("unchecked")
+    public <R> CompletableFuture<R> call(Function<T, R> call) {
+        if (restCallHandler == null) {
+            return CompletableFuture.supplyAsync(() -> call.apply(controller), executor);
+        }
+
+        RecordedCall recorded;
+        try {
+            call.apply(recorder);
+            recorded = RECORDED_CALL.get();
+        } finally {
+            RECORDED_CALL.remove();
+        }
+        if (recorded == null) {
+            throw new SOAControllerInvocationException("No controller method is called by the async call");
+        }
+        return (CompletableFuture<R>) restCallHandler.invokeAsync(recorded.method, recorded.args);
+    }
+
+    private static RestCallHandler getRestCallHandler(Object controller) {
+        if (Proxy.isProxyClass(controller.getClass())) {
+            InvocationHandler handler = Proxy.getInvocationHandler(controller);
+            if (handler instanceof RestCallHandler) {
+                return (RestCallHandler) handler;
+            }
+        }
+        return null;
+    }
+
+    private static Object record(Object proxy, Method method, Object[] args) {
+        if (method.getDeclaringClass() == Object.class) {
+            throw new SOAControllerInvocationException("Cannot call " + method.getName() + " asynchronously");
+        }
+        RECORDED_CALL.set(new RecordedCall(method, args));
+        Class<?> returnType = method.getReturnType();
+        //primitive results cannot be null, the recorded value is ignored anyway
+        return returnType.isPrimitive() && returnType != void.class ? Array.get(Array.newInstance(returnType, 1), 0)
+                : null;
+    }
+
+    /**
+     * Controller method and arguments captured by the recording stub
+     */
+    private static class RecordedCall {
+        final Method method;
+        final Object[] args;
+
+        RecordedCall(Method method, Object[] args) {
+            this.method = method;
+            this.args = args;
+        }
+    }
+}
@@ -0,0 +1,132 @@
+package org.proxysoa.spring.service;
+
+import org.proxysoa.spring.exception.SOAControllerInvocationException;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.function.UnaryOperator;
+
+/**
+ * Collects keys of a BatchKey method's calls and loads them with one call of the batch counterpart.
+ * A batch is sent when the window since its first key is over or when it's full.
+ * The same key requested several times in a batch is sent once, the first caller gets the result and
+ * the others get copies of it (callers may modify their results).
+ */
+final class BatchLoader {
+    //sends the keys list and returns future of the key to result map
+    private final Function<List<Object>, CompletableFuture<Object>> batchCall;
+    private final ScheduledExecutorService scheduler;
+    private final long windowMillis;
+    private final int maxBatchSize;
+    //copies result of the key for its other callers
+    private final UnaryOperator<Object> copier;
+
+    //batch collecting keys now (null if there is no keys requested), guarded by this
+    private Map<Object, CompletableFuture<Object>> current;
+
+    /**
+     * Constructs the loader giving the same result object to all the callers of a key
+     *
+     * @param batchCall    call of the batch counterpart
+     * @param scheduler    scheduler to send batches on the window end
+     * @param windowMillis keys collecting window
+     * @param maxBatchSize max keys in a batch
+     */
+    BatchLoader(Function<List<Object>, CompletableFuture<Object>> batchCall, ScheduledExecutorService scheduler,
+                long windowMillis, int maxBatchSize) {
+        this(batchCall, scheduler, windowMillis, maxBatchSize, UnaryOperator.identity());
+    }
+
+    /**
+     * Constructs the loader
+     *
+     * @param batchCall    call of the batch counterpart
+     * @param scheduler    scheduler to send batches on the window end
+     * @param windowMillis keys collecting window
+     * @param maxBatchSize max keys in a batch
+     * @param copier       copies result of a key for its other callers
+     */
+    BatchLoader(Function<List<Object>, CompletableFuture<Object>> batchCall, ScheduledExecutorService scheduler,
+                long windowMillis, int maxBatchSize, UnaryOperator<Object> copier) {
+        this.batchCall = batchCall;
+        this.scheduler = scheduler;
+        this.windowMillis = windowMillis;
+        this.maxBatchSize = maxBatchSize;
+        this.copier = copier;
+    }
+
+    /**
+     * Adds the key to the current batch
+     *
+     * @param key key
+     * @return future of the key's result
+     */
+    CompletableFuture<Object> load(Object key) {
+        Map<Object, CompletableFuture<Object>> full = null;
+        CompletableFuture<Object> result;
+        synchronized (this) {
+            if (current == null) {
+                Map<Object, CompletableFuture<Object>> batch = new LinkedHashMap<>();
+                current = batch;
+                scheduler.schedule(() -> flush(batch), windowMillis, TimeUnit.MILLISECONDS);
+            }
+            CompletableFuture<Object> requested = current.get(key);
+            if (requested != null) {
+                result = requested.thenApply(copier);
+            } else {
+                result = new CompletableFuture<>();
+                current.put(key, result);
+            }
+            if (current.size() >= maxBatchSize) {
+                full = current;
+                current = null;
+            }
+        }
+        if (full != null) {
+            dispatch(full);
+        }
+        return result;
+    }
+
+    private void flush(Map<Object, CompletableFuture<Object>> batch) {
+        synchronized (this) {
+            if (current != batch) {
+                //sent already as a full one
+                return;
+            }
+            current = null;
+        }
+        dispatch(batch);
+    }
+
+    @SuppressWarnings("unchecked")
+    private void dispatch(Map<Object, CompletableFuture<Object>> batch) {
+        CompletableFuture<Object> call;
+        try {
+            call = batchCall.apply(new ArrayList<>(batch.keySet()));
+        } catch (RuntimeException e) {
+            batch.values().forEach(f -> f.completeExceptionally(e));
+            return;
+        }
+        call.whenComplete((results, e) -> {
+            if (e != null) {
+                batch.values().forEach(f -> f.completeExceptionally(e));
+            } else if (results != null && !(results instanceof Map)) {
+                SOAControllerInvocationException error =
+                        new SOAControllerInvocationException("Batch call returned " + results.getClass() + " not map");
+                batch.values().forEach(f -> f.completeExceptionally(error));
+            } else {
+                Map<Object, Object> resultsMap = (Map<Object, Object>) results;
+                for (Map.Entry<Object, CompletableFuture<Object>> entry : batch.entrySet()) {
+                    entry.getValue().complete(resultsMap != null ? resultsMap.get(entry.getKey()) : null);
+                }
+            }
+        });
+    }
+}
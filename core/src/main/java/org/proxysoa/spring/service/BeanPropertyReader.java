@@ -0,0 +1,179 @@
+package org.proxysoa.spring.service;
+
+import org.proxysoa.spring.exception.SOAControllerInvocationException;
+import org.springframework.util.ClassUtils;
+
+import java.beans.IntrospectionException;
+import java.beans.Introspector;
+import java.beans.PropertyDescriptor;
+import java.lang.invoke.CallSite;
+import java.lang.invoke.LambdaMetafactory;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * Compiled readers of a POJO properties. Built once per class (introspection is done only on the
+ * first access), getters are bound with LambdaMetafactory so reading a property is a plain
+ * interface call without reflection.
+ */
+final class BeanPropertyReader {
+    private static final BeanPropertyReader EMPTY = new BeanPropertyReader(new String[0], emptyGetters());
+
+    private static final ClassValue<BeanPropertyReader> READERS = new ClassValue<BeanPropertyReader>() {
+        @Override
+        protected BeanPropertyReader computeValue(Class<?> type) {
+            return build(type);
+        }
+    };
+
+    private static final MethodHandles.Lookup LOOKUP = MethodHandles.lookup();
+
+    private final String[] names;
+    private final Function<Object, Object>[] getters;
+    //property name to index in names/getters arrays
+    private final Map<String, Integer> indexes = new HashMap<>();
+
+    private BeanPropertyReader(String[] names, Function<Object, Object>[] getters) {
+        this.names = names;
+        this.getters = getters;
+        for (int i = 0; i < names.length; i++) {
+            indexes.put(names[i], i);
+        }
+    }
+
+    /**
+     * Gets (builds on the first call) reader for the class.
+     * Primitives, wrappers and null class have no properties.
+     *
+     * @param type POJO class
+     * @return properties reader
+     */
+    static BeanPropertyReader forClass(Class<?> type) {
+        if (type == null || ClassUtils.isPrimitiveOrWrapper(type)) {
+            return EMPTY;
+        }
+        return READERS.get(type);
+    }
+
+    int size() {
+        return names.length;
+    }
+
+    String name(int index) {
+        return names[index];
+    }
+
+    /**
+     * @param name property name
+     * @return index of the property or -1 if there is no such property
+     */
+    int indexOf(String name) {
+        Integer index = indexes.get(name);
+        return index != null ? index : -1;
+    }
+
+    /**
+     * Reads property value
+     *
+     * @param index property index
+     * @param bean  POJO instance
+     * @return property value
+     */
+    Object read(int index, Object bean) {
+        try {
+            return getters[index].apply(bean);
+        } catch (RuntimeException e) {
+            throw new SOAControllerInvocationException("Cannot get property " + names[index] + " of bean", e);
+        }
+    }
+
+    private static BeanPropertyReader build(Class<?> type) {
+        try {
+            List<String> names = new ArrayList<>();
+            List<Function<Object, Object>> getters = new ArrayList<>();
+            for (PropertyDescriptor descriptor : Introspector.getBeanInfo(type, Object.class).getPropertyDescriptors()) {
+                Method readMethod = descriptor.getReadMethod();
+                if (readMethod != null) {
+                    names.add(descriptor.getName());
+                    getters.add(compileGetter(readMethod));
+                }
+            }
+            Function<Object, Object>[] gettersArray = emptyGetters();
+            return new BeanPropertyReader(names.toArray(new String[names.size()]), getters.toArray(gettersArray));
+        } catch (IntrospectionException e) {
+            throw new SOAControllerInvocationException("Cannot get properties of " + type.getCanonicalName(), e);
+        }
+    }
+
+    /**
+     * Binds getter to Function. LambdaMetafactory is used when possible, otherwise the getter is
+     * called through method handle.
+     *
+     * @param readMethod property getter
+     * @return compiled getter
+     */
+    @SuppressWarnings("unchecked")
+    private static Function<Object, Object> compileGetter(Method readMethod) {
+        final MethodHandle handle;
+        try {
+            if (!Modifier.isPublic(readMethod.getDeclaringClass().getModifiers())) {
+                readMethod.setAccessible(true);
+            }
+            handle = LOOKUP.unreflect(readMethod);
+        } catch (IllegalAccessException | RuntimeException e) {
+            throw new SOAControllerInvocationException("Cannot access getter " + readMethod, e);
+        }
+        if (isLinkable(readMethod)) {
+            try {
+                CallSite site = LambdaMetafactory.metafactory(LOOKUP,
+                        "apply",
+                        MethodType.methodType(Function.class),
+                        MethodType.methodType(Object.class, Object.class),
+                        handle,
+                        handle.type().wrap());
+                return (Function<Object, Object>) site.getTarget().invoke();
+            } catch (Throwable e) {
+                //fall back to method handle call
+            }
+        }
+        final MethodHandle generic = handle.asType(MethodType.methodType(Object.class, Object.class));
+        return bean -> {
+            try {
+                return generic.invokeExact(bean);
+            } catch (RuntimeException | Error ex) {
+                throw ex;
+            } catch (Throwable ex) {
+                throw new IllegalStateException(ex);
+            }
+        };
+    }
+
+    /**
+     * Lambda class generated for the getter is linked from the core's class loader so the getter
+     * must be public and its classes must be visible from the loader.
+     *
+     * @param readMethod property getter
+     * @return true if the getter can be bound with LambdaMetafactory
+     */
+    private static boolean isLinkable(Method readMethod) {
+        ClassLoader loader = BeanPropertyReader.class.getClassLoader();
+        Class<?> returnType = readMethod.getReturnType();
+        return Modifier.isPublic(readMethod.getModifiers())
+                && Modifier.isPublic(readMethod.getDeclaringClass().getModifiers())
+                && ClassUtils.isVisible(readMethod.getDeclaringClass(), loader)
+                && (returnType.isPrimitive() || ClassUtils.isVisible(returnType, loader));
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Function<Object, Object>[] emptyGetters() {
+        return (Function<Object, Object>[]) new Function[0];
+    }
+}
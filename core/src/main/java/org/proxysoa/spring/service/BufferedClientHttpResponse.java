@@ -0,0 +1,84 @@
+package org.proxysoa.spring.service;
+
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.client.ClientHttpResponse;
+import org.springframework.util.StreamUtils;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Response which keeps status, headers and the whole body in memory. Used when the response must
+ * outlive the connection it was read from (e.g. deserialized later on another thread).
+ */
+class BufferedClientHttpResponse implements ClientHttpResponse {
+    private final int statusCode;
+    private final String statusText;
+    private final HttpHeaders headers;
+    private final byte[] body;
+
+    /**
+     * Constructs the response
+     *
+     * @param statusCode raw http status
+     * @param statusText status text
+     * @param headers    response headers
+     * @param body       response body
+     */
+    BufferedClientHttpResponse(int statusCode, String statusText, HttpHeaders headers, byte[] body) {
+        this.statusCode = statusCode;
+        this.statusText = statusText;
+        this.headers = headers;
+        this.body = body;
+    }
+
+    /**
+     * Reads the whole response to memory
+     *
+     * @param response response to be read
+     * @return buffered copy of the response
+     * @throws IOException on read errors
+     */
+    static BufferedClientHttpResponse of(ClientHttpResponse response) throws IOException {
+        HttpHeaders headers = new HttpHeaders();
+        headers.putAll(response.getHeaders());
+        InputStream in = response.getBody();
+        byte[] body = in != null ? StreamUtils.copyToByteArray(in) : new byte[0];
+        return new BufferedClientHttpResponse(response.getRawStatusCode(), response.getStatusText(), headers, body);
+    }
+
+    byte[] getBodyBytes() {
+        return body;
+    }
+
+    @Override
+    public HttpStatus getStatusCode() throws IOException {
+        return HttpStatus.valueOf(statusCode);
+    }
+
+    @Override
+    public int getRawStatusCode() throws IOException {
+        return statusCode;
+    }
+
+    @Override
+    public String getStatusText() throws IOException {
+        return statusText;
+    }
+
+    @Override
+    public void close() {
+    }
+
+    @Override
+    public InputStream getBody() throws IOException {
+        return new ByteArrayInputStream(body);
+    }
+
+    @Override
+    public HttpHeaders getHeaders() {
+        return headers;
+    }
+}
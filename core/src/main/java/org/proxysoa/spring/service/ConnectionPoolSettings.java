@@ -0,0 +1,216 @@
+package org.proxysoa.spring.service;
+
+import org.proxysoa.spring.cache.HttpResponseCache;
+import org.springframework.core.env.Environment;
+
+/**
+ * Keeps settings of the pooled http transport. Values are read from SOA.HttpTransport.* properties,
+ * defaults are used for the missing ones.
+ * All the timeouts are in milliseconds.
+ */
+public class ConnectionPoolSettings {
+    public static final String PREFIX = "SOA.HttpTransport.";
+
+    //max connections per one remote service (base URL) pool
+    private int maxTotal = 200;
+    //max connections per route (host:port) in the pool
+    private int maxPerRoute = 50;
+    private int connectTimeout = 2000;
+    private int readTimeout = 30000;
+    //how long a call waits for a free connection from the pool
+    private int connectionRequestTimeout = 1000;
+    //idle connections are evicted from the pool after the timeout
+    private long idleTimeout = 30000;
+    //connections idle longer than the value are validated before reuse
+    private int validateAfterInactivity = 2000;
+    //threads to complete async calls (deserialize results and run callers' callbacks)
+    private int asyncThreads = Runtime.getRuntime().availableProcessors();
+    //max amount of async results waiting for a thread, calls over the limit are rejected
+    private int asyncQueueSize = 10000;
+    //threads reading streamed (Publisher) results, a thread is busy while the stream has demand
+    private int streamThreads = 50;
+    //max amount of streamed results waiting for a thread, streams over the limit fail
+    private int streamQueueSize = 10000;
+    //threads executing async calls of unix domain socket pools (a thread is busy while the call is in progress)
+    private int blockingThreads = 50;
+    //max amount of unix domain socket async calls waiting for a thread, calls over the limit are rejected
+    private int blockingQueueSize = 10000;
+    //GET responses are cached following http caching headers of the remote services
+    private boolean httpCache = true;
+    //max total size of the cached response bodies (the cache is shared by the proxies of the transport)
+    private long httpCacheMaxBytes = HttpResponseCache.DEFAULT_MAX_BYTES;
+
+    /**
+     * Default constructor (default settings)
+     */
+    public ConnectionPoolSettings() {
+    }
+
+    /**
+     * Reads the settings from environment
+     *
+     * @param environment environment to get SOA.HttpTransport.* properties
+     */
+    public ConnectionPoolSettings(Environment environment) {
+        this.maxTotal = environment.getProperty(PREFIX + "maxTotal", Integer.class, maxTotal);
+        this.maxPerRoute = environment.getProperty(PREFIX + "maxPerRoute", Integer.class, maxPerRoute);
+        this.connectTimeout = environment.getProperty(PREFIX + "connectTimeout", Integer.class, connectTimeout);
+        this.readTimeout = environment.getProperty(PREFIX + "readTimeout", Integer.class, readTimeout);
+        this.connectionRequestTimeout = environment.getProperty(PREFIX + "connectionRequestTimeout",
+                Integer.class, connectionRequestTimeout);
+        this.idleTimeout = environment.getProperty(PREFIX + "idleTimeout", Long.class, idleTimeout);
+        this.validateAfterInactivity = environment.getProperty(PREFIX + "validateAfterInactivity",
+                Integer.class, validateAfterInactivity);
+        this.asyncThreads = environment.getProperty(PREFIX + "asyncThreads", Integer.class, asyncThreads);
+        this.asyncQueueSize = environment.getProperty(PREFIX + "asyncQueueSize", Integer.class, asyncQueueSize);
+        this.streamThreads = environment.getProperty(PREFIX + "streamThreads", Integer.class, streamThreads);
+        this.streamQueueSize = environment.getProperty(PREFIX + "streamQueueSize", Integer.class, streamQueueSize);
+        this.blockingThreads = environment.getProperty(PREFIX + "blockingThreads", Integer.class, blockingThreads);
+        this.blockingQueueSize = environment.getProperty(PREFIX + "blockingQueueSize", Integer.class,
+                blockingQueueSize);
+        this.httpCache = environment.getProperty(PREFIX + "httpCache", Boolean.class, httpCache);
+        this.httpCacheMaxBytes = environment.getProperty(PREFIX + "httpCacheMaxBytes", Long.class, httpCacheMaxBytes);
+    }
+
+    public int getMaxTotal() {
+        return maxTotal;
+    }
+
+    public void setMaxTotal(int maxTotal) {
+        this.maxTotal = maxTotal;
+    }
+
+    public int getMaxPerRoute() {
+        return maxPerRoute;
+    }
+
+    public void setMaxPerRoute(int maxPerRoute) {
+        this.maxPerRoute = maxPerRoute;
+    }
+
+    public int getConnectTimeout() {
+        return connectTimeout;
+    }
+
+    public void setConnectTimeout(int connectTimeout) {
+        this.connectTimeout = connectTimeout;
+    }
+
+    public int getReadTimeout() {
+        return readTimeout;
+    }
+
+    public void setReadTimeout(int readTimeout) {
+        this.readTimeout = readTimeout;
+    }
+
+    public int getConnectionRequestTimeout() {
+        return connectionRequestTimeout;
+    }
+
+    public void setConnectionRequestTimeout(int connectionRequestTimeout) {
+        this.connectionRequestTimeout = connectionRequestTimeout;
+    }
+
+    public long getIdleTimeout() {
+        return idleTimeout;
+    }
+
+    public void setIdleTimeout(long idleTimeout) {
+        this.idleTimeout = idleTimeout;
+    }
+
+    public int getValidateAfterInactivity() {
+        return validateAfterInactivity;
+    }
+
+    public void setValidateAfterInactivity(int validateAfterInactivity) {
+        this.validateAfterInactivity = validateAfterInactivity;
+    }
+
+    public int getAsyncThreads() {
+        return asyncThreads;
+    }
+
+    public void setAsyncThreads(int asyncThreads) {
+        this.asyncThreads = asyncThreads;
+    }
+
+    public int getAsyncQueueSize() {
+        return asyncQueueSize;
+    }
+
+    public void setAsyncQueueSize(int asyncQueueSize) {
+        this.asyncQueueSize = asyncQueueSize;
+    }
+
+    public int getStreamThreads() {
+        return streamThreads;
+    }
+
+    public void setStreamThreads(int streamThreads) {
+        this.streamThreads = streamThreads;
+    }
+
+    public int getStreamQueueSize() {
+        return streamQueueSize;
+    }
+
+    public void setStreamQueueSize(int streamQueueSize) {
+        this.streamQueueSize = streamQueueSize;
+    }
+
+    public int getBlockingThreads() {
+        return blockingThreads;
+    }
+
+    public void setBlockingThreads(int blockingThreads) {
+        this.blockingThreads = blockingThreads;
+    }
+
+    public int getBlockingQueueSize() {
+        return blockingQueueSize;
+    }
+
+    public void setBlockingQueueSize(int blockingQueueSize) {
+        this.blockingQueueSize = blockingQueueSize;
+    }
+
+    public boolean isHttpCache() {
+        return httpCache;
+    }
+
+    public void setHttpCache(boolean httpCache) {
+        this.httpCache = httpCache;
+    }
+
+    public long getHttpCacheMaxBytes() {
+        return httpCacheMaxBytes;
+    }
+
+    public void setHttpCacheMaxBytes(long httpCacheMaxBytes) {
+        this.httpCacheMaxBytes = httpCacheMaxBytes;
+    }
+
+    @Override
+    public String toString() {
+        final StringBuilder sb = new StringBuilder("ConnectionPoolSettings{");
+        sb.append("maxTotal=").append(maxTotal);
+        sb.append(", maxPerRoute=").append(maxPerRoute);
+        sb.append(", connectTimeout=").append(connectTimeout);
+        sb.append(", readTimeout=").append(readTimeout);
+        sb.append(", connectionRequestTimeout=").append(connectionRequestTimeout);
+        sb.append(", idleTimeout=").append(idleTimeout);
+        sb.append(", validateAfterInactivity=").append(validateAfterInactivity);
+        sb.append(", asyncThreads=").append(asyncThreads);
+        sb.append(", asyncQueueSize=").append(asyncQueueSize);
+        sb.append(", streamThreads=").append(streamThreads);
+        sb.append(", streamQueueSize=").append(streamQueueSize);
+        sb.append(", blockingThreads=").append(blockingThreads);
+        sb.append(", blockingQueueSize=").append(blockingQueueSize);
+        sb.append(", httpCache=").append(httpCache);
+        sb.append(", httpCacheMaxBytes=").append(httpCacheMaxBytes);
+        sb.append('}');
+        return sb.toString();
+    }
+}
@@ -1,15 +1,27 @@
 package org.proxysoa.spring.service;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.proxysoa.spring.balancer.LoadBalancerRegistry;
+import org.proxysoa.spring.cache.ProxyCacheManager;
+import org.proxysoa.spring.codec.CodecRegistry;
+import org.proxysoa.spring.codec.JsonCodec;
 import org.proxysoa.spring.exception.SOAControllerCreationException;
+import org.proxysoa.spring.inprocess.InProcessRegistry;
+import org.proxysoa.spring.metrics.CallMetrics;
+import org.proxysoa.spring.resilience.ResilienceRegistry;
+import org.proxysoa.spring.shm.SharedMemoryRegistry;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.ApplicationContext;
 import org.springframework.stereotype.Component;
 
 import java.lang.reflect.Proxy;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 
 /**
@@ -25,9 +37,16 @@ import java.util.Map;
  * ControllerURLResolver is used to get URL for controller's remote call.
  * <p>
  * When enforceProxyCreation=true proxy is created no matter whether local bean exists.
+ * <p>
+ * Proxies of the controllers enabled by SOA.InProcess.* properties call implementation exported by
+ * a context of the same JVM without network (see InProcessRegistry). Proxies of the controllers with
+ * SOA.SharedMemory.* channel call services on the same host through shared memory (see SharedMemoryRegistry).
+ * Proxies negotiate binary body formats configured by SOA.Codec.* properties with the services (see CodecRegistry).
+ * Latencies, outcomes and body sizes of the proxies' calls are recorded per contract method (see CallMetrics).
+ * Infrastructure which is not set to the factory (e.g. the transport) is created by it and destroyed with it.
  */
 @Component
-public class ControllerFactory {
+public class ControllerFactory implements DisposableBean {
     private static final Logger LOG = LoggerFactory.getLogger(ControllerFactory.class);
 
     private ApplicationContext applicationContext;
@@ -36,6 +55,39 @@ public class ControllerFactory {
 
     private HttpHeadersResolver httpHeadersResolver;
 
+    //connection pools shared by all the created proxies
+    private PooledHttpTransport httpTransport;
+
+    //JSON serialization shared by all the created proxies
+    private JsonCodec jsonCodec;
+
+    //results caches shared by all the created proxies
+    private ProxyCacheManager cacheManager;
+
+    //single flight groups shared by all the created proxies
+    private SingleFlightRegistry singleFlightRegistry;
+
+    //circuit breakers and bulkheads shared by all the created proxies
+    private ResilienceRegistry resilienceRegistry;
+
+    //load balancers of remote services shared by all the created proxies
+    private LoadBalancerRegistry loadBalancerRegistry;
+
+    //controller implementations exported in the JVM for in-process calls
+    private InProcessRegistry inProcessRegistry;
+
+    //shared memory channels of the services used by all the created proxies
+    private SharedMemoryRegistry sharedMemoryRegistry;
+
+    //body codecs negotiated by all the created proxies
+    private CodecRegistry codecRegistry;
+
+    //latency histograms and counters of all the created proxies' calls
+    private CallMetrics callMetrics;
+
+    //infrastructure created by the factory itself (not set), destroyed with the factory
+    private final List<DisposableBean> created = new ArrayList<>();
+
     //kind of cache which keeps proxy references by class name to avoid permanent Proxy creation
     private Map<String, Object> controllersMap = new HashMap<>();
 
@@ -53,6 +105,192 @@ public class ControllerFactory {
         this.httpHeadersResolver = httpHeadersResolver;
     }
 
+    @Autowired(required = false)
+    public void setHttpTransport(PooledHttpTransport httpTransport) {
+        this.httpTransport = httpTransport;
+    }
+
+    /**
+     * Gets transport used by the created proxies. Creates default one if no transport is set.
+     *
+     * @return shared http transport
+     */
+    public synchronized PooledHttpTransport getHttpTransport() {
+        if (httpTransport == null) {
+            httpTransport = new PooledHttpTransport();
+            created.add(httpTransport);
+        }
+        return httpTransport;
+    }
+
+    /**
+     * Uses application's ObjectMapper for proxies' serialization
+     *
+     * @param objectMapper mapper
+     */
+    @Autowired(required = false)
+    public void setObjectMapper(ObjectMapper objectMapper) {
+        this.jsonCodec = new JsonCodec(objectMapper);
+    }
+
+    public void setJsonCodec(JsonCodec jsonCodec) {
+        this.jsonCodec = jsonCodec;
+    }
+
+    /**
+     * Gets codec used by the created proxies. Creates default one if no codec is set.
+     *
+     * @return shared JSON codec
+     */
+    public synchronized JsonCodec getJsonCodec() {
+        if (jsonCodec == null) {
+            jsonCodec = new JsonCodec();
+        }
+        return jsonCodec;
+    }
+
+    @Autowired(required = false)
+    public void setCacheManager(ProxyCacheManager cacheManager) {
+        this.cacheManager = cacheManager;
+    }
+
+    /**
+     * Gets results caches of the created proxies. Creates default one if no manager is set.
+     *
+     * @return shared cache manager
+     */
+    public synchronized ProxyCacheManager getCacheManager() {
+        if (cacheManager == null) {
+            cacheManager = new ProxyCacheManager();
+        }
+        return cacheManager;
+    }
+
+    @Autowired(required = false)
+    public void setSingleFlightRegistry(SingleFlightRegistry singleFlightRegistry) {
+        this.singleFlightRegistry = singleFlightRegistry;
+    }
+
+    /**
+     * Gets single flight groups of the created proxies. Creates default registry if no registry is set.
+     *
+     * @return shared single flight registry
+     */
+    public synchronized SingleFlightRegistry getSingleFlightRegistry() {
+        if (singleFlightRegistry == null) {
+            singleFlightRegistry = new SingleFlightRegistry();
+        }
+        return singleFlightRegistry;
+    }
+
+    @Autowired(required = false)
+    public void setResilienceRegistry(ResilienceRegistry resilienceRegistry) {
+        this.resilienceRegistry = resilienceRegistry;
+    }
+
+    /**
+     * Gets circuit breakers and bulkheads of the created proxies. Creates default registry if no registry is set.
+     *
+     * @return shared resilience registry
+     */
+    public synchronized ResilienceRegistry getResilienceRegistry() {
+        if (resilienceRegistry == null) {
+            resilienceRegistry = new ResilienceRegistry();
+        }
+        return resilienceRegistry;
+    }
+
+    @Autowired(required = false)
+    public void setLoadBalancerRegistry(LoadBalancerRegistry loadBalancerRegistry) {
+        this.loadBalancerRegistry = loadBalancerRegistry;
+    }
+
+    /**
+     * Gets load balancers of the created proxies. Creates default registry if no registry is set.
+     *
+     * @return shared load balancer registry
+     */
+    public synchronized LoadBalancerRegistry getLoadBalancerRegistry() {
+        if (loadBalancerRegistry == null) {
+            loadBalancerRegistry = new LoadBalancerRegistry();
+            created.add(loadBalancerRegistry);
+        }
+        return loadBalancerRegistry;
+    }
+
+    @Autowired(required = false)
+    public void setInProcessRegistry(InProcessRegistry inProcessRegistry) {
+        this.inProcessRegistry = inProcessRegistry;
+    }
+
+    /**
+     * Gets implementations for in-process calls of the created proxies. Creates default registry
+     * (in-process calls are not enabled) if no registry is set.
+     *
+     * @return shared in-process registry
+     */
+    public synchronized InProcessRegistry getInProcessRegistry() {
+        if (inProcessRegistry == null) {
+            inProcessRegistry = new InProcessRegistry();
+            created.add(inProcessRegistry);
+        }
+        return inProcessRegistry;
+    }
+
+    @Autowired(required = false)
+    public void setSharedMemoryRegistry(SharedMemoryRegistry sharedMemoryRegistry) {
+        this.sharedMemoryRegistry = sharedMemoryRegistry;
+    }
+
+    /**
+     * Gets shared memory channels of the created proxies. Creates default registry (no channels are used)
+     * if no registry is set.
+     *
+     * @return shared memory registry
+     */
+    public synchronized SharedMemoryRegistry getSharedMemoryRegistry() {
+        if (sharedMemoryRegistry == null) {
+            sharedMemoryRegistry = new SharedMemoryRegistry();
+            created.add(sharedMemoryRegistry);
+        }
+        return sharedMemoryRegistry;
+    }
+
+    @Autowired(required = false)
+    public void setCodecRegistry(CodecRegistry codecRegistry) {
+        this.codecRegistry = codecRegistry;
+    }
+
+    /**
+     * Gets body codecs of the created proxies. Creates default registry if no registry is set.
+     *
+     * @return codec registry
+     */
+    public synchronized CodecRegistry getCodecRegistry() {
+        if (codecRegistry == null) {
+            codecRegistry = new CodecRegistry();
+        }
+        return codecRegistry;
+    }
+
+    @Autowired(required = false)
+    public void setCallMetrics(CallMetrics callMetrics) {
+        this.callMetrics = callMetrics;
+    }
+
+    /**
+     * Gets call metrics of the created proxies. Creates default one if no metrics are set.
+     *
+     * @return call metrics
+     */
+    public synchronized CallMetrics getCallMetrics() {
+        if (callMetrics == null) {
+            callMetrics = new CallMetrics();
+            created.add(callMetrics);
+        }
+        return callMetrics;
+    }
+
     @Autowired
     public void setApplicationContext(ApplicationContext applicationContext) {
         this.applicationContext = applicationContext;
@@ -104,11 +342,36 @@ public class ControllerFactory {
         return controller;
     }
 
+    /**
+     * Gets async view of the controller (local bean or remote proxy). Calls of the view don't block
+     * the caller, remote calls are executed on non-blocking transport.
+     *
+     * @param controllerInterface controller to be called
+     * @param <T>                 class
+     * @return async view of the controller
+     */
+    public <T> AsyncController<T> getAsyncController(Class<T> controllerInterface) {
+        return new AsyncController<>(controllerInterface, getController(controllerInterface),
+                getHttpTransport().getAsyncExecutor());
+    }
+
     @SuppressWarnings("unchecked")
     public <T> T createProxy(Class<T> controllerInterface, String controllerUrl) {
         LOG.debug("Create proxy for controller {} for URL {}", controllerInterface.getCanonicalName(), controllerUrl);
         T controller;
-        RestCallHandler restCallHandler = new RestCallHandler(controllerInterface, controllerUrl, httpHeadersResolver);
+        RestCallHandler restCallHandler = RestCallHandler.builder(controllerInterface, controllerUrl)
+                .httpHeadersResolver(httpHeadersResolver)
+                .httpTransport(getHttpTransport())
+                .jsonCodec(getJsonCodec())
+                .cacheManager(getCacheManager())
+                .singleFlightRegistry(getSingleFlightRegistry())
+                .resilienceRegistry(getResilienceRegistry())
+                .loadBalancerRegistry(getLoadBalancerRegistry())
+                .inProcessRegistry(getInProcessRegistry())
+                .sharedMemoryRegistry(getSharedMemoryRegistry())
+                .codecRegistry(getCodecRegistry())
+                .callMetrics(getCallMetrics())
+                .build();
         T proxy = (T) Proxy.newProxyInstance(
                 controllerInterface.getClassLoader(),
                 new Class[]{controllerInterface},
@@ -118,6 +381,22 @@ public class ControllerFactory {
         return controller;
     }
 
+    /**
+     * Destroys the infrastructure created by the factory (transport's connection pools and threads,
+     * shared memory channels etc.). The infrastructure set to the factory is destroyed by its owner.
+     */
+    @Override
+    public synchronized void destroy() {
+        for (DisposableBean bean : created) {
+            try {
+                bean.destroy();
+            } catch (Exception e) {
+                LOG.warn("Cannot destroy {}", bean.getClass().getSimpleName(), e);
+            }
+        }
+        created.clear();
+    }
+
     public boolean isEnforceProxyCreation() {
         return enforceProxyCreation;
     }
@@ -1,7 +1,13 @@
 package org.proxysoa.spring.service;
 
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
 /**
- * Provides a way to get URL for remote call of a controller
+ * Provides a way to get URL for remote call of a controller.
+ * The URL may list several instances of the remote service separated by commas,
+ * proxy balances the calls over the instances.
  *
  * @author stanislav.lapitsky created 4/18/2017.
  */
@@ -11,7 +17,34 @@ public interface ControllerURLResolver {
      * Gets remote service URL for the controller
      *
      * @param controllerClass controller
-     * @return remote URL
+     * @return remote URL (comma separated URLs of the service instances)
      */
     String getServiceURL(Class<?> controllerClass);
+
+    /**
+     * Gets URLs of the remote service instances for the controller
+     *
+     * @param controllerClass controller
+     * @return remote URLs (empty if the URL cannot be resolved)
+     */
+    default List<String> getServiceURLs(Class<?> controllerClass) {
+        String url = getServiceURL(controllerClass);
+        return url != null ? splitURLs(url) : Collections.emptyList();
+    }
+
+    /**
+     * Splits comma separated URLs of the service instances
+     *
+     * @param urls comma separated URLs
+     * @return list of URLs (the value itself if it has no URLs)
+     */
+    static List<String> splitURLs(String urls) {
+        List<String> res = new ArrayList<>();
+        for (String url : urls.split(",")) {
+            if (!url.trim().isEmpty()) {
+                res.add(url.trim());
+            }
+        }
+        return res.isEmpty() ? Collections.singletonList(urls) : res;
+    }
 }
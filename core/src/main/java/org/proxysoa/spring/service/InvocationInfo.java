@@ -0,0 +1,258 @@
+package org.proxysoa.spring.service;
+
+import com.fasterxml.jackson.databind.JavaType;
+import com.fasterxml.jackson.databind.type.TypeFactory;
+import org.proxysoa.spring.annotation.BatchKey;
+import org.proxysoa.spring.annotation.ProxyCacheEvict;
+import org.proxysoa.spring.cache.MethodCache;
+import org.proxysoa.spring.metrics.MethodMetrics;
+import org.proxysoa.spring.resilience.Hedger;
+import org.proxysoa.spring.resilience.Retryer;
+import org.reactivestreams.Publisher;
+import org.springframework.http.HttpMethod;
+import org.springframework.util.ClassUtils;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.util.UriComponents;
+import org.springframework.web.util.UriComponentsBuilder;
+
+import java.lang.annotation.Annotation;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.Type;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.stream.Stream;
+
+/**
+ * Class keeps invocation info (necessary for REST remote calls).
+ * The info is a compiled plan of the method call built once on proxy creation: parsed URL,
+ * resolved parameter names, readers of POJO arguments and resolved return type. So the call itself
+ * does no introspection and no reflection lookups.
+ *
+ * @author stanislav.lapitsky created 4/14/2017.
+ */
+final class InvocationInfo {
+    private static final Object[] NO_ARGS = new Object[0];
+
+    // request mapping for the call (added to URL)
+    final String requestMapping;
+    // http method
+    final HttpMethod httpMethod;
+    // remote service URL
+    final String serviceUrl;
+    // api params declared for the method in controller
+    final List<RequestParam> parameters;
+
+    // remote service URL + request mapping parsed once (null if the URL is not valid)
+    final UriComponents uriComponents;
+    // names of the declared api params
+    final String[] parameterNames;
+    // whether declared api params are bound to the method arguments one by one
+    final boolean directBinding;
+    // declared types of the method arguments
+    final Class<?>[] argumentTypes;
+    // properties readers for the declared argument types (null if the type is not a concrete POJO)
+    final BeanPropertyReader[] argumentReaders;
+    // index of the argument annotated with RequestBody (-1 if there is no such argument)
+    final int bodyIndex;
+    // batching settings of the method (null if the method's calls are not batched)
+    final BatchKey batchKey;
+    // results cache of the method (null if the results are not cached)
+    final MethodCache cache;
+    // collapses concurrent identical calls of the method (null if the method is not SingleFlight)
+    final SingleFlightGroup singleFlight;
+    // sends hedges of the method's slow calls (null if the method is not Hedged)
+    final Hedger hedger;
+    // retries the method's failed calls (null if the calls are not retried)
+    final Retryer retryer;
+    // latency histogram and counters of the method's calls (null if the calls are not measured)
+    final MethodMetrics metrics;
+    // names of the methods which caches are cleared after the call (empty if none)
+    final String[] cacheEvict;
+    // true if the method returns CompletableFuture (the call is executed asynchronously)
+    final boolean async;
+    // true if the method returns Publisher, Stream or Iterator (the result is streamed element by element)
+    final boolean streaming;
+    // Publisher, Stream or Iterator class returned by streaming method (null if the method is not streaming)
+    final Class<?> streamClass;
+    // method generic return type (value type of the future for async methods, element type for streaming ones)
+    final Type returnType;
+    // return type resolved for jackson
+    final JavaType returnJavaType;
+
+    /**
+     * Constructs invocation info
+     *
+     * @param method         controller method
+     * @param serviceUrl     remote URL
+     * @param requestMapping method request mapping
+     * @param httpMethod     http method
+     * @param parameters     declared parameters
+     * @param cache          results cache of the method (null if the results are not cached)
+     * @param singleFlight   single flight group of the method (null if the calls are not collapsed)
+     * @param hedger         hedger of the method (null if the calls are not hedged)
+     * @param retryer        retryer of the method (null if the calls are not retried)
+     * @param metrics        metrics of the method (null if the calls are not measured)
+     */
+    InvocationInfo(Method method, String serviceUrl, String requestMapping, HttpMethod httpMethod,
+                   List<RequestParam> parameters, MethodCache cache, SingleFlightGroup singleFlight,
+                   Hedger hedger, Retryer retryer, MethodMetrics metrics) {
+        this.serviceUrl = serviceUrl;
+        this.requestMapping = requestMapping;
+        this.httpMethod = httpMethod;
+        this.parameters = parameters;
+
+        this.uriComponents = parseUrl(serviceUrl + requestMapping);
+        this.parameterNames = new String[parameters.size()];
+        for (int i = 0; i < parameterNames.length; i++) {
+            RequestParam param = parameters.get(i);
+            parameterNames[i] = param.value().isEmpty() ? param.name() : param.value();
+        }
+        this.argumentTypes = method.getParameterTypes();
+        this.directBinding = parameters.size() > 0 && parameters.size() == argumentTypes.length;
+        this.argumentReaders = new BeanPropertyReader[argumentTypes.length];
+        for (int i = 0; i < argumentTypes.length; i++) {
+            if (isConcretePojo(argumentTypes[i])) {
+                argumentReaders[i] = BeanPropertyReader.forClass(argumentTypes[i]);
+            }
+        }
+        this.bodyIndex = getBodyIndex(method);
+        this.batchKey = method.getAnnotation(BatchKey.class);
+        this.cache = cache;
+        this.singleFlight = singleFlight;
+        this.hedger = hedger;
+        this.retryer = retryer;
+        this.metrics = metrics;
+        ProxyCacheEvict evict = method.getAnnotation(ProxyCacheEvict.class);
+        this.cacheEvict = evict != null ? evict.value() : new String[0];
+        this.async = method.getReturnType() == CompletableFuture.class
+                || method.getReturnType() == CompletionStage.class;
+        this.streaming = isStreaming(method);
+        this.streamClass = streaming ? method.getReturnType() : null;
+        this.returnType = getResultType(method);
+        this.returnJavaType = TypeFactory.defaultInstance().constructType(returnType);
+    }
+
+    /**
+     * Gets properties reader for the call argument. The compiled reader is used when the argument
+     * is exactly of the declared type, otherwise the reader of the argument's class is taken from cache.
+     *
+     * @param index argument index
+     * @param arg   argument value (not null)
+     * @return properties reader
+     */
+    BeanPropertyReader argumentReader(int index, Object arg) {
+        BeanPropertyReader reader = argumentReaders[index];
+        if (reader != null && arg.getClass() == argumentTypes[index]) {
+            return reader;
+        }
+        return BeanPropertyReader.forClass(arg.getClass());
+    }
+
+    /**
+     * Creates builder of the call URL from the parsed one
+     *
+     * @return URL builder
+     */
+    UriComponentsBuilder uriBuilder() {
+        if (uriComponents == null) {
+            //throws the URL parsing exception on call
+            return UriComponentsBuilder.fromHttpUrl(serviceUrl + requestMapping);
+        }
+        return UriComponentsBuilder.newInstance().uriComponents(uriComponents);
+    }
+
+    /**
+     * Proxy passes null instead of empty arguments array for methods without parameters
+     *
+     * @param args call arguments
+     * @return not null arguments array
+     */
+    static Object[] nonNullArgs(Object[] args) {
+        return args != null ? args : NO_ARGS;
+    }
+
+    private static int getBodyIndex(Method method) {
+        Annotation[][] annotations = method.getParameterAnnotations();
+        for (int i = 0; i < annotations.length; i++) {
+            for (Annotation a : annotations[i]) {
+                if (a instanceof RequestBody) {
+                    return i;
+                }
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Checks whether the method's result is streamed: Publisher is read as the subscriber requests elements,
+     * Stream and Iterator are read as the caller consumes them
+     *
+     * @param method controller method
+     * @return true if the method returns Publisher, Stream or Iterator
+     */
+    static boolean isStreaming(Method method) {
+        Class<?> returnClass = method.getReturnType();
+        return returnClass == Publisher.class || returnClass == Stream.class || returnClass == Iterator.class;
+    }
+
+    /**
+     * Gets type of the method's result: value type of the future for async methods, element type
+     * for streaming ones, generic return type for others
+     *
+     * @param method controller method
+     * @return result type
+     */
+    static Type getResultType(Method method) {
+        Class<?> returnClass = method.getReturnType();
+        if (returnClass == CompletableFuture.class || returnClass == CompletionStage.class
+                || isStreaming(method)) {
+            return getTypeArgument(method.getGenericReturnType());
+        }
+        return method.getGenericReturnType();
+    }
+
+    private static Type getTypeArgument(Type genericType) {
+        if (genericType instanceof ParameterizedType) {
+            return ((ParameterizedType) genericType).getActualTypeArguments()[0];
+        }
+        return Object.class;
+    }
+
+    private static UriComponents parseUrl(String url) {
+        try {
+            return UriComponentsBuilder.fromHttpUrl(url).build();
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    private static boolean isConcretePojo(Class<?> type) {
+        return !type.isPrimitive()
+                && !type.isInterface()
+                && !type.isArray()
+                && !Modifier.isAbstract(type.getModifiers())
+                && !ClassUtils.isPrimitiveOrWrapper(type)
+                && type != String.class;
+    }
+
+    @Override
+    public String toString() {
+        final StringBuilder sb = new StringBuilder("InvocationInfo{");
+        sb.append("requestMapping='").append(requestMapping).append('\'');
+        sb.append(", httpMethod=").append(httpMethod);
+        sb.append(", serviceUrl='").append(serviceUrl).append('\'');
+        sb.append(", parameters=").append(parameters);
+        sb.append(", returnType=").append(returnJavaType);
+        sb.append(", async=").append(async);
+        sb.append(", streaming=").append(streaming);
+        sb.append(", batchKey=").append(batchKey);
+        sb.append(", cached=").append(cache != null);
+        sb.append('}');
+        return sb.toString();
+    }
+}
@@ -0,0 +1,40 @@
+package org.proxysoa.spring.service;
+
+import java.lang.reflect.Method;
+
+/**
+ * Builds readable names of contract methods used as metrics keys
+ */
+public final class MethodNames {
+
+    private MethodNames() {
+    }
+
+    /**
+     * Gets name of the method
+     *
+     * @param method contract method
+     * @return name Contract.method(ParameterTypes)
+     */
+    public static String of(Method method) {
+        return method.getDeclaringClass().getSimpleName() + '.' + signature(method);
+    }
+
+    /**
+     * Gets signature of the method, tells overloads apart
+     *
+     * @param method contract method
+     * @return signature method(ParameterTypes)
+     */
+    public static String signature(Method method) {
+        StringBuilder sb = new StringBuilder(method.getName()).append('(');
+        Class<?>[] types = method.getParameterTypes();
+        for (int i = 0; i < types.length; i++) {
+            if (i > 0) {
+                sb.append(',');
+            }
+            sb.append(types[i].getSimpleName());
+        }
+        return sb.append(')').toString();
+    }
+}
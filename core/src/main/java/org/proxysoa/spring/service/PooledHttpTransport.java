@@ -0,0 +1,621 @@
+package org.proxysoa.spring.service;
+
+import org.apache.http.client.config.RequestConfig;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.impl.client.HttpClients;
+import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
+import org.apache.http.impl.nio.client.CloseableHttpAsyncClient;
+import org.apache.http.impl.nio.client.HttpAsyncClients;
+import org.apache.http.impl.nio.conn.PoolingNHttpClientConnectionManager;
+import org.apache.http.impl.nio.reactor.DefaultConnectingIOReactor;
+import org.apache.http.impl.nio.reactor.IOReactorConfig;
+import org.apache.http.nio.reactor.IOReactorException;
+import org.apache.http.pool.PoolStats;
+import org.proxysoa.spring.cache.HttpCachingInterceptor;
+import org.proxysoa.spring.cache.HttpResponseCache;
+import org.proxysoa.spring.compression.CompressionInterceptor;
+import org.proxysoa.spring.compression.CompressionSettings;
+import org.proxysoa.spring.compression.CompressionStats;
+import org.proxysoa.spring.compression.ZstdDictionaryRegistry;
+import org.proxysoa.spring.exception.SOAControllerCreationException;
+import org.proxysoa.spring.transport.BlockingAsyncClientHttpRequestFactory;
+import org.proxysoa.spring.transport.Http2ClientHttpRequestFactory;
+import org.proxysoa.spring.transport.Http2Settings;
+import org.proxysoa.spring.transport.UnixSocketConnectionOperator;
+import org.proxysoa.spring.transport.UnixSocketURLs;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.context.EnvironmentAware;
+import org.springframework.core.env.Environment;
+import org.springframework.http.client.AsyncClientHttpRequestInterceptor;
+import org.springframework.http.client.ClientHttpRequestFactory;
+import org.springframework.http.client.ClientHttpRequestInterceptor;
+import org.springframework.http.client.HttpComponentsAsyncClientHttpRequestFactory;
+import org.springframework.http.client.HttpComponentsClientHttpRequestFactory;
+import org.springframework.http.client.InterceptingClientHttpRequestFactory;
+import org.springframework.stereotype.Component;
+import org.springframework.web.client.AsyncRestTemplate;
+import org.springframework.web.client.RestTemplate;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Http transport shared by all the proxies created by ControllerFactory.
+ * Keeps one keep-alive connection pool (and RestTemplate over the pool) per remote service URL
+ * resolved by ControllerURLResolver, so remote calls reuse connections instead of opening
+ * a new one on each call.
+ * <p>
+ * Async calls (contract methods returning CompletableFuture) use non-blocking pools
+ * (one per remote service URL as well), results are completed on a bounded executor.
+ * <p>
+ * GET responses of both are cached in the transport's HttpResponseCache following http caching headers
+ * of the remote services (see HttpCachingInterceptor).
+ * <p>
+ * Bodies of the calls (streamed ones included) are compressed following SOA.Compression.* properties
+ * (see CompressionInterceptor). The http client's own decompression is switched off, so the responses
+ * are decoded once and the coding's cost is recorded in the transport's CompressionStats. Zstd dictionaries
+ * (SOA.Compression.zstdDictionaries) are loaded once and shared by all the pools.
+ * <p>
+ * Pools of unix:socketFile:path URLs connect to the socket file of the service (see UnixSocketURLs).
+ * There is no non-blocking IO for unix domain sockets, so async calls of such pools are executed by the blocking
+ * pool on a bounded executor.
+ * <p>
+ * If SOA.Http2.enabled is true, calls of http:// URLs are multiplexed over a few HTTP/2 (h2c) connections
+ * per remote service instead of the pools (see Http2ClientHttpRequestFactory, Http2Settings), blocking
+ * and async calls of a service share the connections.
+ * <p>
+ * The pools are configured by SOA.HttpTransport.* properties (see ConnectionPoolSettings).
+ */
+@Component
+public class PooledHttpTransport implements EnvironmentAware, DisposableBean {
+    private static final Logger LOG = LoggerFactory.getLogger(PooledHttpTransport.class);
+
+    private ConnectionPoolSettings settings;
+    private CompressionSettings compressionSettings = new CompressionSettings();
+    private Http2Settings http2Settings = new Http2Settings();
+    private ZstdDictionaryRegistry zstdDictionaries = new ZstdDictionaryRegistry();
+
+    //key is remote service URL, value is the pool for the URL
+    private final ConcurrentMap<String, ServicePool> pools = new ConcurrentHashMap<>();
+    //key is remote service URL, value is the non-blocking pool for the URL
+    private final ConcurrentMap<String, AsyncServicePool> asyncPools = new ConcurrentHashMap<>();
+
+    //GET responses of the pools' calls (null if disabled or not created yet)
+    private volatile HttpResponseCache httpCache;
+    //http caching of the pools' calls (null if disabled)
+    private volatile HttpCachingInterceptor cachingInterceptor;
+    //compression of all the pools' calls
+    private final CompressionStats compressionStats = new CompressionStats();
+
+    //completes async calls
+    private volatile ThreadPoolExecutor asyncExecutor;
+    //reads streamed results
+    private volatile ThreadPoolExecutor streamExecutor;
+    //executes async calls of unix domain socket pools
+    private volatile ThreadPoolExecutor blockingExecutor;
+    //evicts idle connections of non-blocking pools, runs proxies' timers
+    private volatile ScheduledExecutorService scheduler;
+
+    /**
+     * Default constructor (default pool settings)
+     */
+    public PooledHttpTransport() {
+        this(new ConnectionPoolSettings());
+    }
+
+    /**
+     * Constructor with desired settings
+     *
+     * @param settings pool settings
+     */
+    public PooledHttpTransport(ConnectionPoolSettings settings) {
+        this.settings = settings;
+    }
+
+    /**
+     * Constructor with desired settings
+     *
+     * @param settings      pool settings
+     * @param http2Settings HTTP/2 transport settings
+     */
+    public PooledHttpTransport(ConnectionPoolSettings settings, Http2Settings http2Settings) {
+        this.settings = settings;
+        this.http2Settings = http2Settings;
+    }
+
+    @Override
+    public void setEnvironment(Environment environment) {
+        this.settings = new ConnectionPoolSettings(environment);
+        this.compressionSettings = new CompressionSettings(environment);
+        this.http2Settings = new Http2Settings(environment);
+        if (compressionSettings.isZstd()) {
+            this.zstdDictionaries = ZstdDictionaryRegistry.load(compressionSettings.getZstdDictionaries());
+        }
+        LOG.debug("Http transport settings {}, {}, {}", settings, compressionSettings, http2Settings);
+    }
+
+    /**
+     * Gets RestTemplate working over the connection pool of the remote service.
+     * The pool is created on the first request.
+     *
+     * @param serviceUrl remote service URL
+     * @return pooled RestTemplate
+     */
+    public RestTemplate getRestTemplate(String serviceUrl) {
+        return getPool(serviceUrl).restTemplate;
+    }
+
+    /**
+     * Gets request factory of the remote service's connection pool. Calls of the factory's requests
+     * bypass http cache (used for streamed responses which are not buffered), compressed responses
+     * are decompressed while read.
+     *
+     * @param serviceUrl remote service URL
+     * @return pooled request factory
+     */
+    public ClientHttpRequestFactory getRequestFactory(String serviceUrl) {
+        return getPool(serviceUrl).streamRequestFactory;
+    }
+
+    /**
+     * Gets the http cache used by the pools
+     *
+     * @return http cache or null if http caching is disabled
+     */
+    public HttpResponseCache getHttpCache() {
+        HttpResponseCache result = httpCache;
+        if (result == null && settings.isHttpCache()) {
+            synchronized (this) {
+                if (httpCache == null) {
+                    httpCache = new HttpResponseCache(settings.getHttpCacheMaxBytes());
+                }
+                result = httpCache;
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Gets compression statistics of the calls
+     *
+     * @return compression stats per http method and path
+     */
+    public CompressionStats getCompressionStats() {
+        return compressionStats;
+    }
+
+    public CompressionSettings getCompressionSettings() {
+        return compressionSettings;
+    }
+
+    public ZstdDictionaryRegistry getZstdDictionaries() {
+        return zstdDictionaries;
+    }
+
+    public Http2Settings getHttp2Settings() {
+        return http2Settings;
+    }
+
+    /**
+     * Gets AsyncRestTemplate working over the non-blocking connection pool of the remote service.
+     * The pool is created on the first request.
+     *
+     * @param serviceUrl remote service URL
+     * @return pooled AsyncRestTemplate
+     */
+    public AsyncRestTemplate getAsyncRestTemplate(String serviceUrl) {
+        AsyncServicePool pool = asyncPools.get(serviceUrl);
+        if (pool == null) {
+            pool = asyncPools.computeIfAbsent(serviceUrl, this::createAsyncPool);
+        }
+        return pool.restTemplate;
+    }
+
+    /**
+     * Gets bounded executor to complete async calls. Tasks over the queue limit are rejected.
+     *
+     * @return async calls executor
+     */
+    public ThreadPoolExecutor getAsyncExecutor() {
+        ThreadPoolExecutor executor = asyncExecutor;
+        if (executor == null) {
+            synchronized (this) {
+                if (asyncExecutor == null) {
+                    asyncExecutor = createExecutor(settings.getAsyncThreads(), settings.getAsyncQueueSize(),
+                            "soa-proxy-async-");
+                }
+                executor = asyncExecutor;
+            }
+        }
+        return executor;
+    }
+
+    /**
+     * Gets bounded executor to read streamed (Publisher) results. Reading blocks a thread while
+     * the stream's subscriber has demand, so the reading is kept apart from async calls completion.
+     *
+     * @return streamed results executor
+     */
+    public ThreadPoolExecutor getStreamExecutor() {
+        ThreadPoolExecutor executor = streamExecutor;
+        if (executor == null) {
+            synchronized (this) {
+                if (streamExecutor == null) {
+                    streamExecutor = createExecutor(settings.getStreamThreads(), settings.getStreamQueueSize(),
+                            "soa-proxy-stream-");
+                }
+                executor = streamExecutor;
+            }
+        }
+        return executor;
+    }
+
+    /**
+     * Gets bounded executor to execute async calls of unix domain socket pools
+     *
+     * @return blocking calls executor
+     */
+    private ThreadPoolExecutor getBlockingExecutor() {
+        ThreadPoolExecutor executor = blockingExecutor;
+        if (executor == null) {
+            synchronized (this) {
+                if (blockingExecutor == null) {
+                    blockingExecutor = createExecutor(settings.getBlockingThreads(), settings.getBlockingQueueSize(),
+                            "soa-proxy-blocking-");
+                }
+                executor = blockingExecutor;
+            }
+        }
+        return executor;
+    }
+
+    /**
+     * Gets single thread scheduler for short timer tasks (the tasks must not block)
+     *
+     * @return shared scheduler
+     */
+    public ScheduledExecutorService getScheduler() {
+        ScheduledExecutorService result = scheduler;
+        if (result == null) {
+            synchronized (this) {
+                if (scheduler == null) {
+                    scheduler = Executors.newSingleThreadScheduledExecutor(daemonThreads("soa-proxy-scheduler-"));
+                }
+                result = scheduler;
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Gets current statistics (leased, pending, available connections) of all the pools
+     * (HTTP/2 services have no pool)
+     *
+     * @return map of remote service URL to the pool stats
+     */
+    public Map<String, PoolStats> getPoolStats() {
+        Map<String, PoolStats> res = new LinkedHashMap<>();
+        for (Map.Entry<String, ServicePool> entry : pools.entrySet()) {
+            if (entry.getValue().connectionManager != null) {
+                res.put(entry.getKey(), entry.getValue().connectionManager.getTotalStats());
+            }
+        }
+        return res;
+    }
+
+    /**
+     * Gets current statistics (leased, pending, available connections) of all the non-blocking pools
+     * (unix domain socket pools have no non-blocking pool, their async calls are counted by the blocking one)
+     *
+     * @return map of remote service URL to the pool stats
+     */
+    public Map<String, PoolStats> getAsyncPoolStats() {
+        Map<String, PoolStats> res = new LinkedHashMap<>();
+        for (Map.Entry<String, AsyncServicePool> entry : asyncPools.entrySet()) {
+            if (entry.getValue().connectionManager != null) {
+                res.put(entry.getKey(), entry.getValue().connectionManager.getTotalStats());
+            }
+        }
+        return res;
+    }
+
+    public ConnectionPoolSettings getSettings() {
+        return settings;
+    }
+
+    @Override
+    public void destroy() {
+        for (Map.Entry<String, ServicePool> entry : pools.entrySet()) {
+            if (entry.getValue().httpClient != null) {
+                close(entry.getKey(), entry.getValue().httpClient);
+            }
+            if (entry.getValue().http2RequestFactory != null) {
+                close(entry.getKey(), entry.getValue().http2RequestFactory::destroy);
+            }
+        }
+        pools.clear();
+        for (Map.Entry<String, AsyncServicePool> entry : asyncPools.entrySet()) {
+            if (entry.getValue().httpClient != null) {
+                close(entry.getKey(), entry.getValue().httpClient);
+            }
+        }
+        asyncPools.clear();
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+        }
+        if (asyncExecutor != null) {
+            asyncExecutor.shutdown();
+        }
+        if (streamExecutor != null) {
+            streamExecutor.shutdown();
+        }
+        if (blockingExecutor != null) {
+            blockingExecutor.shutdown();
+        }
+        cachingInterceptor = null;
+        if (httpCache != null) {
+            httpCache.invalidateAll();
+            httpCache = null;
+        }
+    }
+
+    private ServicePool getPool(String serviceUrl) {
+        ServicePool pool = pools.get(serviceUrl);
+        if (pool == null) {
+            pool = pools.computeIfAbsent(serviceUrl, this::createPool);
+        }
+        return pool;
+    }
+
+    private ServicePool createPool(String serviceUrl) {
+        if (http2Settings.isEnabled() && !UnixSocketURLs.isUnix(serviceUrl)) {
+            return createHttp2Pool(serviceUrl);
+        }
+        LOG.debug("Create connection pool for {} with {}", serviceUrl, settings);
+        PoolingHttpClientConnectionManager connectionManager = UnixSocketURLs.isUnix(serviceUrl)
+                ? new PoolingHttpClientConnectionManager(new UnixSocketConnectionOperator(
+                        UnixSocketURLs.getSocketFile(serviceUrl)), null, -1, TimeUnit.MILLISECONDS)
+                : new PoolingHttpClientConnectionManager();
+        connectionManager.setMaxTotal(settings.getMaxTotal());
+        connectionManager.setDefaultMaxPerRoute(settings.getMaxPerRoute());
+        connectionManager.setValidateAfterInactivity(settings.getValidateAfterInactivity());
+
+        CloseableHttpClient httpClient = HttpClients.custom()
+                .setConnectionManager(connectionManager)
+                .setDefaultRequestConfig(createRequestConfig())
+                .evictExpiredConnections()
+                .evictIdleConnections(settings.getIdleTimeout(), TimeUnit.MILLISECONDS)
+                .disableContentCompression()
+                .build();
+
+        HttpComponentsClientHttpRequestFactory requestFactory = new HttpComponentsClientHttpRequestFactory(httpClient);
+        CompressionInterceptor compressionInterceptor = createCompressionInterceptor();
+        RestTemplate restTemplate = new RestTemplate(requestFactory);
+        restTemplate.setInterceptors(getInterceptors(compressionInterceptor, ClientHttpRequestInterceptor.class));
+        return new ServicePool(connectionManager, httpClient, null, requestFactory,
+                getStreamRequestFactory(requestFactory, compressionInterceptor), restTemplate, compressionInterceptor);
+    }
+
+    /**
+     * Creates HTTP/2 client of the remote service (in place of the connection pool)
+     *
+     * @param serviceUrl remote service URL
+     * @return pool without own connection manager
+     */
+    private ServicePool createHttp2Pool(String serviceUrl) {
+        LOG.debug("Create HTTP/2 client for {} with {}", serviceUrl, http2Settings);
+        Http2ClientHttpRequestFactory requestFactory = new Http2ClientHttpRequestFactory(http2Settings,
+                settings.getConnectTimeout(), settings.getReadTimeout(), settings.getIdleTimeout(), "soa-proxy-h2-");
+        CompressionInterceptor compressionInterceptor = createCompressionInterceptor();
+        RestTemplate restTemplate = new RestTemplate(requestFactory);
+        restTemplate.setInterceptors(getInterceptors(compressionInterceptor, ClientHttpRequestInterceptor.class));
+        return new ServicePool(null, null, requestFactory, requestFactory,
+                getStreamRequestFactory(requestFactory, compressionInterceptor), restTemplate, compressionInterceptor);
+    }
+
+    private CompressionInterceptor createCompressionInterceptor() {
+        return compressionSettings.isEnabled()
+                ? new CompressionInterceptor(compressionSettings, compressionStats, zstdDictionaries) : null;
+    }
+
+    private static ClientHttpRequestFactory getStreamRequestFactory(ClientHttpRequestFactory requestFactory,
+                                                                    CompressionInterceptor compressionInterceptor) {
+        return compressionInterceptor == null ? requestFactory
+                : new InterceptingClientHttpRequestFactory(requestFactory,
+                Collections.singletonList(compressionInterceptor));
+    }
+
+    private AsyncServicePool createAsyncPool(String serviceUrl) {
+        if (UnixSocketURLs.isUnix(serviceUrl)) {
+            return createBlockingAsyncPool(serviceUrl);
+        }
+        ServicePool syncPool = getPool(serviceUrl);
+        if (syncPool.http2RequestFactory != null) {
+            //async calls are streams of the same HTTP/2 connections
+            AsyncRestTemplate restTemplate = new AsyncRestTemplate(syncPool.http2RequestFactory,
+                    syncPool.restTemplate);
+            restTemplate.setInterceptors(getInterceptors(syncPool.compressionInterceptor,
+                    AsyncClientHttpRequestInterceptor.class));
+            return new AsyncServicePool(null, null, restTemplate);
+        }
+        LOG.debug("Create non-blocking connection pool for {} with {}", serviceUrl, settings);
+        PoolingNHttpClientConnectionManager connectionManager;
+        try {
+            connectionManager = new PoolingNHttpClientConnectionManager(new DefaultConnectingIOReactor(
+                    IOReactorConfig.custom()
+                            .setConnectTimeout(settings.getConnectTimeout())
+                            .setSoTimeout(settings.getReadTimeout())
+                            .build()));
+        } catch (IOReactorException e) {
+            throw new SOAControllerCreationException("Cannot create non-blocking connection pool for "
+                    + serviceUrl + ": " + e.getMessage());
+        }
+        connectionManager.setMaxTotal(settings.getMaxTotal());
+        connectionManager.setDefaultMaxPerRoute(settings.getMaxPerRoute());
+        scheduleEviction(connectionManager);
+
+        CloseableHttpAsyncClient httpClient = HttpAsyncClients.custom()
+                .setConnectionManager(connectionManager)
+                .setDefaultRequestConfig(createRequestConfig())
+                .build();
+        httpClient.start();
+
+        AsyncRestTemplate restTemplate = new AsyncRestTemplate(
+                new HttpComponentsAsyncClientHttpRequestFactory(syncPool.httpClient, httpClient),
+                syncPool.restTemplate);
+        restTemplate.setInterceptors(getInterceptors(syncPool.compressionInterceptor,
+                AsyncClientHttpRequestInterceptor.class));
+        return new AsyncServicePool(connectionManager, httpClient, restTemplate);
+    }
+
+    /**
+     * Creates async view of the blocking pool (for unix domain socket URLs)
+     *
+     * @param serviceUrl remote service URL
+     * @return async pool without own connections
+     */
+    private AsyncServicePool createBlockingAsyncPool(String serviceUrl) {
+        LOG.debug("Create async view of connection pool for {}", serviceUrl);
+        ServicePool syncPool = getPool(serviceUrl);
+        AsyncRestTemplate restTemplate = new AsyncRestTemplate(
+                new BlockingAsyncClientHttpRequestFactory(syncPool.requestFactory, getBlockingExecutor()),
+                syncPool.restTemplate);
+        restTemplate.setInterceptors(getInterceptors(syncPool.compressionInterceptor,
+                AsyncClientHttpRequestInterceptor.class));
+        return new AsyncServicePool(null, null, restTemplate);
+    }
+
+    /**
+     * Gets interceptors of a pool's template: http caching goes first, so the cache keeps decompressed
+     * responses
+     *
+     * @param compressionInterceptor compression of the pool's calls (null if disabled)
+     * @param type                   interceptor type of the template
+     * @param <T>                    interceptor type of the template
+     * @return interceptors of the template
+     */
+    private <T> List<T> getInterceptors(CompressionInterceptor compressionInterceptor, Class<T> type) {
+        List<T> res = new ArrayList<>();
+        HttpCachingInterceptor cachingInterceptor = getCachingInterceptor();
+        if (cachingInterceptor != null) {
+            res.add(type.cast(cachingInterceptor));
+        }
+        if (compressionInterceptor != null) {
+            res.add(type.cast(compressionInterceptor));
+        }
+        return res;
+    }
+
+    private HttpCachingInterceptor getCachingInterceptor() {
+        HttpCachingInterceptor result = cachingInterceptor;
+        if (result == null && settings.isHttpCache()) {
+            synchronized (this) {
+                if (cachingInterceptor == null) {
+                    cachingInterceptor = new HttpCachingInterceptor(getHttpCache());
+                }
+                result = cachingInterceptor;
+            }
+        }
+        return result;
+    }
+
+    private RequestConfig createRequestConfig() {
+        return RequestConfig.custom()
+                .setConnectTimeout(settings.getConnectTimeout())
+                .setSocketTimeout(settings.getReadTimeout())
+                .setConnectionRequestTimeout(settings.getConnectionRequestTimeout())
+                .build();
+    }
+
+    private void scheduleEviction(PoolingNHttpClientConnectionManager connectionManager) {
+        long period = Math.max(1000, settings.getIdleTimeout() / 2);
+        getScheduler().scheduleWithFixedDelay(() -> {
+            connectionManager.closeExpiredConnections();
+            connectionManager.closeIdleConnections(settings.getIdleTimeout(), TimeUnit.MILLISECONDS);
+        }, period, period, TimeUnit.MILLISECONDS);
+    }
+
+    private static void close(String serviceUrl, AutoCloseable httpClient) {
+        try {
+            httpClient.close();
+        } catch (Exception e) {
+            LOG.warn("Cannot close connection pool for {}", serviceUrl, e);
+        }
+    }
+
+    private ThreadPoolExecutor createExecutor(int threads, int queueSize, String namePrefix) {
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(threads, threads, 60, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(queueSize),
+                daemonThreads(namePrefix));
+        executor.allowCoreThreadTimeOut(true);
+        return executor;
+    }
+
+    private static ThreadFactory daemonThreads(String prefix) {
+        AtomicInteger counter = new AtomicInteger();
+        return r -> {
+            Thread thread = new Thread(r, prefix + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+
+    /**
+     * Connection pool of one remote service (connection manager and client are null for HTTP/2 services)
+     */
+    private static class ServicePool {
+        final PoolingHttpClientConnectionManager connectionManager;
+        final CloseableHttpClient httpClient;
+        //HTTP/2 client of the service (null for pooled HTTP/1.1 services)
+        final Http2ClientHttpRequestFactory http2RequestFactory;
+        final ClientHttpRequestFactory requestFactory;
+        //request factory with compression of the calls (the request factory if compression is disabled)
+        final ClientHttpRequestFactory streamRequestFactory;
+        final RestTemplate restTemplate;
+        final CompressionInterceptor compressionInterceptor;
+
+        ServicePool(PoolingHttpClientConnectionManager connectionManager, CloseableHttpClient httpClient,
+                    Http2ClientHttpRequestFactory http2RequestFactory, ClientHttpRequestFactory requestFactory,
+                    ClientHttpRequestFactory streamRequestFactory, RestTemplate restTemplate,
+                    CompressionInterceptor compressionInterceptor) {
+            this.connectionManager = connectionManager;
+            this.httpClient = httpClient;
+            this.http2RequestFactory = http2RequestFactory;
+            this.requestFactory = requestFactory;
+            this.streamRequestFactory = streamRequestFactory;
+            this.restTemplate = restTemplate;
+            this.compressionInterceptor = compressionInterceptor;
+        }
+    }
+
+    /**
+     * Non-blocking connection pool of one remote service (connection manager and client are null for async
+     * view of blocking pool)
+     */
+    private static class AsyncServicePool {
+        final PoolingNHttpClientConnectionManager connectionManager;
+        final CloseableHttpAsyncClient httpClient;
+        final AsyncRestTemplate restTemplate;
+
+        AsyncServicePool(PoolingNHttpClientConnectionManager connectionManager, CloseableHttpAsyncClient httpClient,
+                         AsyncRestTemplate restTemplate) {
+            this.connectionManager = connectionManager;
+            this.httpClient = httpClient;
+            this.restTemplate = restTemplate;
+        }
+    }
+}
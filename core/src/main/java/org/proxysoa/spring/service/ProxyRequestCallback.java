@@ -0,0 +1,71 @@
+package org.proxysoa.spring.service;
+
+import org.proxysoa.spring.codec.BodyCodec;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpOutputMessage;
+import org.springframework.http.MediaType;
+import org.springframework.http.client.AsyncClientHttpRequest;
+import org.springframework.http.client.ClientHttpRequest;
+import org.springframework.web.client.AsyncRequestCallback;
+import org.springframework.web.client.RequestCallback;
+
+import java.io.IOException;
+
+/**
+ * Writes headers and already serialized body (JSON or binary one) to the remote call request (sync or async one)
+ */
+class ProxyRequestCallback implements RequestCallback, AsyncRequestCallback {
+    private final HttpHeaders headers;
+    private final byte[] body;
+    private final BodyCodec codec;
+
+    /**
+     * Constructs the callback
+     *
+     * @param headers request headers
+     * @param body    serialized body (null for calls without body)
+     * @param codec   codec of the body (null for calls without body)
+     */
+    ProxyRequestCallback(HttpHeaders headers, byte[] body, BodyCodec codec) {
+        this.headers = headers;
+        this.body = body;
+        this.codec = codec;
+    }
+
+    /**
+     * @return serialized body (null for calls without body)
+     */
+    byte[] getBody() {
+        return body;
+    }
+
+    /**
+     * @return codec of the body (null for calls without body)
+     */
+    BodyCodec getCodec() {
+        return codec;
+    }
+
+    @Override
+    public void doWithRequest(ClientHttpRequest request) throws IOException {
+        write(request);
+    }
+
+    @Override
+    public void doWithRequest(AsyncClientHttpRequest request) throws IOException {
+        write(request);
+    }
+
+    private void write(HttpOutputMessage request) throws IOException {
+        request.getHeaders().putAll(headers);
+        if (body != null) {
+            if (request.getHeaders().getContentType() == null) {
+                //JSON bodies are written in UTF-8
+                MediaType contentType = codec.getMediaType();
+                request.getHeaders().setContentType(MediaType.APPLICATION_JSON.equals(contentType)
+                        ? MediaType.APPLICATION_JSON_UTF8 : contentType);
+            }
+            request.getBody().write(body);
+        }
+    }
+}
@@ -0,0 +1,150 @@
+package org.proxysoa.spring.service;
+
+import com.fasterxml.jackson.databind.JavaType;
+import org.proxysoa.spring.cache.CachedClientHttpResponse;
+import org.proxysoa.spring.codec.BodyCodec;
+import org.proxysoa.spring.codec.CodecNegotiator;
+import org.proxysoa.spring.codec.JsonCodec;
+import org.proxysoa.spring.metrics.MethodMetrics;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.client.ClientHttpResponse;
+import org.springframework.util.StreamUtils;
+import org.springframework.web.client.ResponseExtractor;
+import org.springframework.web.client.RestClientException;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.PushbackInputStream;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Reads remote call response to the method's return type with the cached reader of the codec
+ * negotiated for the response's content type (JSON or a binary one).
+ * String results are read as is (the same way RestTemplate's string converter does).
+ * Responses served by http cache are parsed once, next readers get copies of the parsed result.
+ * Size of the read (decompressed) body of the remote service's response is recorded in the method's metrics.
+ */
+class ProxyResponseExtractor implements ResponseExtractor<Object> {
+    private static final Charset DEFAULT_TEXT_CHARSET = StandardCharsets.ISO_8859_1;
+
+    private final JsonCodec codec;
+    private final CodecNegotiator negotiator;
+    private final JavaType returnType;
+    private final MethodMetrics metrics;
+
+    /**
+     * Constructs the extractor
+     *
+     * @param codec      codec to copy results of the cached responses
+     * @param negotiator negotiator of the proxy's body codecs
+     * @param returnType type of the result
+     * @param metrics    metrics of the method (null if the calls are not measured)
+     */
+    ProxyResponseExtractor(JsonCodec codec, CodecNegotiator negotiator, JavaType returnType, MethodMetrics metrics) {
+        this.codec = codec;
+        this.negotiator = negotiator;
+        this.returnType = returnType;
+        this.metrics = metrics;
+    }
+
+    @Override
+    public Object extractData(ClientHttpResponse response) throws IOException {
+        Class<?> resultClass = returnType.getRawClass();
+        if (resultClass == void.class || resultClass == Void.class || !hasBody(response)) {
+            return null;
+        }
+        InputStream body = response.getBody();
+        if (body == null) {
+            return null;
+        }
+        if (metrics == null || response instanceof CachedClientHttpResponse) {
+            return read(response, body);
+        }
+        CountingInputStream counted = new CountingInputStream(body);
+        Object result = read(response, counted);
+        metrics.recordResponse(counted.count);
+        return result;
+    }
+
+    private Object read(ClientHttpResponse response, InputStream body) throws IOException {
+        Class<?> resultClass = returnType.getRawClass();
+        PushbackInputStream in = new PushbackInputStream(body);
+        int first = in.read();
+        if (first == -1) {
+            return null;
+        }
+        in.unread(first);
+
+        MediaType contentType = response.getHeaders().getContentType();
+        if (resultClass == String.class) {
+            Charset charset = contentType != null && contentType.getCharset() != null
+                    ? contentType.getCharset() : DEFAULT_TEXT_CHARSET;
+            return StreamUtils.copyToString(in, charset);
+        }
+        BodyCodec bodyCodec = negotiator.getResponseCodec(contentType);
+        if (bodyCodec == null) {
+            throw new RestClientException("Cannot extract response of content type " + contentType
+                    + " to " + returnType);
+        }
+        if (response instanceof CachedClientHttpResponse) {
+            return readCached((CachedClientHttpResponse) response, in, bodyCodec);
+        }
+        return bodyCodec.read(in, returnType);
+    }
+
+    private Object readCached(CachedClientHttpResponse response, InputStream in, BodyCodec bodyCodec)
+            throws IOException {
+        Object decoded = response.getDecoded(returnType);
+        if (decoded == null) {
+            decoded = bodyCodec.read(in, returnType);
+            response.setDecoded(returnType, decoded);
+        }
+        return codec.copy(decoded, returnType);
+    }
+
+    private static boolean hasBody(ClientHttpResponse response) throws IOException {
+        int status = response.getRawStatusCode();
+        return status != HttpStatus.NO_CONTENT.value()
+                && status != HttpStatus.NOT_MODIFIED.value()
+                && response.getHeaders().getContentLength() != 0;
+    }
+
+    /**
+     * Counts bytes read from the body
+     */
+    private static class CountingInputStream extends FilterInputStream {
+        private long count;
+
+        CountingInputStream(InputStream in) {
+            super(in);
+        }
+
+        @Override
+        public int read() throws IOException {
+            int b = in.read();
+            if (b >= 0) {
+                count++;
+            }
+            return b;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            int n = in.read(b, off, len);
+            if (n > 0) {
+                count += n;
+            }
+            return n;
+        }
+
+        @Override
+        public long skip(long n) throws IOException {
+            long skipped = in.skip(n);
+            count += skipped;
+            return skipped;
+        }
+    }
+}
@@ -0,0 +1,51 @@
+package org.proxysoa.spring.service;
+
+import org.springframework.beans.factory.BeanFactory;
+import org.springframework.beans.factory.BeanFactoryAware;
+import org.springframework.beans.factory.FactoryBean;
+
+/**
+ * Creates proxy of a @Proxyable controller registered by ProxyableScanRegistrar. The proxy is created
+ * by the registrar's ControllerFactory bean on the first request, so the factory gets the context's
+ * infrastructure beans fully configured (autowired and initialized).
+ *
+ * @param <T> controller contract
+ */
+class ProxyableFactoryBean<T> implements FactoryBean<T>, BeanFactoryAware {
+    private final Class<T> controllerInterface;
+    private final String controllerFactoryName;
+
+    private BeanFactory beanFactory;
+
+    /**
+     * Constructs the factory bean
+     *
+     * @param controllerInterface   controller contract
+     * @param controllerFactoryName name of the ControllerFactory bean creating the proxy
+     */
+    ProxyableFactoryBean(Class<T> controllerInterface, String controllerFactoryName) {
+        this.controllerInterface = controllerInterface;
+        this.controllerFactoryName = controllerFactoryName;
+    }
+
+    @Override
+    public void setBeanFactory(BeanFactory beanFactory) {
+        this.beanFactory = beanFactory;
+    }
+
+    @Override
+    public T getObject() {
+        ControllerFactory controllerFactory = beanFactory.getBean(controllerFactoryName, ControllerFactory.class);
+        return controllerFactory.getOrCreateProxy(controllerInterface);
+    }
+
+    @Override
+    public Class<?> getObjectType() {
+        return controllerInterface;
+    }
+
+    @Override
+    public boolean isSingleton() {
+        return true;
+    }
+}
@@ -7,10 +7,9 @@ import org.reflections.Reflections;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.AnnotatedBeanDefinition;
-import org.springframework.beans.factory.config.AutowireCapableBeanFactory;
 import org.springframework.beans.factory.config.BeanDefinition;
 import org.springframework.beans.factory.support.BeanDefinitionRegistry;
-import org.springframework.beans.factory.support.DefaultListableBeanFactory;
+import org.springframework.beans.factory.support.RootBeanDefinition;
 import org.springframework.context.EnvironmentAware;
 import org.springframework.context.annotation.ClassPathScanningCandidateComponentProvider;
 import org.springframework.context.annotation.ImportBeanDefinitionRegistrar;
@@ -28,6 +27,9 @@ import java.util.Set;
 public class ProxyableScanRegistrar implements ImportBeanDefinitionRegistrar, EnvironmentAware {
     private static final Logger LOG = LoggerFactory.getLogger(ProxyableScanRegistrar.class);
 
+    //name of the ControllerFactory bean creating the registered proxies
+    static final String CONTROLLER_FACTORY = "proxyableScanControllerFactory";
+
     private Environment environment;
 
     @Override
@@ -61,7 +63,7 @@ public class ProxyableScanRegistrar implements ImportBeanDefinitionRegistrar, En
             };
             provider.addIncludeFilter(new AnnotationTypeFilter(Proxyable.class));
 
-            ControllerFactory factory = getControllerFactory((DefaultListableBeanFactory) registry);
+            registerControllerFactory(registry);
 
             // Scan all packages
             for (String basePackage : basePackages) {
@@ -69,8 +71,8 @@ public class ProxyableScanRegistrar implements ImportBeanDefinitionRegistrar, En
                     try {
                         Class c = this.getClass().getClassLoader().loadClass(beanDefinition.getBeanClassName());
                         if (!hasImplementingClass(c, basePackages)) {
-                            Object instance = factory.getOrCreateProxy(c);
-                            ((DefaultListableBeanFactory) registry).registerSingleton(beanDefinition.getBeanClassName(), instance);
+                            registry.registerBeanDefinition(beanDefinition.getBeanClassName(),
+                                    createProxyDefinition(c));
                             LOG.debug("Registered proxy for {}", c.getCanonicalName());
                         }
                     } catch (ClassNotFoundException e) {
@@ -82,20 +84,32 @@ public class ProxyableScanRegistrar implements ImportBeanDefinitionRegistrar, En
     }
 
     /**
-     * Gets controller factory instance to create Proxy for found controllers
+     * Registers ControllerFactory bean creating the proxies. The bean is not a candidate for autowiring,
+     * so the context's own ControllerFactory is still injected by type.
+     *
+     * @param registry bean definitions registry
+     */
+    private static void registerControllerFactory(BeanDefinitionRegistry registry) {
+        if (!registry.containsBeanDefinition(CONTROLLER_FACTORY)) {
+            LOG.debug("Registering ControllerFactory to create proxy controllers");
+            RootBeanDefinition definition = new RootBeanDefinition(ControllerFactory.class);
+            definition.setAutowireCandidate(false);
+            registry.registerBeanDefinition(CONTROLLER_FACTORY, definition);
+        }
+    }
+
+    /**
+     * Creates definition of the controller's proxy bean. The proxy is created when the bean is requested,
+     * so the infrastructure beans (codecs, registries, transport) are autowired and initialized by then.
      *
-     * @param beanFactory bean factory to get beans
-     * @return controller factory
+     * @param controllerInterface controller contract
+     * @return bean definition
      */
-    private ControllerFactory getControllerFactory(DefaultListableBeanFactory beanFactory) {
-        LOG.debug("Creating ControllerFactory to register proxy controllers");
-        ControllerFactory factory = new ControllerFactory();
-        ControllerURLResolver urlResolver = beanFactory.getBean(ControllerURLResolver.class);
-        beanFactory.initializeBean(urlResolver, ControllerURLResolver.class.getCanonicalName());
-        beanFactory.autowireBeanProperties(urlResolver, AutowireCapableBeanFactory.AUTOWIRE_BY_TYPE, true);
-        factory.setControllerURLResolver(urlResolver);
-
-        return factory;
+    private static BeanDefinition createProxyDefinition(Class<?> controllerInterface) {
+        RootBeanDefinition definition = new RootBeanDefinition(ProxyableFactoryBean.class);
+        definition.getConstructorArgumentValues().addIndexedArgumentValue(0, controllerInterface);
+        definition.getConstructorArgumentValues().addIndexedArgumentValue(1, CONTROLLER_FACTORY);
+        return definition;
     }
 
     /**
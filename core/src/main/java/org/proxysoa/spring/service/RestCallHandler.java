@@ -1,30 +1,73 @@
 package org.proxysoa.spring.service;
 
-import com.fasterxml.jackson.core.JsonProcessingException;
-import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.JavaType;
+import com.fasterxml.jackson.databind.type.TypeFactory;
+import org.proxysoa.spring.balancer.Endpoint;
+import org.proxysoa.spring.balancer.LoadBalancer;
+import org.proxysoa.spring.balancer.LoadBalancerRegistry;
+import org.proxysoa.spring.codec.BodyCodec;
+import org.proxysoa.spring.codec.CodecNegotiator;
+import org.proxysoa.spring.codec.CodecRegistry;
+import org.proxysoa.spring.codec.JsonCodec;
+import org.proxysoa.spring.annotation.BatchKey;
+import org.proxysoa.spring.annotation.Hedged;
+import org.proxysoa.spring.annotation.ProxyCache;
+import org.proxysoa.spring.annotation.SingleFlight;
+import org.proxysoa.spring.cache.CachedClientHttpResponse;
+import org.proxysoa.spring.cache.MethodCache;
+import org.proxysoa.spring.cache.ProxyCacheManager;
+import org.proxysoa.spring.exception.SOAControllerCreationException;
 import org.proxysoa.spring.exception.SOAControllerInvocationException;
+import org.proxysoa.spring.exception.SOAControllerRejectedException;
+import org.proxysoa.spring.inprocess.DeepCopier;
+import org.proxysoa.spring.inprocess.InProcessInvoker;
+import org.proxysoa.spring.inprocess.InProcessRegistry;
+import org.proxysoa.spring.metrics.CallMetrics;
+import org.proxysoa.spring.metrics.MethodMetrics;
+import org.proxysoa.spring.resilience.CallGuard;
+import org.proxysoa.spring.resilience.Hedger;
+import org.proxysoa.spring.resilience.ResilienceRegistry;
+import org.proxysoa.spring.resilience.Retryer;
+import org.proxysoa.spring.shm.SharedMemoryClient;
+import org.proxysoa.spring.shm.SharedMemoryInvoker;
+import org.proxysoa.spring.shm.SharedMemoryRegistry;
+import org.proxysoa.spring.stream.PublisherReturnValueHandler;
+import org.proxysoa.spring.stream.ResponseIterator;
+import org.proxysoa.spring.stream.ResponsePublisher;
+import org.proxysoa.spring.transport.UnixSocketURLs;
+import org.reactivestreams.Publisher;
 import org.reflections.ReflectionUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.http.*;
-import org.springframework.util.Assert;
+import org.springframework.http.client.ClientHttpResponse;
 import org.springframework.util.ClassUtils;
 import org.springframework.util.LinkedMultiValueMap;
 import org.springframework.util.MultiValueMap;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.util.concurrent.ListenableFuture;
+import org.springframework.web.client.AsyncRestTemplate;
+import org.springframework.web.client.HttpClientErrorException;
 import org.springframework.web.client.RestClientException;
 import org.springframework.web.client.RestTemplate;
 import org.springframework.web.util.UriComponentsBuilder;
 
-import java.beans.BeanInfo;
-import java.beans.IntrospectionException;
-import java.beans.Introspector;
-import java.beans.PropertyDescriptor;
+import java.io.IOException;
 import java.lang.annotation.Annotation;
-import java.lang.reflect.*;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
 import java.util.*;
-import java.util.stream.Collectors;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
 
 /**
  * Wraps Controller and keeps all the remote  REST calls related logic,
@@ -36,33 +79,327 @@ import java.util.stream.Collectors;
  * 3. builds proper Http call parameters
  * 4. calls remote REST service
  * 5. deserializes results to output
+ * Methods returning CompletableFuture are called on non-blocking transport, the future is completed
+ * on the transport's bounded executor. Methods returning Publisher, Stream or Iterator stream the result,
+ * elements are parsed off the wire as the subscriber requests them (as the caller consumes them).
+ * Calls of BatchKey methods are collected and sent as one call of the batch counterpart method.
+ * Results of ProxyCache methods are cached.
+ * GET responses are cached by the transport following http caching headers of the remote service.
+ * Concurrent identical calls of SingleFlight methods share one remote call.
+ * Remote calls are guarded by the controller's circuit breaker and the remote service's bulkhead, rejected
+ * calls fail fast with SOAControllerRejectedException. Slow calls of Hedged methods are hedged, calls of Retry
+ * methods failed with retryable errors are retried. Each call (attempt) is sent to the remote service instance
+ * chosen by the service's load balancer, a hedge goes to another instance than the hedged attempt if there is one.
+ * Proxies of the controllers enabled for in-process calls call the implementation exported by a sibling context
+ * of the JVM directly (arguments and results are deep copied), the remote service is called while there is no
+ * such implementation. In-process calls are not cached, guarded, hedged or retried, streamed calls are always remote.
+ * Proxies of the controllers with a shared memory channel call the service through the channel while the service
+ * serves it (the same way as in-process calls), and by HTTP otherwise.
+ * Bodies are sent and read in the binary format negotiated with the remote service, JSON is the fallback.
+ * Each call's latency and outcome are recorded in the method's metrics (async calls when the future completes,
+ * streamed ones when the stream is opened), as well as sizes of the request and response bodies.
  *
  * @author stanislav.lapitsky created 4/14/2017.
  */
 public class RestCallHandler implements InvocationHandler {
     private static final Logger LOG = LoggerFactory.getLogger(RestCallHandler.class);
 
-    //key is method name, value is invocation info - request mapping, method etc.
-    private Map<String, InvocationInfo> methodInvocationMap = new HashMap<>();
+    private static final List<MediaType> STREAMING_ACCEPT = Collections.unmodifiableList(
+            Arrays.asList(PublisherReturnValueHandler.APPLICATION_NDJSON, MediaType.APPLICATION_JSON));
+
+    //dispatch table: key is controller method (overloads are separate keys), value is invocation info -
+    //request mapping, method etc. Method's equals/hashCode don't allocate so the lookup is free on call
+    private final Map<Method, InvocationInfo> methodInvocationMap = new HashMap<>();
+
+    //key is invocation info of BatchKey annotated method, value is the loader collecting the method's keys
+    private final Map<InvocationInfo, BatchLoader> batchLoaders = new HashMap<>();
 
     private HttpHeadersResolver httpHeadersResolver;
 
     private Class<?> controllerClass;
 
+    //remote service URL
+    private String controllerUrl;
+
+    //pooled transport to call remote service
+    private PooledHttpTransport httpTransport;
+
+    //serializes call parameters and deserializes results
+    private JsonCodec jsonCodec;
+
+    //chooses format of the bodies (JSON or a binary one supported by the remote service)
+    private CodecNegotiator codecNegotiator;
+
+    //results caches of ProxyCache methods
+    private ProxyCacheManager cacheManager;
+
+    //single flight groups of SingleFlight methods
+    private SingleFlightRegistry singleFlightRegistry;
+
+    //circuit breakers, bulkheads, hedgers and retryers
+    private ResilienceRegistry resilienceRegistry;
+
+    //circuit breaker and bulkhead of the remote calls
+    private CallGuard callGuard;
+
+    //chooses instance of the remote service for each call
+    private LoadBalancer loadBalancer;
+
+    //calls implementation exported in the JVM (null if in-process calls are not enabled for the controller)
+    private InProcessInvoker inProcessInvoker;
+
+    //calls the service through shared memory channel (null if the controller has no channel)
+    private SharedMemoryInvoker sharedMemoryInvoker;
+
+    //latency histograms and counters of the methods' calls (null if the calls are not measured)
+    private CallMetrics callMetrics;
+
     /**
      * Constructs invocation info for specified controller interface.
+     * The handler uses the default transport shared by the handlers built without one, and own codec, caches,
+     * single flight groups, circuit breaker, bulkhead and load balancer (not shared with other proxies).
+     * In-process and shared memory calls are not enabled, default body codecs are negotiated.
+     *
+     * @param controllerClass     controller to be called remotely
+     * @param controllerUrl       URL of the remote REST web service to be called
+     * @param httpHeadersResolver resolver to get http headers for remote calls
+     */
+    public RestCallHandler(Class<?> controllerClass, String controllerUrl, HttpHeadersResolver httpHeadersResolver) {
+        this(builder(controllerClass, controllerUrl).httpHeadersResolver(httpHeadersResolver));
+    }
+
+    /**
+     * Constructs invocation info for specified controller interface.
+     * Iterates methods storing call info, default body codecs are negotiated, the calls are not measured
+     *
+     * @param controllerClass     controller to be called remotely
+     * @param controllerUrl       URL of the remote REST web service to be called (comma separated URLs
+     *                            of the service instances, http or unix:socketFile:path ones)
+     * @param httpHeadersResolver resolver to get http headers for remote calls
+     * @param httpTransport       pooled transport shared between proxies
+     * @param jsonCodec           JSON codec shared between proxies
+     * @param cacheManager        results caches shared between proxies
+     * @param singleFlightRegistry single flight groups shared between proxies
+     * @param resilienceRegistry  circuit breakers and bulkheads shared between proxies
+     * @param loadBalancerRegistry load balancers shared between proxies
+     * @param inProcessRegistry   controller implementations exported in the JVM
+     * @param sharedMemoryRegistry shared memory channels of the services
+     * @deprecated use {@link #builder(Class, String)}
+     */
+    @Deprecated
+    public RestCallHandler(Class<?> controllerClass, String controllerUrl, HttpHeadersResolver httpHeadersResolver,
+                           PooledHttpTransport httpTransport, JsonCodec jsonCodec, ProxyCacheManager cacheManager,
+                           SingleFlightRegistry singleFlightRegistry, ResilienceRegistry resilienceRegistry,
+                           LoadBalancerRegistry loadBalancerRegistry, InProcessRegistry inProcessRegistry,
+                           SharedMemoryRegistry sharedMemoryRegistry) {
+        this(builder(controllerClass, controllerUrl)
+                .httpHeadersResolver(httpHeadersResolver)
+                .httpTransport(httpTransport)
+                .jsonCodec(jsonCodec)
+                .cacheManager(cacheManager)
+                .singleFlightRegistry(singleFlightRegistry)
+                .resilienceRegistry(resilienceRegistry)
+                .loadBalancerRegistry(loadBalancerRegistry)
+                .inProcessRegistry(inProcessRegistry)
+                .sharedMemoryRegistry(sharedMemoryRegistry));
+    }
+
+    /**
+     * Constructs invocation info for the builder's controller interface.
      * Iterates methods storing call info
      *
-     * @param controllerClass controller to be called remotely
-     * @param controllerUrl   URL of the remote REST web service to be called
+     * @param builder builder with the controller and the infrastructure shared between proxies
      */
     @SuppressWarnings("unchecked")
-    public RestCallHandler(Class<?> controllerClass, String controllerUrl, HttpHeadersResolver httpHeadersResolver) {
-        this.controllerClass = controllerClass;
-        this.httpHeadersResolver = httpHeadersResolver;
+    private RestCallHandler(Builder builder) {
+        this.controllerClass = builder.controllerClass;
+        this.controllerUrl = builder.controllerUrl;
+        this.httpHeadersResolver = builder.httpHeadersResolver;
+        this.callMetrics = builder.callMetrics;
+        this.httpTransport = builder.httpTransport != null ? builder.httpTransport : DefaultTransport.INSTANCE;
+        this.jsonCodec = builder.jsonCodec != null ? builder.jsonCodec : new JsonCodec();
+        CodecRegistry codecRegistry = builder.codecRegistry != null ? builder.codecRegistry : new CodecRegistry();
+        this.codecNegotiator = codecRegistry.getNegotiator(controllerClass, jsonCodec);
+        this.cacheManager = builder.cacheManager != null ? builder.cacheManager : new ProxyCacheManager();
+        this.singleFlightRegistry = builder.singleFlightRegistry != null ? builder.singleFlightRegistry
+                : new SingleFlightRegistry();
+        this.resilienceRegistry = builder.resilienceRegistry != null ? builder.resilienceRegistry
+                : new ResilienceRegistry();
+        this.callGuard = resilienceRegistry.getGuard(controllerClass, controllerUrl);
+        List<String> urls = ControllerURLResolver.splitURLs(controllerUrl);
+        LoadBalancerRegistry loadBalancerRegistry = builder.loadBalancerRegistry != null
+                ? builder.loadBalancerRegistry : new LoadBalancerRegistry();
+        this.loadBalancer = loadBalancerRegistry.getLoadBalancer(controllerUrl, urls);
+        if (builder.inProcessRegistry != null && builder.inProcessRegistry.isInProcess(controllerClass)) {
+            this.inProcessInvoker = new InProcessInvoker(controllerClass, builder.inProcessRegistry,
+                    new DeepCopier(jsonCodec));
+        }
+        SharedMemoryClient sharedMemoryClient = builder.sharedMemoryRegistry != null
+                ? builder.sharedMemoryRegistry.getClient(controllerClass) : null;
+        if (sharedMemoryClient != null) {
+            this.sharedMemoryInvoker = new SharedMemoryInvoker(controllerClass, sharedMemoryClient, jsonCodec);
+        }
         String classMapping = getClassRequestMapping(controllerClass);
         for (Method m : ReflectionUtils.getAllMethods(controllerClass)) {
-            storeMethodInfo(m, classMapping, controllerUrl);
+            storeMethodInfo(m, classMapping, UnixSocketURLs.toHttpUrl(urls.get(0)));
+        }
+        for (Map.Entry<Method, InvocationInfo> entry : methodInvocationMap.entrySet()) {
+            if (entry.getValue().batchKey != null) {
+                batchLoaders.put(entry.getValue(), createBatchLoader(entry.getKey(), entry.getValue().batchKey));
+            }
+        }
+    }
+
+    /**
+     * Starts building the handler of the controller. Infrastructure which is not set is not shared with
+     * other proxies (the handler creates own codec, caches etc.) except the transport: handlers built without one
+     * share the default transport, which lives as long as the JVM. In-process and shared memory calls
+     * are not enabled and the calls are not measured unless the registries and metrics are set.
+     *
+     * @param controllerClass controller to be called remotely
+     * @param controllerUrl   URL of the remote REST web service to be called (comma separated URLs
+     *                        of the service instances, http or unix:socketFile:path ones)
+     * @return the builder
+     */
+    public static Builder builder(Class<?> controllerClass, String controllerUrl) {
+        return new Builder(controllerClass, controllerUrl);
+    }
+
+    /**
+     * Transport of the handlers built without one. Created on first use and never destroyed (its threads are
+     * daemons), so such handlers don't leave a connection pool each behind
+     */
+    private static class DefaultTransport {
+        private static final PooledHttpTransport INSTANCE = new PooledHttpTransport();
+    }
+
+    /**
+     * Builder of the handler: the controller plus the infrastructure shared between proxies
+     */
+    public static class Builder {
+        private final Class<?> controllerClass;
+        private final String controllerUrl;
+        private HttpHeadersResolver httpHeadersResolver;
+        private PooledHttpTransport httpTransport;
+        private JsonCodec jsonCodec;
+        private ProxyCacheManager cacheManager;
+        private SingleFlightRegistry singleFlightRegistry;
+        private ResilienceRegistry resilienceRegistry;
+        private LoadBalancerRegistry loadBalancerRegistry;
+        private InProcessRegistry inProcessRegistry;
+        private SharedMemoryRegistry sharedMemoryRegistry;
+        private CodecRegistry codecRegistry;
+        private CallMetrics callMetrics;
+
+        private Builder(Class<?> controllerClass, String controllerUrl) {
+            this.controllerClass = controllerClass;
+            this.controllerUrl = controllerUrl;
+        }
+
+        /**
+         * @param httpHeadersResolver resolver to get http headers for remote calls
+         * @return the builder
+         */
+        public Builder httpHeadersResolver(HttpHeadersResolver httpHeadersResolver) {
+            this.httpHeadersResolver = httpHeadersResolver;
+            return this;
+        }
+
+        /**
+         * @param httpTransport pooled transport shared between proxies
+         * @return the builder
+         */
+        public Builder httpTransport(PooledHttpTransport httpTransport) {
+            this.httpTransport = httpTransport;
+            return this;
+        }
+
+        /**
+         * @param jsonCodec JSON codec shared between proxies
+         * @return the builder
+         */
+        public Builder jsonCodec(JsonCodec jsonCodec) {
+            this.jsonCodec = jsonCodec;
+            return this;
+        }
+
+        /**
+         * @param cacheManager results caches shared between proxies
+         * @return the builder
+         */
+        public Builder cacheManager(ProxyCacheManager cacheManager) {
+            this.cacheManager = cacheManager;
+            return this;
+        }
+
+        /**
+         * @param singleFlightRegistry single flight groups shared between proxies
+         * @return the builder
+         */
+        public Builder singleFlightRegistry(SingleFlightRegistry singleFlightRegistry) {
+            this.singleFlightRegistry = singleFlightRegistry;
+            return this;
+        }
+
+        /**
+         * @param resilienceRegistry circuit breakers and bulkheads shared between proxies
+         * @return the builder
+         */
+        public Builder resilienceRegistry(ResilienceRegistry resilienceRegistry) {
+            this.resilienceRegistry = resilienceRegistry;
+            return this;
+        }
+
+        /**
+         * @param loadBalancerRegistry load balancers shared between proxies
+         * @return the builder
+         */
+        public Builder loadBalancerRegistry(LoadBalancerRegistry loadBalancerRegistry) {
+            this.loadBalancerRegistry = loadBalancerRegistry;
+            return this;
+        }
+
+        /**
+         * @param inProcessRegistry controller implementations exported in the JVM
+         * @return the builder
+         */
+        public Builder inProcessRegistry(InProcessRegistry inProcessRegistry) {
+            this.inProcessRegistry = inProcessRegistry;
+            return this;
+        }
+
+        /**
+         * @param sharedMemoryRegistry shared memory channels of the services
+         * @return the builder
+         */
+        public Builder sharedMemoryRegistry(SharedMemoryRegistry sharedMemoryRegistry) {
+            this.sharedMemoryRegistry = sharedMemoryRegistry;
+            return this;
+        }
+
+        /**
+         * @param codecRegistry body codecs advertised to the remote service
+         * @return the builder
+         */
+        public Builder codecRegistry(CodecRegistry codecRegistry) {
+            this.codecRegistry = codecRegistry;
+            return this;
+        }
+
+        /**
+         * @param callMetrics call metrics shared between proxies
+         * @return the builder
+         */
+        public Builder callMetrics(CallMetrics callMetrics) {
+            this.callMetrics = callMetrics;
+            return this;
+        }
+
+        /**
+         * @return handler of the controller's calls
+         */
+        public RestCallHandler build() {
+            return new RestCallHandler(this);
         }
     }
 
@@ -109,11 +446,122 @@ public class RestCallHandler implements InvocationHandler {
             }
         }
 
-        InvocationInfo info = new InvocationInfo(controllerUrl, methodRequestMapping.toString(), httpMethod, variables);
-        methodInvocationMap.put(m.getDeclaringClass().getCanonicalName() + ":" + m.getName(), info);
+        InvocationInfo info = new InvocationInfo(m, controllerUrl, methodRequestMapping.toString(), httpMethod, variables,
+                getMethodCache(m, httpMethod), getSingleFlightGroup(m), getHedger(m, httpMethod),
+                getRetryer(m, httpMethod), callMetrics != null ? callMetrics.getMetrics(controllerClass, m) : null);
+        methodInvocationMap.put(m, info);
         LOG.debug("InvocationInfo is registered {}", info);
     }
 
+    /**
+     * Gets results cache of ProxyCache method. Only results of plain GET methods can be cached.
+     *
+     * @param m          contract method
+     * @param httpMethod http method of the call
+     * @return the method's cache or null if the method is not cached
+     */
+    private MethodCache getMethodCache(Method m, HttpMethod httpMethod) {
+        ProxyCache proxyCache = m.getAnnotation(ProxyCache.class);
+        if (proxyCache == null) {
+            return null;
+        }
+        if (httpMethod != HttpMethod.GET || InvocationInfo.isStreaming(m)) {
+            throw new SOAControllerCreationException("Only GET methods returning a value can be cached, found "
+                    + httpMethod + " " + m.getName() + " of " + controllerClass.getCanonicalName());
+        }
+        return cacheManager.getCache(m, proxyCache);
+    }
+
+    /**
+     * Gets single flight group of SingleFlight method. Streamed calls cannot be collapsed.
+     *
+     * @param m contract method
+     * @return the method's group or null if the method's calls are not collapsed
+     */
+    private SingleFlightGroup getSingleFlightGroup(Method m) {
+        if (!m.isAnnotationPresent(SingleFlight.class)) {
+            return null;
+        }
+        if (InvocationInfo.isStreaming(m)) {
+            throw new SOAControllerCreationException("Streaming method " + m.getName() + " of "
+                    + controllerClass.getCanonicalName() + " cannot be SingleFlight");
+        }
+        JavaType resultType = TypeFactory.defaultInstance().constructType(InvocationInfo.getResultType(m));
+        return singleFlightRegistry.getGroup(m, value -> jsonCodec.copy(value, resultType));
+    }
+
+    /**
+     * Gets hedger of Hedged method. Only GET methods returning a value can be hedged.
+     *
+     * @param m          contract method
+     * @param httpMethod http method of the call
+     * @return the method's hedger or null if the method's calls are not hedged
+     */
+    private Hedger getHedger(Method m, HttpMethod httpMethod) {
+        Hedged hedged = m.getAnnotation(Hedged.class);
+        if (hedged == null) {
+            return null;
+        }
+        if (httpMethod != HttpMethod.GET || InvocationInfo.isStreaming(m)) {
+            throw new SOAControllerCreationException("Only GET methods returning a value can be hedged, found "
+                    + httpMethod + " " + m.getName() + " of " + controllerClass.getCanonicalName());
+        }
+        return resilienceRegistry.getHedger(m, hedged, controllerUrl, httpTransport.getScheduler());
+    }
+
+    /**
+     * Gets retryer of the method marked with Retry (or configured by SOA.Retry.Contract.method.* properties).
+     * Calls of GET, HEAD, PUT, DELETE and OPTIONS methods are idempotent.
+     *
+     * @param m          contract method
+     * @param httpMethod http method of the call
+     * @return the method's retryer or null if the method's calls are not retried
+     */
+    private Retryer getRetryer(Method m, HttpMethod httpMethod) {
+        if (!resilienceRegistry.isRetried(m)) {
+            return null;
+        }
+        if (InvocationInfo.isStreaming(m)) {
+            throw new SOAControllerCreationException("Streamed method cannot be retried "
+                    + m.getName() + " of " + controllerClass.getCanonicalName());
+        }
+        boolean idempotent = httpMethod != HttpMethod.POST && httpMethod != HttpMethod.PATCH
+                && httpMethod != HttpMethod.TRACE;
+        return resilienceRegistry.getRetryer(m, idempotent, controllerUrl, httpTransport.getScheduler());
+    }
+
+    /**
+     * Creates loader of the BatchKey method. Checks the batch counterpart: it must take list of keys
+     * and return map key to result.
+     *
+     * @param m        method which calls are batched
+     * @param batchKey batching settings
+     * @return batch loader
+     */
+    private BatchLoader createBatchLoader(Method m, BatchKey batchKey) {
+        if (m.getParameterCount() != 1) {
+            throw new SOAControllerCreationException("BatchKey method " + m.getName() + " must have one parameter");
+        }
+        Method batchMethod = null;
+        for (Method candidate : methodInvocationMap.keySet()) {
+            if (candidate.getName().equals(batchKey.value())
+                    && candidate.getParameterCount() == 1
+                    && candidate.getParameterTypes()[0].isAssignableFrom(ArrayList.class)
+                    && Map.class.isAssignableFrom(candidate.getReturnType())) {
+                batchMethod = candidate;
+            }
+        }
+        if (batchMethod == null) {
+            throw new SOAControllerCreationException("Cannot find batch method " + batchKey.value()
+                    + "(List) returning Map for " + m.getName() + " of " + controllerClass.getCanonicalName());
+        }
+        InvocationInfo batchInfo = methodInvocationMap.get(batchMethod);
+        JavaType resultType = methodInvocationMap.get(m).returnJavaType;
+        return new BatchLoader(keys -> measure(batchInfo, true, () -> callAsync(batchInfo, new Object[]{keys})),
+                httpTransport.getScheduler(), batchKey.window(), batchKey.maxBatchSize(),
+                value -> jsonCodec.copy(value, resultType));
+    }
+
     private List<RequestParam> getRequestParams(Method m) {
         List<RequestParam> params = new ArrayList<>();
         for (Annotation[] paramAnnotations : m.getParameterAnnotations()) {
@@ -137,56 +585,556 @@ public class RestCallHandler implements InvocationHandler {
      * @throws Throwable throws invocation exceptions
      */
     public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
-        LOG.debug("Invoke method {} of {} with args {}",
-                method.getName(),
-                method.getDeclaringClass().getCanonicalName(),
-                Arrays.deepToString(args));
-        InvocationInfo info = methodInvocationMap.get(method.getDeclaringClass().getCanonicalName() +
-                ":" + method.getName());
-        if (info == null) {
-            throw new SOAControllerInvocationException("Cannot find invocation info for the method " +
-                    method.getName());
+        if (LOG.isDebugEnabled()) {
+            LOG.debug("Invoke method {} of {} with args {}",
+                    method.getName(),
+                    method.getDeclaringClass().getCanonicalName(),
+                    Arrays.deepToString(args));
+        }
+        if (method.getDeclaringClass() == Object.class) {
+            return invokeObjectMethod(proxy, method, args);
+        }
+        InvocationInfo info = getRequiredInvocationInfo(method);
+        //streamed calls are measured till the result is read (see callStreaming)
+        if (info.metrics == null || info.streaming) {
+            return dispatch(method, info, args);
+        }
+        return measure(info, info.async, () -> dispatch(method, info, args));
+    }
+
+    /**
+     * Makes the call recording it in the method's metrics
+     *
+     * @param info  invocation info
+     * @param async whether the call returns a future (measured till the future completes)
+     * @param call  the call
+     * @param <T>   call result type
+     * @return call result
+     */
+    private <T> T measure(InvocationInfo info, boolean async, Supplier<T> call) {
+        MethodMetrics metrics = info.metrics;
+        if (metrics == null) {
+            return call.get();
+        }
+        long start = metrics.onStart();
+        T result;
+        try {
+            result = call.get();
+        } catch (Throwable e) {
+            metrics.onComplete(start, e);
+            throw e;
+        }
+        if (async && result != null) {
+            ((CompletionStage<?>) result).whenComplete((value, e) -> metrics.onComplete(start, e));
+        } else {
+            metrics.onComplete(start, null);
+        }
+        return result;
+    }
+
+    /**
+     * Calls the method in-process, through shared memory or remotely
+     *
+     * @param method contract method
+     * @param info   invocation info
+     * @param args   method parameters' values
+     * @return call results (future of the results for async methods)
+     */
+    private Object dispatch(Method method, InvocationInfo info, Object[] args) {
+        Object target = getInProcessTarget(info);
+        if (target != null) {
+            return callInProcess(target, method, info, args);
+        }
+        CompletableFuture<byte[]> sharedMemoryCall = sendSharedMemory(method, info, args);
+        if (sharedMemoryCall != null) {
+            return callSharedMemory(sharedMemoryCall, info);
+        }
+        if (info.async) {
+            return callAsync(info, args);
+        }
+        if (info.streaming) {
+            return callStreaming(info, args);
+        }
+        if (getBatchLoader(info, args) != null || info.hedger != null) {
+            return await(callAsync(info, args));
         }
 
-        String url = info.serviceUrl + info.requestMapping;
-        RestTemplate restTemplate = new RestTemplate();
-        UriComponentsBuilder builder = UriComponentsBuilder.fromHttpUrl(url);
-        HttpEntity<?> requestEntity = getHttpEntity(args, info, builder);
+        UriComponentsBuilder builder = info.uriBuilder();
+        ProxyRequestCallback requestCallback = getRequestCallback(InvocationInfo.nonNullArgs(args), info, builder);
+        URI uri = builder.build().encode().toUri();
 
-        ResponseEntity response;
-        Type type = method.getGenericReturnType();
+        String cacheKey = null;
+        if (info.cache != null) {
+            cacheKey = uri.toString();
+            Object cached = info.cache.get(cacheKey);
+            if (cached != null) {
+                return copyCached(info, cached);
+            }
+        }
+
+        String key = cacheKey;
+        Supplier<Object> send = () -> execute(uri, info, requestCallback);
+        Supplier<Object> call = info.retryer == null ? send : () -> info.retryer.call(send);
+        if (info.singleFlight != null) {
+            return info.singleFlight.call(flightKey(uri, requestCallback), () -> afterCall(info, key, call.get()));
+        }
+        return afterCall(info, key, call.get());
+    }
+
+    /**
+     * Gets implementation to be called in-process. Streamed calls are always remote.
+     *
+     * @param info invocation info
+     * @return implementation exported in the JVM or null if the call is remote
+     */
+    private Object getInProcessTarget(InvocationInfo info) {
+        return inProcessInvoker == null || info.streaming ? null : inProcessInvoker.getTarget();
+    }
+
+    /**
+     * Calls the implementation exported in the JVM. Clears caches listed by ProxyCacheEvict of the method
+     * (the caches may keep results of the remote calls made before the implementation was exported).
+     *
+     * @param target implementation
+     * @param method contract method
+     * @param info   invocation info
+     * @param args   method parameters' values
+     * @return copy of the call result (future of the copy for async methods)
+     */
+    @SuppressWarnings("unchecked")
+    private Object callInProcess(Object target, Method method, InvocationInfo info, Object[] args) {
+        Object result = inProcessInvoker.invoke(target, method, args);
+        if (info.async) {
+            return ((CompletableFuture<Object>) result).thenApply(value -> afterCall(info, null, value));
+        }
+        return afterCall(info, null, result);
+    }
+
+    /**
+     * Sends the call through shared memory channel. Streamed calls are always sent by HTTP.
+     *
+     * @param method contract method
+     * @param info   invocation info
+     * @param args   method parameters' values
+     * @return future of the response body or null if the call is sent by HTTP
+     */
+    private CompletableFuture<byte[]> sendSharedMemory(Method method, InvocationInfo info, Object[] args) {
+        return sharedMemoryInvoker == null || info.streaming ? null : sharedMemoryInvoker.send(method, args);
+    }
+
+    /**
+     * Gets result of the shared memory call. Result of async method is read and the future is completed
+     * on the transport's bounded executor (not on the channel's receiving thread).
+     * Clears caches listed by ProxyCacheEvict of the method.
+     *
+     * @param call future of the response body
+     * @param info invocation info
+     * @return call result (future of the result for async methods)
+     */
+    private Object callSharedMemory(CompletableFuture<byte[]> call, InvocationInfo info) {
+        if (info.async) {
+            return call.thenApplyAsync(body -> afterCall(info, null,
+                    sharedMemoryInvoker.read(body, info.returnJavaType)), httpTransport.getAsyncExecutor());
+        }
+        return afterCall(info, null, sharedMemoryInvoker.await(call, info.returnJavaType));
+    }
+
+    private Object execute(URI uri, InvocationInfo info, ProxyRequestCallback requestCallback) {
+        CallGuard.Permit permit = callGuard.acquire(true);
+        Endpoint endpoint = loadBalancer.choose();
+        URI endpointUri = endpoint.rebase(uri, info.serviceUrl);
+        RestTemplate restTemplate = httpTransport.getRestTemplate(endpoint.getUrl());
+        long endpointStart = endpoint.onStart();
+        Object result;
         try {
-            if (type instanceof ParameterizedType) {
-                Assert.isInstanceOf(ParameterizedType.class, type);
-                ParameterizedType parameterizedType = (ParameterizedType) type;
-
-                response = restTemplate.exchange(builder.build().encode().toUri(),
-                        info.httpMethod,
-                        requestEntity,
-                        new DeserializeParameterizedTypeReference(parameterizedType));
-            } else {
-                response = restTemplate.exchange(builder.build().encode().toUri(),
-                        info.httpMethod,
-                        requestEntity,
-                        method.getReturnType());
+            result = restTemplate.execute(endpointUri, info.httpMethod, requestCallback,
+                    new ProxyResponseExtractor(jsonCodec, codecNegotiator, info.returnJavaType, info.metrics));
+        } catch (RestClientException e) {
+            loadBalancer.onComplete(endpoint, endpointStart, e);
+            callGuard.onError(permit, e);
+            checkRejected(e, requestCallback);
+            throw new SOAControllerInvocationException("Error calling remote service URL " + endpointUri, e);
+        } catch (RuntimeException | Error e) {
+            loadBalancer.onComplete(endpoint, endpointStart, e);
+            callGuard.onError(permit, e);
+            throw e;
+        }
+        loadBalancer.onComplete(endpoint, endpointStart, null);
+        callGuard.onSuccess(permit);
+        return result;
+    }
+
+    /**
+     * Gets key of SingleFlight method's call: URI and body (if any). The body is decoded byte per char,
+     * so different binary bodies get different keys.
+     *
+     * @param uri             call URI
+     * @param requestCallback request callback with the serialized body
+     * @return call key
+     */
+    private static String flightKey(URI uri, ProxyRequestCallback requestCallback) {
+        byte[] body = requestCallback.getBody();
+        return body == null ? uri.toString() : uri + "\n" + new String(body, StandardCharsets.ISO_8859_1);
+    }
+
+    /**
+     * Caches result of ProxyCache method and clears caches listed by ProxyCacheEvict of the method
+     *
+     * @param info     invocation info
+     * @param cacheKey key of the result in the method's cache (null if the method is not cached)
+     * @param result   call result
+     * @return result to be returned to the caller (copy of the cached one if necessary)
+     */
+    private Object afterCall(InvocationInfo info, String cacheKey, Object result) {
+        for (String evicted : info.cacheEvict) {
+            cacheManager.invalidate(controllerClass, evicted);
+        }
+        if (cacheKey == null) {
+            return result;
+        }
+        info.cache.put(cacheKey, result);
+        return copyCached(info, result);
+    }
+
+    private Object copyCached(InvocationInfo info, Object cached) {
+        return info.cache.getSettings().copyOnRead() ? jsonCodec.copy(cached, info.returnJavaType) : cached;
+    }
+
+    /**
+     * Streams the remote call result. Publisher is returned at once, the call is sent when the publisher
+     * gets demand. Stream and Iterator calls are sent at once, elements are parsed on the caller's thread
+     * as the result is consumed and the connection is held until the result is read to the end or closed.
+     * Instance of the remote service is chosen on creation, the streamed calls are not counted
+     * in the instance's load. The calls are measured from sending till the result is read to the end,
+     * closed or fails.
+     *
+     * @param info invocation info
+     * @param args method parameters' values
+     * @return publisher, stream or iterator of the result elements
+     */
+    private Object callStreaming(InvocationInfo info, Object[] args) {
+        Endpoint endpoint = loadBalancer.choose();
+        RestTemplate restTemplate = httpTransport.getRestTemplate(endpoint.getUrl());
+        UriComponentsBuilder builder = info.uriBuilder();
+        ProxyRequestCallback requestCallback = getRequestCallback(InvocationInfo.nonNullArgs(args), info, builder);
+        URI uri = endpoint.rebase(builder.build().encode().toUri(), info.serviceUrl);
+        if (info.streamClass == Publisher.class) {
+            return new ResponsePublisher<>(httpTransport.getRequestFactory(endpoint.getUrl()),
+                    restTemplate.getErrorHandler(), uri, info.httpMethod, requestCallback, jsonCodec,
+                    info.returnJavaType, httpTransport.getStreamExecutor(), info.metrics);
+        }
+        ResponseIterator<Object> iterator;
+        try {
+            iterator = ResponseIterator.open(httpTransport.getRequestFactory(endpoint.getUrl()),
+                    restTemplate.getErrorHandler(), uri, info.httpMethod, requestCallback, jsonCodec,
+                    info.returnJavaType, info.metrics);
+        } catch (IOException | RestClientException e) {
+            throw new SOAControllerInvocationException("Error calling remote service URL " + uri, e);
+        }
+        return info.streamClass == Stream.class ? iterator.stream() : iterator;
+    }
+
+    /**
+     * Remotely invokes specified method without blocking the caller. Used to get async view
+     * of synchronous contract methods.
+     *
+     * @param method method to be called remotely
+     * @param args   method parameters' values
+     * @return future of the remote call results
+     */
+    CompletableFuture<Object> invokeAsync(Method method, Object[] args) {
+        InvocationInfo info = getRequiredInvocationInfo(method);
+        if (info.async || info.streaming) {
+            throw new SOAControllerInvocationException("Method " + method.getName()
+                    + " is not blocking already, call it directly");
+        }
+        return measure(info, true, () -> dispatchAsync(method, info, args));
+    }
+
+    /**
+     * Calls the blocking method in-process or remotely without blocking the caller
+     *
+     * @param method contract method
+     * @param info   invocation info
+     * @param args   method parameters' values
+     * @return future of the call results
+     */
+    private CompletableFuture<Object> dispatchAsync(Method method, InvocationInfo info, Object[] args) {
+        Object target = getInProcessTarget(info);
+        if (target != null) {
+            return CompletableFuture.supplyAsync(() -> callInProcess(target, method, info, args),
+                    httpTransport.getAsyncExecutor());
+        }
+        return callAsync(info, args);
+    }
+
+    /**
+     * Gets loader of the BatchKey method's call (null keys are not batched)
+     *
+     * @param info invocation info
+     * @param args method parameters' values
+     * @return batch loader or null if the call is not batched
+     */
+    private BatchLoader getBatchLoader(InvocationInfo info, Object[] args) {
+        if (info.batchKey == null || args[0] == null) {
+            return null;
+        }
+        return batchLoaders.get(info);
+    }
+
+    /**
+     * Waits for result of the batched call
+     *
+     * @param result future of the result
+     * @return result
+     */
+    private static Object await(CompletableFuture<Object> result) {
+        try {
+            return result.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SOAControllerInvocationException("Interrupted while waiting for remote call", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
             }
+            throw new SOAControllerInvocationException("Error in remote call", e);
+        }
+    }
+
+    /**
+     * Calls remote service with non-blocking transport. The response is buffered by the transport
+     * and deserialized on the bounded executor, the returned future is completed there as well
+     * (so callers' stages never run on the transport's IO threads).
+     * Cancelling the returned future cancels the remote call (unless the call is shared by SingleFlight callers).
+     *
+     * @param info invocation info
+     * @param args method parameters' values
+     * @return future of the remote call results
+     */
+    private CompletableFuture<Object> callAsync(InvocationInfo info, Object[] args) {
+        BatchLoader batchLoader = getBatchLoader(info, args);
+        if (batchLoader != null && info.cache == null) {
+            return batchLoader.load(args[0]);
+        }
+        UriComponentsBuilder builder = info.uriBuilder();
+        ProxyRequestCallback requestCallback = getRequestCallback(InvocationInfo.nonNullArgs(args), info, builder);
+        URI uri = builder.build().encode().toUri();
+
+        String cacheKey = null;
+        if (info.cache != null) {
+            cacheKey = uri.toString();
+            Object cached = info.cache.get(cacheKey);
+            if (cached != null) {
+                return CompletableFuture.completedFuture(copyCached(info, cached));
+            }
+        }
+        String key = cacheKey;
+        if (batchLoader != null) {
+            return batchLoader.load(args[0]).thenApply(value -> afterCall(info, key, value));
+        }
+        Supplier<CompletableFuture<Object>> call = info.hedger == null
+                ? retried(info, () -> executeAsync(info, uri, requestCallback, key, null))
+                : () -> {
+                    //instances the call's attempts are sent to, the hedge avoids the primary's one
+                    Set<Endpoint> attempted = Collections.newSetFromMap(new ConcurrentHashMap<>());
+                    return info.hedger.call(retried(info,
+                            () -> executeAsync(info, uri, requestCallback, key, attempted)));
+                };
+        if (info.singleFlight != null) {
+            return info.singleFlight.callAsync(flightKey(uri, requestCallback), call);
+        }
+        return call.get();
+    }
+
+    /**
+     * Wraps sending of the call with retries of Retry method
+     *
+     * @param info invocation info
+     * @param send sends the call once
+     * @return sends the call retrying failed attempts
+     */
+    private static Supplier<CompletableFuture<Object>> retried(InvocationInfo info,
+                                                             Supplier<CompletableFuture<Object>> send) {
+        return info.retryer == null ? send : () -> info.retryer.callAsync(send);
+    }
+
+    /**
+     * Sends the call with non-blocking transport
+     *
+     * @param info            invocation info
+     * @param uri             call URI
+     * @param requestCallback request callback
+     * @param cacheKey        key of the result in the method's cache (null if the method is not cached)
+     * @param attempted       instances the call's other attempts are sent to, avoided by the attempt and
+     *                        added the chosen one (null if the call has no other attempts in flight)
+     * @return future of the remote call results
+     */
+    private CompletableFuture<Object> executeAsync(InvocationInfo info, URI uri, ProxyRequestCallback requestCallback,
+                                                   String cacheKey, Set<Endpoint> attempted) {
+        CompletableFuture<Object> result = new CompletableFuture<>();
+        CallGuard.Permit permit;
+        try {
+            permit = callGuard.acquire(false);
+        } catch (SOAControllerRejectedException e) {
+            result.completeExceptionally(e);
+            return result;
+        }
+        Endpoint endpoint;
+        if (attempted == null) {
+            endpoint = loadBalancer.choose();
+        } else {
+            endpoint = loadBalancer.choose(attempted);
+            attempted.add(endpoint);
+        }
+        URI endpointUri = endpoint.rebase(uri, info.serviceUrl);
+        AsyncRestTemplate restTemplate = httpTransport.getAsyncRestTemplate(endpoint.getUrl());
+        long endpointStart = endpoint.onStart();
+        ListenableFuture<ClientHttpResponse> call;
+        try {
+            call = restTemplate.execute(endpointUri, info.httpMethod, requestCallback, RestCallHandler::buffer);
         } catch (RestClientException e) {
-            throw new SOAControllerInvocationException("Error calling remote service URL "
-                    + builder.build().encode().toUri(), e);
+            loadBalancer.onComplete(endpoint, endpointStart, e);
+            callGuard.onError(permit, e);
+            result.completeExceptionally(
+                    new SOAControllerInvocationException("Error calling remote service URL " + endpointUri, e));
+            return result;
+        } catch (RuntimeException e) {
+            loadBalancer.onComplete(endpoint, endpointStart, e);
+            callGuard.onError(permit, e);
+            throw e;
         }
-        return response.getBody();
+
+        ProxyResponseExtractor extractor = new ProxyResponseExtractor(jsonCodec, codecNegotiator,
+                info.returnJavaType, info.metrics);
+        Executor executor = httpTransport.getAsyncExecutor();
+        call.addCallback(
+                response -> {
+                    loadBalancer.onComplete(endpoint, endpointStart, null);
+                    callGuard.onSuccess(permit);
+                    completeOn(executor, result, () -> {
+                        try {
+                            result.complete(afterCall(info, cacheKey, extractor.extractData(response)));
+                        } catch (Exception e) {
+                            result.completeExceptionally(new SOAControllerInvocationException(
+                                    "Error reading response of URL " + endpointUri, e));
+                        }
+                    });
+                },
+                e -> {
+                    loadBalancer.onComplete(endpoint, endpointStart, e);
+                    callGuard.onError(permit, e);
+                    checkRejected(e, requestCallback);
+                    completeOn(executor, result, () -> result.completeExceptionally(toCallError(endpointUri, e)));
+                });
+        result.whenComplete((value, e) -> {
+            if (result.isCancelled()) {
+                call.cancel(true);
+            }
+        });
+        return result;
     }
 
     /**
-     * Create http entity for remote call.
-     * Adds headers and call parameters
+     * Reads the response to memory to be deserialized on another thread. Responses served
+     * by http cache are in memory already.
+     *
+     * @param response response
+     * @return in memory response
+     * @throws IOException on read errors
+     */
+    private static ClientHttpResponse buffer(ClientHttpResponse response) throws IOException {
+        return response instanceof CachedClientHttpResponse ? response : BufferedClientHttpResponse.of(response);
+    }
+
+    /**
+     * Switches request bodies back to JSON if the remote service rejected media type of the call's body
+     *
+     * @param e               call error
+     * @param requestCallback request callback of the call
+     */
+    private void checkRejected(Throwable e, ProxyRequestCallback requestCallback) {
+        if (e instanceof HttpClientErrorException && requestCallback.getCodec() != null
+                && ((HttpClientErrorException) e).getStatusCode() == HttpStatus.UNSUPPORTED_MEDIA_TYPE) {
+            codecNegotiator.onRejected(requestCallback.getCodec());
+        }
+    }
+
+    private static Throwable toCallError(URI uri, Throwable e) {
+        if (e instanceof RestClientException) {
+            return new SOAControllerInvocationException("Error calling remote service URL " + uri,
+                    (RestClientException) e);
+        }
+        return e;
+    }
+
+    /**
+     * Runs the future's completion on the executor. If the executor is overloaded the future
+     * fails immediately.
+     *
+     * @param executor   bounded executor
+     * @param result     future to be completed
+     * @param completion completion action
+     */
+    private static void completeOn(Executor executor, CompletableFuture<Object> result, Runnable completion) {
+        try {
+            executor.execute(completion);
+        } catch (RejectedExecutionException e) {
+            result.completeExceptionally(
+                    new SOAControllerInvocationException("Too many async calls are waiting for completion", e));
+        }
+    }
+
+    /**
+     * Handles java.lang.Object methods locally (they are not part of the remote contract)
+     *
+     * @param proxy  proxy instance
+     * @param method Object's method
+     * @param args   method parameters' values
+     * @return method result
+     */
+    private Object invokeObjectMethod(Object proxy, Method method, Object[] args) {
+        switch (method.getName()) {
+            case "equals":
+                return proxy == args[0];
+            case "hashCode":
+                return System.identityHashCode(proxy);
+            case "toString":
+                return "Proxy of " + controllerClass.getName() + " for " + controllerUrl;
+            default:
+                throw new SOAControllerInvocationException("Cannot invoke the method remotely " + method.getName());
+        }
+    }
+
+    /**
+     * Gets invocation info of the controller method
+     *
+     * @param method controller method
+     * @return invocation info or null if the method is not registered
+     */
+    InvocationInfo getInvocationInfo(Method method) {
+        return methodInvocationMap.get(method);
+    }
+
+    private InvocationInfo getRequiredInvocationInfo(Method method) {
+        InvocationInfo info = methodInvocationMap.get(method);
+        if (info == null) {
+            throw new SOAControllerInvocationException("Cannot find invocation info for the method " +
+                    method.getName());
+        }
+        return info;
+    }
+
+    /**
+     * Create request callback for remote call.
+     * Adds headers and call parameters (serialized body or URL params)
      *
      * @param args    method arguments' values
      * @param info    invocation info
      * @param builder uri builder
-     * @return http entity for RestTemplate call
+     * @return request callback for RestTemplate call
      */
-    private HttpEntity<?> getHttpEntity(Object[] args, InvocationInfo info, UriComponentsBuilder builder) {
+    private ProxyRequestCallback getRequestCallback(Object[] args, InvocationInfo info, UriComponentsBuilder builder) {
         HttpHeaders requestHeaders = new HttpHeaders();
         //if headers resolver is specified use it to get headers
         if (httpHeadersResolver != null) {
@@ -194,19 +1142,23 @@ public class RestCallHandler implements InvocationHandler {
             for (Map.Entry<String, List<String>> e : headers.entrySet()) {
                 requestHeaders.put(e.getKey(), e.getValue());
             }
-        } else {
-            //default accept header when no resolver is found
-            requestHeaders.setAccept(Collections.singletonList(new MediaType("application", "json")));
+        }
+        if (!requestHeaders.containsKey(HttpHeaders.ACCEPT)) {
+            //negotiated accept header unless the resolver sets one
+            requestHeaders.setAccept(info.streaming ? STREAMING_ACCEPT : codecNegotiator.getAccept());
         }
 
-        HttpEntity<?> requestEntity;
         if (info.httpMethod == HttpMethod.GET) {
             builder.queryParams(convertValuesToStrings(getParametersMap(info, args)));
-            requestEntity = new HttpEntity<>(requestHeaders);
-        } else {
-            requestEntity = new HttpEntity<>(getPostBody(info, args), requestHeaders);
+            return new ProxyRequestCallback(requestHeaders, null, null);
+        }
+        Object body = info.bodyIndex >= 0 ? args[info.bodyIndex] : getPostBody(info, args);
+        BodyCodec codec = codecNegotiator.getRequestCodec(body);
+        byte[] bytes = codec.write(body);
+        if (info.metrics != null && bytes != null) {
+            info.metrics.recordRequest(bytes.length);
         }
-        return requestEntity;
+        return new ProxyRequestCallback(requestHeaders, bytes, codec);
     }
 
     /**
@@ -218,9 +1170,9 @@ public class RestCallHandler implements InvocationHandler {
     private MultiValueMap<String, String> convertValuesToStrings(MultiValueMap<String, Object> values) {
         MultiValueMap<String, String> target = new LinkedMultiValueMap<>();
         for (Map.Entry<String, List<Object>> entry : values.entrySet()) {
-            List<String> valueList = entry.getValue().stream()
-                    .map(obj -> convertToJSON(obj)).collect(Collectors.toList());
-            target.put(entry.getKey(), valueList);
+            for (Object value : entry.getValue()) {
+                target.add(entry.getKey(), convertToJSON(value));
+            }
         }
         return target;
     }
@@ -244,7 +1196,8 @@ public class RestCallHandler implements InvocationHandler {
      * to be sent to REST call.
      * If params and values amount is the same we just pass parameters.
      * if the amounts are different we go through POJO (we suppose POJO values are used)
-     * and fill map from the POJO methods
+     * and fill map from the POJO properties. The properties are read with compiled readers
+     * of the invocation info.
      *
      * @param ii   invocation info
      * @param args call values
@@ -252,78 +1205,71 @@ public class RestCallHandler implements InvocationHandler {
      */
     private MultiValueMap<String, Object> getParametersMap(InvocationInfo ii, Object[] args) {
         MultiValueMap<String, Object> variables = new LinkedMultiValueMap<>();
-        if (ii.parameters.size() > 0 && ii.parameters.size() == args.length) {
+        if (ii.directBinding) {
             //we have some declared parameters and exact amount of arguments
-            for (int i = 0; i < ii.parameters.size(); i++) {
+            for (int i = 0; i < ii.parameterNames.length; i++) {
                 Object value = args[i];
                 if (value != null) {
-                    variables.put(ii.parameters.get(i).value(), Collections.singletonList(value));
+                    variables.put(ii.parameterNames[i], Collections.singletonList(value));
                 } else if (ii.parameters.get(i).required()) {
                     throw new SOAControllerInvocationException("Cannot resolve value of required parameter " +
-                            ii.parameters.get(i).name());
+                            ii.parameterNames[i]);
                 }
             }
 
             return variables;
         }
 
-        Map<String, Object> fullMap = getAllArgsMap(args);
-        if (ii.parameters.size() > 0) {
+        if (ii.parameterNames.length > 0) {
             //send declared parameters only
-            for (RequestParam param : ii.parameters) {
-                Object value = fullMap.get(param.name());
+            for (String name : ii.parameterNames) {
+                Object value = getArgsProperty(ii, args, name);
                 if (value != null) {
-                    variables.put(param.name(), Collections.singletonList(convertToJSON(value)));
+                    variables.put(name, Collections.singletonList(convertToJSON(value)));
                 }
             }
         } else {
             //no parameters declared - send all data extracted from pojo params
-            for (Map.Entry<String, Object> entry : fullMap.entrySet()) {
-                variables.put(entry.getKey(), Collections.singletonList(entry.getValue()));
-            }
-        }
-        return variables;
-    }
-
-    /**
-     * Gets all pojo fields (field names are param names in the map)
-     * and place for each field the field's value
-     *
-     * @param thingy POJO
-     * @return param/value map
-     */
-    private Map<String, Object> getNonNullProperties(final Object thingy) {
-        final Map<String, Object> nonNullProperties = new HashMap<>();
-        if (thingy != null && !ClassUtils.isPrimitiveOrWrapper(thingy.getClass())) {
-            try {
-                final BeanInfo beanInfo = Introspector.getBeanInfo(thingy.getClass());
-                for (final PropertyDescriptor descriptor : beanInfo.getPropertyDescriptors()) {
-                    final Object propertyValue = descriptor.getReadMethod().invoke(thingy);
-                    if (propertyValue != null) {
-                        nonNullProperties.put(descriptor.getName(),
-                                propertyValue);
+            for (int i = 0; i < args.length; i++) {
+                if (args[i] == null) {
+                    continue;
+                }
+                BeanPropertyReader reader = ii.argumentReader(i, args[i]);
+                for (int p = 0; p < reader.size(); p++) {
+                    Object value = reader.read(p, args[i]);
+                    if (value != null) {
+                        variables.put(reader.name(p), Collections.singletonList(value));
                     }
                 }
-            } catch (IllegalArgumentException | IllegalAccessException
-                    | InvocationTargetException | IntrospectionException e) {
-                throw new SOAControllerInvocationException("Cannot get property of bean", e);
             }
         }
-        return nonNullProperties;
+        return variables;
     }
 
     /**
-     * Sum param/value maps in one map for all call values
+     * Gets not null value of a POJO property from the call values.
+     * If several values have the property the last one wins.
      *
+     * @param ii   invocation info
      * @param args call values
-     * @return param/value map
+     * @param name property name
+     * @return property value or null if no value has the property
      */
-    private Map<String, Object> getAllArgsMap(Object[] args) {
-        final Map<String, Object> nonNullProperties = new HashMap<>();
-        for (Object obj : args) {
-            nonNullProperties.putAll(getNonNullProperties(obj));
+    private Object getArgsProperty(InvocationInfo ii, Object[] args, String name) {
+        for (int i = args.length - 1; i >= 0; i--) {
+            if (args[i] == null) {
+                continue;
+            }
+            BeanPropertyReader reader = ii.argumentReader(i, args[i]);
+            int index = reader.indexOf(name);
+            if (index >= 0) {
+                Object value = reader.read(index, args[i]);
+                if (value != null) {
+                    return value;
+                }
+            }
         }
-        return nonNullProperties;
+        return null;
     }
 
     /**
@@ -333,58 +1279,10 @@ public class RestCallHandler implements InvocationHandler {
      * @return JSON string
      */
     private String convertToJSON(Object obj) {
-        ObjectMapper mapper = new ObjectMapper();
-        try {
-            if (obj == null) {
-                return null;
-            } else if (obj instanceof String) {
-                return (String) obj;
-            }
-            return mapper.writeValueAsString(obj);
-        } catch (JsonProcessingException e) {
-            throw new SOAControllerInvocationException("Cannot serialize to JSON " + obj, e);
-        }
-    }
-
-    /**
-     * Class keeps invocation info (necessary for REST remote calls)
-     */
-    static class InvocationInfo {
-        // request mapping for the call (added to URL)
-        final String requestMapping;
-        // http method
-        final HttpMethod httpMethod;
-        // remote service URL
-        final String serviceUrl;
-        // api params declared for the method in controller
-        final List<RequestParam> parameters;
-
-        /**
-         * Constructs invocation info
-         *
-         * @param serviceUrl     remote URL
-         * @param requestMapping method request mapping
-         * @param httpMethod     http method
-         * @param parameters     declared parameters
-         */
-        InvocationInfo(String serviceUrl, String requestMapping, HttpMethod httpMethod,
-                       List<RequestParam> parameters) {
-            this.serviceUrl = serviceUrl;
-            this.requestMapping = requestMapping;
-            this.httpMethod = httpMethod;
-            this.parameters = parameters;
-        }
-
-        @Override
-        public String toString() {
-            final StringBuilder sb = new StringBuilder("InvocationInfo{");
-            sb.append("requestMapping='").append(requestMapping).append('\'');
-            sb.append(", httpMethod=").append(httpMethod);
-            sb.append(", serviceUrl='").append(serviceUrl).append('\'');
-            sb.append(", parameters=").append(parameters);
-            sb.append('}');
-            return sb.toString();
+        if (obj instanceof String) {
+            return (String) obj;
         }
+        return jsonCodec.writeValueAsString(obj);
     }
 
 }
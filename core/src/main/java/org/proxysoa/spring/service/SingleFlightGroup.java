@@ -0,0 +1,211 @@
+package org.proxysoa.spring.service;
+
+import org.proxysoa.spring.exception.SOAControllerInvocationException;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+import java.util.function.UnaryOperator;
+
+/**
+ * Collapses concurrent identical calls of a SingleFlight method. The first call of a key is sent
+ * (the leader), calls of the key arriving while it's in flight wait for its result (the followers).
+ * When the result is shared every caller gets own copy of it, so callers may modify their results.
+ */
+public final class SingleFlightGroup {
+    private final String name;
+    //copies result shared by several callers
+    private final UnaryOperator<Object> copy;
+
+    //key is the call key (URI and body), value is the call in flight
+    private final ConcurrentMap<String, Flight> flights = new ConcurrentHashMap<>();
+
+    //all the calls of the method
+    private final LongAdder calls = new LongAdder();
+    //calls which got result of another call in flight
+    private final LongAdder collapsed = new LongAdder();
+
+    /**
+     * Constructs the group
+     *
+     * @param name method name
+     * @param copy copies result shared by several callers
+     */
+    SingleFlightGroup(String name, UnaryOperator<Object> copy) {
+        this.name = name;
+        this.copy = copy;
+    }
+
+    /**
+     * Calls synchronously or joins identical call in flight
+     *
+     * @param key  call key
+     * @param call remote call
+     * @return call result
+     */
+    Object call(String key, Supplier<Object> call) {
+        calls.increment();
+        Flight own = new Flight();
+        Flight joined = join(key, own);
+        if (joined != null) {
+            return await(joined.result.thenApply(copy));
+        }
+
+        Object result;
+        try {
+            result = call.get();
+        } catch (Throwable e) {
+            //errors must land the flight as well, otherwise the key's followers wait forever
+            land(key, own);
+            own.result.completeExceptionally(e);
+            throw e;
+        }
+        int followers = land(key, own);
+        own.result.complete(result);
+        return followers > 0 ? copy.apply(result) : result;
+    }
+
+    /**
+     * Calls asynchronously or joins identical call in flight.
+     * Cancelling the returned future doesn't cancel the call (other callers may wait for it).
+     *
+     * @param key  call key
+     * @param call remote call
+     * @return future of the call result
+     */
+    CompletableFuture<Object> callAsync(String key, Supplier<CompletableFuture<Object>> call) {
+        calls.increment();
+        Flight own = new Flight();
+        Flight joined = join(key, own);
+        if (joined != null) {
+            return joined.result.thenApply(copy);
+        }
+
+        CompletableFuture<Object> result;
+        try {
+            result = call.get();
+        } catch (Throwable e) {
+            land(key, own);
+            own.result.completeExceptionally(e);
+            if (e instanceof Error) {
+                throw (Error) e;
+            }
+            return own.result;
+        }
+        result.whenComplete((value, e) -> {
+            land(key, own);
+            if (e != null) {
+                own.result.completeExceptionally(e);
+            } else {
+                own.result.complete(value);
+            }
+        });
+        //followers are counted before the result is completed
+        return own.result.thenApply(value -> own.followers > 0 ? copy.apply(value) : value);
+    }
+
+    /**
+     * Joins call of the key in flight or registers own flight
+     *
+     * @param key call key
+     * @param own flight to be registered if there is no call in flight
+     * @return joined flight or null if the own one is registered (the caller must make the call)
+     */
+    private Flight join(String key, Flight own) {
+        while (true) {
+            Flight current = flights.putIfAbsent(key, own);
+            if (current == null) {
+                return null;
+            }
+            if (current.join()) {
+                collapsed.increment();
+                return current;
+            }
+            //landed, but not removed yet
+            flights.remove(key, current);
+        }
+    }
+
+    /**
+     * Removes the flight, so next calls of the key go to the remote service
+     *
+     * @param key    call key
+     * @param flight the flight
+     * @return amount of joined followers
+     */
+    private int land(String key, Flight flight) {
+        flights.remove(key, flight);
+        return flight.land();
+    }
+
+    private static Object await(CompletableFuture<Object> result) {
+        try {
+            return result.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SOAControllerInvocationException("Interrupted while waiting for call in flight", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw new SOAControllerInvocationException("Error in call in flight", e);
+        }
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * @return amount of the method's calls
+     */
+    public long getCallCount() {
+        return calls.sum();
+    }
+
+    /**
+     * @return amount of calls which got result of another call instead of calling the remote service
+     */
+    public long getCollapsedCount() {
+        return collapsed.sum();
+    }
+
+    /**
+     * @return amount of calls in flight now
+     */
+    public int getInFlightCount() {
+        return flights.size();
+    }
+
+    @Override
+    public String toString() {
+        return "SingleFlightGroup{" + name + ", calls=" + getCallCount() + ", collapsed=" + getCollapsedCount() + '}';
+    }
+
+    /**
+     * Call in flight
+     */
+    private static final class Flight {
+        final CompletableFuture<Object> result = new CompletableFuture<>();
+        //guarded by this
+        private boolean landed;
+        //written under the lock before the result is completed
+        int followers;
+
+        synchronized boolean join() {
+            if (landed) {
+                return false;
+            }
+            followers++;
+            return true;
+        }
+
+        synchronized int land() {
+            landed = true;
+            return followers;
+        }
+    }
+}
@@ -0,0 +1,44 @@
+package org.proxysoa.spring.service;
+
+import org.springframework.stereotype.Component;
+
+import java.lang.reflect.Method;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.UnaryOperator;
+
+/**
+ * Keeps single flight groups of all SingleFlight methods of the proxies created by ControllerFactory.
+ * Gives per method metrics of collapsed calls.
+ */
+@Component
+public class SingleFlightRegistry {
+    //key is contract method, value is the method's group
+    private final ConcurrentMap<Method, SingleFlightGroup> groups = new ConcurrentHashMap<>();
+
+    /**
+     * Gets (creates on first request) group of the method
+     *
+     * @param method contract method
+     * @param copy   copies result shared by several callers
+     * @return method's group
+     */
+    SingleFlightGroup getGroup(Method method, UnaryOperator<Object> copy) {
+        return groups.computeIfAbsent(method, m -> new SingleFlightGroup(MethodNames.of(m), copy));
+    }
+
+    /**
+     * Gets current metrics (calls, collapsed calls, calls in flight) of all the groups
+     *
+     * @return map of method name (Contract.method(ParameterTypes)) to the method's group
+     */
+    public Map<String, SingleFlightGroup> getStats() {
+        Map<String, SingleFlightGroup> res = new TreeMap<>();
+        for (SingleFlightGroup group : groups.values()) {
+            res.put(group.getName(), group);
+        }
+        return res;
+    }
+}
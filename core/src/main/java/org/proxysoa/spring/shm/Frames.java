@@ -0,0 +1,82 @@
+package org.proxysoa.spring.shm;
+
+import java.lang.reflect.Method;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Frames of the shared memory calls. Request frame: long call id, int length of the method key,
+ * method key (UTF-8), JSON array of the arguments. Response frame: long call id, int status, body
+ * (JSON of the result, empty for null result; error message for failed calls). A response longer than the ring's
+ * max message is sent as PART frames followed by the last frame with the call's status, the client joins
+ * their bodies.
+ */
+final class Frames {
+    static final int OK = 0;
+    static final int ERROR = 1;
+    //part of the response body, the next frames of the call carry the rest
+    static final int PART = 2;
+
+    //call id and status (method key length)
+    static final int HEADER_LENGTH = 12;
+
+    private Frames() {
+    }
+
+    /**
+     * Gets key of the contract method the same for the caller and the served implementation
+     *
+     * @param method contract method
+     * @return key Contract#method(ParameterTypes)
+     */
+    static String methodKey(Method method) {
+        StringBuilder sb = new StringBuilder(method.getDeclaringClass().getName())
+                .append('#').append(method.getName()).append('(');
+        Class<?>[] types = method.getParameterTypes();
+        for (int i = 0; i < types.length; i++) {
+            if (i > 0) {
+                sb.append(',');
+            }
+            sb.append(types[i].getName());
+        }
+        return sb.append(')').toString();
+    }
+
+    static byte[] request(long callId, byte[] methodKey, byte[] args) {
+        return ByteBuffer.allocate(HEADER_LENGTH + methodKey.length + args.length)
+                .putLong(callId)
+                .putInt(methodKey.length)
+                .put(methodKey)
+                .put(args)
+                .array();
+    }
+
+    static byte[] response(long callId, int status, byte[] body) {
+        return ByteBuffer.allocate(HEADER_LENGTH + body.length)
+                .putLong(callId)
+                .putInt(status)
+                .put(body)
+                .array();
+    }
+
+    static long callId(byte[] frame) {
+        return ByteBuffer.wrap(frame).getLong(0);
+    }
+
+    static String methodKey(byte[] request) {
+        return new String(request, HEADER_LENGTH, ByteBuffer.wrap(request).getInt(8), StandardCharsets.UTF_8);
+    }
+
+    static int argsOffset(byte[] request) {
+        return HEADER_LENGTH + ByteBuffer.wrap(request).getInt(8);
+    }
+
+    static int status(byte[] response) {
+        return ByteBuffer.wrap(response).getInt(8);
+    }
+
+    static byte[] body(byte[] response) {
+        return Arrays.copyOfRange(response, HEADER_LENGTH, response.length);
+    }
+}
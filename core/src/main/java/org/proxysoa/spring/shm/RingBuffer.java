@@ -0,0 +1,137 @@
+package org.proxysoa.spring.shm;
+
+import org.agrona.concurrent.UnsafeBuffer;
+
+/**
+ * Many producers - one consumer ring buffer of messages in shared memory. Producers (threads of one or
+ * several processes) claim space by CAS of the tail, write the message and publish it by ordered write
+ * of the record's length. The consumer reads published records in order, zeroes the consumed memory
+ * and moves the head. A single producer is the special case of the same protocol.
+ * <p>
+ * Record is 8 bytes aligned: int length (including the header, 0 until published), int type, message bytes.
+ * A record never wraps: if it doesn't fit till the end of the ring a padding record fills the rest.
+ * Metadata (tail and head) is kept on separate cache lines out of the data region.
+ */
+final class RingBuffer {
+    //size of the ring's metadata: tail and head cache lines
+    static final int METADATA_LENGTH = 128;
+
+    private static final int TAIL_OFFSET = 0;
+    private static final int HEAD_OFFSET = 64;
+
+    private static final int HEADER_LENGTH = 8;
+    private static final int ALIGNMENT = 8;
+
+    private static final int PADDING = 1;
+    private static final int MESSAGE = 2;
+
+    //mapped memory of the channel
+    private final UnsafeBuffer memory;
+    private final int tailOffset;
+    private final int headOffset;
+    private final int dataOffset;
+    private final int capacity;
+    private final int mask;
+
+    /**
+     * Constructs ring over the mapped memory
+     *
+     * @param memory         mapped memory of the channel
+     * @param metadataOffset offset of the ring's metadata (METADATA_LENGTH bytes)
+     * @param dataOffset     offset of the ring's data
+     * @param capacity       data size (power of two)
+     */
+    RingBuffer(UnsafeBuffer memory, int metadataOffset, int dataOffset, int capacity) {
+        if (Integer.bitCount(capacity) != 1 || capacity < 1024) {
+            throw new IllegalArgumentException("Ring size must be power of two not less than 1024: " + capacity);
+        }
+        this.memory = memory;
+        this.tailOffset = metadataOffset + TAIL_OFFSET;
+        this.headOffset = metadataOffset + HEAD_OFFSET;
+        this.dataOffset = dataOffset;
+        this.capacity = capacity;
+        this.mask = capacity - 1;
+    }
+
+    /**
+     * Publishes the message
+     *
+     * @param message message bytes (not longer than getMaxMessageLength())
+     * @return false if the ring has no space for the message
+     */
+    boolean offer(byte[] message) {
+        if (message.length > getMaxMessageLength()) {
+            throw new IllegalArgumentException("Message of " + message.length + " bytes exceeds max length "
+                    + getMaxMessageLength());
+        }
+        int recordLength = HEADER_LENGTH + message.length;
+        int required = align(recordLength);
+        long tail;
+        int padding;
+        do {
+            long head = memory.getLongVolatile(headOffset);
+            tail = memory.getLongVolatile(tailOffset);
+            int toEnd = capacity - ((int) tail & mask);
+            padding = required > toEnd ? toEnd : 0;
+            if (required + padding > capacity - (int) (tail - head)) {
+                return false;
+            }
+        } while (!memory.compareAndSetLong(tailOffset, tail, tail + padding + required));
+
+        int recordOffset = dataOffset + ((int) tail & mask);
+        if (padding > 0) {
+            memory.putInt(recordOffset + 4, PADDING);
+            memory.putIntOrdered(recordOffset, padding);
+            recordOffset = dataOffset;
+        }
+        memory.putInt(recordOffset + 4, MESSAGE);
+        memory.putBytes(recordOffset + HEADER_LENGTH, message);
+        memory.putIntOrdered(recordOffset, recordLength);
+        return true;
+    }
+
+    /**
+     * Takes next published message (called by the only consumer)
+     *
+     * @return message bytes or null if there is no published message
+     */
+    byte[] poll() {
+        while (true) {
+            long head = memory.getLong(headOffset);
+            int recordOffset = dataOffset + ((int) head & mask);
+            int length = memory.getIntVolatile(recordOffset);
+            if (length == 0) {
+                return null;
+            }
+            byte[] message = null;
+            if (memory.getInt(recordOffset + 4) == MESSAGE) {
+                message = new byte[length - HEADER_LENGTH];
+                memory.getBytes(recordOffset + HEADER_LENGTH, message);
+            }
+            int recordSize = align(length);
+            memory.setMemory(recordOffset, recordSize, (byte) 0);
+            memory.putLongOrdered(headOffset, head + recordSize);
+            if (message != null) {
+                return message;
+            }
+        }
+    }
+
+    /**
+     * @return max length of a message (1/8 of the ring, so big messages don't block the ring)
+     */
+    int getMaxMessageLength() {
+        return capacity / 8 - HEADER_LENGTH;
+    }
+
+    /**
+     * @return bytes taken by the published and not consumed messages
+     */
+    int size() {
+        return (int) (memory.getLongVolatile(tailOffset) - memory.getLongVolatile(headOffset));
+    }
+
+    private static int align(int length) {
+        return (length + ALIGNMENT - 1) & -ALIGNMENT;
+    }
+}
@@ -0,0 +1,172 @@
+package org.proxysoa.spring.shm;
+
+import org.agrona.concurrent.UnsafeBuffer;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.channels.OverlappingFileLockException;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Memory mapped file shared by the service (server) and a proxy's process (client): header, request ring
+ * (client's threads to the server) and response ring (server's threads to the client).
+ * <pre>
+ * 0    int magic (written last, the channel is ready), int ring size, long heartbeat of the server
+ * 64   request ring metadata, response ring metadata
+ * 320  request ring data, response ring data
+ * </pre>
+ * The server creates the file on start (a new file, so clients of the previous one see its heartbeat stopped)
+ * and updates the heartbeat while it serves. One client process uses the channel: the client holds
+ * the file lock, other processes can't open the channel.
+ * <p>
+ * The mapping is not released explicitly (it is released when the channel is collected), so the rings
+ * are never accessed after unmapping.
+ */
+final class SharedMemoryChannel implements Closeable {
+    private static final int MAGIC = 0x534F4131;
+
+    private static final int MAGIC_OFFSET = 0;
+    private static final int RING_SIZE_OFFSET = 4;
+    private static final int HEARTBEAT_OFFSET = 8;
+    private static final int HEADER_LENGTH = 64;
+
+    private final File file;
+    private final FileChannel fileChannel;
+    //keeps the mapping alive while the channel is used
+    private final MappedByteBuffer buffer;
+    //ordered and atomic access to the mapped memory
+    private final UnsafeBuffer memory;
+    private final RingBuffer requests;
+    private final RingBuffer responses;
+    //lock of the client (null for the server's channel)
+    private final FileLock lock;
+
+    private SharedMemoryChannel(File file, FileChannel fileChannel, MappedByteBuffer buffer, int ringSize,
+                                FileLock lock) {
+        this.file = file;
+        this.fileChannel = fileChannel;
+        this.buffer = buffer;
+        this.memory = new UnsafeBuffer(buffer);
+        this.lock = lock;
+        int metadata = HEADER_LENGTH;
+        int data = metadata + 2 * RingBuffer.METADATA_LENGTH;
+        this.requests = new RingBuffer(memory, metadata, data, ringSize);
+        this.responses = new RingBuffer(memory, metadata + RingBuffer.METADATA_LENGTH, data + ringSize, ringSize);
+    }
+
+    /**
+     * Creates channel file of the server (replaces the existing one)
+     *
+     * @param file     channel file
+     * @param ringSize size of each ring
+     * @return server's channel
+     * @throws IOException if the file cannot be created
+     */
+    static SharedMemoryChannel create(File file, int ringSize) throws IOException {
+        File dir = file.getAbsoluteFile().getParentFile();
+        if (!dir.isDirectory() && !dir.mkdirs()) {
+            throw new IOException("Cannot create directory " + dir);
+        }
+        Files.deleteIfExists(file.toPath());
+        FileChannel fileChannel = FileChannel.open(file.toPath(), StandardOpenOption.CREATE_NEW,
+                StandardOpenOption.READ, StandardOpenOption.WRITE);
+        try {
+            MappedByteBuffer buffer = fileChannel.map(FileChannel.MapMode.READ_WRITE, 0, length(ringSize));
+            SharedMemoryChannel channel = new SharedMemoryChannel(file, fileChannel, buffer, ringSize, null);
+            channel.memory.putInt(RING_SIZE_OFFSET, ringSize);
+            channel.heartbeat(System.currentTimeMillis());
+            channel.memory.putIntOrdered(MAGIC_OFFSET, MAGIC);
+            return channel;
+        } catch (IOException | RuntimeException e) {
+            fileChannel.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Opens channel file created by the server
+     *
+     * @param file channel file
+     * @return client's channel or null if there is no ready channel or it is used by another client
+     * @throws IOException if the file cannot be read
+     */
+    static SharedMemoryChannel open(File file) throws IOException {
+        if (!file.isFile() || file.length() < HEADER_LENGTH) {
+            return null;
+        }
+        FileChannel fileChannel = FileChannel.open(file.toPath(), StandardOpenOption.READ, StandardOpenOption.WRITE);
+        try {
+            FileLock lock;
+            try {
+                lock = fileChannel.tryLock();
+            } catch (OverlappingFileLockException e) {
+                lock = null;
+            }
+            if (lock == null) {
+                fileChannel.close();
+                return null;
+            }
+            long size = fileChannel.size();
+            MappedByteBuffer buffer = fileChannel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+            UnsafeBuffer memory = new UnsafeBuffer(buffer);
+            int ringSize = memory.getInt(RING_SIZE_OFFSET);
+            if (memory.getIntVolatile(MAGIC_OFFSET) != MAGIC || length(ringSize) != size) {
+                fileChannel.close();
+                return null;
+            }
+            return new SharedMemoryChannel(file, fileChannel, buffer, ringSize, lock);
+        } catch (IOException | RuntimeException e) {
+            fileChannel.close();
+            throw e;
+        }
+    }
+
+    private static long length(int ringSize) {
+        return HEADER_LENGTH + 2L * RingBuffer.METADATA_LENGTH + 2L * ringSize;
+    }
+
+    /**
+     * Updates the server's heartbeat
+     *
+     * @param now current time millis
+     */
+    void heartbeat(long now) {
+        memory.putLongOrdered(HEARTBEAT_OFFSET, now);
+    }
+
+    /**
+     * @param peerTimeout max age (milliseconds) of the heartbeat
+     * @return true if the server updated the heartbeat recently
+     */
+    boolean isServerAlive(long peerTimeout) {
+        return System.currentTimeMillis() - memory.getLongVolatile(HEARTBEAT_OFFSET) <= peerTimeout;
+    }
+
+    RingBuffer getRequests() {
+        return requests;
+    }
+
+    RingBuffer getResponses() {
+        return responses;
+    }
+
+    File getFile() {
+        return file;
+    }
+
+    /**
+     * Closes the file (releases the client's lock). The server deletes its file.
+     */
+    @Override
+    public void close() throws IOException {
+        fileChannel.close();
+        if (lock == null) {
+            Files.deleteIfExists(file.toPath());
+        }
+    }
+}
@@ -0,0 +1,298 @@
+package org.proxysoa.spring.shm;
+
+import org.proxysoa.spring.exception.SOAControllerInvocationException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Iterator;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Calls a service through its shared memory channel. Request frames are written to the request ring by
+ * the calling threads, the receiving thread reads the response ring and completes the pending calls.
+ * Sync callers wait for the result by the wait strategy (spinning first), so a call doesn't pay for thread
+ * wake ups while the service responds fast.
+ * <p>
+ * The channel is opened when the server's channel file appears and reopened when the server is restarted.
+ * While the server is absent (no channel file or its heartbeat is stopped) the client is not connected and
+ * proxies call the service by HTTP. Calls pending when the server stops fail on timeout.
+ */
+public class SharedMemoryClient {
+    private static final Logger LOG = LoggerFactory.getLogger(SharedMemoryClient.class);
+
+    //delay (milliseconds) between attempts to open the channel
+    private static final long CONNECT_INTERVAL = 1000;
+    //pending calls are checked for timeout once in the interval (milliseconds)
+    private static final long EXPIRATION_INTERVAL = 100;
+
+    private final String name;
+    private final File file;
+    private final SharedMemorySettings settings;
+    private final WaitStrategy waitStrategy;
+
+    //key is call id, value is the call waiting for response
+    private final ConcurrentMap<Long, PendingCall> pending = new ConcurrentHashMap<>();
+    //ids start from random value, so responses to calls of the previous client of the channel are ignored
+    private final AtomicLong callIds = new AtomicLong(System.nanoTime());
+
+    private final LongAdder calls = new LongAdder();
+    private final LongAdder timeouts = new LongAdder();
+
+    //opened channel (null if the client is not connected)
+    private volatile SharedMemoryChannel channel;
+    //time of the next attempt to open the channel, guarded by this
+    private long nextConnect;
+    private Thread receiver;
+    private volatile boolean running = true;
+
+    /**
+     * Constructs the client (the channel is opened on the first call)
+     *
+     * @param name     channel name
+     * @param settings shared memory settings
+     */
+    public SharedMemoryClient(String name, SharedMemorySettings settings) {
+        this.name = name;
+        this.file = settings.getChannelFile(name);
+        this.settings = settings;
+        this.waitStrategy = settings.createWaitStrategy();
+    }
+
+    /**
+     * Checks whether the calls can be sent through the channel. Opens the channel if the server is started.
+     *
+     * @return true if the server is alive
+     */
+    public boolean isConnected() {
+        SharedMemoryChannel current = channel;
+        if (current != null && current.isServerAlive(settings.getPeerTimeout())) {
+            return true;
+        }
+        return connect(current);
+    }
+
+    private synchronized boolean connect(SharedMemoryChannel stale) {
+        if (!running) {
+            return false;
+        }
+        if (channel != stale) {
+            return channel != null;
+        }
+        long now = System.currentTimeMillis();
+        if (now < nextConnect) {
+            return false;
+        }
+        nextConnect = now + CONNECT_INTERVAL;
+        if (stale != null) {
+            channel = null;
+            closeQuietly(stale);
+        }
+        try {
+            SharedMemoryChannel opened = SharedMemoryChannel.open(file);
+            if (opened == null) {
+                return false;
+            }
+            if (!opened.isServerAlive(settings.getPeerTimeout())) {
+                closeQuietly(opened);
+                return false;
+            }
+            channel = opened;
+        } catch (IOException e) {
+            LOG.warn("Cannot open shared memory channel " + file, e);
+            return false;
+        }
+        if (receiver == null) {
+            receiver = new Thread(this::receive, "soa-shm-client-" + name);
+            receiver.setDaemon(true);
+            receiver.start();
+        }
+        LOG.info("Connected to shared memory channel {}", file);
+        return true;
+    }
+
+    /**
+     * Sends the call
+     *
+     * @param methodKey key of the called method (see Frames.methodKey)
+     * @param args      JSON array of the arguments
+     * @return future of the response body or null if the call cannot be sent (the client is not connected,
+     * the request is too large or the request ring is full), so the call should be sent by HTTP
+     */
+    public CompletableFuture<byte[]> send(byte[] methodKey, byte[] args) {
+        SharedMemoryChannel current = channel;
+        if (current == null) {
+            return null;
+        }
+        RingBuffer requests = current.getRequests();
+        if (Frames.HEADER_LENGTH + methodKey.length + args.length > requests.getMaxMessageLength()) {
+            return null;
+        }
+        long callId = callIds.incrementAndGet();
+        PendingCall call = new PendingCall(System.currentTimeMillis() + settings.getTimeout());
+        pending.put(callId, call);
+        if (!requests.offer(Frames.request(callId, methodKey, args))) {
+            pending.remove(callId);
+            return null;
+        }
+        calls.increment();
+        return call;
+    }
+
+    /**
+     * Waits for the call result by the wait strategy
+     *
+     * @param call future returned by send()
+     * @return response body
+     */
+    public byte[] await(CompletableFuture<byte[]> call) {
+        int idle = 0;
+        while (!call.isDone()) {
+            idle = waitStrategy.idle(idle);
+        }
+        try {
+            return call.join();
+        } catch (CompletionException e) {
+            throw (RuntimeException) e.getCause();
+        }
+    }
+
+    private void receive() {
+        long nextExpiration = 0;
+        int idle = 0;
+        while (running) {
+            SharedMemoryChannel current = channel;
+            byte[] response = current == null ? null : current.getResponses().poll();
+            if (response != null) {
+                idle = 0;
+                complete(response);
+                continue;
+            }
+            long now = System.currentTimeMillis();
+            if (now >= nextExpiration) {
+                expire(now);
+                nextExpiration = now + EXPIRATION_INTERVAL;
+            }
+            idle = waitStrategy.idle(idle);
+        }
+    }
+
+    private void complete(byte[] response) {
+        long callId = Frames.callId(response);
+        int status = Frames.status(response);
+        if (status == Frames.PART) {
+            PendingCall call = pending.get(callId);
+            if (call != null) {
+                call.addPart(response);
+            }
+            return;
+        }
+        PendingCall call = pending.remove(callId);
+        if (call == null) {
+            return;
+        }
+        if (status == Frames.OK) {
+            call.complete(call.body(response));
+        } else {
+            call.completeExceptionally(new SOAControllerInvocationException("Error calling shared memory channel "
+                    + name + ": " + new String(call.body(response), StandardCharsets.UTF_8)));
+        }
+    }
+
+    private void expire(long now) {
+        for (Iterator<PendingCall> it = pending.values().iterator(); it.hasNext(); ) {
+            PendingCall call = it.next();
+            if (call.deadline <= now || !running) {
+                it.remove();
+                timeouts.increment();
+                call.completeExceptionally(new SOAControllerInvocationException("Timeout of call to shared memory "
+                        + "channel " + name + " (" + settings.getTimeout() + " ms)"));
+            }
+        }
+    }
+
+    /**
+     * Closes the channel and fails the pending calls
+     */
+    public synchronized void close() {
+        running = false;
+        if (receiver != null) {
+            try {
+                receiver.join(1000);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        expire(Long.MAX_VALUE);
+        if (channel != null) {
+            closeQuietly(channel);
+            channel = null;
+        }
+    }
+
+    private static void closeQuietly(SharedMemoryChannel channel) {
+        try {
+            channel.close();
+        } catch (IOException e) {
+            LOG.debug("Cannot close shared memory channel " + channel.getFile(), e);
+        }
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * @return amount of the calls sent through the channel
+     */
+    public long getCallCount() {
+        return calls.sum();
+    }
+
+    /**
+     * @return amount of the calls failed on timeout
+     */
+    public long getTimeoutCount() {
+        return timeouts.sum();
+    }
+
+    /**
+     * Call waiting for response
+     */
+    private static class PendingCall extends CompletableFuture<byte[]> {
+        private final long deadline;
+        //bodies of the received PART frames (null if there are none), used by the receiving thread only
+        private ByteArrayOutputStream parts;
+
+        PendingCall(long deadline) {
+            this.deadline = deadline;
+        }
+
+        void addPart(byte[] frame) {
+            if (parts == null) {
+                parts = new ByteArrayOutputStream(frame.length * 2);
+            }
+            parts.write(frame, Frames.HEADER_LENGTH, frame.length - Frames.HEADER_LENGTH);
+        }
+
+        /**
+         * @param last last frame of the response
+         * @return whole response body
+         */
+        byte[] body(byte[] last) {
+            if (parts == null) {
+                return Frames.body(last);
+            }
+            parts.write(last, Frames.HEADER_LENGTH, last.length - Frames.HEADER_LENGTH);
+            return parts.toByteArray();
+        }
+    }
+}
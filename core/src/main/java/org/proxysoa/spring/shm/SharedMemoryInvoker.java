@@ -0,0 +1,94 @@
+package org.proxysoa.spring.shm;
+
+import com.fasterxml.jackson.databind.JavaType;
+import org.proxysoa.spring.codec.JsonCodec;
+import org.proxysoa.spring.exception.SOAControllerInvocationException;
+
+import java.io.IOException;
+import java.lang.reflect.Method;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Calls controller methods through the shared memory channel of the service. Arguments are sent as JSON array
+ * and the result is read from JSON the same way the remote call's arguments and results are.
+ */
+public class SharedMemoryInvoker {
+    private static final Object[] NO_ARGS = new Object[0];
+
+    private final Class<?> contract;
+    private final SharedMemoryClient client;
+    private final JsonCodec jsonCodec;
+
+    //key is contract method, value is the method key sent in the request frames
+    private final ConcurrentMap<Method, byte[]> methodKeys = new ConcurrentHashMap<>();
+
+    /**
+     * Constructs the invoker
+     *
+     * @param contract  controller contract
+     * @param client    client of the service's channel
+     * @param jsonCodec writes arguments and reads results
+     */
+    public SharedMemoryInvoker(Class<?> contract, SharedMemoryClient client, JsonCodec jsonCodec) {
+        this.contract = contract;
+        this.client = client;
+        this.jsonCodec = jsonCodec;
+    }
+
+    /**
+     * Sends the call if the service is served through the channel
+     *
+     * @param method contract method
+     * @param args   method parameters' values
+     * @return future of the response body or null if the call should be sent by HTTP
+     */
+    public CompletableFuture<byte[]> send(Method method, Object[] args) {
+        if (!client.isConnected()) {
+            return null;
+        }
+        byte[] methodKey = methodKeys.computeIfAbsent(method,
+                m -> Frames.methodKey(m).getBytes(StandardCharsets.UTF_8));
+        return client.send(methodKey, jsonCodec.writeValueAsBytes(args != null ? args : NO_ARGS));
+    }
+
+    /**
+     * Waits for the call result
+     *
+     * @param call future returned by send()
+     * @param type result type
+     * @return call result
+     */
+    public Object await(CompletableFuture<byte[]> call, JavaType type) {
+        return read(client.await(call), type);
+    }
+
+    /**
+     * Reads the call result
+     *
+     * @param body response body
+     * @param type result type
+     * @return call result
+     */
+    public Object read(byte[] body, JavaType type) {
+        if (body.length == 0) {
+            return null;
+        }
+        try {
+            return jsonCodec.readerFor(type).readValue(body);
+        } catch (IOException e) {
+            throw new SOAControllerInvocationException("Cannot read result of " + contract.getSimpleName()
+                    + " call from shared memory channel " + client.getName(), e);
+        }
+    }
+
+    public Class<?> getContract() {
+        return contract;
+    }
+
+    public SharedMemoryClient getClient() {
+        return client;
+    }
+}
@@ -0,0 +1,162 @@
+package org.proxysoa.spring.shm;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.proxysoa.spring.annotation.Proxyable;
+import org.proxysoa.spring.codec.JsonCodec;
+import org.proxysoa.spring.service.RestCallHandler;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.BeansException;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.context.ApplicationContext;
+import org.springframework.context.ApplicationContextAware;
+import org.springframework.context.EnvironmentAware;
+import org.springframework.core.env.Environment;
+import org.springframework.stereotype.Component;
+import org.springframework.util.ClassUtils;
+
+import java.io.IOException;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Keeps shared memory channels of the context: clients of the channels used by the proxies (one client
+ * per channel) and the server of the context's own channel.
+ * <p>
+ * When the context is started and SOA.SharedMemory.export names a channel, the context's beans implementing
+ * Proxyable contracts are served through the channel. Proxies of the controllers with
+ * SOA.SharedMemory.Contract.channel call the service through the named channel while the service serves it,
+ * and by HTTP otherwise (see SharedMemorySettings).
+ */
+@Component
+public class SharedMemoryRegistry implements EnvironmentAware, ApplicationContextAware, SmartInitializingSingleton,
+        DisposableBean {
+    private static final Logger LOG = LoggerFactory.getLogger(SharedMemoryRegistry.class);
+
+    private SharedMemorySettings settings;
+
+    private Environment environment;
+
+    private ApplicationContext applicationContext;
+
+    //key is channel name, value is the client of the channel
+    private final ConcurrentMap<String, SharedMemoryClient> clients = new ConcurrentHashMap<>();
+
+    //server of the context's channel (null if the context's controllers are not served)
+    private SharedMemoryServer server;
+
+    /**
+     * Default constructor (settings are read from environment)
+     */
+    public SharedMemoryRegistry() {
+        this(new SharedMemorySettings());
+    }
+
+    /**
+     * Constructor with settings
+     *
+     * @param settings shared memory settings
+     */
+    public SharedMemoryRegistry(SharedMemorySettings settings) {
+        this.settings = settings;
+    }
+
+    @Override
+    public void setEnvironment(Environment environment) {
+        this.environment = environment;
+        this.settings = new SharedMemorySettings(environment);
+        LOG.debug("Shared memory settings {}", settings);
+    }
+
+    @Override
+    public void setApplicationContext(ApplicationContext applicationContext) throws BeansException {
+        this.applicationContext = applicationContext;
+    }
+
+    /**
+     * Serves the context's controller implementations through the exported channel
+     */
+    @Override
+    public synchronized void afterSingletonsInstantiated() {
+        if (applicationContext == null || settings.getExport().isEmpty()) {
+            return;
+        }
+        SharedMemoryServer channelServer = new SharedMemoryServer(settings.getExport(), settings, getJsonCodec());
+        for (String name : applicationContext.getBeanDefinitionNames()) {
+            Class<?> type = applicationContext.getType(name);
+            if (type == null || Proxy.isProxyClass(type) && isRemoteProxy(applicationContext.getBean(name))) {
+                continue;
+            }
+            for (Class<?> contract : ClassUtils.getAllInterfacesForClassAsSet(type)) {
+                if (contract.isAnnotationPresent(Proxyable.class)) {
+                    channelServer.serve(contract, applicationContext.getBean(name));
+                }
+            }
+        }
+        try {
+            channelServer.start();
+            server = channelServer;
+        } catch (IOException e) {
+            LOG.error("Cannot serve shared memory channel " + settings.getExport(), e);
+        }
+    }
+
+    /**
+     * Stops the server and closes the clients
+     */
+    @Override
+    public synchronized void destroy() {
+        if (server != null) {
+            server.stop();
+            server = null;
+        }
+        for (SharedMemoryClient client : clients.values()) {
+            client.close();
+        }
+        clients.clear();
+    }
+
+    /**
+     * Gets client of the channel used by proxy of the controller
+     *
+     * @param contract controller contract
+     * @return client or null if the proxy doesn't use shared memory
+     */
+    public SharedMemoryClient getClient(Class<?> contract) {
+        String channel = settings.getChannelFor(environment, contract.getSimpleName());
+        return channel == null ? null : clients.computeIfAbsent(channel, c -> new SharedMemoryClient(c, settings));
+    }
+
+    /**
+     * @return clients of the channels used by the proxies
+     */
+    public Collection<SharedMemoryClient> getClients() {
+        return new ArrayList<>(clients.values());
+    }
+
+    public synchronized SharedMemoryServer getServer() {
+        return server;
+    }
+
+    public SharedMemorySettings getSettings() {
+        return settings;
+    }
+
+    /**
+     * Uses the application's ObjectMapper if there is exactly one, so the served results are serialized
+     * the same way the controllers' http responses are
+     */
+    private JsonCodec getJsonCodec() {
+        Map<String, ObjectMapper> mappers = applicationContext.getBeansOfType(ObjectMapper.class);
+        return mappers.size() == 1 ? new JsonCodec(mappers.values().iterator().next()) : new JsonCodec();
+    }
+
+    private static boolean isRemoteProxy(Object bean) {
+        return Proxy.getInvocationHandler(bean) instanceof RestCallHandler;
+    }
+}
@@ -0,0 +1,301 @@
+package org.proxysoa.spring.shm;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.databind.JavaType;
+import org.proxysoa.spring.codec.JsonCodec;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+
+import java.io.IOException;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Type;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Serves calls of controller implementations coming through a shared memory channel. The channel's polling
+ * thread takes request frames, finds the called method by its key, reads the arguments from JSON and calls
+ * the implementation (on the polling thread or on the worker threads). Results (results of the futures for
+ * async methods) and errors are written to the response ring.
+ * <p>
+ * The polling thread updates the channel's heartbeat, so the clients see whether the server is alive.
+ */
+public class SharedMemoryServer {
+    private static final Logger LOG = LoggerFactory.getLogger(SharedMemoryServer.class);
+
+    //heartbeat is updated once in the interval (milliseconds)
+    private static final long HEARTBEAT_INTERVAL = 100;
+
+    private final String name;
+    private final SharedMemorySettings settings;
+    private final JsonCodec jsonCodec;
+    private final WaitStrategy waitStrategy;
+
+    //key is method key (see Frames.methodKey), value is the served method
+    private final Map<String, Target> targets = new HashMap<>();
+
+    private final LongAdder calls = new LongAdder();
+    private final LongAdder droppedResponses = new LongAdder();
+
+    private SharedMemoryChannel channel;
+    //executes the calls (null if the calls are executed by the polling thread)
+    private ThreadPoolExecutor workers;
+    private Thread poller;
+    private volatile boolean running;
+
+    /**
+     * Constructs the server
+     *
+     * @param name      channel name
+     * @param settings  shared memory settings
+     * @param jsonCodec reads arguments and writes results
+     */
+    public SharedMemoryServer(String name, SharedMemorySettings settings, JsonCodec jsonCodec) {
+        this.name = name;
+        this.settings = settings;
+        this.jsonCodec = jsonCodec;
+        this.waitStrategy = settings.createWaitStrategy();
+    }
+
+    /**
+     * Serves the contract's methods by the implementation (called before start)
+     *
+     * @param contract controller contract
+     * @param target   implementation of the contract
+     */
+    public synchronized void serve(Class<?> contract, Object target) {
+        for (Method method : contract.getMethods()) {
+            targets.put(Frames.methodKey(method), new Target(target, method, jsonCodec));
+        }
+        LOG.debug("Shared memory channel {} serves {}", name, contract.getCanonicalName());
+    }
+
+    /**
+     * Creates the channel file and starts polling thread
+     *
+     * @throws IOException if the channel file cannot be created
+     */
+    public synchronized void start() throws IOException {
+        if (running) {
+            return;
+        }
+        channel = SharedMemoryChannel.create(settings.getChannelFile(name), settings.getRingSize());
+        if (settings.getWorkerThreads() > 0) {
+            workers = new ThreadPoolExecutor(settings.getWorkerThreads(), settings.getWorkerThreads(),
+                    0L, TimeUnit.MILLISECONDS, new LinkedBlockingQueue<>(),
+                    new CustomizableThreadFactory("soa-shm-" + name + "-"));
+        }
+        running = true;
+        poller = new Thread(this::poll, "soa-shm-" + name);
+        poller.setDaemon(true);
+        poller.start();
+        LOG.info("Shared memory channel {} is served on {}", name, channel.getFile());
+    }
+
+    /**
+     * Stops polling and deletes the channel file
+     */
+    public synchronized void stop() {
+        if (!running) {
+            return;
+        }
+        running = false;
+        try {
+            poller.join(1000);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        if (workers != null) {
+            workers.shutdownNow();
+        }
+        try {
+            channel.close();
+        } catch (IOException e) {
+            LOG.warn("Cannot close shared memory channel " + name, e);
+        }
+    }
+
+    private void poll() {
+        RingBuffer requests = channel.getRequests();
+        long heartbeat = 0;
+        int idle = 0;
+        while (running) {
+            long now = System.currentTimeMillis();
+            if (now - heartbeat >= HEARTBEAT_INTERVAL) {
+                channel.heartbeat(now);
+                heartbeat = now;
+            }
+            byte[] request = requests.poll();
+            if (request == null) {
+                idle = waitStrategy.idle(idle);
+                continue;
+            }
+            idle = 0;
+            if (workers == null) {
+                dispatch(request);
+            } else {
+                try {
+                    workers.execute(() -> dispatch(request));
+                } catch (RejectedExecutionException e) {
+                    respond(Frames.callId(request), Frames.ERROR, "Shared memory server is stopped");
+                }
+            }
+        }
+    }
+
+    private void dispatch(byte[] request) {
+        calls.increment();
+        long callId = Frames.callId(request);
+        String methodKey = Frames.methodKey(request);
+        Target target = targets.get(methodKey);
+        if (target == null) {
+            respond(callId, Frames.ERROR, "Method " + methodKey + " is not served by channel " + name);
+            return;
+        }
+        Object result;
+        try {
+            result = target.method.invoke(target.bean, target.readArgs(request, Frames.argsOffset(request)));
+        } catch (InvocationTargetException e) {
+            respond(callId, Frames.ERROR, String.valueOf(e.getCause()));
+            return;
+        } catch (Exception e) {
+            respond(callId, Frames.ERROR, "Cannot call " + methodKey + ": " + e);
+            return;
+        }
+        if (result instanceof CompletionStage) {
+            ((CompletionStage<?>) result).whenComplete((value, error) -> {
+                if (error != null) {
+                    respond(callId, Frames.ERROR, String.valueOf(error));
+                } else {
+                    respondResult(callId, value);
+                }
+            });
+        } else {
+            respondResult(callId, result);
+        }
+    }
+
+    private void respondResult(long callId, Object result) {
+        byte[] body;
+        try {
+            body = result == null ? new byte[0] : jsonCodec.writeValueAsBytes(result);
+        } catch (RuntimeException e) {
+            respond(callId, Frames.ERROR, "Cannot serialize result: " + e);
+            return;
+        }
+        respond(callId, Frames.OK, body);
+    }
+
+    private void respond(long callId, int status, String message) {
+        respond(callId, status, message.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Writes response frames. A body longer than the ring's max message is split into PART frames.
+     *
+     * @param callId call id
+     * @param status call status
+     * @param body   response body
+     */
+    private void respond(long callId, int status, byte[] body) {
+        int maxPart = channel.getResponses().getMaxMessageLength() - Frames.HEADER_LENGTH;
+        int offset = 0;
+        while (body.length - offset > maxPart) {
+            if (!offer(callId, Frames.response(callId, Frames.PART, Arrays.copyOfRange(body, offset,
+                    offset + maxPart)))) {
+                return;
+            }
+            offset += maxPart;
+        }
+        offer(callId, Frames.response(callId, status, offset == 0 ? body
+                : Arrays.copyOfRange(body, offset, body.length)));
+    }
+
+    /**
+     * Writes response frame. Waits while the response ring is full (the client is slow) up to the call timeout,
+     * the response is dropped after that (the client's call times out).
+     *
+     * @param callId call id
+     * @param frame  response frame
+     * @return false if the response is dropped
+     */
+    private boolean offer(long callId, byte[] frame) {
+        RingBuffer responses = channel.getResponses();
+        long deadline = System.currentTimeMillis() + settings.getTimeout();
+        int idle = 0;
+        while (!responses.offer(frame)) {
+            if (!running || System.currentTimeMillis() > deadline) {
+                droppedResponses.increment();
+                LOG.warn("Response of call {} is dropped: shared memory channel {} is full", callId, name);
+                return false;
+            }
+            idle = waitStrategy.idle(idle);
+        }
+        return true;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * @return amount of the served calls
+     */
+    public long getCallCount() {
+        return calls.sum();
+    }
+
+    /**
+     * @return amount of the responses dropped because the client didn't read the response ring
+     */
+    public long getDroppedResponseCount() {
+        return droppedResponses.sum();
+    }
+
+    /**
+     * Served method
+     */
+    private static class Target {
+        private final Object bean;
+        private final Method method;
+        private final JavaType[] argumentTypes;
+        private final JsonCodec jsonCodec;
+
+        Target(Object bean, Method method, JsonCodec jsonCodec) {
+            this.bean = bean;
+            this.method = method;
+            this.jsonCodec = jsonCodec;
+            Type[] types = method.getGenericParameterTypes();
+            this.argumentTypes = new JavaType[types.length];
+            for (int i = 0; i < types.length; i++) {
+                argumentTypes[i] = jsonCodec.constructType(types[i]);
+            }
+        }
+
+        /**
+         * Reads the arguments array one by one as the declared parameter types
+         */
+        Object[] readArgs(byte[] request, int offset) throws IOException {
+            Object[] args = new Object[argumentTypes.length];
+            try (JsonParser parser = jsonCodec.getObjectMapper().getFactory()
+                    .createParser(request, offset, request.length - offset)) {
+                parser.nextToken();
+                for (int i = 0; i < args.length; i++) {
+                    parser.nextToken();
+                    args[i] = jsonCodec.readerFor(argumentTypes[i]).readValue(parser);
+                }
+            }
+            return args;
+        }
+    }
+}
@@ -0,0 +1,192 @@
+package org.proxysoa.spring.shm;
+
+import org.springframework.core.env.Environment;
+
+import java.io.File;
+
+/**
+ * Keeps settings of the shared memory transport. Values are read from SOA.SharedMemory.* properties,
+ * defaults are used for the missing ones. Proxy of a controller calls the service through the shared memory
+ * channel named by SOA.SharedMemory.Contract.channel if SOA.SharedMemory.enabled is true.
+ */
+public class SharedMemorySettings {
+    public static final String PREFIX = "SOA.SharedMemory.";
+
+    //whether proxies call services through shared memory channels
+    private boolean enabled = false;
+    //name of the channel serving the context's controllers (empty if the controllers are not served)
+    private String export = "";
+    //directory of the channel files (memory backed file system is preferred)
+    private String dir = getDefaultDir();
+    //size of the request and the response rings of a channel (bytes, power of two)
+    private int ringSize = 1024 * 1024;
+    //timeout (milliseconds) of a call
+    private long timeout = 10000;
+    //peer is considered absent if the channel's heartbeat is older (milliseconds)
+    private long peerTimeout = 1000;
+    //iterations a waiting thread spins before yielding
+    private int spinTries = 20000;
+    //iterations a waiting thread yields before parking
+    private int yieldTries = 100;
+    //time (nanoseconds) an idle thread is parked for
+    private long parkNanos = 50000;
+    //threads executing the served calls (0 - the calls are executed by the channel's polling thread)
+    private int workerThreads = 0;
+
+    /**
+     * Default constructor (default settings)
+     */
+    public SharedMemorySettings() {
+    }
+
+    /**
+     * Reads the settings from environment
+     *
+     * @param environment environment to get SOA.SharedMemory.* properties
+     */
+    public SharedMemorySettings(Environment environment) {
+        this.enabled = environment.getProperty(PREFIX + "enabled", Boolean.class, enabled);
+        this.export = environment.getProperty(PREFIX + "export", export);
+        this.dir = environment.getProperty(PREFIX + "dir", dir);
+        this.ringSize = environment.getProperty(PREFIX + "ringSize", Integer.class, ringSize);
+        this.timeout = environment.getProperty(PREFIX + "timeout", Long.class, timeout);
+        this.peerTimeout = environment.getProperty(PREFIX + "peerTimeout", Long.class, peerTimeout);
+        this.spinTries = environment.getProperty(PREFIX + "spinTries", Integer.class, spinTries);
+        this.yieldTries = environment.getProperty(PREFIX + "yieldTries", Integer.class, yieldTries);
+        this.parkNanos = environment.getProperty(PREFIX + "parkNanos", Long.class, parkNanos);
+        this.workerThreads = environment.getProperty(PREFIX + "workerThreads", Integer.class, workerThreads);
+    }
+
+    /**
+     * Gets channel used by proxy of a controller
+     *
+     * @param environment environment to get SOA.SharedMemory.Contract.channel property (may be null)
+     * @param contract    simple name of the controller contract
+     * @return channel name or null if the proxy doesn't use shared memory
+     */
+    public String getChannelFor(Environment environment, String contract) {
+        if (!enabled || environment == null) {
+            return null;
+        }
+        String channel = environment.getProperty(PREFIX + contract + ".channel");
+        return channel == null || channel.isEmpty() ? null : channel;
+    }
+
+    /**
+     * @param channel channel name
+     * @return file of the channel
+     */
+    public File getChannelFile(String channel) {
+        return new File(dir, channel + ".ring");
+    }
+
+    /**
+     * @return strategy of the threads waiting for messages
+     */
+    public WaitStrategy createWaitStrategy() {
+        return new WaitStrategy(spinTries, yieldTries, parkNanos);
+    }
+
+    private static String getDefaultDir() {
+        File shm = new File("/dev/shm");
+        File parent = shm.isDirectory() ? shm : new File(System.getProperty("java.io.tmpdir"));
+        return new File(parent, "soa-proxy").getPath();
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    public String getExport() {
+        return export;
+    }
+
+    public void setExport(String export) {
+        this.export = export;
+    }
+
+    public String getDir() {
+        return dir;
+    }
+
+    public void setDir(String dir) {
+        this.dir = dir;
+    }
+
+    public int getRingSize() {
+        return ringSize;
+    }
+
+    public void setRingSize(int ringSize) {
+        this.ringSize = ringSize;
+    }
+
+    public long getTimeout() {
+        return timeout;
+    }
+
+    public void setTimeout(long timeout) {
+        this.timeout = timeout;
+    }
+
+    public long getPeerTimeout() {
+        return peerTimeout;
+    }
+
+    public void setPeerTimeout(long peerTimeout) {
+        this.peerTimeout = peerTimeout;
+    }
+
+    public int getSpinTries() {
+        return spinTries;
+    }
+
+    public void setSpinTries(int spinTries) {
+        this.spinTries = spinTries;
+    }
+
+    public int getYieldTries() {
+        return yieldTries;
+    }
+
+    public void setYieldTries(int yieldTries) {
+        this.yieldTries = yieldTries;
+    }
+
+    public long getParkNanos() {
+        return parkNanos;
+    }
+
+    public void setParkNanos(long parkNanos) {
+        this.parkNanos = parkNanos;
+    }
+
+    public int getWorkerThreads() {
+        return workerThreads;
+    }
+
+    public void setWorkerThreads(int workerThreads) {
+        this.workerThreads = workerThreads;
+    }
+
+    @Override
+    public String toString() {
+        final StringBuilder sb = new StringBuilder("SharedMemorySettings{");
+        sb.append("enabled=").append(enabled);
+        sb.append(", export='").append(export).append('\'');
+        sb.append(", dir='").append(dir).append('\'');
+        sb.append(", ringSize=").append(ringSize);
+        sb.append(", timeout=").append(timeout);
+        sb.append(", peerTimeout=").append(peerTimeout);
+        sb.append(", spinTries=").append(spinTries);
+        sb.append(", yieldTries=").append(yieldTries);
+        sb.append(", parkNanos=").append(parkNanos);
+        sb.append(", workerThreads=").append(workerThreads);
+        sb.append('}');
+        return sb.toString();
+    }
+}
@@ -0,0 +1,55 @@
+package org.proxysoa.spring.shm;
+
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Waiting for the next message (or the call result) without blocking primitives: the thread spins first
+ * (the lowest latency, burns the CPU), then yields, then parks for short periods.
+ * The caller passes the amount of the idle iterations and resets it when there is work.
+ */
+public class WaitStrategy {
+    private final int spinTries;
+    private final int yieldTries;
+    private final long parkNanos;
+
+    /**
+     * Constructs the strategy
+     *
+     * @param spinTries  iterations to spin
+     * @param yieldTries iterations to yield after the spinning
+     * @param parkNanos  time to park after the yielding
+     */
+    public WaitStrategy(int spinTries, int yieldTries, long parkNanos) {
+        this.spinTries = spinTries;
+        this.yieldTries = yieldTries;
+        this.parkNanos = parkNanos;
+    }
+
+    /**
+     * Waits once
+     *
+     * @param idleCount amount of the idle iterations made before
+     * @return amount of the idle iterations including this one
+     */
+    public int idle(int idleCount) {
+        if (idleCount < spinTries) {
+            return idleCount + 1;
+        }
+        if (idleCount < spinTries + yieldTries) {
+            Thread.yield();
+            return idleCount + 1;
+        }
+        LockSupport.parkNanos(parkNanos);
+        return idleCount;
+    }
+
+    @Override
+    public String toString() {
+        final StringBuilder sb = new StringBuilder("WaitStrategy{");
+        sb.append("spinTries=").append(spinTries);
+        sb.append(", yieldTries=").append(yieldTries);
+        sb.append(", parkNanos=").append(parkNanos);
+        sb.append('}');
+        return sb.toString();
+    }
+}
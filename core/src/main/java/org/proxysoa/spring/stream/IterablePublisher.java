@@ -0,0 +1,112 @@
+package org.proxysoa.spring.stream;
+
+import org.reactivestreams.Publisher;
+import org.reactivestreams.Subscriber;
+import org.reactivestreams.Subscription;
+
+import java.util.Iterator;
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Publisher of an Iterable's elements. Used by services to implement Publisher contract methods.
+ * Elements are taken from the iterator lazily (as much as requested) on the requesting thread.
+ *
+ * @param <T> element type
+ */
+public class IterablePublisher<T> implements Publisher<T> {
+    private final Iterable<? extends T> source;
+
+    /**
+     * Constructs the publisher
+     *
+     * @param source elements source (iterated once per subscriber)
+     */
+    public IterablePublisher(Iterable<? extends T> source) {
+        this.source = source;
+    }
+
+    @Override
+    public void subscribe(Subscriber<? super T> subscriber) {
+        Objects.requireNonNull(subscriber, "Subscriber is null");
+        Iterator<? extends T> iterator;
+        try {
+            iterator = source.iterator();
+        } catch (RuntimeException e) {
+            subscriber.onSubscribe(new IteratorSubscription<>(subscriber, null));
+            subscriber.onError(e);
+            return;
+        }
+        subscriber.onSubscribe(new IteratorSubscription<>(subscriber, iterator));
+    }
+
+    /**
+     * Subscription of one subscriber. Reentrant request() calls (from onNext) just add demand,
+     * the outermost call emits.
+     */
+    private static class IteratorSubscription<T> implements Subscription {
+        private final Subscriber<? super T> subscriber;
+        private final Iterator<? extends T> iterator;
+        private final AtomicLong requested = new AtomicLong();
+        private final AtomicInteger wip = new AtomicInteger();
+        private volatile boolean cancelled;
+
+        IteratorSubscription(Subscriber<? super T> subscriber, Iterator<? extends T> iterator) {
+            this.subscriber = subscriber;
+            this.iterator = iterator;
+            this.cancelled = iterator == null;
+        }
+
+        @Override
+        public void request(long n) {
+            if (cancelled) {
+                return;
+            }
+            if (n <= 0) {
+                cancelled = true;
+                subscriber.onError(new IllegalArgumentException("Requested amount must be positive but was " + n));
+                return;
+            }
+            ResponsePublisher.addDemand(requested, n);
+            if (wip.getAndIncrement() != 0) {
+                return;
+            }
+            int missed = 1;
+            do {
+                emit();
+                missed = wip.addAndGet(-missed);
+            } while (missed != 0);
+        }
+
+        @Override
+        public void cancel() {
+            cancelled = true;
+        }
+
+        private void emit() {
+            long demand = requested.get();
+            long emitted = 0;
+            while (emitted != demand && !cancelled) {
+                T value;
+                try {
+                    if (!iterator.hasNext()) {
+                        cancelled = true;
+                        subscriber.onComplete();
+                        return;
+                    }
+                    value = iterator.next();
+                } catch (RuntimeException e) {
+                    cancelled = true;
+                    subscriber.onError(e);
+                    return;
+                }
+                subscriber.onNext(value);
+                emitted++;
+            }
+            if (emitted != 0 && demand != Long.MAX_VALUE) {
+                requested.addAndGet(-emitted);
+            }
+        }
+    }
+}
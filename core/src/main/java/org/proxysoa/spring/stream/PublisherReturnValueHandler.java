@@ -0,0 +1,246 @@
+package org.proxysoa.spring.stream;
+
+import org.proxysoa.spring.codec.JsonCodec;
+import org.reactivestreams.Publisher;
+import org.reactivestreams.Subscriber;
+import org.reactivestreams.Subscription;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.core.MethodParameter;
+import org.springframework.http.MediaType;
+import org.springframework.web.context.request.NativeWebRequest;
+import org.springframework.web.filter.ShallowEtagHeaderFilter;
+import org.springframework.web.method.support.HandlerMethodReturnValueHandler;
+import org.springframework.web.method.support.ModelAndViewContainer;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBodyReturnValueHandler;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.stream.Stream;
+
+/**
+ * Streams Publisher, Stream and Iterator results of controller methods. Elements are written as they are
+ * published (taken from the stream or iterator): new line delimited JSON if the client accepts
+ * application/x-ndjson, JSON array otherwise. Stream (or closeable iterator) is closed after it's written.
+ * The publisher is requested in batches, next batch is requested after the previous one is written,
+ * so a slow client slows the publisher down instead of growing buffers.
+ * <p>
+ * The response is written asynchronously (servlet async request) as StreamingResponseBody.
+ */
+public class PublisherReturnValueHandler implements HandlerMethodReturnValueHandler {
+    private static final Logger LOG = LoggerFactory.getLogger(PublisherReturnValueHandler.class);
+
+    public static final MediaType APPLICATION_NDJSON = MediaType.valueOf("application/x-ndjson");
+
+    //elements requested from the publisher at once
+    private static final int BATCH_SIZE = 64;
+
+    private final JsonCodec codec;
+
+    private final StreamingResponseBodyReturnValueHandler streamingHandler =
+            new StreamingResponseBodyReturnValueHandler();
+
+    /**
+     * Constructs the handler
+     *
+     * @param codec codec to serialize the elements
+     */
+    public PublisherReturnValueHandler(JsonCodec codec) {
+        this.codec = codec;
+    }
+
+    @Override
+    public boolean supportsReturnType(MethodParameter returnType) {
+        Class<?> type = returnType.getParameterType();
+        return Publisher.class.isAssignableFrom(type)
+                || Stream.class.isAssignableFrom(type)
+                || Iterator.class.isAssignableFrom(type);
+    }
+
+    @Override
+    public void handleReturnValue(Object returnValue, MethodParameter returnType, ModelAndViewContainer mavContainer,
+                                  NativeWebRequest webRequest) throws Exception {
+        if (returnValue == null) {
+            mavContainer.setRequestHandled(true);
+            return;
+        }
+        boolean ndjson = acceptsNdjson(webRequest.getHeader("Accept"));
+        HttpServletResponse response = webRequest.getNativeResponse(HttpServletResponse.class);
+        response.setContentType(ndjson ? APPLICATION_NDJSON.toString() : MediaType.APPLICATION_JSON_UTF8_VALUE);
+
+        //streamed responses must not be buffered to compute ETag
+        ShallowEtagHeaderFilter.disableContentCaching(webRequest.getNativeRequest(HttpServletRequest.class));
+
+        Publisher<?> publisher = toPublisher(returnValue);
+        StreamingResponseBody body = out -> {
+            try {
+                new StreamWriter(codec, out, ndjson).writeAll(publisher);
+            } finally {
+                close(returnValue);
+            }
+        };
+        streamingHandler.handleReturnValue(body, returnType, mavContainer, webRequest);
+    }
+
+    private static Publisher<?> toPublisher(Object returnValue) {
+        if (returnValue instanceof Stream) {
+            return new IterablePublisher<>(((Stream<?>) returnValue)::iterator);
+        }
+        if (returnValue instanceof Iterator) {
+            Iterator<?> iterator = (Iterator<?>) returnValue;
+            return new IterablePublisher<>(() -> iterator);
+        }
+        return (Publisher<?>) returnValue;
+    }
+
+    private static void close(Object returnValue) {
+        if (returnValue instanceof AutoCloseable && !(returnValue instanceof Publisher)) {
+            try {
+                ((AutoCloseable) returnValue).close();
+            } catch (Exception e) {
+                LOG.warn("Cannot close streamed result {}", returnValue, e);
+            }
+        }
+    }
+
+    private static boolean acceptsNdjson(String accept) {
+        if (accept == null) {
+            return false;
+        }
+        List<MediaType> mediaTypes = MediaType.parseMediaTypes(accept);
+        for (MediaType mediaType : mediaTypes) {
+            if (APPLICATION_NDJSON.getType().equals(mediaType.getType())
+                    && APPLICATION_NDJSON.getSubtype().equals(mediaType.getSubtype())) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Subscriber writing the published elements to the response stream
+     */
+    private static class StreamWriter implements Subscriber<Object> {
+        private final JsonCodec codec;
+        private final OutputStream out;
+        private final boolean ndjson;
+        private final CountDownLatch terminated = new CountDownLatch(1);
+
+        private Subscription subscription;
+        private long written;
+        private volatile Throwable error;
+
+        StreamWriter(JsonCodec codec, OutputStream out, boolean ndjson) {
+            this.codec = codec;
+            this.out = out;
+            this.ndjson = ndjson;
+        }
+
+        /**
+         * Subscribes to the publisher and waits until all the elements are written
+         *
+         * @param publisher publisher
+         * @throws IOException if writing or publisher fails (the response is broken then)
+         */
+        void writeAll(Publisher<?> publisher) throws IOException {
+            publisher.subscribe(this);
+            try {
+                terminated.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                subscription.cancel();
+                throw new InterruptedIOException("Interrupted while streaming");
+            }
+            if (error != null) {
+                throw error instanceof IOException ? (IOException) error : new IOException(error);
+            }
+        }
+
+        @Override
+        public void onSubscribe(Subscription s) {
+            subscription = s;
+            if (!ndjson) {
+                if (!write('[')) {
+                    return;
+                }
+            }
+            s.request(BATCH_SIZE);
+        }
+
+        @Override
+        public void onNext(Object value) {
+            if (!ndjson && written > 0 && !write(',')) {
+                return;
+            }
+            if (!write(codec.writeValueAsBytes(value)) || (ndjson && !write('\n'))) {
+                return;
+            }
+            written++;
+            //the first element goes to the client at once, the rest are flushed per batch
+            if (written == 1 || written % BATCH_SIZE == 0) {
+                if (!flush()) {
+                    return;
+                }
+            }
+            if (written % BATCH_SIZE == 0) {
+                subscription.request(BATCH_SIZE);
+            }
+        }
+
+        @Override
+        public void onError(Throwable t) {
+            error = t;
+            terminated.countDown();
+        }
+
+        @Override
+        public void onComplete() {
+            if ((ndjson || write(']')) && flush()) {
+                terminated.countDown();
+            }
+        }
+
+        private boolean write(int b) {
+            try {
+                out.write(b);
+                return true;
+            } catch (IOException e) {
+                fail(e);
+                return false;
+            }
+        }
+
+        private boolean write(byte[] bytes) {
+            try {
+                out.write(bytes);
+                return true;
+            } catch (IOException e) {
+                fail(e);
+                return false;
+            }
+        }
+
+        private boolean flush() {
+            try {
+                out.flush();
+                return true;
+            } catch (IOException e) {
+                fail(e);
+                return false;
+            }
+        }
+
+        private void fail(IOException e) {
+            subscription.cancel();
+            error = e;
+            terminated.countDown();
+        }
+    }
+}
@@ -0,0 +1,44 @@
+package org.proxysoa.spring.stream;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.proxysoa.spring.codec.JsonCodec;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import org.springframework.web.method.support.HandlerMethodReturnValueHandler;
+import org.springframework.web.servlet.mvc.method.annotation.RequestMappingHandlerAdapter;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Registers PublisherReturnValueHandler in the application's MVC. The handler goes first because
+ * contract methods are @ResponseBody ones and would be handled by the regular body processor otherwise.
+ */
+@Component
+public class PublisherReturnValueHandlerConfigurer implements InitializingBean {
+    private RequestMappingHandlerAdapter handlerAdapter;
+
+    private ObjectMapper objectMapper;
+
+    @Autowired(required = false)
+    public void setHandlerAdapter(RequestMappingHandlerAdapter handlerAdapter) {
+        this.handlerAdapter = handlerAdapter;
+    }
+
+    @Autowired(required = false)
+    public void setObjectMapper(ObjectMapper objectMapper) {
+        this.objectMapper = objectMapper;
+    }
+
+    @Override
+    public void afterPropertiesSet() {
+        if (handlerAdapter == null || handlerAdapter.getReturnValueHandlers() == null) {
+            //not a web application
+            return;
+        }
+        List<HandlerMethodReturnValueHandler> handlers = new ArrayList<>(handlerAdapter.getReturnValueHandlers());
+        handlers.add(0, new PublisherReturnValueHandler(new JsonCodec(objectMapper)));
+        handlerAdapter.setReturnValueHandlers(handlers);
+    }
+}
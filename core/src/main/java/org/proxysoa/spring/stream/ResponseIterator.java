@@ -0,0 +1,221 @@
+package org.proxysoa.spring.stream;
+
+import com.fasterxml.jackson.databind.JavaType;
+import com.fasterxml.jackson.databind.MappingIterator;
+import org.apache.http.conn.ConnectionReleaseTrigger;
+import org.proxysoa.spring.codec.JsonCodec;
+import org.proxysoa.spring.exception.SOAControllerInvocationException;
+import org.proxysoa.spring.metrics.MethodMetrics;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.client.ClientHttpRequest;
+import org.springframework.http.client.ClientHttpRequestFactory;
+import org.springframework.http.client.ClientHttpResponse;
+import org.springframework.web.client.RequestCallback;
+import org.springframework.web.client.ResponseErrorHandler;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * Iterator of a remote call result streamed by the service (JSON array or new line delimited JSON).
+ * Elements are parsed off the wire one by one as the iterator is advanced, so only the current element
+ * is kept in memory. The connection is held until the iterator is read to the end or closed: a fully
+ * read response goes back to the pool, a partially read one drops the connection.
+ * <p>
+ * The call is measured (if metrics are passed) from sending it till the iterator is read to the end,
+ * closed or fails, not till the iterator is returned.
+ *
+ * @param <T> element type
+ */
+public class ResponseIterator<T> implements Iterator<T>, Closeable {
+    private static final Logger LOG = LoggerFactory.getLogger(ResponseIterator.class);
+
+    private final URI uri;
+    private final ClientHttpResponse response;
+    private final MappingIterator<T> values;
+    //metrics of the called method (null if the call is not measured) and start of the call
+    private final MethodMetrics metrics;
+    private final long start;
+
+    private boolean exhausted;
+    private boolean closed;
+
+    /**
+     * Constructs the iterator
+     *
+     * @param uri      call URI
+     * @param response response of the call
+     * @param values   iterator of the response body's values
+     */
+    public ResponseIterator(URI uri, ClientHttpResponse response, MappingIterator<T> values) {
+        this(uri, response, values, null, 0);
+    }
+
+    private ResponseIterator(URI uri, ClientHttpResponse response, MappingIterator<T> values, MethodMetrics metrics,
+                             long start) {
+        this.uri = uri;
+        this.response = response;
+        this.values = values;
+        this.metrics = metrics;
+        this.start = start;
+    }
+
+    /**
+     * Sends the call and opens iterator of the response body. The body is not read before the first
+     * element is requested.
+     *
+     * @param requestFactory  factory of the remote call requests (pooled transport's one)
+     * @param errorHandler    handler of the error responses
+     * @param uri             call URI
+     * @param httpMethod      call http method
+     * @param requestCallback writes headers and body of the call
+     * @param codec           codec to parse elements
+     * @param elementType     type of the elements
+     * @param <T>             element type
+     * @return iterator of the response elements
+     * @throws IOException on connection errors
+     */
+    public static <T> ResponseIterator<T> open(ClientHttpRequestFactory requestFactory,
+                                               ResponseErrorHandler errorHandler, URI uri, HttpMethod httpMethod,
+                                               RequestCallback requestCallback, JsonCodec codec,
+                                               JavaType elementType) throws IOException {
+        return open(requestFactory, errorHandler, uri, httpMethod, requestCallback, codec, elementType, null);
+    }
+
+    /**
+     * Sends the call and opens iterator of the response body measuring the call
+     *
+     * @param requestFactory  factory of the remote call requests (pooled transport's one)
+     * @param errorHandler    handler of the error responses
+     * @param uri             call URI
+     * @param httpMethod      call http method
+     * @param requestCallback writes headers and body of the call
+     * @param codec           codec to parse elements
+     * @param elementType     type of the elements
+     * @param metrics         metrics of the called method (null if the call is not measured)
+     * @param <T>             element type
+     * @return iterator of the response elements
+     * @throws IOException on connection errors
+     */
+    public static <T> ResponseIterator<T> open(ClientHttpRequestFactory requestFactory,
+                                               ResponseErrorHandler errorHandler, URI uri, HttpMethod httpMethod,
+                                               RequestCallback requestCallback, JsonCodec codec,
+                                               JavaType elementType, MethodMetrics metrics) throws IOException {
+        long start = metrics != null ? metrics.onStart() : 0;
+        ClientHttpResponse response = null;
+        try {
+            ClientHttpRequest request = requestFactory.createRequest(uri, httpMethod);
+            requestCallback.doWithRequest(request);
+            response = request.execute();
+            if (errorHandler.hasError(response)) {
+                errorHandler.handleError(response);
+            }
+            return new ResponseIterator<>(uri, response, codec.<T>readValues(response.getBody(), elementType),
+                    metrics, start);
+        } catch (IOException | RuntimeException e) {
+            if (response != null) {
+                response.close();
+            }
+            if (metrics != null) {
+                metrics.onComplete(start, e);
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * Returns the elements as sequential stream. Closing the stream closes the iterator.
+     *
+     * @return stream of the response elements
+     */
+    public Stream<T> stream() {
+        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(this, Spliterator.ORDERED), false)
+                .onClose(this::close);
+    }
+
+    /**
+     * Checks whether there are more elements, the iterator is closed when the response is read to the end
+     *
+     * @return true if there is next element
+     */
+    @Override
+    public boolean hasNext() {
+        if (closed) {
+            return false;
+        }
+        try {
+            if (values.hasNextValue()) {
+                return true;
+            }
+        } catch (IOException | RuntimeException e) {
+            throw failed(e);
+        }
+        exhausted = true;
+        close();
+        return false;
+    }
+
+    @Override
+    public T next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException("Stream of URL " + uri + " is read to the end");
+        }
+        try {
+            return values.nextValue();
+        } catch (IOException | RuntimeException e) {
+            throw failed(e);
+        }
+    }
+
+    /**
+     * Releases the connection. The connection of a partially read response is dropped (reading the rest
+     * of a long stream to reuse the connection costs more than a new connection).
+     */
+    @Override
+    public void close() {
+        close(null);
+    }
+
+    /**
+     * Releases the connection
+     *
+     * @param error error the reading is stopped by (null if the caller stopped reading)
+     */
+    void close(Throwable error) {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        if (metrics != null) {
+            metrics.onComplete(start, error);
+        }
+        if (!exhausted) {
+            try {
+                InputStream body = response.getBody();
+                if (body instanceof ConnectionReleaseTrigger) {
+                    ((ConnectionReleaseTrigger) body).abortConnection();
+                }
+            } catch (IOException e) {
+                LOG.debug("Cannot abort stream of {}", uri, e);
+            }
+        }
+        response.close();
+    }
+
+    private RuntimeException failed(Exception e) {
+        RuntimeException error = e instanceof SOAControllerInvocationException ? (RuntimeException) e
+                : new SOAControllerInvocationException("Error reading stream of URL " + uri, e);
+        close(error);
+        return error;
+    }
+}
@@ -0,0 +1,241 @@
+package org.proxysoa.spring.stream;
+
+import com.fasterxml.jackson.databind.JavaType;
+import org.proxysoa.spring.codec.JsonCodec;
+import org.proxysoa.spring.exception.SOAControllerInvocationException;
+import org.proxysoa.spring.metrics.MethodMetrics;
+import org.reactivestreams.Publisher;
+import org.reactivestreams.Subscriber;
+import org.reactivestreams.Subscription;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.client.ClientHttpRequestFactory;
+import org.springframework.web.client.RequestCallback;
+import org.springframework.web.client.ResponseErrorHandler;
+
+import java.io.IOException;
+import java.net.URI;
+import java.util.Objects;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Publisher of a remote call result streamed by the service (JSON array or new line delimited JSON).
+ * The publisher is cold: each subscriber gets own remote call, the call is sent on the first demand.
+ * Elements are parsed off the wire one by one and only while the subscriber has demand, when the
+ * demand is over the response is not read further (so the server is throttled by TCP flow control).
+ * The response is read with ResponseIterator.
+ * <p>
+ * Reading is done on the executor, signals to the subscriber are serialized. Each subscriber's call is measured
+ * (if metrics are passed) from sending it till the response is read to the end, cancelled or fails.
+ *
+ * @param <T> element type
+ */
+public class ResponsePublisher<T> implements Publisher<T> {
+    private final ClientHttpRequestFactory requestFactory;
+    private final ResponseErrorHandler errorHandler;
+    private final URI uri;
+    private final HttpMethod httpMethod;
+    private final RequestCallback requestCallback;
+    private final JsonCodec codec;
+    private final JavaType elementType;
+    private final Executor executor;
+    //metrics of the called method (null if the calls are not measured)
+    private final MethodMetrics metrics;
+
+    /**
+     * Constructs the publisher
+     *
+     * @param requestFactory  factory of the remote call requests (pooled transport's one)
+     * @param errorHandler    handler of the error responses
+     * @param uri             call URI
+     * @param httpMethod      call http method
+     * @param requestCallback writes headers and body of the call
+     * @param codec           codec to parse elements
+     * @param elementType     type of the elements
+     * @param executor        executor to read the response
+     */
+    public ResponsePublisher(ClientHttpRequestFactory requestFactory, ResponseErrorHandler errorHandler, URI uri,
+                             HttpMethod httpMethod, RequestCallback requestCallback, JsonCodec codec,
+                             JavaType elementType, Executor executor) {
+        this(requestFactory, errorHandler, uri, httpMethod, requestCallback, codec, elementType, executor, null);
+    }
+
+    /**
+     * Constructs the publisher measuring the calls
+     *
+     * @param requestFactory  factory of the remote call requests (pooled transport's one)
+     * @param errorHandler    handler of the error responses
+     * @param uri             call URI
+     * @param httpMethod      call http method
+     * @param requestCallback writes headers and body of the call
+     * @param codec           codec to parse elements
+     * @param elementType     type of the elements
+     * @param executor        executor to read the response
+     * @param metrics         metrics of the called method (null if the calls are not measured)
+     */
+    public ResponsePublisher(ClientHttpRequestFactory requestFactory, ResponseErrorHandler errorHandler, URI uri,
+                             HttpMethod httpMethod, RequestCallback requestCallback, JsonCodec codec,
+                             JavaType elementType, Executor executor, MethodMetrics metrics) {
+        this.requestFactory = requestFactory;
+        this.errorHandler = errorHandler;
+        this.uri = uri;
+        this.httpMethod = httpMethod;
+        this.requestCallback = requestCallback;
+        this.codec = codec;
+        this.elementType = elementType;
+        this.executor = executor;
+        this.metrics = metrics;
+    }
+
+    @Override
+    public void subscribe(Subscriber<? super T> subscriber) {
+        Objects.requireNonNull(subscriber, "Subscriber is null");
+        subscriber.onSubscribe(new ResponseSubscription(subscriber));
+    }
+
+    /**
+     * Subscription of one subscriber. All the reading and signalling is done in drain loop which is
+     * run by one thread at a time (wip counter), request() and cancel() just schedule the loop.
+     */
+    private class ResponseSubscription implements Subscription, Runnable {
+        private final Subscriber<? super T> subscriber;
+        private final AtomicLong requested = new AtomicLong();
+        private final AtomicInteger wip = new AtomicInteger();
+        private volatile boolean cancelled;
+        private volatile Throwable invalidRequest;
+
+        //accessed by the drain loop only
+        private ResponseIterator<T> values;
+        private boolean done;
+
+        ResponseSubscription(Subscriber<? super T> subscriber) {
+            this.subscriber = subscriber;
+        }
+
+        @Override
+        public void request(long n) {
+            if (n <= 0) {
+                invalidRequest = new IllegalArgumentException("Requested amount must be positive but was " + n);
+            } else {
+                addDemand(requested, n);
+            }
+            schedule();
+        }
+
+        @Override
+        public void cancel() {
+            cancelled = true;
+            schedule();
+        }
+
+        private void schedule() {
+            if (wip.getAndIncrement() == 0) {
+                try {
+                    executor.execute(this);
+                } catch (RejectedExecutionException e) {
+                    //nobody else drains while wip > 0
+                    terminate(new SOAControllerInvocationException("Too many streams are being read", e));
+                }
+            }
+        }
+
+        @Override
+        public void run() {
+            int missed = 1;
+            do {
+                drain();
+                missed = wip.addAndGet(-missed);
+            } while (missed != 0);
+        }
+
+        private void drain() {
+            if (done) {
+                return;
+            }
+            if (cancelled) {
+                done = true;
+                abort();
+                return;
+            }
+            if (invalidRequest != null) {
+                cancelled = true;
+                terminate(invalidRequest);
+                return;
+            }
+            long demand = requested.get();
+            long emitted = 0;
+            try {
+                while (emitted != demand) {
+                    if (cancelled) {
+                        done = true;
+                        abort();
+                        return;
+                    }
+                    if (values == null) {
+                        values = ResponseIterator.open(requestFactory, errorHandler, uri, httpMethod,
+                                requestCallback, codec, elementType, metrics);
+                    }
+                    if (!values.hasNext()) {
+                        //the response is released at the end
+                        done = true;
+                        subscriber.onComplete();
+                        return;
+                    }
+                    subscriber.onNext(values.next());
+                    emitted++;
+                }
+            } catch (IOException | RuntimeException e) {
+                terminate(e instanceof SOAControllerInvocationException ? e
+                        : new SOAControllerInvocationException("Error reading stream of URL " + uri, e));
+                return;
+            }
+            if (emitted != 0 && demand != Long.MAX_VALUE) {
+                requested.addAndGet(-emitted);
+            }
+        }
+
+        private void terminate(Throwable error) {
+            done = true;
+            abort(error);
+            subscriber.onError(error);
+        }
+
+        private void abort() {
+            abort(null);
+        }
+
+        /**
+         * Drops the connection of the partially read response
+         *
+         * @param error error the reading is stopped by (null if the subscriber cancelled)
+         */
+        private void abort(Throwable error) {
+            if (values != null) {
+                values.close(error);
+            }
+        }
+    }
+
+    /**
+     * Adds demand capping the total at Long.MAX_VALUE (unbounded)
+     *
+     * @param requested current demand
+     * @param n         added demand
+     */
+    static void addDemand(AtomicLong requested, long n) {
+        long current;
+        long next;
+        do {
+            current = requested.get();
+            if (current == Long.MAX_VALUE) {
+                return;
+            }
+            next = current + n;
+            if (next < 0) {
+                next = Long.MAX_VALUE;
+            }
+        } while (!requested.compareAndSet(current, next));
+    }
+}
@@ -0,0 +1,100 @@
+package org.proxysoa.spring.transport;
+
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.client.AsyncClientHttpRequest;
+import org.springframework.http.client.AsyncClientHttpRequestFactory;
+import org.springframework.http.client.ClientHttpRequest;
+import org.springframework.http.client.ClientHttpRequestFactory;
+import org.springframework.http.client.ClientHttpResponse;
+import org.springframework.util.StreamUtils;
+import org.springframework.util.concurrent.ListenableFuture;
+import org.springframework.util.concurrent.ListenableFutureTask;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.URI;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * Async requests executed by blocking request factory on a bounded executor. Used for transports having
+ * no non-blocking IO (unix domain sockets), so async calls of the proxies work the same for all the transports.
+ * The request body is buffered, an executor thread is busy while the request is sent and the response is read.
+ */
+public class BlockingAsyncClientHttpRequestFactory implements AsyncClientHttpRequestFactory {
+    private final ClientHttpRequestFactory requestFactory;
+    private final Executor executor;
+
+    /**
+     * Constructs the factory
+     *
+     * @param requestFactory blocking request factory (e.g. of a connection pool)
+     * @param executor       bounded executor to execute the requests
+     */
+    public BlockingAsyncClientHttpRequestFactory(ClientHttpRequestFactory requestFactory, Executor executor) {
+        this.requestFactory = requestFactory;
+        this.executor = executor;
+    }
+
+    @Override
+    public AsyncClientHttpRequest createAsyncRequest(URI uri, HttpMethod httpMethod) {
+        return new BlockingAsyncRequest(uri, httpMethod);
+    }
+
+    /**
+     * Buffered request executed on the executor
+     */
+    private class BlockingAsyncRequest implements AsyncClientHttpRequest {
+        private final URI uri;
+        private final HttpMethod method;
+        private final HttpHeaders headers = new HttpHeaders();
+        private final ByteArrayOutputStream body = new ByteArrayOutputStream(1024);
+
+        BlockingAsyncRequest(URI uri, HttpMethod method) {
+            this.uri = uri;
+            this.method = method;
+        }
+
+        @Override
+        public ListenableFuture<ClientHttpResponse> executeAsync() throws IOException {
+            ListenableFutureTask<ClientHttpResponse> task = new ListenableFutureTask<>(this::execute);
+            try {
+                executor.execute(task);
+            } catch (RejectedExecutionException e) {
+                throw new IOException("Too many async calls are waiting for " + uri, e);
+            }
+            return task;
+        }
+
+        private ClientHttpResponse execute() throws IOException {
+            ClientHttpRequest request = requestFactory.createRequest(uri, method);
+            request.getHeaders().putAll(headers);
+            if (body.size() > 0) {
+                StreamUtils.copy(body.toByteArray(), request.getBody());
+            }
+            return request.execute();
+        }
+
+        @Override
+        public HttpMethod getMethod() {
+            return method;
+        }
+
+        @Override
+        public URI getURI() {
+            return uri;
+        }
+
+        @Override
+        public HttpHeaders getHeaders() {
+            return headers;
+        }
+
+        @Override
+        public OutputStream getBody() {
+            return body;
+        }
+    }
+}
@@ -0,0 +1,50 @@
+package org.proxysoa.spring.transport;
+
+import org.eclipse.jetty.http2.server.HTTP2CServerConnectionFactory;
+import org.eclipse.jetty.server.Connector;
+import org.eclipse.jetty.server.HttpConnectionFactory;
+import org.eclipse.jetty.server.ServerConnector;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnClass;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.embedded.ConfigurableEmbeddedServletContainer;
+import org.springframework.boot.context.embedded.EmbeddedServletContainerCustomizer;
+import org.springframework.boot.context.embedded.jetty.JettyEmbeddedServletContainerFactory;
+import org.springframework.context.EnvironmentAware;
+import org.springframework.core.env.Environment;
+import org.springframework.stereotype.Component;
+
+/**
+ * Lets the embedded Jetty's TCP connectors serve h2c (HTTP/2 without TLS) besides HTTP/1.1 if server.h2c
+ * is true, so proxies with SOA.Http2.enabled multiplex their calls over a few connections. Concurrent
+ * streams and flow control windows are taken from SOA.Http2.* properties. The application brings http2-server.
+ */
+@Component
+@ConditionalOnProperty(name = "server.h2c", havingValue = "true")
+@ConditionalOnClass(name = "org.eclipse.jetty.http2.server.HTTP2CServerConnectionFactory")
+public class H2cServerCustomizer implements EmbeddedServletContainerCustomizer, EnvironmentAware {
+    private Http2Settings settings = new Http2Settings();
+
+    @Override
+    public void setEnvironment(Environment environment) {
+        this.settings = new Http2Settings(environment);
+    }
+
+    @Override
+    public void customize(ConfigurableEmbeddedServletContainer container) {
+        if (container instanceof JettyEmbeddedServletContainerFactory) {
+            ((JettyEmbeddedServletContainerFactory) container).addServerCustomizers(server -> {
+                for (Connector connector : server.getConnectors()) {
+                    HttpConnectionFactory http = connector.getConnectionFactory(HttpConnectionFactory.class);
+                    if (connector instanceof ServerConnector && http != null) {
+                        HTTP2CServerConnectionFactory h2 = new HTTP2CServerConnectionFactory(
+                                http.getHttpConfiguration());
+                        h2.setMaxConcurrentStreams(settings.getMaxConcurrentStreams());
+                        h2.setInitialSessionRecvWindow(settings.getSessionRecvWindow());
+                        h2.setInitialStreamRecvWindow(settings.getStreamRecvWindow());
+                        ((ServerConnector) connector).addConnectionFactory(h2);
+                    }
+                }
+            });
+        }
+    }
+}
@@ -0,0 +1,269 @@
+package org.proxysoa.spring.transport;
+
+import org.eclipse.jetty.client.HttpClient;
+import org.eclipse.jetty.client.api.Request;
+import org.eclipse.jetty.client.api.Response;
+import org.eclipse.jetty.client.api.Result;
+import org.eclipse.jetty.client.util.BufferingResponseListener;
+import org.eclipse.jetty.client.util.BytesContentProvider;
+import org.eclipse.jetty.client.util.InputStreamResponseListener;
+import org.eclipse.jetty.http.HttpField;
+import org.eclipse.jetty.http2.client.HTTP2Client;
+import org.eclipse.jetty.http2.client.http.HttpClientTransportOverHTTP2;
+import org.eclipse.jetty.util.thread.QueuedThreadPool;
+import org.proxysoa.spring.exception.SOAControllerCreationException;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.client.AsyncClientHttpRequest;
+import org.springframework.http.client.AsyncClientHttpRequestFactory;
+import org.springframework.http.client.ClientHttpRequest;
+import org.springframework.http.client.ClientHttpRequestFactory;
+import org.springframework.http.client.ClientHttpResponse;
+import org.springframework.util.concurrent.ListenableFuture;
+import org.springframework.util.concurrent.SettableListenableFuture;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.net.SocketTimeoutException;
+import java.net.URI;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Blocking and async requests of one remote service sent over HTTP/2 (h2c for http:// URLs). Concurrent
+ * calls are multiplexed as streams over a few connections per endpoint (SOA.Http2.maxConnections) instead
+ * of a connection per call, so fan-out of many calls doesn't exhaust a connection pool.
+ * <p>
+ * Request bodies are buffered. Responses of blocking requests are streamed (streamed results are read
+ * while they arrive, closing an unread response resets its stream only), responses of async requests are
+ * buffered and completed on the client's threads. The client's own decompression is switched off, bodies
+ * are decoded by CompressionInterceptor.
+ */
+public class Http2ClientHttpRequestFactory implements ClientHttpRequestFactory, AsyncClientHttpRequestFactory,
+        DisposableBean {
+    private final HttpClient httpClient;
+    private final long readTimeout;
+
+    /**
+     * Creates and starts the HTTP/2 client
+     *
+     * @param settings       HTTP/2 settings (connections, flow control windows)
+     * @param connectTimeout connect timeout (milliseconds)
+     * @param readTimeout    max time (milliseconds) a call waits for response data
+     * @param idleTimeout    idle connections are closed after the timeout (milliseconds)
+     * @param threadPrefix   name prefix of the client's threads
+     */
+    public Http2ClientHttpRequestFactory(Http2Settings settings, int connectTimeout, int readTimeout,
+                                         long idleTimeout, String threadPrefix) {
+        this.readTimeout = readTimeout;
+        HTTP2Client http2Client = new HTTP2Client();
+        http2Client.setSelectors(settings.getSelectors());
+        http2Client.setInitialSessionRecvWindow(settings.getSessionRecvWindow());
+        http2Client.setInitialStreamRecvWindow(settings.getStreamRecvWindow());
+
+        QueuedThreadPool executor = new QueuedThreadPool();
+        executor.setName(threadPrefix);
+        executor.setDaemon(true);
+        httpClient = new HttpClient(new HttpClientTransportOverHTTP2(http2Client), null);
+        httpClient.setExecutor(executor);
+        httpClient.setMaxConnectionsPerDestination(settings.getMaxConnections());
+        httpClient.setMaxRequestsQueuedPerDestination(settings.getMaxQueued());
+        httpClient.setConnectTimeout(connectTimeout);
+        httpClient.setIdleTimeout(idleTimeout);
+        //bodies are decoded by CompressionInterceptor
+        httpClient.getContentDecoderFactories().clear();
+        try {
+            httpClient.start();
+        } catch (Exception e) {
+            throw new SOAControllerCreationException("Cannot start HTTP/2 client: " + e.getMessage());
+        }
+    }
+
+    @Override
+    public ClientHttpRequest createRequest(URI uri, HttpMethod httpMethod) {
+        return new Http2Request(uri, httpMethod);
+    }
+
+    @Override
+    public AsyncClientHttpRequest createAsyncRequest(URI uri, HttpMethod httpMethod) {
+        return new Http2Request(uri, httpMethod);
+    }
+
+    @Override
+    public void destroy() throws Exception {
+        httpClient.stop();
+    }
+
+    private static IOException toIOException(Throwable failure) {
+        return failure instanceof IOException ? (IOException) failure
+                : new IOException(failure.getMessage(), failure);
+    }
+
+    /**
+     * Connection specific headers are not allowed in HTTP/2, Content-Length is set by the client
+     *
+     * @param name header name
+     * @return true if the header must not be copied to the HTTP/2 request
+     */
+    private static boolean isSkipped(String name) {
+        return HttpHeaders.CONNECTION.equalsIgnoreCase(name) || "Keep-Alive".equalsIgnoreCase(name)
+                || HttpHeaders.TRANSFER_ENCODING.equalsIgnoreCase(name) || HttpHeaders.UPGRADE.equalsIgnoreCase(name)
+                || HttpHeaders.HOST.equalsIgnoreCase(name) || HttpHeaders.CONTENT_LENGTH.equalsIgnoreCase(name);
+    }
+
+    /**
+     * Buffered request sent as a stream of the client's connection
+     */
+    private class Http2Request implements ClientHttpRequest, AsyncClientHttpRequest {
+        private final URI uri;
+        private final HttpMethod method;
+        private final HttpHeaders headers = new HttpHeaders();
+        private final ByteArrayOutputStream body = new ByteArrayOutputStream(1024);
+
+        Http2Request(URI uri, HttpMethod method) {
+            this.uri = uri;
+            this.method = method;
+        }
+
+        @Override
+        public ClientHttpResponse execute() throws IOException {
+            Request request = newRequest();
+            InputStreamResponseListener listener = new InputStreamResponseListener();
+            request.send(listener);
+            try {
+                Response response = listener.get(readTimeout, TimeUnit.MILLISECONDS);
+                return new Http2Response(response, listener.getInputStream());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                request.abort(e);
+                throw new InterruptedIOException("Call of " + uri + " is interrupted");
+            } catch (TimeoutException e) {
+                request.abort(e);
+                throw new SocketTimeoutException("No response of " + uri + " in " + readTimeout + " ms");
+            } catch (ExecutionException e) {
+                throw toIOException(e.getCause());
+            }
+        }
+
+        @Override
+        public ListenableFuture<ClientHttpResponse> executeAsync() {
+            Request request = newRequest();
+            SettableListenableFuture<ClientHttpResponse> future = new SettableListenableFuture<ClientHttpResponse>() {
+                @Override
+                protected void interruptTask() {
+                    request.abort(new CancellationException("Call of " + uri + " is cancelled"));
+                }
+            };
+            request.send(new BufferingResponseListener(Integer.MAX_VALUE) {
+                @Override
+                public void onComplete(Result result) {
+                    if (result.isFailed()) {
+                        future.setException(toIOException(result.getFailure()));
+                    } else {
+                        future.set(new Http2Response(result.getResponse(), getContentAsInputStream()));
+                    }
+                }
+            });
+            return future;
+        }
+
+        private Request newRequest() {
+            Request request = httpClient.newRequest(uri)
+                    .method(method.name())
+                    .idleTimeout(readTimeout, TimeUnit.MILLISECONDS);
+            for (Map.Entry<String, List<String>> header : headers.entrySet()) {
+                if (!isSkipped(header.getKey())) {
+                    for (String value : header.getValue()) {
+                        request.header(header.getKey(), value);
+                    }
+                }
+            }
+            if (body.size() > 0) {
+                request.content(new BytesContentProvider(body.toByteArray()));
+            }
+            return request;
+        }
+
+        @Override
+        public HttpMethod getMethod() {
+            return method;
+        }
+
+        @Override
+        public URI getURI() {
+            return uri;
+        }
+
+        @Override
+        public HttpHeaders getHeaders() {
+            return headers;
+        }
+
+        @Override
+        public OutputStream getBody() {
+            return body;
+        }
+    }
+
+    /**
+     * Response of a stream, the body is read from the stream's data frames
+     */
+    private static class Http2Response implements ClientHttpResponse {
+        private final Response response;
+        private final InputStream body;
+        private final HttpHeaders headers = new HttpHeaders();
+
+        Http2Response(Response response, InputStream body) {
+            this.response = response;
+            this.body = body;
+            for (HttpField field : response.getHeaders()) {
+                headers.add(field.getName(), field.getValue());
+            }
+        }
+
+        @Override
+        public HttpStatus getStatusCode() {
+            return HttpStatus.valueOf(response.getStatus());
+        }
+
+        @Override
+        public int getRawStatusCode() {
+            return response.getStatus();
+        }
+
+        @Override
+        public String getStatusText() {
+            //HTTP/2 has no reason phrase
+            return response.getReason() != null ? response.getReason() : "";
+        }
+
+        @Override
+        public HttpHeaders getHeaders() {
+            return headers;
+        }
+
+        @Override
+        public InputStream getBody() {
+            return body;
+        }
+
+        @Override
+        public void close() {
+            try {
+                //resets the stream if the body is not read to the end
+                body.close();
+            } catch (IOException e) {
+                //the stream is released anyway
+            }
+        }
+    }
+}
@@ -0,0 +1,125 @@
+package org.proxysoa.spring.transport;
+
+import org.springframework.core.env.Environment;
+
+/**
+ * Keeps settings of the HTTP/2 transport. Values are read from SOA.Http2.* properties, defaults are used
+ * for the missing ones. Proxies call http:// service URLs over h2c (HTTP/2 without TLS, prior knowledge)
+ * if SOA.Http2.enabled is true, so the called services must serve h2c. The flow control windows are used
+ * by both proxies (response streams) and services (request streams).
+ * <p>
+ * HTTP/2 default windows (64K) limit a stream to 64K in flight per round trip, the defaults here are sized
+ * for low latency internal networks.
+ */
+public class Http2Settings {
+    public static final String PREFIX = "SOA.Http2.";
+
+    //proxies call http:// URLs over h2c instead of pooled HTTP/1.1 connections
+    private boolean enabled = false;
+    //connections per remote service endpoint (host:port) the calls are multiplexed over
+    private int maxConnections = 2;
+    //max calls waiting for a stream per remote service endpoint, calls over the limit are rejected
+    private int maxQueued = 4096;
+    //max concurrent streams per connection advertised by services
+    private int maxConcurrentStreams = 512;
+    //receive window (bytes) of a connection
+    private int sessionRecvWindow = 16 * 1024 * 1024;
+    //receive window (bytes) of a stream (one call)
+    private int streamRecvWindow = 1024 * 1024;
+    //selector threads of the proxies' HTTP/2 client
+    private int selectors = 1;
+
+    /**
+     * Default constructor (default settings)
+     */
+    public Http2Settings() {
+    }
+
+    /**
+     * Reads the settings from environment
+     *
+     * @param environment environment to get SOA.Http2.* properties
+     */
+    public Http2Settings(Environment environment) {
+        this.enabled = environment.getProperty(PREFIX + "enabled", Boolean.class, enabled);
+        this.maxConnections = environment.getProperty(PREFIX + "maxConnections", Integer.class, maxConnections);
+        this.maxQueued = environment.getProperty(PREFIX + "maxQueued", Integer.class, maxQueued);
+        this.maxConcurrentStreams = environment.getProperty(PREFIX + "maxConcurrentStreams", Integer.class,
+                maxConcurrentStreams);
+        this.sessionRecvWindow = environment.getProperty(PREFIX + "sessionRecvWindow", Integer.class,
+                sessionRecvWindow);
+        this.streamRecvWindow = environment.getProperty(PREFIX + "streamRecvWindow", Integer.class,
+                streamRecvWindow);
+        this.selectors = environment.getProperty(PREFIX + "selectors", Integer.class, selectors);
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    public int getMaxConnections() {
+        return maxConnections;
+    }
+
+    public void setMaxConnections(int maxConnections) {
+        this.maxConnections = maxConnections;
+    }
+
+    public int getMaxQueued() {
+        return maxQueued;
+    }
+
+    public void setMaxQueued(int maxQueued) {
+        this.maxQueued = maxQueued;
+    }
+
+    public int getMaxConcurrentStreams() {
+        return maxConcurrentStreams;
+    }
+
+    public void setMaxConcurrentStreams(int maxConcurrentStreams) {
+        this.maxConcurrentStreams = maxConcurrentStreams;
+    }
+
+    public int getSessionRecvWindow() {
+        return sessionRecvWindow;
+    }
+
+    public void setSessionRecvWindow(int sessionRecvWindow) {
+        this.sessionRecvWindow = sessionRecvWindow;
+    }
+
+    public int getStreamRecvWindow() {
+        return streamRecvWindow;
+    }
+
+    public void setStreamRecvWindow(int streamRecvWindow) {
+        this.streamRecvWindow = streamRecvWindow;
+    }
+
+    public int getSelectors() {
+        return selectors;
+    }
+
+    public void setSelectors(int selectors) {
+        this.selectors = selectors;
+    }
+
+    @Override
+    public String toString() {
+        final StringBuilder sb = new StringBuilder("Http2Settings{");
+        sb.append("enabled=").append(enabled);
+        sb.append(", maxConnections=").append(maxConnections);
+        sb.append(", maxQueued=").append(maxQueued);
+        sb.append(", maxConcurrentStreams=").append(maxConcurrentStreams);
+        sb.append(", sessionRecvWindow=").append(sessionRecvWindow);
+        sb.append(", streamRecvWindow=").append(streamRecvWindow);
+        sb.append(", selectors=").append(selectors);
+        sb.append('}');
+        return sb.toString();
+    }
+}
@@ -0,0 +1,68 @@
+package org.proxysoa.spring.transport;
+
+import org.apache.http.HttpHost;
+import org.apache.http.config.SocketConfig;
+import org.apache.http.conn.ConnectTimeoutException;
+import org.apache.http.conn.HttpClientConnectionOperator;
+import org.apache.http.conn.ManagedHttpClientConnection;
+import org.apache.http.protocol.HttpContext;
+import org.newsclub.net.unix.AFUNIXSocket;
+import org.newsclub.net.unix.AFUNIXSocketAddress;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.ConnectException;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.net.SocketTimeoutException;
+
+/**
+ * Opens connections of http client's pool to the unix domain socket file of a service instead of TCP
+ * connections to the request's host (the host is not resolved). Only the socket timeout of the socket config
+ * is applied, TCP options have no meaning for the socket.
+ * <p>
+ * Failures to connect are reported as ConnectException (ConnectTimeoutException) the same way as refused
+ * TCP connections, so retries and outlier detection classify them the same.
+ */
+public class UnixSocketConnectionOperator implements HttpClientConnectionOperator {
+    private final File socketFile;
+
+    /**
+     * Constructs the operator
+     *
+     * @param socketFile socket file of the service
+     */
+    public UnixSocketConnectionOperator(String socketFile) {
+        this.socketFile = new File(socketFile);
+    }
+
+    @Override
+    public void connect(ManagedHttpClientConnection conn, HttpHost host, InetSocketAddress localAddress,
+                        int connectTimeout, SocketConfig socketConfig, HttpContext context) throws IOException {
+        Socket socket = AFUNIXSocket.newInstance();
+        conn.bind(socket);
+        try {
+            socket.setSoTimeout(socketConfig.getSoTimeout());
+            socket.connect(new AFUNIXSocketAddress(socketFile), connectTimeout);
+        } catch (SocketTimeoutException e) {
+            conn.close();
+            throw new ConnectTimeoutException(e, host);
+        } catch (IOException e) {
+            conn.close();
+            ConnectException connectError = new ConnectException("Cannot connect to " + socketFile + ": "
+                    + e.getMessage());
+            connectError.initCause(e);
+            throw connectError;
+        }
+        conn.bind(socket);
+    }
+
+    @Override
+    public void upgrade(ManagedHttpClientConnection conn, HttpHost host, HttpContext context) throws IOException {
+        throw new IOException("Unix domain socket connection to " + socketFile + " cannot be upgraded");
+    }
+
+    public File getSocketFile() {
+        return socketFile;
+    }
+}
@@ -0,0 +1,48 @@
+package org.proxysoa.spring.transport;
+
+import org.eclipse.jetty.server.HttpConnectionFactory;
+import org.eclipse.jetty.unixsocket.UnixSocketConnector;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnClass;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.embedded.ConfigurableEmbeddedServletContainer;
+import org.springframework.boot.context.embedded.EmbeddedServletContainerCustomizer;
+import org.springframework.boot.context.embedded.jetty.JettyEmbeddedServletContainerFactory;
+import org.springframework.stereotype.Component;
+
+import java.io.File;
+
+/**
+ * Adds unix domain socket connector to the embedded Jetty if server.unixSocket (socket file) is set,
+ * so proxies on the same host call the service with unix:socketFile:path URLs. The application brings
+ * jetty-unixsocket.
+ */
+@Component
+@ConditionalOnProperty("server.unixSocket")
+@ConditionalOnClass(name = "org.eclipse.jetty.unixsocket.UnixSocketConnector")
+public class UnixSocketServerCustomizer implements EmbeddedServletContainerCustomizer {
+    //socket file the server listens on
+    private final String unixSocket;
+
+    /**
+     * Constructs the customizer
+     *
+     * @param unixSocket socket file
+     */
+    public UnixSocketServerCustomizer(@Value("${server.unixSocket}") String unixSocket) {
+        this.unixSocket = unixSocket;
+    }
+
+    @Override
+    public void customize(ConfigurableEmbeddedServletContainer container) {
+        if (!unixSocket.isEmpty() && container instanceof JettyEmbeddedServletContainerFactory) {
+            ((JettyEmbeddedServletContainerFactory) container).addServerCustomizers(server -> {
+                //socket file left by previous run
+                new File(unixSocket).delete();
+                UnixSocketConnector connector = new UnixSocketConnector(server, new HttpConnectionFactory());
+                connector.setUnixSocket(unixSocket);
+                server.addConnector(connector);
+            });
+        }
+    }
+}
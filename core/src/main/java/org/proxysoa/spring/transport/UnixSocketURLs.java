@@ -0,0 +1,84 @@
+package org.proxysoa.spring.transport;
+
+/**
+ * Parses URLs of services listening on unix domain sockets: unix:socketFile:path, e.g.
+ * <pre>
+ * unix:/var/run/soa/project-service.sock:/ProjectService/
+ * </pre>
+ * Requests to such service are built for http URL of the path with a host named after the socket file
+ * (e.g. http://var-run-soa-project-service-sock/ProjectService/), so the requests have the usual URIs
+ * (and http cache keys), the connections are opened to the socket file whatever the host is.
+ */
+public final class UnixSocketURLs {
+    public static final String PREFIX = "unix:";
+
+    private UnixSocketURLs() {
+    }
+
+    /**
+     * @param url service URL
+     * @return true if the URL is unix domain socket one
+     */
+    public static boolean isUnix(String url) {
+        return url != null && url.startsWith(PREFIX);
+    }
+
+    /**
+     * Gets socket file of the service
+     *
+     * @param url unix domain socket URL
+     * @return socket file path
+     */
+    public static String getSocketFile(String url) {
+        int pathStart = url.indexOf(":/", PREFIX.length());
+        return pathStart < 0 ? url.substring(PREFIX.length()) : url.substring(PREFIX.length(), pathStart);
+    }
+
+    /**
+     * Gets http path of the service
+     *
+     * @param url unix domain socket URL
+     * @return path (/ if the URL has no path)
+     */
+    public static String getPath(String url) {
+        int pathStart = url.indexOf(":/", PREFIX.length());
+        return pathStart < 0 ? "/" : url.substring(pathStart + 1);
+    }
+
+    /**
+     * Gets http URL used to build requests to the service
+     *
+     * @param url service URL (returned as is if it is not unix domain socket one)
+     * @return http URL
+     */
+    public static String toHttpUrl(String url) {
+        if (!isUnix(url)) {
+            return url;
+        }
+        return "http://" + getHost(getSocketFile(url)) + getPath(url);
+    }
+
+    /**
+     * Gets host name of the socket file: the path with all characters but letters and digits
+     * replaced by '-'
+     *
+     * @param socketFile socket file path
+     * @return host name
+     */
+    static String getHost(String socketFile) {
+        StringBuilder sb = new StringBuilder(socketFile.length());
+        for (int i = 0; i < socketFile.length(); i++) {
+            char c = socketFile.charAt(i);
+            boolean valid = c >= 'a' && c <= 'z' || c >= 'A' && c <= 'Z' || c >= '0' && c <= '9';
+            if (valid) {
+                sb.append(Character.toLowerCase(c));
+            } else if (sb.length() > 0 && sb.charAt(sb.length() - 1) != '-') {
+                sb.append('-');
+            }
+        }
+        while (sb.length() > 0 && sb.charAt(sb.length() - 1) == '-') {
+            sb.setLength(sb.length() - 1);
+        }
+        return sb.length() > 0 ? sb.toString() : "localhost";
+    }
+}
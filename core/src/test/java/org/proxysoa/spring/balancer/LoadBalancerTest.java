@@ -0,0 +1,72 @@
+package org.proxysoa.spring.balancer;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.net.URI;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+public class LoadBalancerTest {
+    private final LoadBalancerSettings settings = new LoadBalancerSettings();
+    private final List<Endpoint> endpoints = Arrays.asList(
+            new Endpoint("http://host1:8082/ProjectService/", settings),
+            new Endpoint("http://host2:8082/ProjectService/", settings),
+            new Endpoint("http://host3:8082/ProjectService/", settings));
+
+    @Test
+    public void testRoundRobinTakesInstancesInTurn() {
+        LoadBalancer balancer = new LoadBalancer("projects", endpoints, new RoundRobinStrategy());
+        for (int i = 0; i < 6; i++) {
+            Assert.assertSame(endpoints.get(i % 3), balancer.choose());
+        }
+    }
+
+    @Test
+    public void testLeastOutstandingAvoidsBusyInstances() {
+        LoadBalancer balancer = new LoadBalancer("projects", endpoints, new LeastOutstandingStrategy());
+        endpoints.get(0).onStart();
+        endpoints.get(2).onStart();
+        for (int i = 0; i < 10; i++) {
+            Assert.assertSame(endpoints.get(1), balancer.choose());
+        }
+    }
+
+    @Test
+    public void testPowerOfTwoChoicesPrefersFastInstances() throws Exception {
+        LoadBalancer balancer = new LoadBalancer("projects", endpoints, new PowerOfTwoChoicesStrategy());
+        long start = endpoints.get(0).onStart();
+        Thread.sleep(20);
+        endpoints.get(0).onComplete(start, false);
+        endpoints.get(1).onComplete(endpoints.get(1).onStart(), false);
+        endpoints.get(2).onComplete(endpoints.get(2).onStart(), true);
+
+        Map<Endpoint, Integer> chosen = new HashMap<>();
+        for (int i = 0; i < 300; i++) {
+            chosen.merge(balancer.choose(), 1, Integer::sum);
+        }
+        //the fastest instance loses only when it is not among the two random ones
+        Assert.assertTrue(chosen.get(endpoints.get(1)) > 150);
+        Assert.assertTrue(chosen.getOrDefault(endpoints.get(2), 0) < chosen.get(endpoints.get(0)));
+    }
+
+    @Test
+    public void testChoosesOtherThanExcludedInstances() {
+        LoadBalancer balancer = new LoadBalancer("projects", endpoints, new RoundRobinStrategy());
+        List<Endpoint> excluded = Arrays.asList(endpoints.get(0), endpoints.get(1));
+        for (int i = 0; i < 6; i++) {
+            Assert.assertSame(endpoints.get(2), balancer.choose(excluded));
+        }
+        Assert.assertNotNull(balancer.choose(endpoints));
+    }
+
+    @Test
+    public void testRebaseMovesUriToInstance() {
+        URI uri = URI.create("http://host1:8082/ProjectService/projects/all?offset=1");
+        Assert.assertEquals(URI.create("http://host2:8082/ProjectService/projects/all?offset=1"),
+                endpoints.get(1).rebase(uri, "http://host1:8082/ProjectService/"));
+        Assert.assertSame(uri, endpoints.get(0).rebase(uri, "http://host1:8082/ProjectService/"));
+    }
+}
@@ -0,0 +1,95 @@
+package org.proxysoa.spring.balancer;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.client.HttpClientErrorException;
+import org.springframework.web.client.HttpServerErrorException;
+import org.springframework.web.client.ResourceAccessException;
+
+import java.net.ConnectException;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+public class OutlierDetectionTest {
+    private final AtomicLong now = new AtomicLong(1000);
+    private final OutlierDetectionSettings settings = new OutlierDetectionSettings();
+    private final LoadBalancerSettings balancerSettings = new LoadBalancerSettings();
+    private final List<Endpoint> endpoints = Arrays.asList(
+            new Endpoint("http://host1:8082/ProjectService/", balancerSettings),
+            new Endpoint("http://host2:8082/ProjectService/", balancerSettings));
+    private final LoadBalancer balancer = new LoadBalancer("projects", endpoints, new RoundRobinStrategy(),
+            settings, now::get);
+
+    @Test
+    public void testEjectsAfterConsecutiveFailures() {
+        Endpoint failing = endpoints.get(0);
+        fail(failing, settings.getConsecutiveFailures() - 1);
+        balancer.onComplete(failing, failing.onStart(), new HttpClientErrorException(HttpStatus.NOT_FOUND));
+        fail(failing, settings.getConsecutiveFailures() - 1);
+        Assert.assertTrue(failing.isAvailable(now.get()));
+
+        fail(failing, 1);
+        Assert.assertEquals(Endpoint.Status.EJECTED, failing.getStatus(now.get(), settings.getSlowStartTime()));
+        for (int i = 0; i < 10; i++) {
+            Assert.assertSame(endpoints.get(1), balancer.choose());
+        }
+    }
+
+    @Test
+    public void testEjectionTimeGrowsAndInstanceWarmsUp() {
+        Endpoint failing = endpoints.get(0);
+        fail(failing, settings.getConsecutiveFailures());
+        Assert.assertEquals(now.get() + settings.getBaseEjectionTime(), failing.getEjectedUntil());
+
+        now.addAndGet(settings.getBaseEjectionTime());
+        Assert.assertEquals(Endpoint.Status.WARMING_UP, failing.getStatus(now.get(), settings.getSlowStartTime()));
+        Assert.assertEquals(0.1, failing.getWeight(now.get(), settings.getSlowStartTime()), 0.001);
+        now.addAndGet(settings.getSlowStartTime() / 2);
+        Assert.assertEquals(0.5, failing.getWeight(now.get(), settings.getSlowStartTime()), 0.001);
+
+        fail(failing, settings.getConsecutiveFailures());
+        Assert.assertEquals(now.get() + 2 * settings.getBaseEjectionTime(), failing.getEjectedUntil());
+        Assert.assertEquals(2, failing.getEjectionCount());
+    }
+
+    @Test
+    public void testKeepsMaxEjectionPercentInRotation() {
+        fail(endpoints.get(0), settings.getConsecutiveFailures());
+        fail(endpoints.get(1), settings.getConsecutiveFailures());
+        Assert.assertFalse(endpoints.get(0).isAvailable(now.get()));
+        Assert.assertTrue(endpoints.get(1).isAvailable(now.get()));
+    }
+
+    @Test
+    public void testHealthChecksTakeInstanceOutOfRotation() {
+        HealthCheckSettings healthSettings = new HealthCheckSettings();
+        Endpoint endpoint = endpoints.get(0);
+        endpoint.onHealthCheck(false, now.get(), healthSettings);
+        Assert.assertTrue(endpoint.isHealthy());
+        endpoint.onHealthCheck(false, now.get(), healthSettings);
+        Assert.assertEquals(Endpoint.Status.UNHEALTHY, endpoint.getStatus(now.get(), settings.getSlowStartTime()));
+
+        endpoint.onHealthCheck(true, now.get(), healthSettings);
+        Assert.assertFalse(endpoint.isHealthy());
+        endpoint.onHealthCheck(true, now.get(), healthSettings);
+        Assert.assertEquals(Endpoint.Status.WARMING_UP, endpoint.getStatus(now.get(), settings.getSlowStartTime()));
+    }
+
+    @Test
+    public void testClassifiesErrors() {
+        Assert.assertTrue(LoadBalancer.isOutlierFailure(new HttpServerErrorException(HttpStatus.SERVICE_UNAVAILABLE)));
+        Assert.assertTrue(LoadBalancer.isOutlierFailure(
+                new ResourceAccessException("I/O error", new ConnectException("Connection refused"))));
+        Assert.assertFalse(LoadBalancer.isOutlierFailure(new HttpClientErrorException(HttpStatus.NOT_FOUND)));
+        Assert.assertFalse(LoadBalancer.isFailure(new HttpClientErrorException(HttpStatus.NOT_FOUND)));
+    }
+
+    private void fail(Endpoint endpoint, int times) {
+        for (int i = 0; i < times; i++) {
+            balancer.onComplete(endpoint, endpoint.onStart(),
+                    new HttpServerErrorException(HttpStatus.SERVICE_UNAVAILABLE));
+        }
+    }
+}
@@ -0,0 +1,160 @@
+package org.proxysoa.spring.cache;
+
+import com.fasterxml.jackson.databind.JavaType;
+import com.fasterxml.jackson.databind.type.TypeFactory;
+import org.junit.Assert;
+import org.junit.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpRequest;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.client.ClientHttpRequestExecution;
+import org.springframework.http.client.ClientHttpResponse;
+import org.springframework.mock.http.client.MockClientHttpRequest;
+import org.springframework.mock.http.client.MockClientHttpResponse;
+import org.springframework.util.StreamUtils;
+
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+public class HttpCachingInterceptorTest {
+    private static final URI URI_PROJECTS = URI.create("http://test/projects/all");
+
+    private final HttpResponseCache cache = new HttpResponseCache(1024 * 1024);
+    private final List<HttpRequest> sent = new ArrayList<>();
+    private long now = 1000;
+
+    @Test
+    public void testFreshResponseIsServedFromCache() throws Exception {
+        HttpCachingInterceptor interceptor = new HttpCachingInterceptor(cache, () -> now);
+        HttpHeaders headers = new HttpHeaders();
+        headers.setCacheControl("max-age=10");
+
+        Assert.assertEquals("[1]", read(interceptor.intercept(get(), new byte[0],
+                respond(HttpStatus.OK, headers, "[1]"))));
+        now += 5000;
+        Assert.assertEquals("[1]", read(interceptor.intercept(get(), new byte[0],
+                respond(HttpStatus.OK, headers, "[2]"))));
+        Assert.assertEquals(1, sent.size());
+        Assert.assertEquals(1, cache.getHitCount());
+
+        now += 6000;
+        Assert.assertEquals("[2]", read(interceptor.intercept(get(), new byte[0],
+                respond(HttpStatus.OK, headers, "[2]"))));
+        Assert.assertEquals(2, sent.size());
+    }
+
+    @Test
+    public void testStaleResponseIsRevalidated() throws Exception {
+        HttpCachingInterceptor interceptor = new HttpCachingInterceptor(cache, () -> now);
+        HttpHeaders headers = new HttpHeaders();
+        headers.setETag("\"v1\"");
+
+        ClientHttpResponse first = interceptor.intercept(get(), new byte[0],
+                respond(HttpStatus.OK, headers, "[1]"));
+        JavaType type = TypeFactory.defaultInstance().constructType(String.class);
+        ((CachedClientHttpResponse) first).setDecoded(type, "decoded");
+
+        ClientHttpResponse second = interceptor.intercept(get(), new byte[0],
+                respond(HttpStatus.NOT_MODIFIED, new HttpHeaders(), ""));
+        Assert.assertEquals("\"v1\"", sent.get(1).getHeaders().getFirst(HttpHeaders.IF_NONE_MATCH));
+        Assert.assertEquals(HttpStatus.OK, second.getStatusCode());
+        Assert.assertEquals("[1]", read(second));
+        Assert.assertEquals("decoded", ((CachedClientHttpResponse) second).getDecoded(type));
+        Assert.assertEquals(1, cache.getRevalidatedCount());
+    }
+
+    @Test
+    public void testNoStoreIsNotCached() throws Exception {
+        HttpCachingInterceptor interceptor = new HttpCachingInterceptor(cache, () -> now);
+        HttpHeaders headers = new HttpHeaders();
+        headers.setCacheControl("no-store, max-age=10");
+        headers.setETag("\"v1\"");
+
+        interceptor.intercept(get(), new byte[0], respond(HttpStatus.OK, headers, "[1]"));
+        interceptor.intercept(get(), new byte[0], respond(HttpStatus.OK, headers, "[1]"));
+        Assert.assertEquals(2, sent.size());
+        Assert.assertNull(sent.get(1).getHeaders().getFirst(HttpHeaders.IF_NONE_MATCH));
+        Assert.assertEquals(0, cache.size());
+    }
+
+    @Test
+    public void testResponseOfPersonalRequestIsNotShared() throws Exception {
+        HttpCachingInterceptor interceptor = new HttpCachingInterceptor(cache, () -> now);
+        HttpHeaders headers = new HttpHeaders();
+        headers.setCacheControl("max-age=10");
+        HttpRequest withCookie = get();
+        withCookie.getHeaders().add(HttpHeaders.COOKIE, "SESSION=1");
+        HttpRequest withTenant = get();
+        withTenant.getHeaders().add("X-Tenant", "1");
+
+        interceptor.intercept(withCookie, new byte[0], respond(HttpStatus.OK, headers, "[1]"));
+        interceptor.intercept(withTenant, new byte[0], respond(HttpStatus.OK, headers, "[1]"));
+        Assert.assertEquals("[2]", read(interceptor.intercept(get(), new byte[0],
+                respond(HttpStatus.OK, headers, "[2]"))));
+        Assert.assertEquals(3, sent.size());
+
+        now += 11000;
+        headers.setCacheControl("public, max-age=10");
+        interceptor.intercept(withCookie, new byte[0], respond(HttpStatus.OK, headers, "[3]"));
+        Assert.assertEquals("[3]", read(interceptor.intercept(get(), new byte[0],
+                respond(HttpStatus.OK, headers, "[4]"))));
+        Assert.assertEquals(4, sent.size());
+    }
+
+    @Test
+    public void testVaryingResponseIsReusedForSameValues() throws Exception {
+        HttpCachingInterceptor interceptor = new HttpCachingInterceptor(cache, () -> now);
+        HttpHeaders headers = new HttpHeaders();
+        headers.setCacheControl("max-age=10");
+        headers.setVary(Collections.singletonList(HttpHeaders.ACCEPT_LANGUAGE));
+
+        interceptor.intercept(get("en"), new byte[0], respond(HttpStatus.OK, headers, "[en]"));
+        Assert.assertEquals("[en]", read(interceptor.intercept(get("en"), new byte[0],
+                respond(HttpStatus.OK, headers, "[en]"))));
+        Assert.assertEquals(1, sent.size());
+        Assert.assertEquals("[de]", read(interceptor.intercept(get("de"), new byte[0],
+                respond(HttpStatus.OK, headers, "[de]"))));
+        Assert.assertEquals(2, sent.size());
+
+        headers.setVary(Collections.singletonList("*"));
+        cache.invalidateAll();
+        interceptor.intercept(get(), new byte[0], respond(HttpStatus.OK, headers, "[1]"));
+        Assert.assertEquals(0, cache.size());
+    }
+
+    @Test
+    public void testCacheControlParsing() {
+        Assert.assertEquals(60, HttpCachingInterceptor.maxAge("public, max-age=60"));
+        Assert.assertEquals(-1, HttpCachingInterceptor.maxAge("no-cache"));
+        Assert.assertTrue(HttpCachingInterceptor.hasDirective("public, No-Store", "no-store"));
+        Assert.assertFalse(HttpCachingInterceptor.hasDirective("max-age=60", "no-cache"));
+    }
+
+    private static HttpRequest get() {
+        return new MockClientHttpRequest(HttpMethod.GET, URI_PROJECTS);
+    }
+
+    private static HttpRequest get(String language) {
+        HttpRequest request = get();
+        request.getHeaders().set(HttpHeaders.ACCEPT_LANGUAGE, language);
+        return request;
+    }
+
+    private ClientHttpRequestExecution respond(HttpStatus status, HttpHeaders headers, String body) {
+        return (request, requestBody) -> {
+            sent.add(request);
+            MockClientHttpResponse response = new MockClientHttpResponse(body.getBytes(StandardCharsets.UTF_8),
+                    status);
+            response.getHeaders().putAll(headers);
+            return response;
+        };
+    }
+
+    private static String read(ClientHttpResponse response) throws Exception {
+        return StreamUtils.copyToString(response.getBody(), StandardCharsets.UTF_8);
+    }
+}
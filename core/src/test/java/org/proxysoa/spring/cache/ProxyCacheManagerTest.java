@@ -0,0 +1,51 @@
+package org.proxysoa.spring.cache;
+
+import com.fasterxml.jackson.databind.type.TypeFactory;
+import org.junit.Assert;
+import org.junit.Test;
+import org.proxysoa.spring.annotation.ProxyCache;
+import org.proxysoa.spring.codec.JsonCodec;
+
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+public class ProxyCacheManagerTest {
+    private final ProxyCacheManager cacheManager = new ProxyCacheManager();
+
+    @Test
+    public void testCacheAndInvalidate() throws Exception {
+        Method method = CachedController.class.getMethod("getNames");
+        MethodCache cache = cacheManager.getCache(method, method.getAnnotation(ProxyCache.class));
+        Assert.assertSame(cache, cacheManager.getCache(method, method.getAnnotation(ProxyCache.class)));
+
+        Assert.assertNull(cache.get("http://test/names"));
+        cache.put("http://test/names", Arrays.asList("a", "b"));
+        Assert.assertEquals(Arrays.asList("a", "b"), cache.get("http://test/names"));
+        Assert.assertEquals(1, cacheManager.getStats().get("CachedController.getNames()").hitCount());
+        Assert.assertEquals(1, cacheManager.getStats().get("CachedController.getNames()").missCount());
+
+        cacheManager.invalidate(CachedController.class, "getNames");
+        Assert.assertNull(cache.get("http://test/names"));
+    }
+
+    @Test
+    public void testCopyOnRead() {
+        JsonCodec codec = new JsonCodec();
+        List<String> cached = new ArrayList<>(Arrays.asList("a", "b"));
+        @SuppressWarnings("unchecked")
+        List<String> copy = (List<String>) codec.copy(cached,
+                TypeFactory.defaultInstance().constructCollectionType(List.class, String.class));
+        Assert.assertEquals(cached, copy);
+        Assert.assertNotSame(cached, copy);
+        copy.add("c");
+        Assert.assertEquals(2, cached.size());
+        Assert.assertSame("a", codec.copy("a", TypeFactory.defaultInstance().constructType(String.class)));
+    }
+
+    public interface CachedController {
+        @ProxyCache(ttl = 1000, maxEntries = 10)
+        List<String> getNames();
+    }
+}
@@ -0,0 +1,101 @@
+package org.proxysoa.spring.codec;
+
+import com.fasterxml.jackson.databind.JavaType;
+import org.junit.Assert;
+import org.junit.Test;
+import org.proxysoa.spring.codec.proto.ProtoBodyCodec;
+import org.proxysoa.spring.controller.TestController;
+import org.proxysoa.spring.exception.SOAControllerCreationException;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.HttpMessageConverter;
+import org.springframework.http.converter.json.MappingJackson2HttpMessageConverter;
+import org.springframework.http.converter.smile.MappingJackson2SmileHttpMessageConverter;
+import org.springframework.mock.env.MockEnvironment;
+import org.springframework.mock.http.MockHttpOutputMessage;
+
+import java.io.ByteArrayInputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+public class BodyCodecTest {
+    private final JsonCodec jsonCodec = new JsonCodec();
+    private final JavaType listType = jsonCodec.getObjectMapper().getTypeFactory()
+            .constructCollectionType(List.class, Long.class);
+
+    @Test
+    public void testBinaryCodecsReadWrittenValues() throws Exception {
+        List<Long> value = Arrays.asList(1L, 2L, 3L);
+        for (BodyCodec codec : Arrays.asList(JacksonBodyCodec.smile(), JacksonBodyCodec.cbor())) {
+            byte[] bytes = codec.write(value);
+            Assert.assertEquals(value, codec.read(new ByteArrayInputStream(bytes), listType));
+        }
+    }
+
+    @Test
+    public void testConverterWritesCodecFormat() throws Exception {
+        BodyCodec codec = JacksonBodyCodec.cbor();
+        HttpMessageConverter<Object> converter = codec.createMessageConverter();
+        Assert.assertTrue(converter.canWrite(List.class, JacksonBodyCodec.APPLICATION_CBOR));
+        Assert.assertFalse(converter.canWrite(List.class, MediaType.APPLICATION_JSON));
+
+        MockHttpOutputMessage message = new MockHttpOutputMessage();
+        converter.write(Arrays.asList(1L, 2L), JacksonBodyCodec.APPLICATION_CBOR, message);
+        Assert.assertEquals(JacksonBodyCodec.APPLICATION_CBOR, message.getHeaders().getContentType());
+        Assert.assertEquals(Arrays.asList(1L, 2L),
+                codec.read(new ByteArrayInputStream(message.getBodyAsBytes()), listType));
+    }
+
+    @Test
+    public void testAcceptListsBinaryCodecsBeforeJson() {
+        CodecNegotiator negotiator = new CodecRegistry().getNegotiator(TestController.class, jsonCodec);
+        Assert.assertEquals("application/x-protobuf, application/x-jackson-smile;q=0.9, application/cbor;q=0.8, "
+                        + "application/json;q=0.7",
+                MediaType.toString(negotiator.getAccept()));
+
+        CodecRegistry jsonOnly = new CodecRegistry();
+        jsonOnly.setEnvironment(new MockEnvironment().withProperty("SOA.Codec.TestController.accept", ""));
+        Assert.assertEquals(Arrays.asList(MediaType.APPLICATION_JSON),
+                jsonOnly.getNegotiator(TestController.class, jsonCodec).getAccept());
+    }
+
+    @Test
+    public void testRequestBodiesFollowAnsweredCodec() {
+        CodecNegotiator negotiator = new CodecRegistry().getNegotiator(TestController.class, jsonCodec);
+        Assert.assertEquals("json", negotiator.getRequestCodec().getName());
+
+        Assert.assertEquals("json", negotiator.getResponseCodec(MediaType.APPLICATION_JSON_UTF8).getName());
+        Assert.assertEquals("json", negotiator.getResponseCodec(null).getName());
+        Assert.assertEquals("json", negotiator.getRequestCodec().getName());
+        Assert.assertNull(negotiator.getResponseCodec(MediaType.TEXT_HTML));
+
+        BodyCodec cbor = negotiator.getResponseCodec(JacksonBodyCodec.APPLICATION_CBOR);
+        Assert.assertEquals("cbor", cbor.getName());
+        Assert.assertSame(cbor, negotiator.getRequestCodec());
+
+        negotiator.onRejected(cbor);
+        Assert.assertEquals("json", negotiator.getRequestCodec().getName());
+    }
+
+    @Test(expected = SOAControllerCreationException.class)
+    public void testUnknownCodecIsRejected() {
+        CodecRegistry registry = new CodecRegistry();
+        registry.setEnvironment(new MockEnvironment().withProperty("SOA.Codec.accept", "avro,json"));
+        registry.getNegotiator(TestController.class, jsonCodec);
+    }
+
+    @Test
+    public void testServedConvertersGoAfterApplicationOnes() {
+        BodyCodecWebConfigurer configurer = new BodyCodecWebConfigurer();
+        configurer.setCodecRegistry(new CodecRegistry());
+        List<HttpMessageConverter<?>> converters = new ArrayList<>();
+        converters.add(new MappingJackson2HttpMessageConverter());
+        converters.add(new MappingJackson2SmileHttpMessageConverter());
+        configurer.extendMessageConverters(converters);
+
+        Assert.assertEquals(4, converters.size());
+        Assert.assertTrue(converters.get(0) instanceof MappingJackson2HttpMessageConverter);
+        Assert.assertTrue(converters.get(2).getSupportedMediaTypes().contains(ProtoBodyCodec.APPLICATION_PROTOBUF));
+        Assert.assertTrue(converters.get(3).getSupportedMediaTypes().contains(JacksonBodyCodec.APPLICATION_CBOR));
+    }
+}
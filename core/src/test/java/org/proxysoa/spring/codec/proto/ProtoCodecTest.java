@@ -0,0 +1,187 @@
+package org.proxysoa.spring.codec.proto;
+
+import com.fasterxml.jackson.annotation.JsonInclude.Include;
+import com.fasterxml.jackson.databind.JavaType;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.type.TypeFactory;
+import org.junit.Assert;
+import org.junit.Assume;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.proxysoa.spring.codec.CodecNegotiator;
+import org.proxysoa.spring.codec.JacksonBodyCodec;
+import org.proxysoa.spring.codec.JsonCodec;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.HttpMessageConverter;
+
+import javax.tools.JavaCompiler;
+import javax.tools.ToolProvider;
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.ServiceLoader;
+
+/**
+ * Compiles sample DTOs with ProtoMessageProcessor and checks the generated codecs
+ */
+public class ProtoCodecTest {
+    private static final String PROJECT_SOURCE = "package sample;\n"
+            + "import org.proxysoa.spring.codec.proto.*;\n"
+            + "@ProtoMessage\n"
+            + "public class Project {\n"
+            + "    private Long id;\n"
+            + "    private String name;\n"
+            + "    @ProtoField(5) private int priority;\n"
+            + "    private User owner;\n"
+            + "    public Long getId() { return id; }\n"
+            + "    public void setId(Long id) { this.id = id; }\n"
+            + "    public String getName() { return name; }\n"
+            + "    public void setName(String name) { this.name = name; }\n"
+            + "    public int getPriority() { return priority; }\n"
+            + "    public void setPriority(int priority) { this.priority = priority; }\n"
+            + "    public User getOwner() { return owner; }\n"
+            + "    public void setOwner(User owner) { this.owner = owner; }\n"
+            + "}\n";
+
+    private static final String USER_SOURCE = "package sample;\n"
+            + "import org.proxysoa.spring.codec.proto.*;\n"
+            + "@ProtoMessage\n"
+            + "public class User {\n"
+            + "    private Long id;\n"
+            + "    private String name;\n"
+            + "    private java.util.List<Project> projects;\n"
+            + "    public Long getId() { return id; }\n"
+            + "    public void setId(Long id) { this.id = id; }\n"
+            + "    public String getName() { return name; }\n"
+            + "    public void setName(String name) { this.name = name; }\n"
+            + "    public java.util.List<Project> getProjects() { return projects; }\n"
+            + "    public void setProjects(java.util.List<Project> projects) { this.projects = projects; }\n"
+            + "}\n";
+
+    private static final String PAGE_SOURCE = "package sample;\n"
+            + "import org.proxysoa.spring.codec.proto.*;\n"
+            + "@ProtoMessage\n"
+            + "public class Page<T> implements Iterable<T> {\n"
+            + "    private final java.util.List<T> content;\n"
+            + "    public Page(java.util.List<T> content) { this.content = content; }\n"
+            + "    public java.util.List<T> getContent() { return content; }\n"
+            + "    public java.util.Iterator<T> iterator() { return content.iterator(); }\n"
+            + "}\n";
+
+    private static final String PROJECT_JSON = "{\"id\":150,\"name\":\"Project \u00e9\",\"priority\":-1,"
+            + "\"owner\":{\"id\":1,\"name\":\"User\",\"projects\":[{\"id\":2,\"priority\":0},"
+            + "{\"name\":\"Other\",\"priority\":300}]}}";
+
+    private static final ObjectMapper MAPPER = new ObjectMapper().setSerializationInclusion(Include.NON_NULL);
+
+    private static File outputDir;
+    private static Class<?> projectClass;
+    private static Class<?> pageClass;
+    private static ProtoBodyCodec codec;
+
+    @BeforeClass
+    public static void compileSamples() throws Exception {
+        JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+        Assume.assumeNotNull(compiler);
+        File sourceDir = Files.createTempDirectory("proto-src").toFile();
+        outputDir = Files.createTempDirectory("proto-out").toFile();
+        List<String> args = new ArrayList<>();
+        Collections.addAll(args, "-classpath",
+                new File(ProtoMessage.class.getProtectionDomain().getCodeSource().getLocation().toURI()).getPath(),
+                "-processor", ProtoMessageProcessor.class.getName(), "-d", outputDir.getPath());
+        for (String source : new String[]{PROJECT_SOURCE, USER_SOURCE, PAGE_SOURCE}) {
+            String name = source.substring(source.indexOf("public class ") + 13).split("[ <]")[0];
+            File file = new File(sourceDir, name + ".java");
+            Files.write(file.toPath(), source.getBytes(StandardCharsets.UTF_8));
+            args.add(file.getPath());
+        }
+        Assert.assertEquals(0, compiler.run(null, null, null, args.toArray(new String[args.size()])));
+
+        ClassLoader loader = new URLClassLoader(new URL[]{outputDir.toURI().toURL()},
+                ProtoCodecTest.class.getClassLoader());
+        projectClass = loader.loadClass("sample.Project");
+        pageClass = loader.loadClass("sample.Page");
+        codec = new ProtoBodyCodec();
+        for (ProtoCodec generated : ServiceLoader.load(ProtoCodec.class, loader)) {
+            codec.register(generated);
+        }
+    }
+
+    @Test
+    public void testMessageIsReadAsWritten() throws Exception {
+        Object project = MAPPER.readValue(PROJECT_JSON, projectClass);
+        Assert.assertTrue(codec.canWrite(project));
+        byte[] bytes = codec.write(project);
+
+        Object read = codec.read(new ByteArrayInputStream(bytes), MAPPER.constructType(projectClass));
+        Assert.assertEquals(MAPPER.valueToTree(project), MAPPER.valueToTree(read));
+    }
+
+    @Test
+    public void testWireFormatIsProtobuf() throws Exception {
+        Object project = MAPPER.readValue("{\"id\":150}", projectClass);
+        //id = 1 varint 150 and priority = 5 varint 0 (primitive fields are always written)
+        Assert.assertArrayEquals(new byte[]{0x08, (byte) 0x96, 0x01, 0x28, 0x00}, codec.write(project));
+    }
+
+    @Test
+    public void testListsAndContainersAreSentAsRepeatedItems() throws Exception {
+        Object project = MAPPER.readValue(PROJECT_JSON, projectClass);
+        List<Object> projects = new ArrayList<>();
+        projects.add(project);
+        projects.add(project);
+        Assert.assertTrue(codec.canWrite(projects));
+        byte[] bytes = codec.write(projects);
+
+        TypeFactory typeFactory = MAPPER.getTypeFactory();
+        JavaType listType = typeFactory.constructCollectionType(List.class, projectClass);
+        Assert.assertEquals(MAPPER.valueToTree(projects),
+                MAPPER.valueToTree(codec.read(new ByteArrayInputStream(bytes), listType)));
+
+        JavaType pageType = typeFactory.constructParametricType(pageClass, projectClass);
+        Assert.assertTrue(codec.supports(pageType));
+        Object page = codec.read(new ByteArrayInputStream(bytes), pageType);
+        Assert.assertTrue(pageClass.isInstance(page));
+        Assert.assertArrayEquals(bytes, codec.write(page));
+    }
+
+    @Test
+    public void testOtherTypesAreNotSupported() {
+        Assert.assertFalse(codec.canWrite("text"));
+        Assert.assertFalse(codec.canWrite(Collections.singletonList(1L)));
+        Assert.assertFalse(codec.supports(MAPPER.constructType(String.class)));
+
+        HttpMessageConverter<Object> converter = codec.createMessageConverter();
+        Assert.assertTrue(converter.canWrite(projectClass, ProtoBodyCodec.APPLICATION_PROTOBUF));
+        Assert.assertFalse(converter.canWrite(String.class, ProtoBodyCodec.APPLICATION_PROTOBUF));
+        Assert.assertFalse(converter.canWrite(projectClass, MediaType.APPLICATION_JSON));
+    }
+
+    @Test
+    public void testOtherBodiesAreSentAsJson() throws Exception {
+        CodecNegotiator negotiator = new CodecNegotiator(JacksonBodyCodec.json(new JsonCodec()),
+                Collections.singletonList(codec));
+        Assert.assertSame(codec, negotiator.getResponseCodec(ProtoBodyCodec.APPLICATION_PROTOBUF));
+        Assert.assertSame(codec, negotiator.getRequestCodec(MAPPER.readValue(PROJECT_JSON, projectClass)));
+        Assert.assertEquals("json", negotiator.getRequestCodec(Collections.singletonMap("name", "text")).getName());
+    }
+
+    @Test
+    public void testSchemaIsGenerated() throws Exception {
+        String schema = new String(Files.readAllBytes(new File(outputDir, "META-INF/proto/sample.proto").toPath()),
+                StandardCharsets.UTF_8);
+        Assert.assertTrue(schema.contains("message Project {\n"
+                + "  optional int64 id = 1;\n"
+                + "  optional string name = 2;\n"
+                + "  optional int32 priority = 5;\n"
+                + "  optional .sample.User owner = 4;\n"
+                + "}"));
+        Assert.assertTrue(schema.contains("repeated .sample.Project projects = 3;"));
+    }
+}
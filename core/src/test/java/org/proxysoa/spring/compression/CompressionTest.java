@@ -0,0 +1,193 @@
+package org.proxysoa.spring.compression;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.client.ClientHttpRequestExecution;
+import org.springframework.http.client.ClientHttpResponse;
+import org.springframework.mock.http.client.MockClientHttpRequest;
+import org.springframework.mock.http.client.MockClientHttpResponse;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.util.StreamUtils;
+
+import javax.servlet.FilterChain;
+import javax.servlet.http.HttpServletRequest;
+import java.io.ByteArrayInputStream;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+public class CompressionTest {
+    private static final byte[] BODY = body(10000);
+
+    @Test
+    public void testCodingSelection() {
+        Assert.assertEquals(ContentCoding.GZIP, ContentCoding.select(Collections.singletonList("deflate, gzip")));
+        Assert.assertEquals(ContentCoding.DEFLATE, ContentCoding.select(Arrays.asList("gzip;q=0", "deflate;q=0.5")));
+        Assert.assertEquals(ContentCoding.GZIP, ContentCoding.select(Collections.singletonList("*")));
+        Assert.assertNull(ContentCoding.select(Collections.singletonList("br, identity")));
+        Assert.assertNull(ContentCoding.select(null));
+    }
+
+    @Test
+    public void testCodingsRoundTrip() throws Exception {
+        for (String coding : new String[]{ContentCoding.GZIP, ContentCoding.DEFLATE}) {
+            byte[] encoded = ContentCoding.encode(BODY, coding, 1);
+            Assert.assertTrue(encoded.length < BODY.length / 4);
+            Assert.assertArrayEquals(BODY, StreamUtils.copyToByteArray(
+                    ContentCoding.decoder(new ByteArrayInputStream(encoded), coding)));
+        }
+    }
+
+    @Test
+    public void testProxyDecodesResponsesAndCompressesAcceptedRequests() throws Exception {
+        CompressionStats stats = new CompressionStats();
+        CompressionInterceptor interceptor = new CompressionInterceptor(new CompressionSettings(), stats);
+        List<MockClientHttpRequest> sent = new ArrayList<>();
+        ClientHttpRequestExecution execution = (request, body) -> {
+            MockClientHttpRequest mock = new MockClientHttpRequest(request.getMethod(), request.getURI());
+            mock.getHeaders().putAll(request.getHeaders());
+            mock.getBody().write(body);
+            sent.add(mock);
+            MockClientHttpResponse response = new MockClientHttpResponse(
+                    ContentCoding.encode(BODY, ContentCoding.GZIP, 1), HttpStatus.OK);
+            response.getHeaders().set(HttpHeaders.CONTENT_ENCODING, ContentCoding.GZIP);
+            response.getHeaders().set(HttpHeaders.ACCEPT_ENCODING, ContentCoding.ACCEPTED);
+            return response;
+        };
+        MockClientHttpRequest request = new MockClientHttpRequest(HttpMethod.POST, URI.create("http://test/users"));
+
+        //the service's accepted codings are not known before the first response
+        ClientHttpResponse response = interceptor.intercept(request, BODY, execution);
+        Assert.assertEquals(ContentCoding.ACCEPTED, sent.get(0).getHeaders().getFirst(HttpHeaders.ACCEPT_ENCODING));
+        Assert.assertFalse(sent.get(0).getHeaders().containsKey(HttpHeaders.CONTENT_ENCODING));
+        Assert.assertArrayEquals(BODY, sent.get(0).getBodyAsBytes());
+        Assert.assertFalse(response.getHeaders().containsKey(HttpHeaders.CONTENT_ENCODING));
+        Assert.assertArrayEquals(BODY, StreamUtils.copyToByteArray(response.getBody()));
+        response.close();
+
+        interceptor.intercept(request, BODY, execution).close();
+        Assert.assertEquals(ContentCoding.GZIP, sent.get(1).getHeaders().getFirst(HttpHeaders.CONTENT_ENCODING));
+        Assert.assertArrayEquals(BODY, StreamUtils.copyToByteArray(ContentCoding.decoder(
+                new ByteArrayInputStream(sent.get(1).getBodyAsBytes()), ContentCoding.GZIP)));
+
+        //short bodies are sent as is
+        interceptor.intercept(request, new byte[100], execution).close();
+        Assert.assertFalse(sent.get(2).getHeaders().containsKey(HttpHeaders.CONTENT_ENCODING));
+
+        //closed unread responses are not counted
+        CompressionStats.MethodStats method = stats.getMethods().get("POST /users");
+        Assert.assertEquals(1, method.getEncoded());
+        Assert.assertEquals(1, method.getDecoded());
+        Assert.assertTrue(method.getDecodeRatio() < 0.25);
+    }
+
+    @Test
+    public void testProxyStopsCompressingRefusedRequests() throws Exception {
+        CompressionInterceptor interceptor = new CompressionInterceptor(new CompressionSettings(),
+                new CompressionStats());
+        MockClientHttpRequest request = new MockClientHttpRequest(HttpMethod.POST, URI.create("http://test/users"));
+        interceptor.intercept(request, BODY, (r, b) -> {
+            MockClientHttpResponse response = new MockClientHttpResponse(new byte[0], HttpStatus.OK);
+            response.getHeaders().set(HttpHeaders.ACCEPT_ENCODING, "deflate");
+            return response;
+        });
+        Assert.assertEquals(ContentCoding.DEFLATE, interceptor.getRequestCoding());
+
+        interceptor.intercept(request, BODY, (r, b) -> new MockClientHttpResponse(new byte[0],
+                HttpStatus.UNSUPPORTED_MEDIA_TYPE));
+        Assert.assertNull(interceptor.getRequestCoding());
+    }
+
+    @Test
+    public void testServiceCompressesLargeResponses() throws Exception {
+        CompressionFilter filter = new CompressionFilter();
+        MockHttpServletResponse response = filter(filter, null, (req, res) -> res.getOutputStream().write(BODY));
+
+        Assert.assertEquals(ContentCoding.GZIP, response.getHeader(HttpHeaders.CONTENT_ENCODING));
+        Assert.assertEquals(ContentCoding.ACCEPTED, response.getHeader(HttpHeaders.ACCEPT_ENCODING));
+        Assert.assertArrayEquals(BODY, StreamUtils.copyToByteArray(ContentCoding.decoder(
+                new ByteArrayInputStream(response.getContentAsByteArray()), ContentCoding.GZIP)));
+        Assert.assertEquals(1, filter.getStats().getMethods().get("GET /projects").getEncoded());
+    }
+
+    @Test
+    public void testServiceCompressesResponsesWithZstd() throws Exception {
+        CompressionSettings settings = new CompressionSettings();
+        settings.setZstd(true);
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/projects");
+        request.addHeader(HttpHeaders.ACCEPT_ENCODING, ContentCoding.ACCEPTED_ZSTD);
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        new CompressionFilter(settings).doFilter(request, response, (req, res) -> {
+            res.getOutputStream().write(BODY);
+            res.getOutputStream().close();
+        });
+
+        Assert.assertEquals(ContentCoding.ZSTD, response.getHeader(HttpHeaders.CONTENT_ENCODING));
+        Assert.assertArrayEquals(BODY, StreamUtils.copyToByteArray(ContentCoding.decoder(
+                new ByteArrayInputStream(response.getContentAsByteArray()), ContentCoding.ZSTD, null)));
+    }
+
+    @Test
+    public void testServiceSendsShortResponsesAsIs() throws Exception {
+        byte[] body = body(100);
+        MockHttpServletResponse response = filter(new CompressionFilter(), null, (req, res) -> {
+            res.getOutputStream().write(body);
+            //flush below the threshold doesn't commit the response
+            res.flushBuffer();
+        });
+
+        Assert.assertNull(response.getHeader(HttpHeaders.CONTENT_ENCODING));
+        Assert.assertEquals(body.length, response.getContentLength());
+        Assert.assertArrayEquals(body, response.getContentAsByteArray());
+    }
+
+    @Test
+    public void testServiceDecodesRequestBodies() throws Exception {
+        byte[][] read = new byte[1][];
+        MockHttpServletResponse response = filter(new CompressionFilter(), ContentCoding.DEFLATE, (req, res) -> {
+            Assert.assertNull(((HttpServletRequest) req).getHeader(HttpHeaders.CONTENT_ENCODING));
+            read[0] = StreamUtils.copyToByteArray(req.getInputStream());
+        });
+
+        Assert.assertEquals(HttpStatus.OK.value(), response.getStatus());
+        Assert.assertArrayEquals(BODY, read[0]);
+    }
+
+    @Test
+    public void testServiceRefusesUnsupportedRequestCoding() throws Exception {
+        MockHttpServletResponse response = filter(new CompressionFilter(), "br", (req, res) -> Assert.fail());
+
+        Assert.assertEquals(HttpStatus.UNSUPPORTED_MEDIA_TYPE.value(), response.getStatus());
+        Assert.assertEquals(ContentCoding.ACCEPTED, response.getHeader(HttpHeaders.ACCEPT_ENCODING));
+    }
+
+    private static MockHttpServletResponse filter(CompressionFilter filter, String requestCoding, FilterChain chain)
+            throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/projects");
+        request.addHeader(HttpHeaders.ACCEPT_ENCODING, "gzip, deflate");
+        if (requestCoding != null) {
+            request.setMethod("POST");
+            request.addHeader(HttpHeaders.CONTENT_ENCODING, requestCoding);
+            request.setContent(ContentCoding.isSupported(requestCoding)
+                    ? ContentCoding.encode(BODY, requestCoding, 1) : BODY);
+        }
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        filter.doFilter(request, response, chain);
+        return response;
+    }
+
+    private static byte[] body(int length) {
+        StringBuilder json = new StringBuilder("[");
+        for (int i = 0; json.length() < length - 1; i++) {
+            json.append(i % 10);
+        }
+        return json.append(']').toString().getBytes(StandardCharsets.UTF_8);
+    }
+}
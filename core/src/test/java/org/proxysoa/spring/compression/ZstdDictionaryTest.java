@@ -0,0 +1,130 @@
+package org.proxysoa.spring.compression;
+
+import org.junit.Assert;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.client.ClientHttpRequestExecution;
+import org.springframework.http.client.ClientHttpResponse;
+import org.springframework.mock.http.client.MockClientHttpRequest;
+import org.springframework.mock.http.client.MockClientHttpResponse;
+import org.springframework.util.StreamUtils;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+public class ZstdDictionaryTest {
+    private static ZstdDictionary dictionary;
+
+    @BeforeClass
+    public static void train() {
+        List<byte[]> samples = new ArrayList<>();
+        for (int i = 0; i < 1000; i++) {
+            samples.add(user(i));
+        }
+        dictionary = ZstdDictionaryTrainer.train(samples, 4096);
+    }
+
+    @Test
+    public void testDictionaryIdAndValidation() {
+        ZstdDictionary copy = new ZstdDictionary(dictionary.getBytes());
+        Assert.assertEquals(dictionary.getId(), copy.getId());
+        Assert.assertTrue(dictionary.getSize() <= 4096);
+        try {
+            new ZstdDictionary("not a dictionary".getBytes(StandardCharsets.UTF_8));
+            Assert.fail("Raw bytes must not be accepted as a dictionary");
+        } catch (IllegalArgumentException e) {
+            //expected
+        }
+    }
+
+    @Test
+    public void testDictionaryCompressesSmallBodies() throws Exception {
+        byte[] body = user(5000);
+        byte[] plain = ContentCoding.encode(body, ContentCoding.ZSTD, 3, null);
+        byte[] encoded = ContentCoding.encode(body, ContentCoding.ZSTD, 3, dictionary);
+        Assert.assertTrue(encoded.length < plain.length);
+        Assert.assertTrue(encoded.length < body.length / 2);
+        Assert.assertArrayEquals(body, StreamUtils.copyToByteArray(
+                ContentCoding.decoder(new ByteArrayInputStream(encoded), ContentCoding.ZSTD, dictionary)));
+        Assert.assertArrayEquals(body, StreamUtils.copyToByteArray(
+                ContentCoding.decoder(new ByteArrayInputStream(plain), ContentCoding.ZSTD, null)));
+    }
+
+    @Test
+    public void testRegistrySelectsCommonDictionary() throws Exception {
+        ZstdDictionaryRegistry registry = new ZstdDictionaryRegistry();
+        Assert.assertNull(registry.getIds());
+        registry.register(dictionary);
+        String id = String.valueOf(dictionary.getId());
+        Assert.assertEquals(id, registry.getIds());
+        Assert.assertSame(dictionary, registry.select(Collections.singletonList("1, " + id)));
+        Assert.assertNull(registry.select(Arrays.asList("1", "2")));
+        Assert.assertNull(registry.select(null));
+        Assert.assertSame(dictionary, registry.getForBody(id));
+        Assert.assertNull(registry.getForBody(null));
+        try {
+            registry.getForBody("1");
+            Assert.fail("Unknown dictionary must be refused");
+        } catch (IOException e) {
+            //expected
+        }
+    }
+
+    @Test
+    public void testProxyEncodesWithCommonDictionary() throws Exception {
+        CompressionSettings settings = new CompressionSettings();
+        settings.setZstd(true);
+        ZstdDictionaryRegistry registry = new ZstdDictionaryRegistry();
+        registry.register(dictionary);
+        CompressionInterceptor interceptor = new CompressionInterceptor(settings, new CompressionStats(), registry);
+        List<MockClientHttpRequest> sent = new ArrayList<>();
+        byte[] reply = user(7000);
+        ClientHttpRequestExecution execution = (request, body) -> {
+            MockClientHttpRequest mock = new MockClientHttpRequest(request.getMethod(), request.getURI());
+            mock.getHeaders().putAll(request.getHeaders());
+            mock.getBody().write(body);
+            sent.add(mock);
+            MockClientHttpResponse response = new MockClientHttpResponse(
+                    ContentCoding.encode(reply, ContentCoding.ZSTD, 3, dictionary), HttpStatus.OK);
+            response.getHeaders().set(HttpHeaders.ACCEPT_ENCODING, ContentCoding.ACCEPTED_ZSTD);
+            response.getHeaders().set(ZstdDictionaryRegistry.DICTIONARIES_HEADER, registry.getIds());
+            response.getHeaders().set(HttpHeaders.CONTENT_ENCODING, ContentCoding.ZSTD);
+            response.getHeaders().set(ZstdDictionaryRegistry.DICTIONARY_HEADER, registry.getIds());
+            return response;
+        };
+        MockClientHttpRequest request = new MockClientHttpRequest(HttpMethod.POST, new URI("http://localhost/users"));
+        byte[] body = user(8000);
+
+        ClientHttpResponse first = interceptor.intercept(request, body, execution);
+        HttpHeaders firstHeaders = sent.get(0).getHeaders();
+        Assert.assertEquals(ContentCoding.ACCEPTED_ZSTD, firstHeaders.getFirst(HttpHeaders.ACCEPT_ENCODING));
+        Assert.assertNull(firstHeaders.getFirst(HttpHeaders.CONTENT_ENCODING));
+        Assert.assertArrayEquals(reply, StreamUtils.copyToByteArray(first.getBody()));
+        Assert.assertNull(first.getHeaders().getFirst(ZstdDictionaryRegistry.DICTIONARY_HEADER));
+        Assert.assertSame(dictionary, interceptor.getRequestDictionary());
+
+        //the body is far below the default threshold but over the dictionary one
+        interceptor.intercept(request, body, execution).close();
+        HttpHeaders headers = sent.get(1).getHeaders();
+        Assert.assertEquals(ContentCoding.ZSTD, headers.getFirst(HttpHeaders.CONTENT_ENCODING));
+        Assert.assertEquals(registry.getIds(), headers.getFirst(ZstdDictionaryRegistry.DICTIONARY_HEADER));
+        Assert.assertArrayEquals(body, StreamUtils.copyToByteArray(ContentCoding.decoder(
+                new ByteArrayInputStream(sent.get(1).getBodyAsBytes()), ContentCoding.ZSTD, dictionary)));
+    }
+
+    private static byte[] user(int id) {
+        String json = "{\"id\":" + id + ",\"name\":\"User " + id + " name\",\"email\":\"user" + id
+                + "@someemail.com\",\"active\":" + (id % 3 != 0) + ",\"role\":\"" + (id % 5 == 0 ? "ADMIN" : "USER")
+                + "\",\"created\":" + (1500000000000L + id * 7919L) + "}";
+        return json.getBytes(StandardCharsets.UTF_8);
+    }
+}
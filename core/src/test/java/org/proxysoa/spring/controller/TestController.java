@@ -1,9 +1,14 @@
 package org.proxysoa.spring.controller;
 
+import org.reactivestreams.Publisher;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestMethod;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.ResponseBody;
 
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
 /**
  * @author stanislav.lapitsky created 4/20/2017.
  */
@@ -11,4 +16,16 @@ public interface TestController {
     @RequestMapping(value = "/test", method = RequestMethod.GET)
     @ResponseBody
     String test();
+
+    @RequestMapping(value = "/testById", method = RequestMethod.GET)
+    @ResponseBody
+    String test(@RequestParam("id") Long id);
+
+    @RequestMapping(value = "/testAsync", method = RequestMethod.GET)
+    @ResponseBody
+    CompletableFuture<List<Long>> testAsync();
+
+    @RequestMapping(value = "/testStream", method = RequestMethod.GET)
+    @ResponseBody
+    Publisher<Long> testStream();
 }
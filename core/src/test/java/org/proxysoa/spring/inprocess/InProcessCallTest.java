@@ -0,0 +1,152 @@
+package org.proxysoa.spring.inprocess;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Test;
+import org.proxysoa.spring.codec.JsonCodec;
+import org.proxysoa.spring.controller.TestController;
+import org.proxysoa.spring.exception.SOAControllerInvocationException;
+import org.proxysoa.spring.service.PooledHttpTransport;
+import org.proxysoa.spring.service.RestCallHandler;
+import org.reactivestreams.Publisher;
+
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+public class InProcessCallTest {
+    private final DeepCopier copier = new DeepCopier(new JsonCodec());
+    private final PooledHttpTransport httpTransport = new PooledHttpTransport();
+    private final InProcessRegistry registry = new InProcessRegistry(enabledSettings());
+    private final List<Long> asyncResult = new ArrayList<>(Arrays.asList(1L, 2L));
+    private final TestController target = new TestController() {
+        @Override
+        public String test() {
+            throw new IllegalStateException("failed");
+        }
+
+        @Override
+        public String test(Long id) {
+            return "in-process " + id;
+        }
+
+        @Override
+        public CompletableFuture<List<Long>> testAsync() {
+            return CompletableFuture.completedFuture(asyncResult);
+        }
+
+        @Override
+        public Publisher<Long> testStream() {
+            throw new UnsupportedOperationException();
+        }
+    };
+
+    @After
+    public void tearDown() {
+        registry.withdraw(TestController.class, target);
+        httpTransport.destroy();
+    }
+
+    @Test
+    public void testCopiesGraph() {
+        Node shared = new Node("shared");
+        Node root = new Node("root");
+        root.children.add(shared);
+        root.children.add(shared);
+        root.attributes.put("self", root);
+        root.values = new int[]{1, 2, 3};
+
+        Node copy = (Node) copier.copy(root);
+        Assert.assertNotSame(root, copy);
+        Assert.assertSame(root.name, copy.name);
+        Assert.assertEquals(2, copy.children.size());
+        Assert.assertNotSame(shared, copy.children.get(0));
+        Assert.assertEquals("shared", copy.children.get(0).name);
+        Assert.assertSame(copy.children.get(0), copy.children.get(1));
+        Assert.assertSame(copy, copy.attributes.get("self"));
+        Assert.assertNotSame(root.values, copy.values);
+        Assert.assertArrayEquals(root.values, copy.values);
+    }
+
+    @Test
+    public void testCopiesArgumentsAsOneGraph() {
+        Node shared = new Node("shared");
+        Object[] copies = copier.copyArgs(new Object[]{shared, Collections.singletonList(shared), 5L});
+        Assert.assertNotSame(shared, copies[0]);
+        Assert.assertSame(copies[0], ((List<?>) copies[1]).get(0));
+        Assert.assertEquals(5L, copies[2]);
+    }
+
+    @Test
+    public void testProxyCallsExportedImplementation() {
+        TestController proxy = createProxy();
+        registry.export(TestController.class, target);
+
+        Assert.assertEquals("in-process 5", proxy.test(5L));
+        List<Long> result = proxy.testAsync().join();
+        Assert.assertEquals(asyncResult, result);
+        Assert.assertNotSame(asyncResult, result);
+        try {
+            proxy.test();
+            Assert.fail("Failure expected");
+        } catch (SOAControllerInvocationException e) {
+            Assert.assertTrue(e.getCause() instanceof IllegalStateException);
+        }
+    }
+
+    @Test
+    public void testProxyCallsRemoteServiceWithoutExportedImplementation() {
+        TestController proxy = createProxy();
+        registry.export(TestController.class, target);
+        registry.withdraw(TestController.class, target);
+        Assert.assertNull(registry.getTarget(TestController.class));
+        try {
+            proxy.test(5L);
+            Assert.fail("Failure expected");
+        } catch (SOAControllerInvocationException e) {
+            Assert.assertTrue(e.getMessage().startsWith("Error calling remote service URL"));
+        }
+    }
+
+    private TestController createProxy() {
+        RestCallHandler handler = RestCallHandler.builder(TestController.class, "http://localhost:1")
+                .httpTransport(httpTransport)
+                .inProcessRegistry(registry)
+                .build();
+        return (TestController) Proxy.newProxyInstance(TestController.class.getClassLoader(),
+                new Class[]{TestController.class}, handler);
+    }
+
+    private static InProcessSettings enabledSettings() {
+        InProcessSettings settings = new InProcessSettings();
+        settings.setEnabled(true);
+        return settings;
+    }
+
+    private static class Base {
+        final String name;
+
+        Base(String name) {
+            this.name = name;
+        }
+    }
+
+    private static class Node extends Base {
+        private final List<Node> children = new ArrayList<>();
+        private final Map<String, Object> attributes = new HashMap<>();
+        private int[] values;
+
+        private Node() {
+            this(null);
+        }
+
+        Node(String name) {
+            super(name);
+        }
+    }
+}
@@ -0,0 +1,188 @@
+package org.proxysoa.spring.metrics;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.proxysoa.spring.annotation.BatchKey;
+import org.proxysoa.spring.controller.TestController;
+import org.proxysoa.spring.exception.SOAControllerInvocationException;
+import org.proxysoa.spring.exception.SOAControllerRejectedException;
+import org.proxysoa.spring.service.PooledHttpTransport;
+import org.proxysoa.spring.service.RestCallHandler;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.client.HttpClientErrorException;
+import org.springframework.web.client.HttpServerErrorException;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestMethod;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.client.ResourceAccessException;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.net.ConnectException;
+import java.net.SocketTimeoutException;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeUnit;
+
+public class CallMetricsTest {
+    /**
+     * Contract not called by other tests, so its MBeans are registered by the test only
+     */
+    private interface PingContract {
+        String ping();
+    }
+
+    /**
+     * Contract with batched calls
+     */
+    private interface BatchContract {
+        @RequestMapping(value = "/item", method = RequestMethod.GET)
+        @BatchKey("getItems")
+        String getItem(@RequestParam("id") Long id);
+
+        @RequestMapping(value = "/items", method = RequestMethod.POST)
+        Map<Long, String> getItems(@RequestBody List<Long> ids);
+    }
+
+    @Test
+    public void testClassifiesOutcomes() {
+        Assert.assertEquals(CallOutcome.SUCCESS, CallOutcome.of(null));
+        Assert.assertEquals(CallOutcome.CLIENT_ERROR, CallOutcome.of(new SOAControllerInvocationException("error",
+                new HttpClientErrorException(HttpStatus.NOT_FOUND))));
+        Assert.assertEquals(CallOutcome.SERVER_ERROR, CallOutcome.of(new CompletionException(
+                new HttpServerErrorException(HttpStatus.BAD_GATEWAY))));
+        Assert.assertEquals(CallOutcome.TIMEOUT, CallOutcome.of(new ResourceAccessException("timeout",
+                new SocketTimeoutException("Read timed out"))));
+        Assert.assertEquals(CallOutcome.CONNECT_FAILURE, CallOutcome.of(new ResourceAccessException("refused",
+                new ConnectException("Connection refused"))));
+        Assert.assertEquals(CallOutcome.REJECTED, CallOutcome.of(new SOAControllerRejectedException("open")));
+        Assert.assertEquals(CallOutcome.ERROR, CallOutcome.of(new IllegalStateException("error")));
+    }
+
+    @Test
+    public void testRecordsLatencyAndOutcomes() throws Exception {
+        CallMetrics callMetrics = new CallMetrics(settings(false));
+        Method method = TestController.class.getMethod("test");
+        MethodMetrics metrics = callMetrics.getMetrics(TestController.class, method);
+        Assert.assertSame(metrics, callMetrics.getMetrics(TestController.class, method));
+
+        for (int i = 0; i < 100; i++) {
+            long start = metrics.onStart() - TimeUnit.MILLISECONDS.toNanos(i < 99 ? 5 : 500);
+            metrics.onComplete(start, i < 98 ? null : new HttpServerErrorException(HttpStatus.BAD_GATEWAY));
+        }
+        metrics.recordRequest(100);
+        metrics.recordRequest(300);
+        metrics.recordResponse(1000);
+
+        Assert.assertEquals(100, metrics.getCalls());
+        Assert.assertEquals(98, metrics.getSuccess());
+        Assert.assertEquals(2, metrics.getServerErrors());
+        Assert.assertEquals(0, metrics.getInFlight());
+        MethodMetrics.LatencySnapshot latency = metrics.getLatency();
+        Assert.assertEquals(100, latency.getCount());
+        Assert.assertTrue(latency.getP50() >= 4950 && latency.getP50() < 6000);
+        Assert.assertTrue(latency.getMax() >= 495000);
+        Assert.assertEquals(400, metrics.getRequestBytes());
+        Assert.assertEquals(300, metrics.getMaxRequestBytes());
+        Assert.assertEquals(1, metrics.getResponseBodies());
+        Assert.assertEquals(1000, metrics.getMaxResponseBytes());
+    }
+
+    @Test
+    public void testRegistersMBeans() throws Exception {
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        CallMetrics callMetrics = new CallMetrics(settings(true));
+        MethodMetrics metrics = callMetrics.getMetrics(PingContract.class, PingContract.class.getMethod("ping"));
+        metrics.onComplete(metrics.onStart(), null);
+
+        ObjectName name = CallMetrics.getObjectName(PingContract.class.getName(), "ping()");
+        try {
+            Assert.assertEquals(1L, server.getAttribute(name, "Calls"));
+            Assert.assertEquals(0L, server.getAttribute(name, "InFlight"));
+        } finally {
+            callMetrics.destroy();
+        }
+        Assert.assertFalse(server.isRegistered(name));
+    }
+
+    @Test
+    public void testProxyRecordsCalls() throws Exception {
+        CallMetrics callMetrics = new CallMetrics(settings(false));
+        PooledHttpTransport httpTransport = new PooledHttpTransport();
+        RestCallHandler handler = RestCallHandler.builder(TestController.class, "http://localhost:1")
+                .httpTransport(httpTransport)
+                .callMetrics(callMetrics)
+                .build();
+        TestController proxy = (TestController) Proxy.newProxyInstance(TestController.class.getClassLoader(),
+                new Class[]{TestController.class}, handler);
+        try {
+            proxy.test(1L);
+            Assert.fail("Nothing listens on the port");
+        } catch (SOAControllerInvocationException e) {
+            //expected
+        }
+        try {
+            proxy.testAsync().join();
+            Assert.fail("Nothing listens on the port");
+        } catch (CompletionException e) {
+            //expected
+        } finally {
+            httpTransport.destroy();
+        }
+
+        MethodMetrics test = callMetrics.getMethods().get(TestController.class.getName() + ".test(Long)");
+        Assert.assertEquals(1, test.getConnectFailures());
+        Assert.assertEquals(0, test.getInFlight());
+        //the overload is not called
+        Assert.assertNull(callMetrics.getMethods().get(TestController.class.getName() + ".test()"));
+        MethodMetrics testAsync = callMetrics.getMethods().get(TestController.class.getName() + ".testAsync()");
+        //the caller may be woken up before the future's other callbacks are run
+        for (int i = 0; i < 100 && testAsync.getCalls() == 0; i++) {
+            Thread.sleep(10);
+        }
+        Assert.assertEquals(1, testAsync.getConnectFailures());
+        Assert.assertEquals(0, testAsync.getInFlight());
+    }
+
+    @Test
+    public void testProxyRecordsBatchCalls() throws Exception {
+        CallMetrics callMetrics = new CallMetrics(settings(false));
+        PooledHttpTransport httpTransport = new PooledHttpTransport();
+        RestCallHandler handler = RestCallHandler.builder(BatchContract.class, "http://localhost:1")
+                .httpTransport(httpTransport)
+                .callMetrics(callMetrics)
+                .build();
+        BatchContract proxy = (BatchContract) Proxy.newProxyInstance(BatchContract.class.getClassLoader(),
+                new Class[]{BatchContract.class}, handler);
+        try {
+            proxy.getItem(1L);
+            Assert.fail("Nothing listens on the port");
+        } catch (RuntimeException e) {
+            //expected
+        } finally {
+            httpTransport.destroy();
+        }
+
+        MethodMetrics batch = callMetrics.getMethods().get(BatchContract.class.getName() + ".getItems(List)");
+        Assert.assertNotNull(batch);
+        //the caller may be woken up before the future's other callbacks are run
+        for (int i = 0; i < 100 && batch.getCalls() == 0; i++) {
+            Thread.sleep(10);
+        }
+        Assert.assertEquals(1, batch.getConnectFailures());
+        Assert.assertEquals(0, batch.getInFlight());
+        Assert.assertEquals(1, callMetrics.getMethods().get(BatchContract.class.getName() + ".getItem(Long)")
+                .getConnectFailures());
+    }
+
+    private static MetricsSettings settings(boolean jmx) {
+        MetricsSettings settings = new MetricsSettings();
+        settings.setJmx(jmx);
+        return settings;
+    }
+}
@@ -0,0 +1,116 @@
+package org.proxysoa.spring.resilience;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.proxysoa.spring.exception.SOAControllerRejectedException;
+
+public class CircuitBreakerTest {
+    private long now = 1000;
+
+    @Test
+    public void testOpensOnFailureRateAndProbesAfterOpenDuration() {
+        CircuitBreaker breaker = new CircuitBreaker("TestController", settings(), () -> now);
+        for (int i = 0; i < 4; i++) {
+            long permit = breaker.tryAcquire();
+            Assert.assertNotEquals(CircuitBreaker.NOT_PERMITTED, permit);
+            breaker.onResult(permit, 1, i % 2 == 0);
+        }
+        Assert.assertEquals(CircuitBreaker.State.OPEN, breaker.getState());
+        Assert.assertEquals(CircuitBreaker.NOT_PERMITTED, breaker.tryAcquire());
+        Assert.assertEquals(1, breaker.getNotPermittedCount());
+
+        now += 1000;
+        long probe1 = breaker.tryAcquire();
+        long probe2 = breaker.tryAcquire();
+        Assert.assertNotEquals(CircuitBreaker.NOT_PERMITTED, probe1);
+        Assert.assertNotEquals(CircuitBreaker.NOT_PERMITTED, probe2);
+        Assert.assertEquals(CircuitBreaker.NOT_PERMITTED, breaker.tryAcquire());
+        Assert.assertEquals(CircuitBreaker.State.HALF_OPEN, breaker.getState());
+        breaker.onResult(probe1, 1, false);
+        breaker.onResult(probe2, 1, false);
+        Assert.assertEquals(CircuitBreaker.State.CLOSED, breaker.getState());
+        Assert.assertEquals(1, breaker.getTransitionCount(CircuitBreaker.State.OPEN));
+        Assert.assertEquals(1, breaker.getTransitionCount(CircuitBreaker.State.CLOSED));
+    }
+
+    @Test
+    public void testOpensOnSlowCalls() {
+        CircuitBreaker breaker = new CircuitBreaker("TestController", settings(), () -> now);
+        for (int i = 0; i < 4; i++) {
+            breaker.onResult(breaker.tryAcquire(), 200, false);
+        }
+        Assert.assertEquals(CircuitBreaker.State.OPEN, breaker.getState());
+    }
+
+    @Test
+    public void testFailedProbeReopens() {
+        CircuitBreaker breaker = new CircuitBreaker("TestController", settings(), () -> now);
+        for (int i = 0; i < 4; i++) {
+            breaker.onResult(breaker.tryAcquire(), 1, true);
+        }
+        now += 1000;
+        long probe1 = breaker.tryAcquire();
+        long probe2 = breaker.tryAcquire();
+        breaker.onResult(probe1, 1, true);
+        breaker.onResult(probe2, 1, true);
+        Assert.assertEquals(CircuitBreaker.State.OPEN, breaker.getState());
+        Assert.assertEquals(CircuitBreaker.NOT_PERMITTED, breaker.tryAcquire());
+    }
+
+    @Test
+    public void testLateResultsOfClosedStateCallsAreNotProbes() {
+        CircuitBreaker breaker = new CircuitBreaker("TestController", settings(), () -> now);
+        long late1 = breaker.tryAcquire();
+        long late2 = breaker.tryAcquire();
+        for (int i = 0; i < 4; i++) {
+            breaker.onResult(breaker.tryAcquire(), 1, true);
+        }
+        Assert.assertEquals(CircuitBreaker.State.OPEN, breaker.getState());
+        now += 1000;
+        long probe = breaker.tryAcquire();
+        Assert.assertEquals(CircuitBreaker.State.HALF_OPEN, breaker.getState());
+
+        //calls permitted while closed finish during the half open state
+        breaker.onResult(late1, 1, false);
+        breaker.onResult(late2, 1, false);
+        Assert.assertEquals(CircuitBreaker.State.HALF_OPEN, breaker.getState());
+        Assert.assertEquals(2, breaker.getSuccessfulCount());
+
+        long lastProbe = breaker.tryAcquire();
+        Assert.assertNotEquals(CircuitBreaker.NOT_PERMITTED, lastProbe);
+        Assert.assertEquals(CircuitBreaker.NOT_PERMITTED, breaker.tryAcquire());
+        breaker.onResult(probe, 1, true);
+        breaker.onResult(lastProbe, 1, true);
+        Assert.assertEquals(CircuitBreaker.State.OPEN, breaker.getState());
+    }
+
+    @Test
+    public void testFullBulkheadRejectsAndReleasesProbe() {
+        BulkheadSettings bulkheadSettings = new BulkheadSettings();
+        bulkheadSettings.setMaxConcurrentCalls(1);
+        CallGuard guard = new CallGuard(new CircuitBreaker("TestController", settings(), () -> now),
+                new Bulkhead("http://test", bulkheadSettings));
+        CallGuard.Permit permit = guard.acquire(false);
+        try {
+            guard.acquire(false);
+            Assert.fail("Rejection expected");
+        } catch (SOAControllerRejectedException e) {
+            Assert.assertEquals(1, guard.getBulkhead().getRejectedCount());
+        }
+        guard.onSuccess(permit);
+        Assert.assertEquals(0, guard.getBulkhead().getInProgressCount());
+        Assert.assertEquals(1, guard.getCircuitBreaker().getSuccessfulCount());
+    }
+
+    private static CircuitBreakerSettings settings() {
+        CircuitBreakerSettings settings = new CircuitBreakerSettings();
+        settings.setWindowSize(10);
+        settings.setMinimumCalls(4);
+        settings.setFailureRateThreshold(50);
+        settings.setSlowCallRateThreshold(100);
+        settings.setSlowCallDuration(100);
+        settings.setOpenDuration(1000);
+        settings.setHalfOpenCalls(2);
+        return settings;
+    }
+}
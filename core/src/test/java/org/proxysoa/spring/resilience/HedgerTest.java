@@ -0,0 +1,109 @@
+package org.proxysoa.spring.resilience;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Test;
+import org.proxysoa.spring.annotation.Hedged;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+public class HedgerTest {
+    private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor();
+
+    @After
+    public void tearDown() {
+        scheduler.shutdownNow();
+    }
+
+    @Test
+    public void testHedgeWinsOverSlowAttempt() throws Exception {
+        Hedger hedger = new Hedger("Test.get()", hedged(10), new HedgingSettings(), budget(10), scheduler);
+        List<CompletableFuture<Object>> attempts = new ArrayList<>();
+        CompletableFuture<Object> result = hedger.call(() -> attempt(attempts));
+
+        while (hedger.getHedgeCount() == 0) {
+            Thread.sleep(1);
+        }
+        attempts.get(1).complete("hedge");
+
+        Assert.assertEquals("hedge", result.get(5, TimeUnit.SECONDS));
+        Assert.assertTrue(attempts.get(0).isCancelled());
+        Assert.assertEquals(1, hedger.getHedgeWinCount());
+    }
+
+    @Test
+    public void testNoHedgeWithoutBudget() throws Exception {
+        Hedger hedger = new Hedger("Test.get()", hedged(1), new HedgingSettings(), budget(0), scheduler);
+        List<CompletableFuture<Object>> attempts = new ArrayList<>();
+        CompletableFuture<Object> result = hedger.call(() -> attempt(attempts));
+
+        Thread.sleep(50);
+        attempts.get(0).complete("primary");
+
+        Assert.assertEquals("primary", result.get(5, TimeUnit.SECONDS));
+        Assert.assertEquals(1, attempts.size());
+        Assert.assertEquals(0, hedger.getHedgeCount());
+    }
+
+    @Test
+    public void testFailsWhenAllAttemptsFail() throws Exception {
+        Hedger hedger = new Hedger("Test.get()", hedged(10), new HedgingSettings(), budget(10), scheduler);
+        List<CompletableFuture<Object>> attempts = new ArrayList<>();
+        CompletableFuture<Object> result = hedger.call(() -> attempt(attempts));
+
+        while (hedger.getHedgeCount() == 0) {
+            Thread.sleep(1);
+        }
+        attempts.get(0).completeExceptionally(new IllegalStateException("primary"));
+        Assert.assertFalse(result.isDone());
+        attempts.get(1).completeExceptionally(new IllegalStateException("hedge"));
+
+        try {
+            result.join();
+            Assert.fail("Failure expected");
+        } catch (CompletionException e) {
+            Assert.assertEquals("hedge", e.getCause().getMessage());
+        }
+    }
+
+    private static TokenBudget budget(int burst) {
+        TokenBudget budget = new TokenBudget("http://localhost", 100, burst);
+        for (int i = 0; i < burst; i++) {
+            budget.onCall();
+        }
+        return budget;
+    }
+
+    private static CompletableFuture<Object> attempt(List<CompletableFuture<Object>> attempts) {
+        CompletableFuture<Object> attempt = new CompletableFuture<>();
+        synchronized (attempts) {
+            attempts.add(attempt);
+        }
+        return attempt;
+    }
+
+    private static Hedged hedged(long delay) {
+        return new Hedged() {
+            @Override
+            public long delay() {
+                return delay;
+            }
+
+            @Override
+            public int percentile() {
+                return 95;
+            }
+
+            @Override
+            public Class<Hedged> annotationType() {
+                return Hedged.class;
+            }
+        };
+    }
+}
@@ -0,0 +1,130 @@
+package org.proxysoa.spring.resilience;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Test;
+import org.proxysoa.spring.exception.SOAControllerInvocationException;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.client.HttpClientErrorException;
+import org.springframework.web.client.HttpServerErrorException;
+import org.springframework.web.client.ResourceAccessException;
+
+import java.net.ConnectException;
+import java.net.SocketTimeoutException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class RetryerTest {
+    private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor();
+
+    @After
+    public void tearDown() {
+        scheduler.shutdownNow();
+    }
+
+    @Test
+    public void testRetriesRefusedConnection() {
+        Retryer retryer = retryer(false, 10);
+        AtomicInteger attempts = new AtomicInteger();
+        Object result = retryer.call(() -> {
+            if (attempts.incrementAndGet() < 3) {
+                throw callError(new ResourceAccessException("I/O error", new ConnectException("Connection refused")));
+            }
+            return "ok";
+        });
+        Assert.assertEquals("ok", result);
+        Assert.assertEquals(2, retryer.getRetryCount());
+    }
+
+    @Test
+    public void testClassifiesErrors() {
+        Retryer retryer = retryer(false, 10);
+        Assert.assertTrue(retryer.isRetryable(callError(new HttpServerErrorException(HttpStatus.SERVICE_UNAVAILABLE))));
+        Assert.assertFalse(retryer.isRetryable(callError(new HttpServerErrorException(HttpStatus.INTERNAL_SERVER_ERROR))));
+        Assert.assertFalse(retryer.isRetryable(callError(new HttpClientErrorException(HttpStatus.NOT_FOUND))));
+        Assert.assertFalse(retryer.isRetryable(readTimeout()));
+        Assert.assertTrue(retryer(true, 10).isRetryable(readTimeout()));
+    }
+
+    @Test
+    public void testGivesUpAfterMaxAttempts() {
+        Retryer retryer = retryer(false, 10);
+        AtomicInteger attempts = new AtomicInteger();
+        try {
+            retryer.call(() -> {
+                attempts.incrementAndGet();
+                throw callError(new HttpServerErrorException(HttpStatus.SERVICE_UNAVAILABLE));
+            });
+            Assert.fail("Failure expected");
+        } catch (SOAControllerInvocationException e) {
+            Assert.assertEquals(3, attempts.get());
+            Assert.assertEquals(1, retryer.getGivenUpCount());
+        }
+    }
+
+    @Test
+    public void testBudgetLimitsRetries() {
+        Retryer retryer = retryer(false, 1);
+        AtomicInteger attempts = new AtomicInteger();
+        for (int i = 0; i < 5; i++) {
+            try {
+                retryer.call(() -> {
+                    attempts.incrementAndGet();
+                    throw callError(new HttpServerErrorException(HttpStatus.SERVICE_UNAVAILABLE));
+                });
+            } catch (SOAControllerInvocationException e) {
+                //expected
+            }
+        }
+        //the burst token is spent by the first call, 20% of the next 4 calls is not a whole token
+        Assert.assertEquals(6, attempts.get());
+        Assert.assertEquals(1, retryer.getRetryCount());
+    }
+
+    @Test
+    public void testRetriesAsyncCall() throws Exception {
+        Retryer retryer = retryer(false, 10);
+        AtomicInteger attempts = new AtomicInteger();
+        CompletableFuture<Object> result = retryer.callAsync(() -> {
+            CompletableFuture<Object> attempt = new CompletableFuture<>();
+            if (attempts.incrementAndGet() == 1) {
+                attempt.completeExceptionally(callError(new HttpServerErrorException(HttpStatus.SERVICE_UNAVAILABLE)));
+            } else {
+                attempt.complete("ok");
+            }
+            return attempt;
+        });
+        Assert.assertEquals("ok", result.get(5, TimeUnit.SECONDS));
+        Assert.assertEquals(2, attempts.get());
+    }
+
+    @Test
+    public void testBackoffIsBounded() {
+        Retryer retryer = retryer(false, 10);
+        for (int i = 0; i < 100; i++) {
+            long first = retryer.backoffMillis(1);
+            Assert.assertTrue(first >= 0 && first <= 5);
+            long last = retryer.backoffMillis(100);
+            Assert.assertTrue(last >= 0 && last <= 20);
+        }
+    }
+
+    private Retryer retryer(boolean idempotent, int burst) {
+        RetrySettings settings = new RetrySettings();
+        settings.setInitialBackoff(5);
+        settings.setMaxBackoff(20);
+        TokenBudget budget = new TokenBudget("http://localhost", settings.getBudgetPercent(), burst);
+        return new Retryer("Test.get()", settings, idempotent, budget, scheduler);
+    }
+
+    private static SOAControllerInvocationException callError(Exception cause) {
+        return new SOAControllerInvocationException("Error calling remote service URL http://localhost", cause);
+    }
+
+    private static SOAControllerInvocationException readTimeout() {
+        return callError(new ResourceAccessException("I/O error", new SocketTimeoutException("Read timed out")));
+    }
+}
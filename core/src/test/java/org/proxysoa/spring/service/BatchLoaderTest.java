@@ -0,0 +1,86 @@
+package org.proxysoa.spring.service;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+
+public class BatchLoaderTest {
+    private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor();
+    private final List<List<Object>> batches = new ArrayList<>();
+
+    @After
+    public void tearDown() {
+        scheduler.shutdownNow();
+    }
+
+    @Test
+    public void testKeysOfWindowAreSentOnce() throws Exception {
+        BatchLoader loader = new BatchLoader(this::squares, scheduler, 50, 100);
+        CompletableFuture<Object> one = loader.load(1L);
+        CompletableFuture<Object> two = loader.load(2L);
+        CompletableFuture<Object> twoAgain = loader.load(2L);
+
+        Assert.assertEquals(1L, one.get());
+        Assert.assertEquals(4L, two.get());
+        Assert.assertEquals(4L, twoAgain.get());
+        Assert.assertEquals(Arrays.asList(Arrays.<Object>asList(1L, 2L)), batches);
+    }
+
+    @Test
+    public void testCallersOfSameKeyGetCopies() throws Exception {
+        BatchLoader loader = new BatchLoader(keys -> {
+            Map<Object, Object> res = new HashMap<>();
+            keys.forEach(key -> res.put(key, new ArrayList<>(Arrays.asList(key))));
+            return CompletableFuture.completedFuture(res);
+        }, scheduler, 60000, 3, value -> new ArrayList<>((List<?>) value));
+        CompletableFuture<Object> one = loader.load(1L);
+        CompletableFuture<Object> oneAgain = loader.load(1L);
+        loader.load(2L);
+        loader.load(3L);
+
+        Assert.assertEquals(Arrays.asList(1L), one.get());
+        Assert.assertEquals(Arrays.asList(1L), oneAgain.get());
+        Assert.assertNotSame(one.get(), oneAgain.get());
+    }
+
+ throws Exception {
+        BatchLoader loader = new BatchLoader(this::squares, scheduler, 60000, 2);
+        CompletableFuture<Object> one = loader.load(1L);
+        CompletableFuture<Object> two = loader.load(2L);
+
+        Assert.assertTrue(one.isDone());
+        Assert.assertEquals(4L, two.get());
+    }
+
+    @Test
+    public void testBatchErrorIsSentToAllCallers() {
+        BatchLoader loader = new BatchLoader(keys -> {
+            CompletableFuture<Object> res = new CompletableFuture<>();
+            res.completeExceptionally(new IllegalStateException("failed"));
+            return res;
+        }, scheduler, 60000, 2);
+        CompletableFuture<Object> one = loader.load(1L);
+        CompletableFuture<Object> two = loader.load(2L);
+
+        Assert.assertTrue(one.isCompletedExceptionally());
+        Assert.assertTrue(two.isCompletedExceptionally());
+    }
+
+    private synchronized CompletableFuture<Object> squares(List<Object> keys) {
+        batches.add(keys);
+        Map<Object, Object> res = new HashMap<>();
+        for (Object key : keys) {
+            res.put(key, (Long) key * (Long) key);
+        }
+        return CompletableFuture.completedFuture(res);
+    }
+}
@@ -0,0 +1,34 @@
+package org.proxysoa.spring.service;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class BeanPropertyReaderTest {
+
+    @Test
+    public void testReadProperties() {
+        BeanPropertyReader reader = BeanPropertyReader.forClass(TestBean.class);
+        Assert.assertEquals(2, reader.size());
+        Assert.assertEquals(-1, reader.indexOf("class"));
+
+        TestBean bean = new TestBean();
+        Assert.assertEquals(10, reader.read(reader.indexOf("pageSize"), bean));
+        Assert.assertEquals("name", reader.read(reader.indexOf("sort"), bean));
+    }
+
+    @Test
+    public void testReaderIsCached() {
+        Assert.assertSame(BeanPropertyReader.forClass(TestBean.class), BeanPropertyReader.forClass(TestBean.class));
+        Assert.assertEquals(0, BeanPropertyReader.forClass(Long.class).size());
+    }
+
+    public static class TestBean {
+        public int getPageSize() {
+            return 10;
+        }
+
+        public String getSort() {
+            return "name";
+        }
+    }
+}
@@ -10,6 +10,7 @@ import org.springframework.test.util.ReflectionTestUtils;
 
 import java.lang.reflect.Proxy;
 import java.util.HashMap;
+import java.util.concurrent.ThreadPoolExecutor;
 
 /**
  * @author stanislav.lapitsky created 4/18/2017.
@@ -41,4 +42,23 @@ public class ControllerFactoryTest {
         Assert.assertNotNull(uc2);
         Assert.assertTrue(uc == uc2);
     }
+
+    @Test
+    public void testDestroysOnlyCreatedTransport() {
+        PooledHttpTransport created = controllerFactory.getHttpTransport();
+        ThreadPoolExecutor createdExecutor = created.getAsyncExecutor();
+
+        ControllerFactory sharingFactory = new ControllerFactory();
+        PooledHttpTransport shared = new PooledHttpTransport();
+        sharingFactory.setHttpTransport(shared);
+        ThreadPoolExecutor sharedExecutor = shared.getAsyncExecutor();
+        try {
+            controllerFactory.destroy();
+            sharingFactory.destroy();
+            Assert.assertTrue(createdExecutor.isShutdown());
+            Assert.assertFalse(sharedExecutor.isShutdown());
+        } finally {
+            shared.destroy();
+        }
+    }
 }
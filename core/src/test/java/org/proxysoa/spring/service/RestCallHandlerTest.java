@@ -3,6 +3,15 @@ package org.proxysoa.spring.service;
 import org.junit.Assert;
 import org.junit.Test;
 import org.proxysoa.spring.controller.TestController;
+import org.proxysoa.spring.metrics.CallMetrics;
+import org.proxysoa.spring.metrics.MethodMetrics;
+import org.reactivestreams.Publisher;
+
+import java.lang.reflect.Proxy;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
 
 /**
  * @author stanislav.lapitsky created 4/18/2017.
@@ -16,4 +25,97 @@ public class RestCallHandlerTest {
         Assert.assertEquals("", res);
     }
 
+    @Test
+    public void testOverloadedMethods() throws Exception {
+        InvocationInfo noArgs = restCallHandler.getInvocationInfo(TestController.class.getMethod("test"));
+        InvocationInfo byId = restCallHandler.getInvocationInfo(TestController.class.getMethod("test", Long.class));
+        Assert.assertNotNull(noArgs);
+        Assert.assertNotNull(byId);
+        Assert.assertEquals("/test", noArgs.requestMapping);
+        Assert.assertEquals("/testById", byId.requestMapping);
+        Assert.assertArrayEquals(new String[]{"id"}, byId.parameterNames);
+    }
+
+    @Test
+    public void testAsyncMethod() throws Exception {
+        InvocationInfo async = restCallHandler.getInvocationInfo(TestController.class.getMethod("testAsync"));
+        Assert.assertTrue(async.async);
+        Assert.assertEquals(List.class, async.returnJavaType.getRawClass());
+        Assert.assertEquals(Long.class, async.returnJavaType.getContentType().getRawClass());
+        Assert.assertFalse(restCallHandler.getInvocationInfo(TestController.class.getMethod("test")).async);
+    }
+
+    @Test
+    public void testStreamingMethod() throws Exception {
+        InvocationInfo streaming = restCallHandler.getInvocationInfo(TestController.class.getMethod("testStream"));
+        Assert.assertTrue(streaming.streaming);
+        Assert.assertFalse(streaming.async);
+        Assert.assertEquals(Long.class, streaming.returnJavaType.getRawClass());
+    }
+
+    @Test
+    public void testAsyncViewOfLocalController() throws Exception {
+        TestController local = new TestController() {
+            @Override
+            public String test() {
+                return "local";
+            }
+
+            @Override
+            public String test(Long id) {
+                return "local" + id;
+            }
+
+            @Override
+            public CompletableFuture<List<Long>> testAsync() {
+                return CompletableFuture.completedFuture(Collections.emptyList());
+            }
+
+            @Override
+            public Publisher<Long> testStream() {
+                return null;
+            }
+        };
+        AsyncController<TestController> asyncController =
+                new AsyncController<>(TestController.class, local, Runnable::run);
+        Assert.assertEquals("local1", asyncController.call(c -> c.test(1L)).get());
+    }
+
+    @Test
+    public void testAsyncViewOfRemoteControllerRecordsMetrics() throws Exception {
+        CallMetrics callMetrics = new CallMetrics();
+        PooledHttpTransport httpTransport = new PooledHttpTransport();
+        RestCallHandler handler = RestCallHandler.builder(TestController.class, "http://localhost:1")
+                .httpTransport(httpTransport)
+                .callMetrics(callMetrics)
+                .build();
+        TestController proxy = (TestController) Proxy.newProxyInstance(TestController.class.getClassLoader(),
+                new Class[]{TestController.class}, handler);
+        try {
+            new AsyncController<>(TestController.class, proxy, Runnable::run).call(c -> c.test(1L)).get();
+            Assert.fail("Nothing listens on the port");
+        } catch (ExecutionException e) {
+            //expected
+        } finally {
+            httpTransport.destroy();
+        }
+
+        MethodMetrics test = callMetrics.getMethods().get(TestController.class.getName() + ".test(Long)");
+        //the caller may be woken up before the future's other callbacks are run
+        for (int i = 0; i < 100 && test.getCalls() == 0; i++) {
+            Thread.sleep(10);
+        }
+        Assert.assertEquals(1, test.getConnectFailures());
+        Assert.assertEquals(0, test.getInFlight());
+    }
+
+    @Test
+    public void testObjectMethodsAreLocal() {
+        TestController proxy = (TestController) Proxy.newProxyInstance(TestController.class.getClassLoader(),
+                new Class[]{TestController.class}, restCallHandler);
+        Assert.assertTrue(proxy.equals(proxy));
+        Assert.assertEquals(System.identityHashCode(proxy), proxy.hashCode());
+        Assert.assertTrue(proxy.toString().contains(TestController.class.getName()));
+    }
+
 }
@@ -0,0 +1,132 @@
+package org.proxysoa.spring.service;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.proxysoa.spring.exception.SOAControllerInvocationException;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class SingleFlightGroupTest {
+    private final SingleFlightGroup group = new SingleFlightGroup("Test.get()", value -> new ArrayList<>((List<?>) value));
+
+    @Test
+    public void testConcurrentCallsShareOneCall() throws Exception {
+        AtomicInteger remoteCalls = new AtomicInteger();
+        CountDownLatch release = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<Object>> results = new ArrayList<>();
+            results.add(executor.submit(() -> group.call("/projects", () -> {
+                remoteCalls.incrementAndGet();
+                await(release);
+                return Arrays.asList(1L, 2L);
+            })));
+            while (group.getInFlightCount() == 0) {
+                Thread.sleep(1);
+            }
+            for (int i = 0; i < 3; i++) {
+                results.add(executor.submit(() -> group.call("/projects", () -> {
+                    remoteCalls.incrementAndGet();
+                    return Arrays.asList(1L, 2L);
+                })));
+            }
+            while (group.getCollapsedCount() < 3) {
+                Thread.sleep(1);
+            }
+            release.countDown();
+
+            for (Future<Object> result : results) {
+                Assert.assertEquals(Arrays.asList(1L, 2L), result.get(5, TimeUnit.SECONDS));
+            }
+            Assert.assertNotSame(results.get(0).get(), results.get(1).get());
+            Assert.assertEquals(1, remoteCalls.get());
+            Assert.assertEquals(4, group.getCallCount());
+            Assert.assertEquals(0, group.getInFlightCount());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void testFailureIsShared() {
+        CompletableFuture<Object> remote = new CompletableFuture<>();
+        CompletableFuture<Object> leader = group.callAsync("/projects", () -> remote);
+        CompletableFuture<Object> follower = group.callAsync("/projects", CompletableFuture::new);
+        remote.completeExceptionally(new IllegalStateException("down"));
+
+        for (CompletableFuture<Object> result : Arrays.asList(leader, follower)) {
+            try {
+                result.join();
+                Assert.fail("Failure expected");
+            } catch (CompletionException e) {
+                Assert.assertTrue(e.getCause() instanceof IllegalStateException);
+            }
+        }
+        Assert.assertEquals(1, group.getCollapsedCount());
+    }
+
+    @Test
+    public void testErrorOfLeaderLandsFlight() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            Future<Object> leader = executor.submit(() -> group.call("/projects", () -> {
+                await(release);
+                throw new AssertionError("broken");
+            }));
+            while (group.getInFlightCount() == 0) {
+                Thread.sleep(1);
+            }
+            Future<Object> follower = executor.submit(() -> group.call("/projects", () -> Arrays.asList(1L)));
+            while (group.getCollapsedCount() < 1) {
+                Thread.sleep(1);
+            }
+            release.countDown();
+
+            try {
+                leader.get(5, TimeUnit.SECONDS);
+                Assert.fail("Failure expected");
+            } catch (ExecutionException e) {
+                Assert.assertTrue(e.getCause() instanceof AssertionError);
+            }
+            try {
+                follower.get(5, TimeUnit.SECONDS);
+                Assert.fail("Failure expected");
+            } catch (ExecutionException e) {
+                Assert.assertTrue(e.getCause() instanceof SOAControllerInvocationException);
+            }
+            Assert.assertEquals(0, group.getInFlightCount());
+            Assert.assertEquals(Arrays.asList(1L), group.call("/projects", () -> Arrays.asList(1L)));
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void testCallAfterLandingIsSent() {
+        AtomicInteger remoteCalls = new AtomicInteger();
+        group.call("/projects", () -> remoteCalls.incrementAndGet() > 0 ? Arrays.asList(1L) : null);
+        group.call("/projects", () -> remoteCalls.incrementAndGet() > 0 ? Arrays.asList(1L) : null);
+        Assert.assertEquals(2, remoteCalls.get());
+        Assert.assertEquals(0, group.getCollapsedCount());
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
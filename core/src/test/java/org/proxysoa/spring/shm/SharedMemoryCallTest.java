@@ -0,0 +1,154 @@
+package org.proxysoa.spring.shm;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.proxysoa.spring.codec.JsonCodec;
+import org.proxysoa.spring.controller.TestController;
+import org.proxysoa.spring.exception.SOAControllerInvocationException;
+import org.proxysoa.spring.service.PooledHttpTransport;
+import org.proxysoa.spring.service.RestCallHandler;
+import org.reactivestreams.Publisher;
+import org.springframework.mock.env.MockEnvironment;
+
+import java.io.File;
+import java.lang.reflect.Proxy;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+public class SharedMemoryCallTest {
+    private final PooledHttpTransport httpTransport = new PooledHttpTransport();
+    private final SharedMemoryRegistry registry = new SharedMemoryRegistry();
+    private final TestController target = new TestController() {
+        @Override
+        public String test() {
+            throw new IllegalStateException("failed");
+        }
+
+        @Override
+        public String test(Long id) {
+            if (id >= 100000) {
+                //long response
+                char[] chars = new char[id.intValue()];
+                Arrays.fill(chars, 'x');
+                return new String(chars);
+            }
+            return "shared memory " + id;
+        }
+
+        @Override
+        public CompletableFuture<List<Long>> testAsync() {
+            return CompletableFuture.completedFuture(Arrays.asList(1L, 2L));
+        }
+
+        @Override
+        public Publisher<Long> testStream() {
+            throw new UnsupportedOperationException();
+        }
+    };
+    private File dir;
+    private SharedMemoryServer server;
+
+    @Before
+    public void setUp() throws Exception {
+        dir = Files.createTempDirectory("soa-shm").toFile();
+        registry.setEnvironment(new MockEnvironment()
+                .withProperty("SOA.SharedMemory.enabled", "true")
+                .withProperty("SOA.SharedMemory.dir", dir.getPath())
+                .withProperty("SOA.SharedMemory.ringSize", "65536")
+                .withProperty("SOA.SharedMemory.peerTimeout", "300")
+                .withProperty("SOA.SharedMemory.spinTries", "100")
+                .withProperty("SOA.SharedMemory.TestController.channel", "test"));
+        server = new SharedMemoryServer("test", registry.getSettings(), new JsonCodec());
+        server.serve(TestController.class, target);
+        server.start();
+    }
+
+    @After
+    public void tearDown() {
+        server.stop();
+        registry.destroy();
+        httpTransport.destroy();
+        dir.delete();
+    }
+
+    @Test
+    public void testRingKeepsOrderOfMessages() throws Exception {
+        SharedMemoryChannel channel = SharedMemoryChannel.create(new File(dir, "ring.ring"), 1024);
+        try {
+            RingBuffer ring = channel.getRequests();
+            int sent = 0;
+            int received = 0;
+            //wraps the ring several times with padding records
+            while (received < 100) {
+                byte[] message = ("message " + sent).getBytes(StandardCharsets.UTF_8);
+                if (ring.offer(message)) {
+                    sent++;
+                    continue;
+                }
+                Assert.assertEquals("message " + received++, new String(ring.poll(), StandardCharsets.UTF_8));
+            }
+            while (received < sent) {
+                Assert.assertEquals("message " + received++, new String(ring.poll(), StandardCharsets.UTF_8));
+            }
+            Assert.assertNull(ring.poll());
+            Assert.assertEquals(0, ring.size());
+        } finally {
+            channel.close();
+        }
+    }
+
+    @Test
+    public void testProxyCallsServerThroughChannel() {
+        TestController proxy = createProxy();
+
+        Assert.assertEquals("shared memory 5", proxy.test(5L));
+        Assert.assertEquals(Arrays.asList(1L, 2L), proxy.testAsync().join());
+        try {
+            proxy.test();
+            Assert.fail("Failure expected");
+        } catch (SOAControllerInvocationException e) {
+            Assert.assertTrue(e.getMessage().contains("failed"));
+        }
+        Assert.assertEquals(3, server.getCallCount());
+        Assert.assertEquals(3, registry.getClients().iterator().next().getCallCount());
+    }
+
+    @Test
+    public void testResponseLongerThanRingIsSentInParts() {
+        TestController proxy = createProxy();
+
+        //the response takes ~25 max messages of the ring, it's sent through the channel nevertheless
+        Assert.assertEquals(200000, proxy.test(200000L).length());
+        Assert.assertEquals("shared memory 5", proxy.test(5L));
+        Assert.assertEquals(2, server.getCallCount());
+        Assert.assertEquals(0, server.getDroppedResponseCount());
+    }
+
+    @Test
+    public void testProxyCallsRemoteServiceWithoutServer() throws Exception {
+        TestController proxy = createProxy();
+        Assert.assertEquals("shared memory 5", proxy.test(5L));
+        server.stop();
+        Thread.sleep(500);
+        try {
+            proxy.test(5L);
+            Assert.fail("Failure expected");
+        } catch (SOAControllerInvocationException e) {
+            Assert.assertTrue(e.getMessage().startsWith("Error calling remote service URL"));
+        }
+    }
+
+    private TestController createProxy() {
+        RestCallHandler handler = RestCallHandler.builder(TestController.class, "http://localhost:1")
+                .httpTransport(httpTransport)
+                .sharedMemoryRegistry(registry)
+                .build();
+        return (TestController) Proxy.newProxyInstance(TestController.class.getClassLoader(),
+                new Class[]{TestController.class}, handler);
+    }
+}
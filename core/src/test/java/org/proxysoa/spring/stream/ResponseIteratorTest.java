@@ -0,0 +1,124 @@
+package org.proxysoa.spring.stream;
+
+import com.fasterxml.jackson.databind.type.TypeFactory;
+import org.junit.Assert;
+import org.junit.Test;
+import org.mockito.Mockito;
+import org.proxysoa.spring.codec.JsonCodec;
+import org.proxysoa.spring.exception.SOAControllerInvocationException;
+import org.proxysoa.spring.metrics.MethodMetrics;
+import org.proxysoa.spring.metrics.MetricsSettings;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.client.ClientHttpRequest;
+import org.springframework.http.client.ClientHttpRequestFactory;
+import org.springframework.http.client.ClientHttpResponse;
+import org.springframework.web.client.DefaultResponseErrorHandler;
+
+import java.io.ByteArrayInputStream;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+public class ResponseIteratorTest {
+    private ClientHttpResponse response;
+    private ByteArrayInputStream body;
+
+    @Test
+    public void testElementsAreParsedAsConsumed() throws Exception {
+        StringBuilder json = new StringBuilder("[0");
+        for (int i = 1; i < 100000; i++) {
+            json.append(',').append(i);
+        }
+        ResponseIterator<Long> iterator = open(json.append(']').toString());
+
+        Assert.assertEquals(Long.valueOf(0), iterator.next());
+        Assert.assertEquals(Long.valueOf(1), iterator.next());
+        //only the parser's buffer is read so far
+        Assert.assertTrue(body.available() > json.length() / 2);
+        Mockito.verify(response, Mockito.never()).close();
+
+        long count = 2;
+        while (iterator.hasNext()) {
+            Assert.assertEquals(Long.valueOf(count++), iterator.next());
+        }
+        Assert.assertEquals(100000, count);
+        Mockito.verify(response).close();
+    }
+
+    @Test
+    public void testClosingStreamReleasesResponse() throws Exception {
+        try (Stream<Long> stream = this.<Long>open("1\n2\n3\n").stream()) {
+            Assert.assertEquals(Long.valueOf(1), stream.findFirst().get());
+            Mockito.verify(response, Mockito.never()).close();
+        }
+        Mockito.verify(response).close();
+    }
+
+    @Test
+    public void testStreamOfJsonArray() throws Exception {
+        ResponseIterator<Long> iterator = open("[1,2,3]");
+        Assert.assertEquals(Arrays.asList(1L, 2L, 3L), iterator.stream().collect(Collectors.toList()));
+        Assert.assertFalse(iterator.hasNext());
+        Mockito.verify(response).close();
+    }
+
+    @Test
+    public void testCallIsMeasuredTillResponseIsRead() throws Exception {
+        MethodMetrics metrics = new MethodMetrics("TestController", "testStream", new MetricsSettings());
+        ResponseIterator<Long> iterator = open("[1,2]", metrics);
+        Assert.assertEquals(Long.valueOf(1), iterator.next());
+        Assert.assertEquals(0, metrics.getCalls());
+        Assert.assertEquals(1, metrics.getInFlight());
+
+        Assert.assertEquals(Long.valueOf(2), iterator.next());
+        Assert.assertFalse(iterator.hasNext());
+        iterator.close();
+        Assert.assertEquals(1, metrics.getSuccess());
+        Assert.assertEquals(0, metrics.getInFlight());
+
+        ResponseIterator<Long> malformed = open("[1,{", metrics);
+        malformed.next();
+        try {
+            malformed.next();
+            Assert.fail("Malformed element is parsed");
+        } catch (SOAControllerInvocationException e) {
+            Assert.assertEquals(1, metrics.getErrors());
+        }
+    }
+
+    @Test
+    public void testMalformedBodyClosesResponse() throws Exception {
+        ResponseIterator<Long> iterator = open("[1,{");
+        Assert.assertEquals(Long.valueOf(1), iterator.next());
+        try {
+            iterator.next();
+            Assert.fail("Malformed element is parsed");
+        } catch (SOAControllerInvocationException e) {
+            Mockito.verify(response).close();
+        }
+    }
+
+    private <T> ResponseIterator<T> open(String json) throws Exception {
+        return open(json, null);
+    }
+
+    private <T> ResponseIterator<T> open(String json, MethodMetrics metrics) throws Exception {
+        body = new ByteArrayInputStream(json.getBytes(StandardCharsets.UTF_8));
+        response = Mockito.mock(ClientHttpResponse.class);
+        Mockito.when(response.getRawStatusCode()).thenReturn(200);
+        Mockito.when(response.getHeaders()).thenReturn(new HttpHeaders());
+        Mockito.when(response.getBody()).thenReturn(body);
+        ClientHttpRequest request = Mockito.mock(ClientHttpRequest.class);
+        Mockito.when(request.execute()).thenReturn(response);
+        ClientHttpRequestFactory requestFactory = Mockito.mock(ClientHttpRequestFactory.class);
+        Mockito.when(requestFactory.createRequest(Mockito.any(URI.class), Mockito.eq(HttpMethod.GET)))
+                .thenReturn(request);
+
+        return ResponseIterator.open(requestFactory, new DefaultResponseErrorHandler(), URI.create("http://test"),
+                HttpMethod.GET, r -> {
+                }, new JsonCodec(), TypeFactory.defaultInstance().constructType(Long.class), metrics);
+    }
+}
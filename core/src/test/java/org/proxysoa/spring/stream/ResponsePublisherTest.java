@@ -0,0 +1,103 @@
+package org.proxysoa.spring.stream;
+
+import com.fasterxml.jackson.databind.type.TypeFactory;
+import org.junit.Assert;
+import org.junit.Test;
+import org.mockito.Mockito;
+import org.proxysoa.spring.codec.JsonCodec;
+import org.reactivestreams.Subscriber;
+import org.reactivestreams.Subscription;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.client.ClientHttpRequest;
+import org.springframework.http.client.ClientHttpRequestFactory;
+import org.springframework.http.client.ClientHttpResponse;
+import org.springframework.web.client.DefaultResponseErrorHandler;
+
+import java.io.ByteArrayInputStream;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+public class ResponsePublisherTest {
+
+    @Test
+    public void testNdjsonStreamHonoursDemand() throws Exception {
+        RecordingSubscriber subscriber = new RecordingSubscriber();
+        createPublisher("1\n2\n3\n").subscribe(subscriber);
+
+        subscriber.subscription.request(2);
+        Assert.assertEquals(Arrays.asList(1L, 2L), subscriber.values);
+        Assert.assertFalse(subscriber.completed);
+
+        subscriber.subscription.request(Long.MAX_VALUE);
+        Assert.assertEquals(Arrays.asList(1L, 2L, 3L), subscriber.values);
+        Assert.assertTrue(subscriber.completed);
+    }
+
+    @Test
+    public void testJsonArrayStream() throws Exception {
+        RecordingSubscriber subscriber = new RecordingSubscriber();
+        createPublisher("[1,2,3]").subscribe(subscriber);
+
+        subscriber.subscription.request(Long.MAX_VALUE);
+        Assert.assertEquals(Arrays.asList(1L, 2L, 3L), subscriber.values);
+        Assert.assertTrue(subscriber.completed);
+    }
+
+    @Test
+    public void testIterablePublisherHonoursDemand() {
+        RecordingSubscriber subscriber = new RecordingSubscriber();
+        new IterablePublisher<>(Arrays.asList(1L, 2L, 3L)).subscribe(subscriber);
+
+        subscriber.subscription.request(1);
+        Assert.assertEquals(Arrays.asList(1L), subscriber.values);
+        subscriber.subscription.request(5);
+        Assert.assertEquals(Arrays.asList(1L, 2L, 3L), subscriber.values);
+        Assert.assertTrue(subscriber.completed);
+    }
+
+    private ResponsePublisher<Long> createPublisher(String body) throws Exception {
+        ClientHttpResponse response = Mockito.mock(ClientHttpResponse.class);
+        Mockito.when(response.getRawStatusCode()).thenReturn(200);
+        Mockito.when(response.getHeaders()).thenReturn(new HttpHeaders());
+        Mockito.when(response.getBody()).thenReturn(new ByteArrayInputStream(body.getBytes(StandardCharsets.UTF_8)));
+        ClientHttpRequest request = Mockito.mock(ClientHttpRequest.class);
+        Mockito.when(request.execute()).thenReturn(response);
+        ClientHttpRequestFactory requestFactory = Mockito.mock(ClientHttpRequestFactory.class);
+        Mockito.when(requestFactory.createRequest(Mockito.any(URI.class), Mockito.eq(HttpMethod.GET)))
+                .thenReturn(request);
+
+        return new ResponsePublisher<>(requestFactory, new DefaultResponseErrorHandler(), URI.create("http://test"),
+                HttpMethod.GET, r -> {
+        }, new JsonCodec(), TypeFactory.defaultInstance().constructType(Long.class), Runnable::run);
+    }
+
+    private static class RecordingSubscriber implements Subscriber<Long> {
+        private final List<Long> values = new ArrayList<>();
+        private Subscription subscription;
+        private boolean completed;
+
+        @Override
+        public void onSubscribe(Subscription s) {
+            subscription = s;
+        }
+
+        @Override
+        public void onNext(Long value) {
+            values.add(value);
+        }
+
+        @Override
+        public void onError(Throwable t) {
+            throw new AssertionError(t);
+        }
+
+        @Override
+        public void onComplete() {
+            completed = true;
+        }
+    }
+}
@@ -0,0 +1,47 @@
+package org.proxysoa.spring.transport;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.proxysoa.spring.service.ConnectionPoolSettings;
+import org.proxysoa.spring.service.PooledHttpTransport;
+import org.springframework.core.env.MapPropertySource;
+import org.springframework.core.env.StandardEnvironment;
+import org.springframework.web.client.ResourceAccessException;
+
+import java.util.HashMap;
+import java.util.Map;
+
+public class Http2TransportTest {
+
+    @Test
+    public void testReadsSettings() {
+        Map<String, Object> properties = new HashMap<>();
+        properties.put(Http2Settings.PREFIX + "enabled", "true");
+        properties.put(Http2Settings.PREFIX + "maxConnections", "4");
+        properties.put(Http2Settings.PREFIX + "streamRecvWindow", "65535");
+        StandardEnvironment environment = new StandardEnvironment();
+        environment.getPropertySources().addFirst(new MapPropertySource("test", properties));
+
+        Http2Settings settings = new Http2Settings(environment);
+        Assert.assertTrue(settings.isEnabled());
+        Assert.assertEquals(4, settings.getMaxConnections());
+        Assert.assertEquals(65535, settings.getStreamRecvWindow());
+        Assert.assertEquals(new Http2Settings().getSessionRecvWindow(), settings.getSessionRecvWindow());
+    }
+
+    @Test
+    public void testHttp2ServicesHaveNoConnectionPool() {
+        Http2Settings settings = new Http2Settings();
+        settings.setEnabled(true);
+        PooledHttpTransport httpTransport = new PooledHttpTransport(new ConnectionPoolSettings(), settings);
+        try {
+            httpTransport.getRestTemplate("http://localhost:1/").getForObject("http://localhost:1/test", String.class);
+            Assert.fail("Nothing listens on the port");
+        } catch (ResourceAccessException e) {
+            //expected
+        } finally {
+            httpTransport.destroy();
+        }
+        Assert.assertTrue(httpTransport.getPoolStats().isEmpty());
+    }
+}
@@ -0,0 +1,77 @@
+package org.proxysoa.spring.transport;
+
+import org.junit.Assert;
+import org.junit.Assume;
+import org.junit.Test;
+import org.newsclub.net.unix.AFUNIXServerSocket;
+import org.newsclub.net.unix.AFUNIXSocket;
+import org.newsclub.net.unix.AFUNIXSocketAddress;
+import org.proxysoa.spring.service.PooledHttpTransport;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.ResponseEntity;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.net.Socket;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.atomic.AtomicReference;
+
+public class UnixSocketTransportTest {
+
+    @Test
+    public void testParsesUrl() {
+        String url = "unix:/var/run/soa/project-service.sock:/ProjectService/";
+        Assert.assertTrue(UnixSocketURLs.isUnix(url));
+        Assert.assertFalse(UnixSocketURLs.isUnix("http://localhost:8082/ProjectService/"));
+        Assert.assertEquals("/var/run/soa/project-service.sock", UnixSocketURLs.getSocketFile(url));
+        Assert.assertEquals("/ProjectService/", UnixSocketURLs.getPath(url));
+        Assert.assertEquals("http://var-run-soa-project-service-sock/ProjectService/", UnixSocketURLs.toHttpUrl(url));
+
+        Assert.assertEquals("/tmp/a.sock", UnixSocketURLs.getSocketFile("unix:/tmp/a.sock"));
+        Assert.assertEquals("/", UnixSocketURLs.getPath("unix:/tmp/a.sock"));
+        Assert.assertEquals("http://localhost:8082/", UnixSocketURLs.toHttpUrl("http://localhost:8082/"));
+        Assert.assertEquals("localhost", UnixSocketURLs.getHost("/"));
+    }
+
+    @Test
+    public void testCallsServiceOverSocket() throws Exception {
+        Assume.assumeTrue(AFUNIXSocket.isSupported());
+        File socketFile = File.createTempFile("soa-test", ".sock");
+        socketFile.delete();
+        String url = "unix:" + socketFile.getAbsolutePath() + ":/TestService/";
+        AtomicReference<String> requestLine = new AtomicReference<>();
+        PooledHttpTransport httpTransport = new PooledHttpTransport();
+        try (AFUNIXServerSocket server = AFUNIXServerSocket.newInstance()) {
+            server.bind(new AFUNIXSocketAddress(socketFile));
+            Thread serverThread = new Thread(() -> {
+                try (Socket socket = server.accept()) {
+                    BufferedReader in = new BufferedReader(new InputStreamReader(socket.getInputStream(),
+                            StandardCharsets.US_ASCII));
+                    requestLine.set(in.readLine());
+                    for (String line = in.readLine(); line != null && !line.isEmpty(); line = in.readLine()) {
+                        //skip headers
+                    }
+                    OutputStream out = socket.getOutputStream();
+                    out.write(("HTTP/1.1 200 OK\r\nContent-Type: text/plain\r\nContent-Length: 2\r\n"
+                            + "Connection: close\r\n\r\nok").getBytes(StandardCharsets.US_ASCII));
+                    out.flush();
+                } catch (Exception e) {
+                    //the call fails
+                }
+            });
+            serverThread.setDaemon(true);
+            serverThread.start();
+
+            ResponseEntity<String> response = httpTransport.getRestTemplate(url).exchange(
+                    new URI(UnixSocketURLs.toHttpUrl(url) + "test"), HttpMethod.GET, null, String.class);
+            Assert.assertEquals("ok", response.getBody());
+            Assert.assertEquals("GET /TestService/test HTTP/1.1", requestLine.get());
+        } finally {
+            httpTransport.destroy();
+            socketFile.delete();
+        }
+    }
+}
@@ -2,11 +2,13 @@ package org.proxysoa.spring.config;
 
 import org.proxysoa.spring.service.CommonHttpHeadersResolver;
 import org.proxysoa.spring.service.HttpHeadersResolver;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.context.annotation.PropertySource;
 import org.springframework.util.LinkedMultiValueMap;
 import org.springframework.util.MultiValueMap;
+import org.springframework.web.filter.ShallowEtagHeaderFilter;
 
 /**
  * Simplest URL resolver for remote calls for each controller.
@@ -20,9 +22,22 @@ public class ProjectServiceConfig {
     @Bean
     public HttpHeadersResolver httpHeadersResolver() {
         MultiValueMap<String, String> map = new LinkedMultiValueMap<>();
-        map.add("Accept","application/json");
+        //Accept is not set, so the proxies negotiate binary body formats (see SOA.Codec.*)
         CommonHttpHeadersResolver resolver = new CommonHttpHeadersResolver(map);
 
         return resolver;
     }
+
+    /**
+     * Adds ETag to the projects responses and answers 304 Not Modified to conditional requests
+     * of unchanged ones, so proxies revalidate cached responses without the body transfer.
+     *
+     * @return ETag filter registration
+     */
+    @Bean
+    public FilterRegistrationBean projectsEtagFilter() {
+        FilterRegistrationBean registration = new FilterRegistrationBean(new ShallowEtagHeaderFilter());
+        registration.addUrlPatterns("/projects/*");
+        return registration;
+    }
 }
@@ -4,11 +4,15 @@ import org.proxysoa.spring.dto.ProjectDTO;
 import org.proxysoa.spring.dto.SimplePage;
 import org.proxysoa.spring.dto.SimplePageRequest;
 import org.proxysoa.spring.service.ProjectService;
+import org.proxysoa.spring.stream.IterablePublisher;
+import org.reactivestreams.Publisher;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RestController;
 
 import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
 
 /**
  * Implements common's ProjectController contract
@@ -33,11 +37,28 @@ public class ProjectControllerImpl implements ProjectController {
         return projectService.getProjects(pageRequest).getContent();
     }
 
+    @Override
+    public Publisher<ProjectDTO> streamAllProjects() {
+        SimplePageRequest pageRequest = new SimplePageRequest(0, MAX_PROJECT_COUNT, null);
+        return new IterablePublisher<>(projectService.getProjects(pageRequest).getContent());
+    }
+
+    @Override
+    public Stream<ProjectDTO> iterateAllProjects() {
+        SimplePageRequest pageRequest = new SimplePageRequest(0, MAX_PROJECT_COUNT, null);
+        return projectService.getProjects(pageRequest).getContent().stream();
+    }
+
     @Override
     public List<ProjectDTO> getProjectsByUser(Long userId) {
         return projectService.getProjectsByUser(userId);
     }
 
+    @Override
+    public Map<Long, List<ProjectDTO>> getProjectsByUsers(@RequestBody List<Long> userIds) {
+        return projectService.getProjectsByUsers(userIds);
+    }
+
     @Override
     public void createProject(@RequestBody ProjectDTO project) {
         projectService.createProject(project);
@@ -5,6 +5,7 @@ import org.proxysoa.spring.dto.SimplePage;
 import org.proxysoa.spring.dto.SimplePageRequest;
 
 import java.util.List;
+import java.util.Map;
 
 /**
  * Service Layer to work with projects
@@ -29,6 +30,14 @@ public interface ProjectService {
      */
     List<ProjectDTO> getProjectsByUser(Long userId);
 
+    /**
+     * gets projects of several users
+     *
+     * @param userIds user ids
+     * @return map user id to the user's projects list (empty list for users without projects)
+     */
+    Map<Long, List<ProjectDTO>> getProjectsByUsers(List<Long> userIds);
+
     /**
      * Creates a new project instance
      *
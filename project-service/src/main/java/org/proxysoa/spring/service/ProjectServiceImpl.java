@@ -7,7 +7,9 @@ import org.proxysoa.spring.dto.UserDTO;
 import org.springframework.stereotype.Service;
 
 import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.stream.Collectors;
 
 /**
@@ -56,6 +58,23 @@ public class ProjectServiceImpl implements ProjectService {
         return res;
     }
 
+    @Override
+    public Map<Long, List<ProjectDTO>> getProjectsByUsers(List<Long> userIds) {
+        Map<Long, List<ProjectDTO>> res = new LinkedHashMap<>();
+        for (Long userId : userIds) {
+            res.put(userId, new ArrayList<>());
+        }
+        for (ProjectDTO p : dummyProjects) {
+            if (p.getOwner() != null && p.getOwner().getId() != null) {
+                List<ProjectDTO> userProjects = res.get(p.getOwner().getId());
+                if (userProjects != null) {
+                    userProjects.add(p);
+                }
+            }
+        }
+        return res;
+    }
+
     @Override
     public void createProject(ProjectDTO project) {
         dummyProjects.add(project);
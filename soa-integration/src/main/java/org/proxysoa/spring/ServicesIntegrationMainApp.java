@@ -13,7 +13,8 @@ import java.util.List;
 /**
  * The class is used for testing.
  * We run 2 independent web services (for users and for projects) and call users service
- * which internally calls projects service
+ * which internally calls projects service. Both services run in one JVM, so the users service calls
+ * projects controller in-process (no loopback HTTP and JSON)
  *
  * @author stanislav.lapitsky created 4/14/2017.
  */
@@ -25,7 +26,8 @@ public class ServicesIntegrationMainApp {
         SpringApplicationBuilder uws = new SpringApplicationBuilder(UserWebApplication.class)
                 .properties("server.port=8081",
                         "server.contextPath=/UserService",
-                        "SOA.ControllerFactory.enforceProxyCreation=true");
+                        "SOA.ControllerFactory.enforceProxyCreation=true",
+                        "SOA.InProcess.ProjectController.enabled=true");
         uws.run();
         SpringApplicationBuilder pws = new SpringApplicationBuilder(ProjectWebApplication.class)
                 .properties("server.port=8082",
@@ -12,6 +12,8 @@ import org.springframework.web.client.ResourceAccessException;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 
 /**
  * @author stanislav.lapitsky created 4/14/2017.
@@ -52,10 +54,20 @@ public class UserServiceImpl implements UserService {
         }
 
         List<UserDTO> projectUsers = dummyUsers.subList(startIndex, endIndex);
+        // projects of all the page users are requested at once so the proxy sends them
+        // as one getProjectsByUsers call
+        AsyncController<ProjectController> asyncProjectController =
+                controllerFactory.getAsyncController(ProjectController.class);
+        List<CompletableFuture<List<ProjectDTO>>> usersProjects = new ArrayList<>();
         for (UserDTO user : projectUsers) {
-            user.setProjects(getUserProjectsFromAutowired(user));
-            // the commented method uses ControllerFactory directly to get controller
+            usersProjects.add(asyncProjectController.call(c -> c.getProjectsByUser(user.getId())));
+        }
+        for (int i = 0; i < projectUsers.size(); i++) {
+            UserDTO user = projectUsers.get(i);
+            user.setProjects(getUserProjects(usersProjects.get(i)));
+            // the commented methods call the controller one by one (autowired or obtained from ControllerFactory)
             // could be used as example if necessary
+            // user.setProjects(getUserProjectsFromAutowired(user));
             // user.setProjects(getUserProjects(user));
         }
 
@@ -70,6 +82,14 @@ public class UserServiceImpl implements UserService {
         }
     }
 
+    private List<ProjectDTO> getUserProjects(CompletableFuture<List<ProjectDTO>> userProjects) {
+        try {
+            return userProjects.join();
+        } catch (CompletionException e) {
+            return null;
+        }
+    }
+
     private List<ProjectDTO> getUserProjects(UserDTO u) {
         ProjectController projectController = controllerFactory.getController(ProjectController.class);
 